@@ -0,0 +1,25 @@
+#import "Common/ShaderLib/Instancing.glsllib"
+#import "Common/ShaderLib/Skinning.glsllib"
+#import "Shaders/Morph.glsllib"
+#import "Shaders/FogOfWar.glsllib"
+attribute vec3 inPosition;
+attribute vec2 inTexCoord;
+
+varying vec2 texCoord;
+
+void main(){
+    vec4 modelSpacePos = vec4(inPosition, 1.0);
+
+   #ifdef MORPH_MAP
+       Morph_Compute(modelSpacePos);
+   #endif
+
+   #ifdef NUM_BONES
+       Skinning_Compute(modelSpacePos);
+   #endif
+    gl_Position = TransformWorldViewProjection(modelSpacePos);
+    #ifdef FOG_OF_WAR
+        FogOfWar_Hide(gl_Position);
+    #endif
+    texCoord = inTexCoord;
+}
\ No newline at end of file
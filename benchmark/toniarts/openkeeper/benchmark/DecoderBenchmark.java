@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2014-2018 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.benchmark;
+
+import com.jme3.texture.Image;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import toniarts.openkeeper.Main;
+import toniarts.openkeeper.tools.convert.ConversionUtils;
+import toniarts.openkeeper.tools.convert.textures.enginetextures.EngineTexturesFile;
+import toniarts.openkeeper.tools.convert.wad.WadFile;
+import toniarts.openkeeper.utils.PathUtils;
+
+/**
+ * The DK II file decoding. The byte conversions run on generated data, the
+ * WAD and texture decoding on the original files, so they need the DK II
+ * folder to be configured.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecoderBenchmark {
+
+    private static final int VALUE_COUNT = 4096;
+
+    private final byte[][] values = new byte[VALUE_COUNT][];
+    private WadFile wadFile;
+    private final List<String> wadEntries = new ArrayList<>();
+    private int wadEntry = 0;
+    private EngineTexturesFile engineTexturesFile;
+    private final List<String> textures = new ArrayList<>();
+    private int texture = 0;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Random random = new Random(1);
+        for (int i = 0; i < VALUE_COUNT; i++) {
+            values[i] = new byte[4];
+            random.nextBytes(values[i]);
+        }
+
+        wadFile = new WadFile(new File(ConversionUtils.getRealFileName(Main.getDkIIFolder(), PathUtils.DKII_DATA_FOLDER + "FrontEnd.WAD")));
+        wadEntries.addAll(wadFile.getWadFileEntries());
+
+        engineTexturesFile = new EngineTexturesFile(new File(ConversionUtils.getRealFileName(Main.getDkIIFolder(), "DK2TextureCache".concat(File.separator).concat("EngineTextures.dat"))));
+        for (String textureEntry : engineTexturesFile) {
+            textures.add(textureEntry);
+        }
+    }
+
+    @Benchmark
+    public long conversionUtils() {
+        long result = 0;
+        for (byte[] value : values) {
+            result += ConversionUtils.toUnsignedInteger(value);
+            result += ConversionUtils.toInteger(value);
+            result += (long) ConversionUtils.toFloat(value);
+            result += ConversionUtils.toUnsignedShort(value);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream wadFileData() {
+        String entry = wadEntries.get(wadEntry);
+        wadEntry = (wadEntry + 1) % wadEntries.size();
+        return wadFile.getFileData(entry);
+    }
+
+    @Benchmark
+    public Image textureDecoding() {
+        String entry = textures.get(texture);
+        texture = (texture + 1) % textures.size();
+        return engineTexturesFile.getImage(entry);
+    }
+
+}
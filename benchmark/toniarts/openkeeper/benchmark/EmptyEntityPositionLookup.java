@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2014-2018 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.benchmark;
+
+import com.simsilica.es.EntityId;
+import java.awt.Point;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import toniarts.openkeeper.game.logic.IEntityPositionLookup;
+import toniarts.openkeeper.game.map.MapTile;
+
+/**
+ * An entity lookup of an empty map, for benchmarking the map alone
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public class EmptyEntityPositionLookup implements IEntityPositionLookup {
+
+    @Override
+    public List<EntityId> getEntitiesInLocation(Point p) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<EntityId> getEntitiesInLocation(int x, int y) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<EntityId> getEntitiesInLocation(MapTile mapTile) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public MapTile getEntityLocation(EntityId entityId) {
+        return null;
+    }
+
+    @Override
+    public <T> List<T> getEntityTypesInLocation(Point p, Class<T> clazz) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public <T> List<T> getEntityTypesInLocation(int x, int y, Class<T> clazz) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public <T> List<T> getEntityTypesInLocation(MapTile mapTile, Class<T> clazz) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isTileBlocked(Point p, short playerId) {
+        return false;
+    }
+
+    @Override
+    public boolean isTileBlocked(int x, int y, short playerId) {
+        return false;
+    }
+
+    @Override
+    public boolean isTileBlocked(MapTile mapTile, short playerId) {
+        return false;
+    }
+
+    @Override
+    public Set<EntityId> getSensedEntities(EntityId entityId) {
+        return Collections.emptySet();
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2014-2018 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.benchmark;
+
+import com.jme3.math.Vector2f;
+import com.simsilica.es.EntityId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import toniarts.openkeeper.game.controller.IMapController;
+import toniarts.openkeeper.game.controller.IPlayerController;
+import toniarts.openkeeper.game.controller.creature.ICreatureController;
+import toniarts.openkeeper.game.logic.IEntityPositionLookup;
+import toniarts.openkeeper.game.task.ITaskManager;
+import toniarts.openkeeper.utils.WorldUtils;
+
+/**
+ * The game logic of a real level with the given number of creatures per
+ * keeper. Every keeper has also tagged the whole map for digging, so the task
+ * queues are long. Needs the DK II folder to be configured.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GameLogicBenchmark {
+
+    private static final int IMPS_PER_KEEPER = 8;
+    private static final int SETTLE_TICKS = 200;
+
+    @Param({"MPD1"})
+    public String level;
+
+    @Param({"10", "50", "200"})
+    public int creaturesPerKeeper;
+
+    private HeadlessGame game;
+    private IEntityPositionLookup entityPositionLookup;
+    private ITaskManager taskManager;
+    private final List<EntityId> creatures = new ArrayList<>();
+    private final List<ICreatureController> imps = new ArrayList<>();
+    private int creature = 0;
+    private int imp = 0;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        game = new HeadlessGame(level);
+        creatures.addAll(game.spawnCreatures(IMPS_PER_KEEPER, creaturesPerKeeper, new Random(1)));
+        entityPositionLookup = game.getGameController().getEntityLookupService();
+        taskManager = game.getGameController().getTaskManager();
+
+        // Tag everything, long task queues
+        IMapController mapController = game.getGameController().getGameWorldController().getMapController();
+        Vector2f start = WorldUtils.pointToVector2f(0, 0);
+        Vector2f end = WorldUtils.pointToVector2f(mapController.getMapData().getWidth() - 1, mapController.getMapData().getHeight() - 1);
+        for (IPlayerController keeper : game.getKeepers()) {
+            mapController.selectTiles(start, end, true, keeper.getKeeper().getId());
+        }
+
+        // Let the game settle, creatures to take their places and tasks to be created
+        for (int i = 0; i < SETTLE_TICKS; i++) {
+            game.tick();
+        }
+
+        for (EntityId entityId : creatures) {
+            ICreatureController creatureController = game.getGameController().getGameWorldController().getCreaturesController().createController(entityId);
+            if (creatureController.isWorker()) {
+                imps.add(creatureController);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        game.close();
+    }
+
+    @Benchmark
+    public void processTick() {
+        game.tickGameLogic();
+    }
+
+    @Benchmark
+    public Set<EntityId> getSensedEntities() {
+        EntityId entityId = creatures.get(creature);
+        creature = (creature + 1) % creatures.size();
+        return entityPositionLookup.getSensedEntities(entityId);
+    }
+
+    @Benchmark
+    public boolean assignTask() {
+        ICreatureController creatureController = imps.get(imp);
+        imp = (imp + 1) % imps.size();
+        return taskManager.assignTask(creatureController, true);
+    }
+
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright (C) 2014-2018 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.benchmark;
+
+import com.jme3.math.Vector3f;
+import com.simsilica.es.EntityData;
+import com.simsilica.es.EntityId;
+import com.simsilica.es.base.DefaultEntityData;
+import java.awt.Point;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import toniarts.openkeeper.Main;
+import toniarts.openkeeper.game.controller.GameController;
+import toniarts.openkeeper.game.controller.IPlayerController;
+import toniarts.openkeeper.game.controller.room.IRoomController;
+import toniarts.openkeeper.game.data.Settings;
+import toniarts.openkeeper.game.navigation.pathfinding.INavigable;
+import toniarts.openkeeper.game.state.session.PlayerService;
+import toniarts.openkeeper.tools.convert.ConversionUtils;
+import toniarts.openkeeper.tools.convert.map.Creature;
+import toniarts.openkeeper.tools.convert.map.KwdFile;
+import toniarts.openkeeper.tools.convert.map.Player;
+import toniarts.openkeeper.tools.convert.map.TriggerAction;
+import toniarts.openkeeper.utils.GameLoop;
+import toniarts.openkeeper.utils.IGameLoopManager;
+import toniarts.openkeeper.utils.PathUtils;
+import toniarts.openkeeper.utils.WorldUtils;
+
+/**
+ * Runs the server side of the game without rendering and without the game
+ * loop threads. The game loops are ticked by hand on the calling thread, on a
+ * simulated clock, so the game runs as fast as the logic allows.<br>
+ * Needs the DK II folder to be configured, the levels are read from there.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public class HeadlessGame implements AutoCloseable {
+
+    private final KwdFile kwdFile;
+    private final EntityData entityData;
+    private final GameController gameController;
+    private final List<GameLoop> gameLoops;
+    private final long[] nextTickTimes;
+    private final long tickInterval;
+    private long time = 0;
+
+    /**
+     * Creates a new game of the given level
+     *
+     * @param level the level name, the KWD file name without the extension,
+     * like "MPD1"
+     */
+    public HeadlessGame(String level) {
+        try {
+            kwdFile = new KwdFile(Main.getDkIIFolder(),
+                    new File(ConversionUtils.getRealFileName(Main.getDkIIFolder(), PathUtils.DKII_MAPS_FOLDER + level + ".kwd")));
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to load the level " + level + ", is the DK II folder configured?", ex);
+        }
+
+        // No autosaving over the real saves
+        Main.getUserSettings().setSetting(Settings.Setting.AUTOSAVE_INTERVAL, 0f);
+
+        entityData = new DefaultEntityData();
+        gameController = new GameController(kwdFile, null, entityData, kwdFile.getVariables(), new HeadlessPlayerService());
+        gameController.createNewGame();
+
+        // Start the managers as the loops would
+        gameLoops = gameController.getGameLoops();
+        nextTickTimes = new long[gameLoops.size()];
+        long interval = Long.MAX_VALUE;
+        for (GameLoop gameLoop : gameLoops) {
+            gameLoop.getGameLoopManager().start();
+            interval = Math.min(interval, gameLoop.getUpdateRate());
+        }
+        tickInterval = interval;
+    }
+
+    /**
+     * Advances the game clock by the fastest loop interval, ticking all the
+     * loops that are due
+     *
+     * @return true if the game logic loop ticked
+     */
+    public boolean tick() {
+        time += tickInterval;
+        boolean logicTicked = false;
+        for (int i = 0; i < gameLoops.size(); i++) {
+            GameLoop gameLoop = gameLoops.get(i);
+            if (time >= nextTickTimes[i]) {
+                gameLoop.getGameLoopManager().processTick(gameLoop.getUpdateRate());
+                nextTickTimes[i] = time + gameLoop.getUpdateRate();
+                if (i == 0) {
+                    logicTicked = true;
+                }
+            }
+        }
+        return logicTicked;
+    }
+
+    /**
+     * Ticks only the game logic loop, all the logic systems and the queued
+     * AI work
+     */
+    public void tickGameLogic() {
+        GameLoop gameLogicLoop = gameLoops.get(0);
+        gameLogicLoop.getGameLoopManager().processTick(gameLogicLoop.getUpdateRate());
+    }
+
+    /**
+     * Spawns imps and creatures next to the dungeon hearts of the keepers
+     *
+     * @param impsPerKeeper the amount of imps per keeper
+     * @param creaturesPerKeeper the amount of other creatures per keeper
+     * @param random the random used to pick the creatures and places
+     * @return the spawned creatures
+     */
+    public List<EntityId> spawnCreatures(int impsPerKeeper, int creaturesPerKeeper, Random random) {
+        List<Creature> creatures = new ArrayList<>();
+        for (Creature creature : kwdFile.getCreatureList()) {
+            if (creature.getCreatureId() > 0 && !creature.equals(kwdFile.getImp())
+                    && creature.getFlags().contains(Creature.CreatureFlag.IS_EVIL)
+                    && !creature.getFlags().contains(Creature.CreatureFlag.IS_WORKER)) {
+                creatures.add(creature);
+            }
+        }
+        Collections.sort(creatures, (Creature c1, Creature c2) -> Short.compare(c1.getCreatureId(), c2.getCreatureId()));
+
+        List<EntityId> spawned = new ArrayList<>();
+        for (IPlayerController playerController : getKeepers()) {
+            short playerId = playerController.getKeeper().getId();
+            Point heart = playerController.getRoomControl().getDungeonHeart().getRoomInstance().getCenter();
+            INavigable walker = new Walker(playerId);
+            for (int i = 0; i < impsPerKeeper + creaturesPerKeeper; i++) {
+                Creature creature = (i < impsPerKeeper || creatures.isEmpty() ? kwdFile.getImp() : creatures.get(random.nextInt(creatures.size())));
+                Point p = gameController.getNavigationService().findRandomAccessibleTile(heart, 6, walker);
+                if (p == null) {
+                    p = heart;
+                }
+                spawned.add(gameController.getGameWorldController().getCreaturesController().spawnCreature(creature.getCreatureId(), playerId, 1, WorldUtils.pointToVector2f(p), false));
+            }
+        }
+        return spawned;
+    }
+
+    /**
+     * Get the players that have a dungeon heart on the map
+     *
+     * @return the keepers
+     */
+    public List<IPlayerController> getKeepers() {
+        List<IPlayerController> keepers = new ArrayList<>();
+        for (IPlayerController playerController : gameController.getPlayerControllers()) {
+            if (playerController.getKeeper().getId() >= Player.KEEPER1_ID) {
+                IRoomController heart = playerController.getRoomControl().getDungeonHeart();
+                if (heart != null) {
+                    keepers.add(playerController);
+                }
+            }
+        }
+        return keepers;
+    }
+
+    public KwdFile getKwdFile() {
+        return kwdFile;
+    }
+
+    public EntityData getEntityData() {
+        return entityData;
+    }
+
+    public GameController getGameController() {
+        return gameController;
+    }
+
+    /**
+     * Get the simulated game clock
+     *
+     * @return the time, in nanoseconds
+     */
+    public long getTime() {
+        return time;
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (GameLoop gameLoop : gameLoops) {
+            IGameLoopManager gameLoopManager = gameLoop.getGameLoopManager();
+            gameLoopManager.stop();
+        }
+        gameController.close();
+        entityData.close();
+    }
+
+    /**
+     * A plain walking creature, for finding the spawn places
+     */
+    private static class Walker implements INavigable {
+
+        private final short ownerId;
+
+        public Walker(short ownerId) {
+            this.ownerId = ownerId;
+        }
+
+        @Override
+        public short getOwnerId() {
+            return ownerId;
+        }
+
+        @Override
+        public boolean canFly() {
+            return false;
+        }
+
+        @Override
+        public boolean canWalkOnWater() {
+            return false;
+        }
+
+        @Override
+        public boolean canWalkOnLava() {
+            return false;
+        }
+
+        @Override
+        public boolean canMoveDiagonally() {
+            return true;
+        }
+
+    }
+
+    /**
+     * Nobody is watching
+     */
+    private static class HeadlessPlayerService implements PlayerService {
+
+        @Override
+        public void setWidescreen(boolean enable, short playerId) {
+
+        }
+
+        @Override
+        public void playSpeech(int speechId, boolean showText, boolean introduction, int pathId, short playerId) {
+
+        }
+
+        @Override
+        public boolean isInTransition() {
+            return false;
+        }
+
+        @Override
+        public void doTransition(short pathId, Vector3f start, short playerId) {
+
+        }
+
+        @Override
+        public void flashButton(short targetId, TriggerAction.MakeType buttonType, boolean available, int time, short playerId) {
+
+        }
+
+        @Override
+        public void rotateViewAroundPoint(Vector3f point, boolean relative, int angle, int time, short playerId) {
+
+        }
+
+        @Override
+        public void showMessage(int textId, short playerId) {
+
+        }
+
+        @Override
+        public void zoomViewToPoint(Vector3f point, short playerId) {
+
+        }
+
+        @Override
+        public void zoomViewToEntity(EntityId entityId, short playerId) {
+
+        }
+
+        @Override
+        public void setGamePaused(boolean paused) {
+
+        }
+
+        @Override
+        public void showUnitFlower(EntityId entityId, int interval, short playerId) {
+
+        }
+
+    }
+
+}
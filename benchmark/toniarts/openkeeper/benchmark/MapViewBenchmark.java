@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2014-2018 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.benchmark;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.asset.plugins.FileLocator;
+import com.jme3.system.JmeSystem;
+import java.awt.Point;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import toniarts.openkeeper.Main;
+import toniarts.openkeeper.game.controller.MapController;
+import toniarts.openkeeper.game.map.MapData;
+import toniarts.openkeeper.tools.convert.AssetsConverter;
+import toniarts.openkeeper.tools.convert.ConversionUtils;
+import toniarts.openkeeper.tools.convert.map.KwdFile;
+import toniarts.openkeeper.tools.convert.map.Player;
+import toniarts.openkeeper.utils.PathUtils;
+import toniarts.openkeeper.view.map.MapViewController;
+
+/**
+ * Rebuilding the map view after tile changes, from the change to the rebuilt
+ * terrain swapped in. Needs the DK II folder to be configured and the assets
+ * converted.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapViewBenchmark {
+
+    @Param({"MPD1"})
+    public String level;
+
+    /**
+     * The side of the square area changed at once
+     */
+    @Param({"1", "3", "9"})
+    public int areaSize;
+
+    private MapViewController mapViewController;
+    private int width;
+    private int height;
+    private final Random random = new Random(1);
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        AssetManager assetManager = JmeSystem.newAssetManager(Thread.currentThread().getContextClassLoader().getResource("com/jme3/asset/Desktop.cfg"));
+        assetManager.registerLocator(AssetsConverter.getAssetsFolder(), FileLocator.class);
+
+        KwdFile kwdFile = new KwdFile(Main.getDkIIFolder(),
+                new File(ConversionUtils.getRealFileName(Main.getDkIIFolder(), PathUtils.DKII_MAPS_FOLDER + level + ".kwd")));
+        MapController mapController = new MapController(new MapData(kwdFile), kwdFile);
+        width = mapController.getMapData().getWidth();
+        height = mapController.getMapData().getHeight();
+
+        mapViewController = new MapViewController(assetManager, kwdFile, mapController, Player.KEEPER1_ID) {
+
+            @Override
+            protected void updateProgress(float progress) {
+
+            }
+
+        };
+        mapViewController.load(assetManager, kwdFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mapViewController.cleanup();
+    }
+
+    @Benchmark
+    public void updateTiles() {
+        int startX = random.nextInt(width - areaSize);
+        int startY = random.nextInt(height - areaSize);
+        Point[] points = new Point[areaSize * areaSize];
+        for (int x = 0; x < areaSize; x++) {
+            for (int y = 0; y < areaSize; y++) {
+                points[x * areaSize + y] = new Point(startX + x, startY + y);
+            }
+        }
+
+        // Run the frames until the view has caught up
+        mapViewController.updateTiles(points);
+        do {
+            mapViewController.update();
+            Thread.yield();
+        } while (mapViewController.isUpdating());
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2014-2018 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.benchmark;
+
+import com.badlogic.gdx.ai.pfa.GraphPath;
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import toniarts.openkeeper.game.controller.MapController;
+import toniarts.openkeeper.game.map.MapData;
+import toniarts.openkeeper.game.map.MapTile;
+import toniarts.openkeeper.game.navigation.NavigationService;
+import toniarts.openkeeper.game.navigation.pathfinding.INavigable;
+import toniarts.openkeeper.tools.convert.map.KwdFile;
+import toniarts.openkeeper.tools.convert.map.Player;
+import toniarts.openkeeper.tools.convert.map.SyntheticLevel;
+
+/**
+ * Path finding over generated maps of different sizes and obstacle densities.
+ * The routes are random but the same on every run.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NavigationBenchmark {
+
+    private static final int ROUTE_COUNT = 64;
+
+    @Param({"32", "85", "128"})
+    public int mapSize;
+
+    @Param({"0.0", "0.2", "0.4"})
+    public float obstacleDensity;
+
+    private NavigationService navigationService;
+    private final List<Point[]> routes = new ArrayList<>(ROUTE_COUNT);
+    private int route = 0;
+    private final INavigable walker = new Walker();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        KwdFile kwdFile = SyntheticLevel.generate(mapSize, mapSize, obstacleDensity, 1);
+        MapController mapController = new MapController(new MapData(kwdFile), kwdFile);
+        navigationService = new NavigationService(mapController, new EmptyEntityPositionLookup());
+
+        // Routes between the accessible tiles, some may still be unreachable, they are costly too
+        List<Point> accessible = new ArrayList<>();
+        for (int x = 0; x < mapSize; x++) {
+            for (int y = 0; y < mapSize; y++) {
+                MapTile tile = mapController.getMapData().getTile(x, y);
+                if (mapController.getTerrain(tile).getTerrainId() == SyntheticLevel.FLOOR_ID) {
+                    accessible.add(tile.getLocation());
+                }
+            }
+        }
+        Random random = new Random(1);
+        for (int i = 0; i < ROUTE_COUNT; i++) {
+            routes.add(new Point[]{accessible.get(random.nextInt(accessible.size())), accessible.get(random.nextInt(accessible.size()))});
+        }
+    }
+
+    @Benchmark
+    public GraphPath<MapTile> findPath() {
+        Point[] points = routes.get(route);
+        route = (route + 1) % ROUTE_COUNT;
+        return navigationService.findPath(points[0], points[1], walker);
+    }
+
+    /**
+     * A plain walking creature
+     */
+    private static class Walker implements INavigable {
+
+        @Override
+        public short getOwnerId() {
+            return Player.KEEPER1_ID;
+        }
+
+        @Override
+        public boolean canFly() {
+            return false;
+        }
+
+        @Override
+        public boolean canWalkOnWater() {
+            return false;
+        }
+
+        @Override
+        public boolean canWalkOnLava() {
+            return false;
+        }
+
+        @Override
+        public boolean canMoveDiagonally() {
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2014-2018 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.benchmark;
+
+import com.jme3.math.FastMath;
+import com.simsilica.es.EntityData;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import toniarts.openkeeper.game.component.CreatureComponent;
+import toniarts.openkeeper.game.component.Position;
+import toniarts.openkeeper.game.logic.GameLogicManager;
+import toniarts.openkeeper.utils.Utils;
+
+/**
+ * Runs the game logic headless, as fast as it goes, for a given amount of
+ * game time, and reports the tick times, the allocation rate and the entity
+ * counts as it goes. The runs are seeded and the AI work is not time sliced,
+ * so the same arguments always play the same game, only the timings differ.
+ * <br>
+ * The arguments are given as key=value pairs:
+ * <ul>
+ * <li>level, the level name, default MPD1</li>
+ * <li>imps, the imps per keeper, default 8</li>
+ * <li>creatures, the other creatures per keeper, default 50</li>
+ * <li>seconds, the game time to run, default 600</li>
+ * <li>seed, the random seed, default 1</li>
+ * <li>report, the report interval in game seconds, default 60</li>
+ * <li>budget, the tick budget in milliseconds, default 16.67 (60 Hz)</li>
+ * </ul>
+ * Needs the DK II folder to be configured, the levels are read from there.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public class SoakHarness {
+
+    private static final Logger LOGGER = Logger.getLogger(SoakHarness.class.getName());
+
+    private SoakHarness() {
+        // Nope
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> arguments = new HashMap<>();
+        for (String arg : args) {
+            String[] keyValue = arg.split("=", 2);
+            if (keyValue.length != 2) {
+                throw new IllegalArgumentException("Arguments are given as key=value, got " + arg + "!");
+            }
+            arguments.put(keyValue[0], keyValue[1]);
+        }
+        String level = arguments.getOrDefault("level", "MPD1");
+        int imps = Integer.parseInt(arguments.getOrDefault("imps", "8"));
+        int creatures = Integer.parseInt(arguments.getOrDefault("creatures", "50"));
+        double seconds = Double.parseDouble(arguments.getOrDefault("seconds", "600"));
+        long seed = Long.parseLong(arguments.getOrDefault("seed", "1"));
+        double reportInterval = Double.parseDouble(arguments.getOrDefault("report", "60"));
+        double budget = Double.parseDouble(arguments.getOrDefault("budget", String.valueOf(1000.0 / 60)));
+
+        // Only the warnings, the game logs plenty
+        Logger.getLogger("").setLevel(Level.WARNING);
+
+        // Same seed, same game
+        Utils.setRandomSeed(seed);
+        FastMath.rand.setSeed(seed);
+
+        System.out.println(String.format("Soaking %s with %d imps and %d creatures per keeper for %.0f s, seed %d", level, imps, creatures, seconds, seed));
+        try (HeadlessGame game = new HeadlessGame(level)) {
+            ((GameLogicManager) game.getGameController().getGameLoops().get(0).getGameLoopManager()).setTimeSliced(false);
+            game.spawnCreatures(imps, creatures, new Random(seed));
+            run(game, seconds, reportInterval, budget);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Soak run failed!", e);
+            throw e;
+        }
+    }
+
+    private static void run(HeadlessGame game, double seconds, double reportInterval, double budget) {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        EntityData entityData = game.getEntityData();
+        long endTime = (long) (seconds * TimeUnit.SECONDS.toNanos(1));
+        long reportNanos = (long) (reportInterval * TimeUnit.SECONDS.toNanos(1));
+        long budgetNanos = (long) (budget * TimeUnit.MILLISECONDS.toNanos(1));
+
+        System.out.println(String.format("%8s %8s %8s %8s %8s %8s %10s %10s %10s %10s", "time s", "ticks", "p50 ms", "p90 ms", "p99 ms", "max ms", "over %", "alloc MB/s", "creatures", "entities"));
+        TickTimes totalTimes = new TickTimes();
+        TickTimes intervalTimes = new TickTimes();
+        long nextReport = reportNanos;
+        long intervalStart = System.nanoTime();
+        long intervalAllocated = threadMXBean.getThreadAllocatedBytes(threadId);
+        long totalStart = intervalStart;
+        long totalAllocated = intervalAllocated;
+        while (game.getTime() < endTime) {
+            long start = System.nanoTime();
+            boolean logicTicked = game.tick();
+            long tickTime = System.nanoTime() - start;
+
+            // Only the logic ticks, the faster loops would skew the percentiles
+            if (logicTicked) {
+                totalTimes.add(tickTime);
+                intervalTimes.add(tickTime);
+            }
+
+            if (game.getTime() >= nextReport || game.getTime() >= endTime) {
+                long now = System.nanoTime();
+                long allocated = threadMXBean.getThreadAllocatedBytes(threadId);
+                report(game.getTime(), intervalTimes, budgetNanos, allocated - intervalAllocated, now - intervalStart,
+                        entityData.findEntities(null, CreatureComponent.class).size(),
+                        entityData.findEntities(null, Position.class).size());
+                intervalTimes = new TickTimes();
+                intervalStart = now;
+                intervalAllocated = allocated;
+                nextReport += reportNanos;
+            }
+        }
+
+        System.out.println("Total:");
+        report(game.getTime(), totalTimes, budgetNanos, threadMXBean.getThreadAllocatedBytes(threadId) - totalAllocated, System.nanoTime() - totalStart,
+                entityData.findEntities(null, CreatureComponent.class).size(),
+                entityData.findEntities(null, Position.class).size());
+    }
+
+    private static void report(long gameTime, TickTimes tickTimes, long budgetNanos, long allocatedBytes, long elapsedNanos, int creatureCount, int entityCount) {
+        double nanosToMillis = 1.0 / TimeUnit.MILLISECONDS.toNanos(1);
+        double allocationRate = elapsedNanos > 0 ? allocatedBytes / (1024.0 * 1024.0) / (elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1)) : 0;
+        System.out.println(String.format("%8.0f %8d %8.3f %8.3f %8.3f %8.3f %10.2f %10.1f %10d %10d",
+                gameTime / (double) TimeUnit.SECONDS.toNanos(1),
+                tickTimes.size(),
+                tickTimes.percentile(50) * nanosToMillis,
+                tickTimes.percentile(90) * nanosToMillis,
+                tickTimes.percentile(99) * nanosToMillis,
+                tickTimes.percentile(100) * nanosToMillis,
+                tickTimes.getShareOver(budgetNanos) * 100,
+                allocationRate,
+                creatureCount,
+                entityCount));
+    }
+
+    /**
+     * Collects the tick times, without boxing them
+     */
+    private static class TickTimes {
+
+        private long[] times = new long[1024];
+        private int size = 0;
+        private boolean sorted = true;
+
+        public void add(long time) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+            }
+            times[size++] = time;
+            sorted = false;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long percentile(double percentile) {
+            if (size == 0) {
+                return 0;
+            }
+            if (!sorted) {
+                Arrays.sort(times, 0, size);
+                sorted = true;
+            }
+            int index = (int) Math.ceil(percentile / 100 * size) - 1;
+            return times[Math.max(0, Math.min(size - 1, index))];
+        }
+
+        public double getShareOver(long limit) {
+            if (size == 0) {
+                return 0;
+            }
+            int over = 0;
+            for (int i = 0; i < size; i++) {
+                if (times[i] > limit) {
+                    over++;
+                }
+            }
+            return over / (double) size;
+        }
+
+    }
+
+}
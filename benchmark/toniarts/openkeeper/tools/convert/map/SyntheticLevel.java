@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2014-2018 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.tools.convert.map;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Random;
+
+/**
+ * Generates levels in memory, no DK II files needed. The map is surrounded by
+ * impenetrable rock and the inside is floor with earth blocks scattered on it
+ * by the given density. Only the map and the terrain are there, so good for
+ * the map and path finding benchmarks only.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class SyntheticLevel {
+
+    public static final short FLOOR_ID = 1;
+    public static final short ROCK_ID = 2;
+    public static final short EARTH_ID = 3;
+    public static final short WATER_ID = 4;
+
+    private SyntheticLevel() {
+        // Nope
+    }
+
+    /**
+     * Generates a level
+     *
+     * @param width the map width
+     * @param height the map height
+     * @param obstacleDensity the share of the inner tiles that are earth or
+     * water, 0-1
+     * @param seed the random seed, the same seed gives the same map
+     * @return the level
+     */
+    public static KwdFile generate(int width, int height, float obstacleDensity, long seed) {
+        Terrain floor = createTerrain(FLOOR_ID, "Floor", EnumSet.noneOf(Terrain.TerrainFlag.class));
+        Terrain rock = createTerrain(ROCK_ID, "Rock", EnumSet.of(Terrain.TerrainFlag.SOLID, Terrain.TerrainFlag.IMPENETRABLE));
+        Terrain earth = createTerrain(EARTH_ID, "Earth", EnumSet.of(Terrain.TerrainFlag.SOLID, Terrain.TerrainFlag.TAGGABLE));
+        Terrain water = createTerrain(WATER_ID, "Water", EnumSet.of(Terrain.TerrainFlag.WATER));
+
+        Random random = new Random(seed);
+        GameMap map = new GameMap(width, height);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                short terrainId = FLOOR_ID;
+                if (x == 0 || y == 0 || x == width - 1 || y == height - 1) {
+                    terrainId = ROCK_ID;
+                } else if (random.nextFloat() < obstacleDensity) {
+                    terrainId = (random.nextInt(4) == 0 ? WATER_ID : EARTH_ID);
+                }
+
+                Tile tile = new Tile();
+                tile.setTerrainId(terrainId);
+                tile.setPlayerId(Player.NEUTRAL_PLAYER_ID);
+                map.setTile(x, y, tile);
+            }
+        }
+
+        return new KwdFile("", map, Arrays.asList(floor, rock, earth, water));
+    }
+
+    private static Terrain createTerrain(short terrainId, String name, EnumSet<Terrain.TerrainFlag> flags) {
+        Terrain terrain = new Terrain();
+        terrain.setTerrainId(terrainId);
+        terrain.setName(name);
+        terrain.setFlags(flags);
+        return terrain;
+    }
+
+}
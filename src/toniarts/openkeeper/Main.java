@@ -42,23 +42,31 @@ import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.util.AbstractMap;
 import java.util.ArrayDeque;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Queue;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.imageio.ImageIO;
 import javax.swing.JFrame;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.SchemaFactory;
+import org.w3c.dom.Document;
 import toniarts.openkeeper.audio.plugins.MP2Loader;
 import toniarts.openkeeper.cinematics.CameraSweepDataLoader;
 import toniarts.openkeeper.game.data.Settings;
@@ -72,10 +80,14 @@ import toniarts.openkeeper.setup.DKFolderSelector;
 import toniarts.openkeeper.setup.IFrameClosingBehavior;
 import toniarts.openkeeper.tools.convert.AssetsConverter;
 import toniarts.openkeeper.tools.convert.ConversionUtils;
+import toniarts.openkeeper.tools.convert.map.KwdFile;
 import toniarts.openkeeper.tools.convert.map.Player;
+import toniarts.openkeeper.tools.modelviewer.SoundsLoader;
+import toniarts.openkeeper.utils.AssetUtils;
 import toniarts.openkeeper.utils.PathUtils;
 import toniarts.openkeeper.utils.SettingUtils;
 import toniarts.openkeeper.utils.UTF8Control;
+import toniarts.openkeeper.utils.XmlValidationCache;
 import toniarts.openkeeper.video.MovieState;
 
 /**
@@ -90,6 +102,9 @@ public class Main extends SimpleApplication {
     public final static String TITLE = "OpenKeeper";
     private final static String USER_HOME_FOLDER = System.getProperty("user.home").concat(File.separator).concat(".").concat(TITLE).concat(File.separator);
     private final static String SCREENSHOTS_FOLDER = USER_HOME_FOLDER.concat("SCRSHOTS").concat(File.separator);
+    private final static String SOUND_CACHE_FOLDER = USER_HOME_FOLDER.concat("SoundCache").concat(File.separator);
+    private final static String SAVES_FOLDER = USER_HOME_FOLDER.concat("SAVES").concat(File.separator);
+    private final static String XML_VALIDATION_CACHE_FILE = "xmlvalidation.properties";
     private static final Object LOCK = new Object();
     private static final Logger LOGGER = Logger.getLogger(Main.class.getName());
     private static Map<String, String> params;
@@ -218,6 +233,7 @@ public class Main extends SimpleApplication {
         // Create some folders
         new File(USER_HOME_FOLDER).mkdirs();
         new File(SCREENSHOTS_FOLDER).mkdirs();
+        new File(SAVES_FOLDER).mkdirs();
 
         // Init the user settings (which in JME are app settings)
         app.settings = Settings.getInstance().getAppSettings();
@@ -232,6 +248,15 @@ public class Main extends SimpleApplication {
         return Settings.getInstance();
     }
 
+    /**
+     * Get the folder where the saved games are stored
+     *
+     * @return the save game folder
+     */
+    public static String getSavesFolder() {
+        return SAVES_FOLDER;
+    }
+
     /**
      * Get the application settings, global OpenKeeper settings, nothing much
      * here
@@ -326,6 +351,8 @@ public class Main extends SimpleApplication {
         // Initiate the title screen
         TitleScreenState gameLoader = new TitleScreenState(this) {
 
+            private ExecutorService startupExecutor;
+
             @Override
             public Void onLoad() {
                 try {
@@ -334,6 +361,9 @@ public class Main extends SimpleApplication {
                     // Asset loaders
                     // Sound
                     getAssetManager().registerLoader(MP2Loader.class, "mp2");
+                    if (Settings.getInstance().getSettingBoolean(Settings.Setting.CACHE_DECODED_SOUNDS)) {
+                        MP2Loader.setPcmCacheFolder(new File(SOUND_CACHE_FOLDER));
+                    }
                     // Camera sweep files
                     getAssetManager().registerLoader(CameraSweepDataLoader.class, CameraSweepDataLoader.CAMERA_SWEEP_DATA_FILE_EXTENSION);
 
@@ -364,33 +394,52 @@ public class Main extends SimpleApplication {
                     // Nifty
                     nifty.setGlobalProperties(new Properties());
                     nifty.getGlobalProperties().setProperty("MULTI_CLICK_TIME", "1");
-                    setupNiftyResourceBundles(nifty);
-
-                    // Load the XMLs, since we also validate them, Nifty will read them twice
-                    List<Map.Entry<String, byte[]>> guiXMLs = new ArrayList<>(2);
-                    guiXMLs.add(new AbstractMap.SimpleImmutableEntry<>("Interface/MainMenu.xml", PathUtils.getBytesFromInputStream(Main.this.getClass().getResourceAsStream("/Interface/MainMenu.xml"))));
-                    guiXMLs.add(new AbstractMap.SimpleImmutableEntry<>("Interface/GameHUD.xml", PathUtils.getBytesFromInputStream(Main.this.getClass().getResourceAsStream("/Interface/GameHUD.xml"))));
 
-                    // Validate the XML, great for debuging purposes
-                    for (Map.Entry<String, byte[]> xml : guiXMLs) {
-                        try {
-                            nifty.validateXml(new ByteArrayInputStream(xml.getValue()));
-                        } catch (Exception e) {
-                            throw new RuntimeException("GUI file " + xml.getKey() + " failed to validate!", e);
-                        }
+                    // The independent steps are run concurrently, everything touching Nifty or the app states stays on this thread
+                    startupExecutor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors() - 1), (Runnable r) -> {
+                        Thread thread = new Thread(r, "StartupLoader");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    boolean menuEnabled = !params.containsKey("level");
+
+                    // Load the XMLs, since we also validate them, Nifty will read them twice (but only on the first run of a build)
+                    XmlValidationCache validationCache = new XmlValidationCache(new File(USER_HOME_FOLDER.concat(XML_VALIDATION_CACHE_FILE)));
+                    CompletableFuture<byte[]> mainMenuXml = CompletableFuture.supplyAsync(() -> loadGuiXml("Interface/MainMenu.xml", validationCache), startupExecutor);
+                    CompletableFuture<byte[]> gameHudXml = CompletableFuture.supplyAsync(() -> loadGuiXml("Interface/GameHUD.xml", validationCache), startupExecutor);
+                    CompletableFuture<Map<String, ResourceBundle>> resourceBundles = CompletableFuture.supplyAsync(this::loadNiftyResourceBundles, startupExecutor);
+
+                    // The 3D front end, the asset prewarm and the sounds only need the level
+                    CompletableFuture<KwdFile> frontEndLevel = (menuEnabled ? CompletableFuture.supplyAsync(MainMenuState::loadFrontEndLevel, startupExecutor) : CompletableFuture.completedFuture(null));
+                    CompletableFuture<Void> frontEndAssets = CompletableFuture.allOf(
+                            frontEndLevel.thenAcceptAsync((kwdFile) -> {
+                                if (kwdFile != null) {
+                                    AssetUtils.prewarmAssets(kwdFile, assetManager, Main.this);
+                                }
+                            }, startupExecutor),
+                            frontEndLevel.thenAcceptAsync((kwdFile) -> {
+                                if (kwdFile != null) {
+                                    SoundsLoader.load(kwdFile.getGameLevel().getSoundCategory(), false);
+                                }
+                            }, startupExecutor));
+
+                    // The main menu is ready as soon as its own parts are
+                    for (Map.Entry<String, ResourceBundle> resourceBundle : resourceBundles.get().entrySet()) {
+                        nifty.addResourceBundle(resourceBundle.getKey(), resourceBundle.getValue());
                     }
+                    frontEndAssets.get();
 
                     // Initialize persistent app states
-                    MainMenuState mainMenuState = new MainMenuState(!params.containsKey("level"), assetManager, Main.this);
+                    MainMenuState mainMenuState = new MainMenuState(menuEnabled, frontEndLevel.get(), assetManager, Main.this);
                     PlayerState playerState = new PlayerState(Player.KEEPER1_ID, false, Main.this);
 
                     getStateManager().attach(mainMenuState);
                     getStateManager().attach(playerState);
 
                     // Eventually we are going to use Nifty, the XML files take some time to parse
-                    for (Map.Entry<String, byte[]> xml : guiXMLs) {
-                        nifty.addXml(new ByteArrayInputStream(xml.getValue()));
-                    }
+                    nifty.addXml(new ByteArrayInputStream(mainMenuXml.get()));
+                    nifty.addXml(new ByteArrayInputStream(gameHudXml.get()));
+                    validationCache.save();
 
                     // It is all a clever ruge, we don't actually load much here
                     if (!params.containsKey("nomovies") && !params.containsKey("level")) {
@@ -404,6 +453,10 @@ public class Main extends SimpleApplication {
                 } catch (Exception e) {
                     LOGGER.log(Level.SEVERE, "Failed to load the game!", e);
                     app.stop();
+                } finally {
+                    if (startupExecutor != null) {
+                        startupExecutor.shutdownNow();
+                    }
                 }
                 return null;
             }
@@ -425,17 +478,64 @@ public class Main extends SimpleApplication {
                 }
             }
 
-            private void setupNiftyResourceBundles(Nifty nifty) {
+            private Map<String, ResourceBundle> loadNiftyResourceBundles() {
 
                 // For main menu
-                nifty.addResourceBundle("menu", Main.getResourceBundle("Interface/Texts/Text"));
-                nifty.addResourceBundle("speech", Main.getResourceBundle("Interface/Texts/Speech"));
-                nifty.addResourceBundle("mpd1", Main.getResourceBundle("Interface/Texts/LEVELMPD1_BRIEFING"));
-                nifty.addResourceBundle("mpd2", Main.getResourceBundle("Interface/Texts/LEVELMPD2_BRIEFING"));
-                nifty.addResourceBundle("mpd3", Main.getResourceBundle("Interface/Texts/LEVELMPD3_BRIEFING"));
-                nifty.addResourceBundle("mpd4", Main.getResourceBundle("Interface/Texts/LEVELMPD4_BRIEFING"));
-                nifty.addResourceBundle("mpd5", Main.getResourceBundle("Interface/Texts/LEVELMPD5_BRIEFING"));
-                nifty.addResourceBundle("mpd6", Main.getResourceBundle("Interface/Texts/LEVELMPD6_BRIEFING"));
+                Map<String, ResourceBundle> resourceBundles = new LinkedHashMap<>();
+                resourceBundles.put("menu", Main.getResourceBundle("Interface/Texts/Text"));
+                resourceBundles.put("speech", Main.getResourceBundle("Interface/Texts/Speech"));
+                resourceBundles.put("mpd1", Main.getResourceBundle("Interface/Texts/LEVELMPD1_BRIEFING"));
+                resourceBundles.put("mpd2", Main.getResourceBundle("Interface/Texts/LEVELMPD2_BRIEFING"));
+                resourceBundles.put("mpd3", Main.getResourceBundle("Interface/Texts/LEVELMPD3_BRIEFING"));
+                resourceBundles.put("mpd4", Main.getResourceBundle("Interface/Texts/LEVELMPD4_BRIEFING"));
+                resourceBundles.put("mpd5", Main.getResourceBundle("Interface/Texts/LEVELMPD5_BRIEFING"));
+                resourceBundles.put("mpd6", Main.getResourceBundle("Interface/Texts/LEVELMPD6_BRIEFING"));
+                return resourceBundles;
+            }
+
+            /**
+             * Reads and validates the GUI XML, great for debuging purposes.
+             * The validation is skipped if this very file has already been
+             * validated
+             *
+             * @param file the XML file
+             * @param validationCache the validation results
+             * @return the XML file contents
+             */
+            private byte[] loadGuiXml(String file, XmlValidationCache validationCache) {
+                byte[] xml;
+                try {
+                    xml = PathUtils.getBytesFromInputStream(Main.this.getClass().getResourceAsStream("/" + file));
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to read GUI file " + file + "!", e);
+                }
+                if (!validationCache.isValidated(file, xml)) {
+                    try {
+                        validateGuiXml(xml);
+                    } catch (Exception e) {
+                        throw new RuntimeException("GUI file " + file + " failed to validate!", e);
+                    }
+                    validationCache.setValidated(file, xml);
+                }
+                return xml;
+            }
+
+            /**
+             * Validates the GUI XML against the Nifty schema. This is what
+             * Nifty does, but without touching the Nifty instance that the
+             * loading thread is setting up, so the files can be validated
+             * concurrently
+             *
+             * @param xml the XML file contents
+             * @throws Exception the file is not valid
+             */
+            private void validateGuiXml(byte[] xml) throws Exception {
+                DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+                factory.setNamespaceAware(true);
+                Document document = factory.newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+                try (InputStream schema = Nifty.class.getResourceAsStream("/nifty.xsd")) {
+                    SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(new StreamSource(schema)).newValidator().validate(new DOMSource(document));
+                }
             }
         };
         this.stateManager.attach(gameLoader);
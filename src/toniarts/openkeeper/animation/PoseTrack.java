@@ -40,6 +40,7 @@ import com.jme3.export.JmeExporter;
 import com.jme3.export.JmeImporter;
 import com.jme3.export.OutputCapsule;
 import com.jme3.export.Savable;
+import com.jme3.material.MatParamOverride;
 import com.jme3.math.Vector3f;
 import com.jme3.scene.Geometry;
 import com.jme3.scene.Mesh;
@@ -47,21 +48,47 @@ import com.jme3.scene.Node;
 import com.jme3.scene.Spatial;
 import com.jme3.scene.VertexBuffer;
 import com.jme3.scene.VertexBuffer.Type;
+import com.jme3.texture.Image;
+import com.jme3.texture.Texture;
+import com.jme3.texture.Texture2D;
+import com.jme3.texture.image.ColorSpace;
 import com.jme3.util.BufferUtils;
 import com.jme3.util.TempVars;
 import com.jme3.util.clone.Cloner;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
+import java.util.Arrays;
 import javax.annotation.Nullable;
 
 /**
- * A single track of pose animation associated with a certain mesh.
+ * A single track of pose animation associated with a certain mesh.<br>
+ * The track can be baked to a vertex animation texture, the vertex positions of
+ * every frame in their own row. A baked track only sets the current frame to
+ * the material and the mesh itself is never touched, so the mesh can be shared
+ * between the instances.
  */
 public final class PoseTrack implements Track, ClonableTrack {
 
+    /**
+     * Material parameter for the baked vertex animation texture
+     */
+    public static final String MORPH_MAP = "MorphMap";
+    /**
+     * Material parameter for the number of frames (rows) in the morph map
+     */
+    public static final String MORPH_FRAME_COUNT = "MorphFrameCount";
+    /**
+     * Material parameter for the current frame, the fraction is interpolated
+     * between the frames
+     */
+    public static final String MORPH_FRAME = "MorphFrame";
+    private static final int MAX_MORPH_MAP_SIZE = 4096;
+
     private int targetMeshIndex;
     private PoseTrack.PoseFrame[] frames;
     private float[] times;
+    private boolean baked;
 
     public static class PoseFrame implements Savable, Cloneable {
 
@@ -141,6 +168,7 @@ public final class PoseTrack implements Track, ClonableTrack {
     @Override
     public Track cloneForSpatial(Spatial spatial) {
         PoseTrack track = new PoseTrack(targetMeshIndex, times, frames);
+        track.baked = baked;
         return track;
     }
 
@@ -149,18 +177,62 @@ public final class PoseTrack implements Track, ClonableTrack {
 
     }
 
-    private void applyFrame(Mesh target, int frameIndex) {
-        PoseFrame frame = frames[frameIndex];
+    /**
+     * Bakes this track to a vertex animation texture. Each row of the texture
+     * has the vertex positions of a single frame, the vertex index being the
+     * column. After a successful bake the pose data is no longer needed and is
+     * not saved with the track.
+     *
+     * @param bindPose the bind pose vertex positions of the target mesh
+     * @return the morph map, or {@code null} if the mesh is too big to be
+     * baked, then the track stays animated on the CPU
+     */
+    @Nullable
+    public Texture2D bake(FloatBuffer bindPose) {
+        int vertexCount = bindPose.limit() / 3;
+        if (vertexCount > MAX_MORPH_MAP_SIZE || frames.length > MAX_MORPH_MAP_SIZE) {
+            return null;
+        }
+
+        ByteBuffer data = BufferUtils.createByteBuffer(vertexCount * frames.length * 3 * 4);
+        FloatBuffer texels = data.asFloatBuffer();
+        FloatBuffer positions = BufferUtils.createFloatBuffer(bindPose.limit());
+        Vector3f interpOffset = new Vector3f();
+        for (PoseFrame frame : frames) {
+            bindPose.clear();
+            positions.clear();
+            positions.put(bindPose).clear();
+            applyFrame(frame, positions, interpOffset);
+            texels.put(positions);
+        }
+        bindPose.clear();
+
+        Texture2D morphMap = new Texture2D(new Image(Image.Format.RGB32F, vertexCount, frames.length, data, ColorSpace.Linear));
+        morphMap.setMinFilter(Texture.MinFilter.NearestNoMipMaps);
+        morphMap.setMagFilter(Texture.MagFilter.Nearest);
+        morphMap.setWrap(Texture.WrapMode.EdgeClamp);
+
+        frames = null;
+        baked = true;
+
+        return morphMap;
+    }
+
+    private void applyFrame(Mesh target, int frameIndex, Vector3f interpOffset) {
         VertexBuffer pb = target.getBuffer(Type.Position);
+        applyFrame(frames[frameIndex], (FloatBuffer) pb.getData(), interpOffset);
+
+        // force to re-upload data to gpu
+        pb.updateData(pb.getData());
+    }
+
+    private static void applyFrame(PoseFrame frame, FloatBuffer vertexBuffer, Vector3f interpOffset) {
         for (int i = 0; i < frame.poses.length / 2; i++) {
 
             // Poses come in pairs of two [startPose] + [endPose], weight tells us how close we are to the end
             // The pose pair must have the same vertices in the same order
-            applyPose(frame.poses[i * 2], frame.poses[i * 2 + 1], frame.weights[i], (FloatBuffer) pb.getData());
+            applyPose(frame.poses[i * 2], frame.poses[i * 2 + 1], frame.weights[i], vertexBuffer, interpOffset);
         }
-
-        // force to re-upload data to gpu
-        pb.updateData(pb.getData());
     }
 
     /**
@@ -170,14 +242,14 @@ public final class PoseTrack implements Track, ClonableTrack {
      * @param endPose ending pose for the vertices
      * @param weight weight on which to apply the interpolation
      * @param vertexBuffer the vertex buffer
+     * @param interpOffset temporary vector for the interpolation
      */
-    private void applyPose(@Nullable Pose startPose, Pose endPose, float weight, FloatBuffer vertexBuffer) {
+    private static void applyPose(@Nullable Pose startPose, Pose endPose, float weight, FloatBuffer vertexBuffer, Vector3f interpOffset) {
         if (startPose == null) {
             // FIXME should we skip if null?
             return;
         }
         int[] startingIndices = startPose.getIndices();
-        Vector3f interpOffset = new Vector3f();
         for (int i = 0; i < startingIndices.length; i++) {
             int vertIndex = startingIndices[i];
             Vector3f startOffset = startPose.getOffsets()[i];
@@ -198,6 +270,11 @@ public final class PoseTrack implements Track, ClonableTrack {
     public void setTime(float time, float weight, AnimControl control,
             AnimChannel channel, TempVars vars) {
         Spatial spat = control.getSpatial();
+        if (baked) {
+            setMorphFrame(spat, getFramePosition(time));
+            return;
+        }
+
         Geometry geom = findGeom(spat);
         Mesh target = geom.getMesh();
 
@@ -210,19 +287,50 @@ public final class PoseTrack implements Track, ClonableTrack {
         pb.put(bpb).clear();
 
         if (time < times[0]) {
-            applyFrame(target, 0);
+            applyFrame(target, 0, vars.vect1);
         } else if (time > times[times.length - 1]) {
-            applyFrame(target, times.length - 1);
+            applyFrame(target, times.length - 1, vars.vect1);
         } else {
-            int startFrame = 0;
-            for (int i = 0; i < times.length; i++) {
-                if (times[i] < time) {
-                    startFrame = i;
-                }
-            }
+
+            // The last frame before the time, the times are in ascending order
+            int index = Arrays.binarySearch(times, time);
+            int startFrame = Math.max(index >= 0 ? index - 1 : -index - 2, 0);
 
             int endFrame = startFrame + 1;
-            applyFrame(target, endFrame);
+            applyFrame(target, endFrame, vars.vect1);
+        }
+    }
+
+    /**
+     * Get the frame position of the given time, the fraction tells how far we
+     * are towards the next frame
+     *
+     * @param time the animation time
+     * @return the frame position
+     */
+    private float getFramePosition(float time) {
+        int lastFrame = times.length - 1;
+        if (time <= times[0]) {
+            return 0;
+        } else if (time >= times[lastFrame]) {
+            return lastFrame;
+        }
+
+        int index = Arrays.binarySearch(times, time);
+        if (index >= 0) {
+            return index;
+        }
+        int nextFrame = -index - 1;
+        int previousFrame = nextFrame - 1;
+        return previousFrame + (time - times[previousFrame]) / (times[nextFrame] - times[previousFrame]);
+    }
+
+    private static void setMorphFrame(Spatial spatial, float frame) {
+        for (MatParamOverride override : spatial.getLocalMatParamOverrides()) {
+            if (MORPH_FRAME.equals(override.getName())) {
+                override.setValue(frame);
+                return;
+            }
         }
     }
 
@@ -292,6 +400,7 @@ public final class PoseTrack implements Track, ClonableTrack {
         out.write(targetMeshIndex, "meshIndex", 0);
         out.write(frames, "frames", null);
         out.write(times, "times", null);
+        out.write(baked, "baked", false);
     }
 
     @Override
@@ -299,6 +408,7 @@ public final class PoseTrack implements Track, ClonableTrack {
         InputCapsule in = i.getCapsule(this);
         targetMeshIndex = in.readInt("meshIndex", 0);
         times = in.readFloatArray("times", null);
+        baked = in.readBoolean("baked", false);
 
         Savable[] readSavableArray = in.readSavableArray("frames", null);
         if (readSavableArray != null) {
@@ -23,24 +23,45 @@ import com.jme3.audio.AudioData;
 import com.jme3.audio.AudioKey;
 import com.jme3.audio.AudioStream;
 import com.jme3.util.BufferUtils;
-import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.CRC32;
 import toniarts.openkeeper.audio.plugins.decoder.AudioInformation;
 import toniarts.openkeeper.audio.plugins.decoder.Decoder;
 import toniarts.openkeeper.audio.plugins.decoder.MediaInformation;
 import toniarts.openkeeper.audio.plugins.decoder.MpxReader;
 
 /**
- * Plays MPx files, not MP3s though
+ * Plays MPx files, not MP3s though<br>
+ * Non-streamed sounds are decoded straight to a direct buffer. Short sounds
+ * (the SFX) can be cached decoded on disk, see
+ * {@link #setPcmCacheFolder(java.io.File)}
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
 public class MP2Loader implements AssetLoader {
 
     private static final Logger logger = Logger.getLogger(MP2Loader.class.getName());
+    private static final int SAMPLES_PER_FRAME = 1152;
+    private static final int PCM_CACHE_MAX_SOURCE_SIZE = 128 * 1024; // In bytes, the longer sounds are music & speech
+    private static final int PCM_CACHE_MAGIC = 0x4D503243; // MP2C
+    private static final int PCM_CACHE_VERSION = 1;
+    private static final String PCM_CACHE_EXTENSION = ".pcm";
+    private static volatile File pcmCacheFolder;
     private boolean readStream = false;
     private AudioBuffer audioBuffer;
     private AudioStream audioStream;
@@ -107,14 +128,49 @@ public class MP2Loader implements AssetLoader {
         }
     }
 
-    private void readDataChunkForBuffer(Decoder decoder) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    private void readDataChunkForBuffer(Decoder decoder, MediaInformation info, int sourceSize) throws IOException {
+        ByteBuffer pcm = BufferUtils.createByteBuffer(estimatePcmSize(info, decoder, sourceSize));
         byte[] buffer = new byte[8192];
         int length;
         while ((length = decoder.read(buffer)) > -1) {
-            baos.write(buffer, 0, length);
+            if (pcm.remaining() < length) {
+
+                // Underestimated, grow by half
+                ByteBuffer newPcm = BufferUtils.createByteBuffer(Math.max(pcm.capacity() + pcm.capacity() / 2, pcm.position() + length));
+                pcm.flip();
+                newPcm.put(pcm);
+                BufferUtils.destroyDirectBuffer(pcm);
+                pcm = newPcm;
+            }
+            pcm.put(buffer, 0, length);
         }
-        audioBuffer.updateData(BufferUtils.createByteBuffer(baos.toByteArray()));
+        pcm.flip();
+        audioBuffer.updateData(pcm);
+    }
+
+    /**
+     * Calculates the decoded size of the sound, rounded up to the next whole
+     * frame. Uses the frame count if the header has it, otherwise it is
+     * calculated from the source size and the bitrate
+     *
+     * @param info the media info
+     * @param decoder the decoder
+     * @param sourceSize the encoded data size
+     * @return estimated PCM size in bytes
+     */
+    private static int estimatePcmSize(MediaInformation info, Decoder decoder, int sourceSize) {
+        int frameCount = (int) info.get(AudioInformation.I_FRAME_NUMBER);
+        if (frameCount <= 0) {
+            int bitrate = (int) info.get(MediaInformation.I_BITRATE);
+            int sampleRate = (int) info.get(AudioInformation.I_SAMPLE_RATE);
+            if (bitrate <= 0 || sampleRate <= 0) {
+                frameCount = 16;
+            } else {
+                frameCount = (int) ((sourceSize * 8L * sampleRate) / ((long) bitrate * SAMPLES_PER_FRAME)) + 1;
+            }
+        }
+        int bytesPerSample = (int) info.get(AudioInformation.I_CHANNEL_NUMBER) * ((int) decoder.get(AudioInformation.I_SAMPLE_SIZE) / 8);
+        return frameCount * SAMPLES_PER_FRAME * Math.max(bytesPerSample, 1);
     }
 
     private void readDataChunkForStream(InputStream inputStream, Decoder decoder) {
@@ -122,7 +178,6 @@ public class MP2Loader implements AssetLoader {
     }
 
     private AudioData load(InputStream inputStream, boolean stream) throws IOException {
-
         readStream = stream;
         if (readStream) {
             audioStream = new AudioStream();
@@ -141,27 +196,161 @@ public class MP2Loader implements AssetLoader {
             audioData.setupFormat((int) info.get(AudioInformation.I_CHANNEL_NUMBER), (int) decoder.get(AudioInformation.I_SAMPLE_SIZE), (int) info.get(AudioInformation.I_SAMPLE_RATE));
 
             // Read the file
-            while (true) {
-                if (readStream) {
-                    readDataChunkForStream(inputStream, decoder);
-                } else {
-                    readDataChunkForBuffer(decoder);
-                }
-                return audioData;
+            if (readStream) {
+                readDataChunkForStream(inputStream, decoder);
+            } else {
+                readDataChunkForBuffer(decoder, info, inputStream.available());
             }
+            return audioData;
         } catch (Exception ex) {
             logger.log(Level.SEVERE, "Failed to read a frame!", ex);
             throw new IOException("Failed to read a frame!");
         }
     }
 
+    /**
+     * Loads a non-streamed sound, from the PCM cache if possible
+     *
+     * @param assetName the asset name
+     * @param inputStream the encoded data
+     * @return the audio buffer
+     * @throws IOException
+     */
+    private AudioData loadBuffer(String assetName, InputStream inputStream) throws IOException {
+        byte[] data = readFully(inputStream);
+        File cacheFolder = pcmCacheFolder;
+        if (cacheFolder == null || data.length > PCM_CACHE_MAX_SOURCE_SIZE) {
+            return load(new ByteArrayInputStream(data), false);
+        }
+
+        // See if we have it cached
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        int hash = (int) crc.getValue();
+        File cacheFile = new File(cacheFolder, Integer.toHexString(assetName.toLowerCase().hashCode()) + PCM_CACHE_EXTENSION);
+        AudioBuffer cached = readPcmCache(cacheFile, data.length, hash);
+        if (cached != null) {
+            return cached;
+        }
+
+        AudioData result = load(new ByteArrayInputStream(data), false);
+        writePcmCache(cacheFile, data.length, hash, audioBuffer);
+        return result;
+    }
+
+    private static byte[] readFully(InputStream inputStream) throws IOException {
+        byte[] data = new byte[Math.max(inputStream.available(), 8192)];
+        int size = 0;
+        int length;
+        while ((length = inputStream.read(data, size, data.length - size)) > -1) {
+            size += length;
+            if (size == data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+        }
+        return (size == data.length ? data : Arrays.copyOf(data, size));
+    }
+
+    private static AudioBuffer readPcmCache(File cacheFile, int sourceSize, int hash) {
+        if (!cacheFile.exists()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)) {
+            DataInputStream dis = new DataInputStream(Channels.newInputStream(channel));
+            if (dis.readInt() != PCM_CACHE_MAGIC || dis.readInt() != PCM_CACHE_VERSION
+                    || dis.readInt() != sourceSize || dis.readInt() != hash) {
+                return null;
+            }
+            int channels = dis.readInt();
+            int bitsPerSample = dis.readInt();
+            int sampleRate = dis.readInt();
+            int size = dis.readInt();
+
+            // Read straight to the direct buffer
+            ByteBuffer pcm = BufferUtils.createByteBuffer(size);
+            while (pcm.hasRemaining()) {
+                if (channel.read(pcm) < 0) {
+                    BufferUtils.destroyDirectBuffer(pcm);
+                    return null;
+                }
+            }
+            pcm.flip();
+
+            AudioBuffer cached = new AudioBuffer();
+            cached.setupFormat(channels, bitsPerSample, sampleRate);
+            cached.updateData(pcm);
+            return cached;
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Failed to read the sound cache file " + cacheFile + "!", ex);
+            return null;
+        }
+    }
+
+    private static void writePcmCache(File cacheFile, int sourceSize, int hash, AudioBuffer audioBuffer) {
+        if (audioBuffer.getData() == null) {
+            return;
+        }
+
+        // Write to a temporary file first, the assets may be loaded from several threads
+        Path tempFile = null;
+        try {
+            tempFile = Files.createTempFile(cacheFile.getParentFile().toPath(), cacheFile.getName(), null);
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                DataOutputStream dos = new DataOutputStream(Channels.newOutputStream(channel));
+                dos.writeInt(PCM_CACHE_MAGIC);
+                dos.writeInt(PCM_CACHE_VERSION);
+                dos.writeInt(sourceSize);
+                dos.writeInt(hash);
+                dos.writeInt(audioBuffer.getChannels());
+                dos.writeInt(audioBuffer.getBitsPerSample());
+                dos.writeInt(audioBuffer.getSampleRate());
+                dos.writeInt(audioBuffer.getData().limit());
+                dos.flush();
+
+                ByteBuffer pcm = audioBuffer.getData().duplicate();
+                pcm.rewind();
+                while (pcm.hasRemaining()) {
+                    channel.write(pcm);
+                }
+            }
+            Files.move(tempFile, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Failed to write the sound cache file " + cacheFile + "!", ex);
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException e) {
+                    // Nothing to do
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the folder for caching the decoded short sounds. Cached sounds are
+     * validated against the encoded data, so changed assets are decoded again
+     *
+     * @param folder the cache folder, {@code null} disables the cache
+     */
+    public static void setPcmCacheFolder(File folder) {
+        if (folder != null && !folder.exists() && !folder.mkdirs()) {
+            logger.log(Level.WARNING, "Failed to create the sound cache folder {0}!", folder);
+            folder = null;
+        }
+        pcmCacheFolder = folder;
+    }
+
     @Override
     public Object load(AssetInfo info) throws IOException {
         AudioData data;
         InputStream inputStream = null;
         try {
             inputStream = info.openStream();
-            data = load(inputStream, ((AudioKey) info.getKey()).isStream());
+            if (((AudioKey) info.getKey()).isStream()) {
+                data = load(inputStream, true);
+            } else {
+                data = loadBuffer(info.getKey().getName(), inputStream);
+            }
             if (data instanceof AudioStream) {
                 inputStream = null;
             }
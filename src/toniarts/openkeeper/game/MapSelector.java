@@ -17,18 +17,13 @@
 package toniarts.openkeeper.game;
 
 import com.jme3.math.FastMath;
-import java.io.IOException;
-import java.nio.file.DirectoryStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 import toniarts.openkeeper.Main;
+import toniarts.openkeeper.game.data.MapCatalog;
 import toniarts.openkeeper.tools.convert.map.GameLevel;
 import toniarts.openkeeper.tools.convert.map.KwdFile;
 import toniarts.openkeeper.utils.PathUtils;
@@ -49,26 +44,19 @@ public class MapSelector {
 
     public MapSelector() {
 
-        // Get the maps
-        DirectoryStream.Filter<Path> filter = (Path entry) -> entry.getFileName().toString().toLowerCase().endsWith(".kwd") && !Files.isDirectory(entry);
-        try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(Main.getDkIIFolder() + PathUtils.DKII_MAPS_FOLDER), filter)) {
-            for (Path file : stream) {
-
-                // Read the map
-                KwdFile kwd = new KwdFile(Main.getDkIIFolder(), file.toFile(), false);
-                GameMapContainer gameMapContainer = new GameMapContainer(kwd, kwd.getGameLevel().getName());
-                if (kwd.getGameLevel().getLvlFlags().contains(GameLevel.LevFlag.IS_SKIRMISH_LEVEL)) {
-                    skirmishMaps.add(gameMapContainer);
-                }
-                if (kwd.getGameLevel().getLvlFlags().contains(GameLevel.LevFlag.IS_MULTIPLAYER_LEVEL)) {
-                    multiplayerMaps.add(gameMapContainer);
-                }
-                if (kwd.getGameLevel().getLvlFlags().contains(GameLevel.LevFlag.IS_MY_PET_DUNGEON_LEVEL)) {
-                    mpdMaps.add(gameMapContainer);
-                }
+        // Get the maps from the catalog, only the changed map files are actually read
+        MapCatalog mapCatalog = MapCatalog.load(Main.getDkIIFolder());
+        for (MapCatalog.MapCatalogEntry entry : mapCatalog.getEntries()) {
+            GameMapContainer gameMapContainer = new GameMapContainer(entry, entry.getName());
+            if (entry.hasFlag(GameLevel.LevFlag.IS_SKIRMISH_LEVEL)) {
+                skirmishMaps.add(gameMapContainer);
+            }
+            if (entry.hasFlag(GameLevel.LevFlag.IS_MULTIPLAYER_LEVEL)) {
+                multiplayerMaps.add(gameMapContainer);
+            }
+            if (entry.hasFlag(GameLevel.LevFlag.IS_MY_PET_DUNGEON_LEVEL)) {
+                mpdMaps.add(gameMapContainer);
             }
-        } catch (IOException ex) {
-            Logger.getLogger(MapSelector.class.getName()).log(Level.SEVERE, "Failed to load the maps!", ex);
         }
 
         // Sort them
@@ -174,19 +162,40 @@ public class MapSelector {
     }
 
     /**
-     * Small container class that holds the actual map data and the name
+     * Small container class that holds the map catalog entry and the name. The
+     * actual map data is read on demand
      */
     public class GameMapContainer {
 
-        private final KwdFile map;
+        private final MapCatalog.MapCatalogEntry entry;
         private final String mapName;
+        private KwdFile map;
 
-        public GameMapContainer(KwdFile map, String mapName) {
-            this.map = map;
+        public GameMapContainer(MapCatalog.MapCatalogEntry entry, String mapName) {
+            this.entry = entry;
             this.mapName = mapName;
         }
 
-        public KwdFile getMap() {
+        /**
+         * Get the map catalog entry, has the basic map information without
+         * reading the map itself
+         *
+         * @return the map catalog entry
+         */
+        public MapCatalog.MapCatalogEntry getEntry() {
+            return entry;
+        }
+
+        /**
+         * Get the map file, the general map information is read on first
+         * call
+         *
+         * @return the map file
+         */
+        public synchronized KwdFile getMap() {
+            if (map == null && entry != null) {
+                map = new KwdFile(Main.getDkIIFolder(), new File(Main.getDkIIFolder() + PathUtils.DKII_MAPS_FOLDER + entry.getFileName()), false);
+            }
             return map;
         }
 
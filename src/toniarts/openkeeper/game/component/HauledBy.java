@@ -16,24 +16,33 @@
  */
 package toniarts.openkeeper.game.component;
 
+import com.jme3.math.Vector3f;
 import com.simsilica.es.EntityComponent;
 import com.simsilica.es.EntityId;
 
 /**
- * Marks entity to be hauled/dragged by another entity
+ * Marks entity to be hauled/dragged by another entity. The hauled entity is
+ * positioned relative to its hauler, its own position is only updated when it
+ * is dropped
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
 public class HauledBy implements EntityComponent {
 
     public EntityId entityId;
+    public Vector3f offset; // Relative to the hauler, in the hauler's rotation
 
     public HauledBy() {
         // For serialization
     }
 
     public HauledBy(EntityId entityId) {
+        this(entityId, new Vector3f());
+    }
+
+    public HauledBy(EntityId entityId, Vector3f offset) {
         this.entityId = entityId;
+        this.offset = offset;
     }
 
 }
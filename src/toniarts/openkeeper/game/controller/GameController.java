@@ -18,25 +18,39 @@ package toniarts.openkeeper.game.controller;
 
 import com.badlogic.gdx.ai.GdxAI;
 import com.jme3.util.SafeArrayList;
+import com.simsilica.es.EntityComponent;
 import com.simsilica.es.EntityData;
+import com.simsilica.es.EntityId;
+import java.awt.Point;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import toniarts.openkeeper.Main;
+import toniarts.openkeeper.common.RoomInstance;
+import toniarts.openkeeper.game.component.Position;
+import toniarts.openkeeper.game.component.RoomStorage;
+import toniarts.openkeeper.game.controller.room.IRoomController;
 import toniarts.openkeeper.game.data.ActionPoint;
+import toniarts.openkeeper.game.data.EntitySnapshot;
+import toniarts.openkeeper.game.data.GameEntityData;
 import toniarts.openkeeper.game.data.GameResult;
 import toniarts.openkeeper.game.data.GameTimer;
 import toniarts.openkeeper.game.data.GeneralLevel;
 import toniarts.openkeeper.game.data.Keeper;
+import toniarts.openkeeper.game.data.SaveGame;
 import toniarts.openkeeper.game.data.Settings;
+import toniarts.openkeeper.game.logic.AutosaveSystem;
 import toniarts.openkeeper.game.logic.CreatureAiSystem;
 import toniarts.openkeeper.game.logic.CreatureExperienceSystem;
 import toniarts.openkeeper.game.logic.CreatureFallSystem;
@@ -59,12 +73,16 @@ import toniarts.openkeeper.game.logic.ManaCalculatorLogic;
 import toniarts.openkeeper.game.logic.MovementSystem;
 import toniarts.openkeeper.game.logic.PlayerCreatureSystem;
 import toniarts.openkeeper.game.logic.PositionSystem;
+import toniarts.openkeeper.game.logic.WorkScheduler;
+import toniarts.openkeeper.game.map.MapData;
+import toniarts.openkeeper.game.map.MapTile;
 import toniarts.openkeeper.game.navigation.INavigationService;
 import toniarts.openkeeper.game.navigation.NavigationService;
 import toniarts.openkeeper.game.state.session.PlayerService;
 import toniarts.openkeeper.game.task.ITaskManager;
 import toniarts.openkeeper.game.task.TaskManager;
 import toniarts.openkeeper.game.trigger.TriggerControl;
+import toniarts.openkeeper.game.trigger.TriggerState;
 import toniarts.openkeeper.game.trigger.actionpoint.ActionPointTriggerLogicController;
 import toniarts.openkeeper.game.trigger.creature.CreatureTriggerLogicController;
 import toniarts.openkeeper.game.trigger.door.DoorTriggerLogicController;
@@ -79,6 +97,7 @@ import toniarts.openkeeper.tools.convert.map.Thing;
 import toniarts.openkeeper.tools.convert.map.Variable;
 import toniarts.openkeeper.utils.GameLoop;
 import toniarts.openkeeper.utils.PathUtils;
+import toniarts.openkeeper.utils.WorldUtils;
 
 /**
  * The game controller, runs the game simulation itself
@@ -89,6 +108,7 @@ public class GameController implements IGameLogicUpdatable, AutoCloseable, IGame
 
     public static final int LEVEL_TIMER_MAX_COUNT = 16;
     private static final int LEVEL_FLAG_MAX_COUNT = 128;
+    private static final String AUTOSAVE_FILE_NAME = "Autosave";
 
     private String level;
     private KwdFile kwdFile;
@@ -112,7 +132,8 @@ public class GameController implements IGameLogicUpdatable, AutoCloseable, IGame
     private PartyTriggerLogicController partyTriggerState;
     private ActionPointTriggerLogicController actionPointController;
     private PlayerTriggerLogicController playerTriggerLogicController;
-    private final List<Integer> flags = new ArrayList<>(LEVEL_FLAG_MAX_COUNT);
+    private final int[] flags = new int[LEVEL_FLAG_MAX_COUNT];
+    private int flagRevision = 0;
     private final SafeArrayList<GameTimer> timers = new SafeArrayList<>(GameTimer.class, LEVEL_TIMER_MAX_COUNT);
     private final Map<Integer, ActionPoint> actionPointsById = new HashMap<>();
     private final List<ActionPoint> actionPoints = new ArrayList<>();
@@ -125,6 +146,7 @@ public class GameController implements IGameLogicUpdatable, AutoCloseable, IGame
     private GameResult gameResult = null;
     private Float timeLimit = null;
     private TaskManager taskManager;
+    private AutosaveSystem autosaveSystem;
 
     private static final Logger LOGGER = Logger.getLogger(GameController.class.getName());
 
@@ -232,10 +254,6 @@ public class GameController implements IGameLogicUpdatable, AutoCloseable, IGame
         playerTriggerLogicController = new PlayerTriggerLogicController(this, this, this, gameWorldController.getMapController(), gameWorldController.getCreaturesController(), playerService);
 
         // Trigger data
-        for (short i = 0; i < LEVEL_FLAG_MAX_COUNT; i++) {
-            flags.add(i, 0);
-        }
-
         for (byte i = 0; i < LEVEL_TIMER_MAX_COUNT; i++) {
             timers.add(i, new GameTimer());
         }
@@ -245,9 +263,15 @@ public class GameController implements IGameLogicUpdatable, AutoCloseable, IGame
             triggerControl = new TriggerControl(this, this, this, gameWorldController.getMapController(), gameWorldController.getCreaturesController(), triggerId);
         }
 
+        // Saving, snapshots are taken after all the other logic has ticked
+        autosaveSystem = new AutosaveSystem(this::createSaveGame, getAutosaveFile(),
+                Main.getUserSettings().getSettingFloat(Settings.Setting.AUTOSAVE_INTERVAL));
+
         // Create the game loops ready to start
-        // Game logic
-        gameLogicThread = new GameLogicManager(positionSystem,
+        // Game logic, the expensive AI work is time sliced
+        WorkScheduler workScheduler = new WorkScheduler();
+        long gameLogicUpdateRate = 1000000000 / kwdFile.getGameLevel().getTicksPerSec();
+        gameLogicThread = new GameLogicManager(workScheduler, gameLogicUpdateRate, positionSystem,
                 gameWorldController.getMapController(),
                 new CreatureExperienceSystem(entityData, kwdFile, gameSettings, gameWorldController.getCreaturesController()),
                 new CreatureSlapSystem(entityData, kwdFile, playerControllers.values(), gameSettings),
@@ -259,14 +283,15 @@ public class GameController implements IGameLogicUpdatable, AutoCloseable, IGame
                 new PlayerCreatureSystem(entityData, kwdFile, playerControllers.values()),
                 this,
                 new CreatureSpawnSystem(gameWorldController.getCreaturesController(), playerControllers.values(), gameSettings, this, gameWorldController.getMapController()),
-                new ManaCalculatorLogic(gameSettings, playerControllers.values(), gameWorldController.getMapController()),
-                new CreatureAiSystem(entityData, gameWorldController.getCreaturesController()),
+                new ManaCalculatorLogic(gameSettings, playerControllers.values(), gameWorldController.getMapStatistics()),
+                new CreatureAiSystem(entityData, gameWorldController.getCreaturesController(), workScheduler),
                 new CreatureViewSystem(entityData),
                 new DoorViewSystem(entityData, positionSystem),
                 new LooseGoldSystem(entityData, gameWorldController.getMapController(), playerControllers, positionSystem),
                 new HaulingSystem(entityData),
-                taskManager);
-        gameLogicLoop = new GameLoop(gameLogicThread, 1000000000 / kwdFile.getGameLevel().getTicksPerSec(), "GameLogic");
+                taskManager,
+                autosaveSystem);
+        gameLogicLoop = new GameLoop(gameLogicThread, gameLogicUpdateRate, "GameLogic");
 
         // Animation systems
         gameAnimationThread = new GameLogicManager(new DungeonHeartConstruction(entityData, getLevelVariable(Variable.MiscVariable.MiscType.TIME_BEFORE_DUNGEON_HEART_CONSTRUCTION_BEGINS)), new CreatureFallSystem(entityData));
@@ -276,6 +301,16 @@ public class GameController implements IGameLogicUpdatable, AutoCloseable, IGame
         steeringCalculatorLoop = new GameLoop(new GameLogicManager(new MovementSystem(entityData)), GameLoop.INTERVAL_FPS_60, "SteeringCalculator");
     }
 
+    /**
+     * Get the game loops, not started. Lets the game be run without the loop
+     * threads, by ticking the managers of the loops by hand (headless)
+     *
+     * @return the game logic, animation and steering loops
+     */
+    public List<GameLoop> getGameLoops() {
+        return Arrays.asList(gameLogicLoop, gameAnimationLoop, steeringCalculatorLoop);
+    }
+
     public void startGame() {
 
         // Game logic thread & movement
@@ -284,6 +319,165 @@ public class GameController implements IGameLogicUpdatable, AutoCloseable, IGame
         steeringCalculatorLoop.start();
     }
 
+    /**
+     * Requests the game to be saved. The game is saved on the next game tick
+     * in the background
+     *
+     * @param file the file to save to
+     */
+    public void saveGame(File file) {
+        autosaveSystem.requestSave(file);
+    }
+
+    /**
+     * Get the file where the game is autosaved
+     *
+     * @return the autosave file
+     */
+    public static File getAutosaveFile() {
+        return new File(Main.getSavesFolder(), AUTOSAVE_FILE_NAME + SaveGame.FILE_EXTENSION);
+    }
+
+    /**
+     * Takes a snapshot of the game state. Must be called from the game logic
+     * thread or when the game is not running. The room furniture is not
+     * saved, it is rebuilt from the map when loading. Of the tasks only the
+     * queued ones are saved
+     *
+     * @return the saved game
+     */
+    public SaveGame createSaveGame() {
+        IMapController mapController = gameWorldController.getMapController();
+        Set<EntityId> roomObjects = new HashSet<>();
+        for (IRoomController roomController : mapController.getRoomControllers()) {
+            roomObjects.addAll(roomController.getFloorFurniture());
+            roomObjects.addAll(roomController.getWallFurniture());
+            roomObjects.addAll(roomController.getPillars());
+        }
+
+        return new SaveGame(kwdFile.getGameLevel().getName(), gameLogicThread.getGameTime(), gameLogicThread.getTicks(),
+                flags, levelScore, timeLimit, Arrays.asList(timers.getArray()), new ArrayList<>(players.values()),
+                mapController.getMapData(), new EntitySnapshot(entityData, roomObjects, SaveGame.COMPONENT_TYPES),
+                getTriggerStates(), taskManager.getState());
+    }
+
+    private List<TriggerState> getTriggerStates() {
+        List<TriggerControl> triggerControls = getTriggerControls();
+        List<TriggerState> triggerStates = new ArrayList<>(triggerControls.size());
+        for (TriggerControl control : triggerControls) {
+            triggerStates.add(control.getState());
+        }
+        return triggerStates;
+    }
+
+    /**
+     * Get all the trigger controls, always in the same order for the same
+     * level
+     *
+     * @return the trigger controls
+     */
+    private List<TriggerControl> getTriggerControls() {
+        List<TriggerControl> triggerControls = new ArrayList<>();
+        if (triggerControl != null) {
+            triggerControls.add(triggerControl);
+        }
+        triggerControls.addAll(playerTriggerLogicController.getTriggerControls());
+        triggerControls.addAll(creatureTriggerState.getTriggerControls());
+        triggerControls.addAll(objectTriggerState.getTriggerControls());
+        triggerControls.addAll(doorTriggerState.getTriggerControls());
+        triggerControls.addAll(partyTriggerState.getTriggerControls());
+        triggerControls.addAll(actionPointController.getTriggerControls());
+        return triggerControls;
+    }
+
+    /**
+     * Restores a saved game. The game must be created for the same level but
+     * not yet started. The entity data must be a {@link GameEntityData}, the
+     * entities keep their IDs
+     *
+     * @param saveGame the saved game
+     */
+    public void loadGame(SaveGame saveGame) {
+        if (!(entityData instanceof GameEntityData)) {
+            throw new IllegalStateException("Can't restore the entities to " + entityData + ", the entity IDs can't be reserved!");
+        }
+        IMapController mapController = gameWorldController.getMapController();
+
+        // Clear out the new game
+        mapController.removeRoomInstances(mapController.getRoomControllersByInstances().keySet().toArray(new RoomInstance[0]));
+        for (Class<? extends EntityComponent> type : SaveGame.COMPONENT_TYPES) {
+            for (EntityId entityId : new ArrayList<>(entityData.findEntities(null, type))) {
+                entityData.removeEntity(entityId);
+            }
+        }
+
+        // The entities, with their original IDs. Make sure the new entities won't collide with them
+        ((GameEntityData) entityData).reserveEntityIds(saveGame.getEntities().restore(entityData));
+
+        // The map, rooms are rebuilt from the tiles
+        MapData mapData = saveGame.getMapData();
+        List<MapTile> tiles = new ArrayList<>(mapData.getWidth() * mapData.getHeight());
+        Point[] coordinates = new Point[mapData.getWidth() * mapData.getHeight()];
+        for (int y = 0; y < mapData.getHeight(); y++) {
+            for (int x = 0; x < mapData.getWidth(); x++) {
+                MapTile tile = mapData.getTile(x, y);
+                tiles.add(tile);
+                coordinates[tile.getIndex()] = tile.getLocation();
+            }
+        }
+        mapController.setTiles(tiles);
+        mapController.updateRooms(coordinates);
+        gameWorldController.getMapStatistics().recalculate();
+
+        // The room storage, the rooms were rebuilt empty
+        for (EntityId entityId : entityData.findEntities(null, RoomStorage.class, Position.class)) {
+            RoomStorage roomStorage = entityData.getComponent(entityId, RoomStorage.class);
+            Point p = WorldUtils.vectorToPoint(entityData.getComponent(entityId, Position.class).position);
+            IRoomController roomController = mapController.getRoomControllerByCoordinates(p);
+            if (roomController != null && roomController.hasObjectControl(roomStorage.objectType)) {
+                roomController.getObjectControl(roomStorage.objectType).restoreItem(entityId, p);
+            } else {
+                LOGGER.log(Level.WARNING, "No room to store {0} at {1}!", new Object[]{roomStorage.objectType, p});
+            }
+        }
+
+        // Triggers & tasks
+        List<TriggerControl> triggerControls = getTriggerControls();
+        List<TriggerState> triggerStates = saveGame.getTriggerStates();
+        if (triggerControls.size() != triggerStates.size()) {
+            LOGGER.log(Level.WARNING, "Saved {0} trigger states but the level has {1} triggers!", new Object[]{triggerStates.size(), triggerControls.size()});
+        }
+        for (int i = 0; i < Math.min(triggerControls.size(), triggerStates.size()); i++) {
+            TriggerControl control = triggerControls.get(i);
+            TriggerState state = triggerStates.get(i);
+            if (control.getTriggerId() == state.getTriggerId()) {
+                control.setState(state);
+            } else {
+                LOGGER.log(Level.WARNING, "Saved trigger {0} does not match the level trigger {1}!", new Object[]{state.getTriggerId(), control.getTriggerId()});
+            }
+        }
+        if (saveGame.getTaskQueues() != null) {
+            taskManager.setState(saveGame.getTaskQueues());
+        }
+
+        // Players & level
+        for (Keeper keeper : saveGame.getPlayers()) {
+            Keeper player = players.get(keeper.getId());
+            if (player != null) {
+                player.setState(keeper);
+            }
+        }
+        System.arraycopy(saveGame.getFlags(), 0, flags, 0, Math.min(flags.length, saveGame.getFlags().length));
+        levelScore = saveGame.getLevelScore();
+        flagRevision++;
+        timeLimit = saveGame.getTimeLimit();
+        for (int i = 0; i < Math.min(timers.size(), saveGame.getTimerTimes().length); i++) {
+            timers.get(i).setState(saveGame.getTimerTimes()[i], saveGame.getTimersActive()[i]);
+        }
+        gameLogicThread.setGameTime(saveGame.getGameTime());
+        gameLogicThread.setTicks(saveGame.getTicks());
+    }
+
     private void setupPlayers() {
 
         // Setup players
@@ -468,12 +662,20 @@ public class GameController implements IGameLogicUpdatable, AutoCloseable, IGame
 
     @Override
     public int getFlag(int id) {
-        return flags.get(id);
+        return flags[id];
     }
 
     @Override
     public void setFlag(int id, int value) {
-        flags.set(id, value);
+        if (flags[id] != value) {
+            flags[id] = value;
+            flagRevision++;
+        }
+    }
+
+    @Override
+    public int getFlagRevision() {
+        return flagRevision;
     }
 
     @Override
@@ -569,7 +771,10 @@ public class GameController implements IGameLogicUpdatable, AutoCloseable, IGame
 
     @Override
     public void setLevelScore(int levelScore) {
-        this.levelScore = levelScore;
+        if (this.levelScore != levelScore) {
+            this.levelScore = levelScore;
+            flagRevision++;
+        }
     }
 
     public CreatureTriggerLogicController getCreatureTriggerState() {
@@ -26,7 +26,6 @@ import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -46,7 +45,6 @@ import toniarts.openkeeper.game.component.DoorComponent;
 import toniarts.openkeeper.game.component.DoorViewState;
 import toniarts.openkeeper.game.component.FollowTarget;
 import toniarts.openkeeper.game.component.Gold;
-import toniarts.openkeeper.game.component.HauledBy;
 import toniarts.openkeeper.game.component.Health;
 import toniarts.openkeeper.game.component.InHand;
 import toniarts.openkeeper.game.component.Interaction;
@@ -66,6 +64,7 @@ import toniarts.openkeeper.game.controller.room.storage.IRoomObjectControl;
 import toniarts.openkeeper.game.controller.room.storage.RoomGoldControl;
 import toniarts.openkeeper.game.data.Keeper;
 import toniarts.openkeeper.game.listener.PlayerActionListener;
+import toniarts.openkeeper.game.logic.HaulingSystem;
 import toniarts.openkeeper.game.map.MapTile;
 import toniarts.openkeeper.tools.convert.map.GameObject;
 import toniarts.openkeeper.tools.convert.map.KwdFile;
@@ -83,13 +82,6 @@ import toniarts.openkeeper.utils.WorldUtils;
  */
 public class GameWorldController implements IGameWorldController, IPlayerActions {
 
-    /**
-     * When dealing with gold... We currently better lock it. Logic stuff
-     * happens in single thread. But player actions are prosessed in real time
-     * by possibly other threads. We must not lose any gold from the world.
-     */
-    public static final Object GOLD_LOCK = new Object();
-
     private final KwdFile kwdFile;
     private final EntityData entityData;
     private IObjectsController objectsController;
@@ -101,6 +93,7 @@ public class GameWorldController implements IGameWorldController, IPlayerActions
     private final IGameTimer gameTimer;
 
     private IMapController mapController;
+    private MapStatistics mapStatistics;
     private final Map<Variable.MiscVariable.MiscType, Variable.MiscVariable> gameSettings;
     private final SafeArrayList<PlayerActionListener> listeners = new SafeArrayList<>(PlayerActionListener.class);
 
@@ -120,6 +113,9 @@ public class GameWorldController implements IGameWorldController, IPlayerActions
 
         // Load the map
         mapController = new MapController(kwdFile, objectsController, gameSettings);
+        mapStatistics = new MapStatistics(kwdFile, mapController.getMapData());
+        mapController.addListener(mapStatistics);
+        addListener(mapStatistics);
 
         // Load creatures
         creaturesController = new CreaturesController(kwdFile, entityData, gameSettings, gameTimer, gameController, mapController, levelInfo);
@@ -137,14 +133,15 @@ public class GameWorldController implements IGameWorldController, IPlayerActions
 
     private void initPlayerMoney() {
 
-        // The max money$$$
-        for (IRoomController room : mapController.getRoomControllers()) {
-            if (room.canStoreGold()) {
-                IPlayerController playerController = playerControllers.get(room.getRoomInstance().getOwnerId());
-                if (playerController != null) {
-                    playerController.getGoldControl().setGoldMax(playerController.getGoldControl().getGoldMax() + room.getObjectControl(ObjectType.GOLD).getMaxCapacity());
-                }
+        // The max money$$$, and keep the treasuries up to date
+        Map<Short, List<IRoomController>> playerRooms = mapController.getRoomControllers().stream().collect(Collectors.groupingBy(entry -> entry.getRoomInstance().getOwnerId()));
+        for (Keeper player : players.values()) {
+            List<IRoomController> rooms = playerRooms.get(player.getId());
+            PlayerGoldControl playerGoldControl = playerControllers.get(player.getId()).getGoldControl();
+            if (rooms != null) {
+                playerGoldControl.init(rooms);
             }
+            mapController.addListener(player.getId(), playerGoldControl);
         }
 
         // Set up the money$$$
@@ -166,6 +163,7 @@ public class GameWorldController implements IGameWorldController, IPlayerActions
             if (rooms != null) {
                 playerController.getRoomControl().init(rooms);
             }
+            playerController.getStatsControl().setMapStatistics(mapStatistics);
 
             // Add the listener
             mapController.addListener(player.getId(), playerController.getRoomControl());
@@ -182,9 +180,7 @@ public class GameWorldController implements IGameWorldController, IPlayerActions
      */
     @Override
     public int addGold(short playerId, int sum) {
-        synchronized (GOLD_LOCK) {
-            return addGold(playerId, null, sum);
-        }
+        return addGold(playerId, null, sum);
     }
 
     /**
@@ -198,41 +194,23 @@ public class GameWorldController implements IGameWorldController, IPlayerActions
      */
     @Override
     public int addGold(short playerId, Point p, int sum) {
+        PlayerGoldControl playerGoldControl = playerControllers.get(playerId).getGoldControl();
 
-        synchronized (GOLD_LOCK) {
-
-            // Gold to specified point/room
-            int moneyLeft = sum;
-            if (p != null) {
-
-                // Get a room in point
-                RoomInstance roomInstance = mapController.getRoomInstanceByCoordinates(p);
-                if (roomInstance != null) {
-                    IRoomController room = mapController.getRoomController(roomInstance);
-                    if (room.canStoreGold()) {
-                        RoomGoldControl control = room.getObjectControl(ObjectType.GOLD);
-                        moneyLeft = control.addItem(sum, p);
-                    }
-                }
-            } else {
+        // Distribute the gold
+        if (p == null) {
+            return playerGoldControl.deposit(sum);
+        }
 
-                // Distribute the gold
-                for (IRoomController roomController : mapController.getRoomControllers()) {
-                    if (roomController.getRoomInstance().getOwnerId() == playerId && roomController.canStoreGold()) {
-                        RoomGoldControl control = roomController.getObjectControl(ObjectType.GOLD);
-                        moneyLeft = control.addItem(sum, p);
-                        if (moneyLeft == 0) {
-                            break;
-                        }
-                    }
-                }
+        // Gold to specified point/room
+        RoomInstance roomInstance = mapController.getRoomInstanceByCoordinates(p);
+        if (roomInstance != null) {
+            IRoomController room = mapController.getRoomController(roomInstance);
+            if (room.canStoreGold()) {
+                return playerGoldControl.deposit(room, p, sum);
             }
-
-            // Add to the player
-            playerControllers.get(playerId).getGoldControl().addGold(sum - moneyLeft);
-
-            return moneyLeft;
         }
+
+        return sum;
     }
 
     /**
@@ -245,60 +223,23 @@ public class GameWorldController implements IGameWorldController, IPlayerActions
     @Override
     public int substractGold(int amount, short playerId) {
 
-        synchronized (GOLD_LOCK) {
-
-            // See if the player has any gold even
-            Keeper keeper = players.get(playerId);
-            if (keeper.getGold() == 0) {
-                return amount;
-            }
-
-            // The gold is subtracted evenly from all treasuries
-            int moneyToSubstract = amount;
-            List<IRoomController> playersTreasuries = mapController.getRoomsByFunction(ObjectType.GOLD, playerId);
-            while (moneyToSubstract > 0 && !playersTreasuries.isEmpty()) {
-                Iterator<IRoomController> iter = playersTreasuries.iterator();
-                int goldToRemove = (int) Math.ceil((float) moneyToSubstract / playersTreasuries.size());
-                while (iter.hasNext()) {
-                    IRoomController room = iter.next();
-                    RoomGoldControl control = room.getObjectControl(ObjectType.GOLD);
-                    goldToRemove = Math.min(moneyToSubstract, goldToRemove); // Rounding...
-                    moneyToSubstract -= goldToRemove - control.removeGold(goldToRemove);
-                    if (control.getCurrentCapacity() == 0) {
-                        iter.remove();
-                    }
-                    if (moneyToSubstract == 0) {
-                        break;
-                    }
-                }
-            }
-
-            // Substract from the player
-            playerControllers.get(playerId).getGoldControl().subGold(amount - moneyToSubstract);
-
-            return moneyToSubstract;
-        }
+        // The gold is subtracted evenly from all treasuries
+        return playerControllers.get(playerId).getGoldControl().withdraw(amount);
     }
 
     private void substractGoldCapacityFromPlayer(RoomInstance instance) {
-        synchronized (GOLD_LOCK) {
-            IRoomController roomController = mapController.getRoomController(instance);
-            if (roomController.canStoreGold()) {
-                RoomGoldControl roomGoldControl = roomController.getObjectControl(ObjectType.GOLD);
-                PlayerGoldControl playerGoldControl = playerControllers.get(instance.getOwnerId()).getGoldControl();
-                playerGoldControl.setGoldMax(playerGoldControl.getGoldMax() - roomGoldControl.getMaxCapacity());
-            }
+        IRoomController roomController = mapController.getRoomController(instance);
+        if (roomController.canStoreGold()) {
+            RoomGoldControl roomGoldControl = roomController.getObjectControl(ObjectType.GOLD);
+            playerControllers.get(instance.getOwnerId()).getGoldControl().addGoldMax(-roomGoldControl.getMaxCapacity());
         }
     }
 
     private void addGoldCapacityToPlayer(RoomInstance instance) {
-        synchronized (GOLD_LOCK) {
-            IRoomController roomController = mapController.getRoomController(instance);
-            if (roomController.canStoreGold()) {
-                RoomGoldControl roomGoldControl = roomController.getObjectControl(ObjectType.GOLD);
-                PlayerGoldControl playerGoldControl = playerControllers.get(instance.getOwnerId()).getGoldControl();
-                playerGoldControl.setGoldMax(playerGoldControl.getGoldMax() + roomGoldControl.getMaxCapacity());
-            }
+        IRoomController roomController = mapController.getRoomController(instance);
+        if (roomController.canStoreGold()) {
+            RoomGoldControl roomGoldControl = roomController.getObjectControl(ObjectType.GOLD);
+            playerControllers.get(instance.getOwnerId()).getGoldControl().addGoldMax(roomGoldControl.getMaxCapacity());
         }
     }
 
@@ -335,12 +276,9 @@ public class GameWorldController implements IGameWorldController, IPlayerActions
         }
 
         // See that can we afford the building
-        synchronized (GOLD_LOCK) {
-            int cost = instancePlots.size() * room.getCost();
-            if (instancePlots.size() * room.getCost() > players.get(playerId).getGold()) {
-                return;
-            }
-            substractGold(cost, playerId);
+        int cost = instancePlots.size() * room.getCost();
+        if (!playerControllers.get(playerId).getGoldControl().tryWithdraw(cost)) {
+            return;
         }
 
         // Build & mark
@@ -352,7 +290,7 @@ public class GameWorldController implements IGameWorldController, IPlayerActions
             buildPlots.addAll(Arrays.asList(WorldUtils.getSurroundingTiles(mapController.getMapData(), p, false)));
             updatableTiles.addAll(Arrays.asList(WorldUtils.getSurroundingTiles(mapController.getMapData(), p, true)));
 
-            MapTile tile = mapController.getMapData().getTile(p);
+            MapTile tile = mapController.getMapData().getTileForUpdate(p);
             tile.setOwnerId(playerId);
             tile.setTerrainId(room.getTerrainId());
             buildTiles.add(tile);
@@ -440,7 +378,7 @@ public class GameWorldController implements IGameWorldController, IPlayerActions
 
                 // Sell
                 Point p = new Point(x, y);
-                MapTile tile = mapController.getMapData().getTile(p);
+                MapTile tile = mapController.getMapData().getTileForUpdate(p);
                 if (tile == null) {
                     continue;
                 }
@@ -498,14 +436,12 @@ public class GameWorldController implements IGameWorldController, IPlayerActions
 
         // Finally we have all the rooms and such, return the revenue to the player
         // Do it this point to avoid placing the profit to the actual room we were selling
-        synchronized (GOLD_LOCK) {
-            for (Map.Entry<Point, Integer> moneyToReturn : moneyToReturnByPoint) {
-                int goldLeft = addGold(playerId, moneyToReturn.getValue());
-                if (goldLeft > 0) {
+        for (Map.Entry<Point, Integer> moneyToReturn : moneyToReturnByPoint) {
+            int goldLeft = addGold(playerId, moneyToReturn.getValue());
+            if (goldLeft > 0) {
 
-                    // Add loose gold to this tile
-                    objectsController.addLooseGold(playerId, moneyToReturn.getKey().x, moneyToReturn.getKey().y, goldLeft, (int) gameSettings.get(Variable.MiscVariable.MiscType.MAX_GOLD_PILE_OUTSIDE_TREASURY).getValue());
-                }
+                // Add loose gold to this tile
+                objectsController.addLooseGold(playerId, moneyToReturn.getKey().x, moneyToReturn.getKey().y, goldLeft, (int) gameSettings.get(Variable.MiscVariable.MiscType.MAX_GOLD_PILE_OUTSIDE_TREASURY).getValue());
             }
         }
 
@@ -540,6 +476,11 @@ public class GameWorldController implements IGameWorldController, IPlayerActions
         return mapController;
     }
 
+    @Override
+    public MapStatistics getMapStatistics() {
+        return mapStatistics;
+    }
+
     /**
      * If you want to get notified about player actions
      *
@@ -585,6 +526,8 @@ public class GameWorldController implements IGameWorldController, IPlayerActions
 
         // Lose the position component on the entity, do it here since we have the knowledge on locations etc. keep the "hand" simple
         // And also no need to create a system for this which saves resources
+        // Hauled entities are positioned by their hauler, so drop first to have the real position
+        HaulingSystem.drop(entityData, entity);
         Position position = entityData.getComponent(entity, Position.class);
         entityData.removeComponent(entity, Position.class);
         entityData.removeComponent(entity, CreatureAi.class);
@@ -595,7 +538,6 @@ public class GameWorldController implements IGameWorldController, IPlayerActions
         entityData.removeComponent(entity, CreatureImprisoned.class);
         entityData.removeComponent(entity, AttackTarget.class);
         entityData.removeComponent(entity, FollowTarget.class);
-        entityData.removeComponent(entity, HauledBy.class);
 
         // Since we keep reference on the creature controller classes... nullify the state machine
         // TODO: kinda hack?
@@ -613,9 +555,7 @@ public class GameWorldController implements IGameWorldController, IPlayerActions
 
             // If it was gold... substract it from the player
             if (roomStorage.objectType == ObjectType.GOLD) {
-                synchronized (GOLD_LOCK) {
-                    playerControllers.get(playerId).getGoldControl().subGold(entityData.getComponent(entity, Gold.class).gold);
-                }
+                playerControllers.get(playerId).getGoldControl().subGold(entityData.getComponent(entity, Gold.class).gold);
             }
         }
     }
@@ -817,13 +757,11 @@ public class GameWorldController implements IGameWorldController, IPlayerActions
         int realAmount = Math.min(amount, maxGold);
         PlayerHandControl playerHandControl = playerControllers.get(playerId).getHandControl();
         if (!playerHandControl.isFull()) {
-            synchronized (GOLD_LOCK) {
-                int leftOverRequest = substractGold(realAmount, playerId);
-                realAmount -= leftOverRequest;
-                if (realAmount > 0) {
-                    EntityId goldEntity = objectsController.addLooseGold(playerId, 0, 0, realAmount, maxGold);
-                    putToKeeperHand(playerHandControl, goldEntity, playerId);
-                }
+            int leftOverRequest = substractGold(realAmount, playerId);
+            realAmount -= leftOverRequest;
+            if (realAmount > 0) {
+                EntityId goldEntity = objectsController.addLooseGold(playerId, 0, 0, realAmount, maxGold);
+                putToKeeperHand(playerHandControl, goldEntity, playerId);
             }
         }
     }
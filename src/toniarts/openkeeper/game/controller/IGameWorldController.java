@@ -86,6 +86,13 @@ public interface IGameWorldController {
      */
     public IMapController getMapController();
 
+    /**
+     * Get the per player map statistics
+     *
+     * @return map statistics
+     */
+    public MapStatistics getMapStatistics();
+
     /**
      * Build a building to the wanted area
      *
@@ -56,6 +56,15 @@ public interface ILevelInfo {
 
     void setFlag(int id, int value);
 
+    /**
+     * Get the revision of the flags. The revision changes whenever a flag or
+     * the level score changes, so conditions depending only on them need not
+     * to be evaluated again while the revision stays the same
+     *
+     * @return the flag revision
+     */
+    int getFlagRevision();
+
     void setLevelScore(int levelScore);
 
     void setTimeLimit(float timeLimit);
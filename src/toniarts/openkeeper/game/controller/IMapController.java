@@ -114,6 +114,18 @@ public interface IMapController extends IMapInformation, IGameLogicUpdatable {
      */
     public List<IRoomController> getRoomsByFunction(AbstractRoomController.ObjectType objectType, Short playerId);
 
+    /**
+     * Get the rooms that implement a certain function and are not at full
+     * capacity, closest first. The rooms are looked up as they are iterated,
+     * so stopping at the first suitable room is cheap
+     *
+     * @param objectType the object type (or function if you may)
+     * @param playerId the owner of the room
+     * @param p the point to measure the distance from
+     * @return room controllers with free capacity, in the order of distance
+     */
+    public Iterable<IRoomController> getClosestRoomsByFunction(AbstractRoomController.ObjectType objectType, short playerId, Point p);
+
     /**
      * Get all the coordinates that contain rooms and their instances
      *
@@ -195,6 +207,15 @@ public interface IMapController extends IMapInformation, IGameLogicUpdatable {
      */
     public void unFlashTiles(List<Point> points, short playerId);
 
+    /**
+     * Reveal or conceal the specified tiles through the fog of war
+     *
+     * @param points the points to reveal
+     * @param playerId the player whose fog of war will be affected
+     * @param revealed true to reveal, false to conceal
+     */
+    public void revealTiles(List<Point> points, short playerId, boolean revealed);
+
     /**
      * Get the same terrain adjacent (not diagonally) to the stating point(s).
      * Kinda flood fill. The starting points maybe different terrain types.
@@ -60,7 +60,7 @@ public final class MapController extends Container implements Savable, IMapContr
     private KwdFile kwdFile;
     private IObjectsController objectsController;
     private Map<Variable.MiscVariable.MiscType, Variable.MiscVariable> gameSettings;
-    private final Map<Point, RoomInstance> roomCoordinates = new HashMap<>();
+    private RoomIndex roomIndex = new RoomIndex(0, 0);
     private final Map<RoomInstance, IRoomController> roomControllers = new HashMap<>();
     private final SafeArrayList<MapListener> mapListeners = new SafeArrayList<>(MapListener.class);
     private final Map<Short, SafeArrayList<RoomListener>> roomListeners = new HashMap<>();
@@ -81,6 +81,7 @@ public final class MapController extends Container implements Savable, IMapContr
         this.objectsController = objectsController;
         this.mapData = new MapData(kwdFile);
         this.gameSettings = gameSettings;
+        createRoomIndex();
 
         // Load rooms
         loadRooms();
@@ -97,11 +98,28 @@ public final class MapController extends Container implements Savable, IMapContr
         this.mapData = mapData;
         this.kwdFile = kwdFile;
         this.gameSettings = gameSettings;
+        createRoomIndex();
     }
 
     public MapController(MapData mapData, KwdFile kwdFile) {
         this.mapData = mapData;
         this.kwdFile = kwdFile;
+        createRoomIndex();
+    }
+
+    /**
+     * Creates the room index to match the map size, the rooms we already
+     * have are carried over
+     */
+    private void createRoomIndex() {
+        RoomIndex previousRoomIndex = roomIndex;
+        roomIndex = new RoomIndex(mapData.getWidth(), mapData.getHeight());
+        for (Map.Entry<Point, RoomInstance> entry : previousRoomIndex.getRoomCoordinates().entrySet()) {
+            roomIndex.getRoomCoordinates().put(entry.getKey(), entry.getValue());
+        }
+        for (IRoomController roomController : roomControllers.values()) {
+            roomIndex.add(roomController);
+        }
     }
 
     private void loadRooms() {
@@ -120,7 +138,7 @@ public final class MapController extends Container implements Savable, IMapContr
             return;
         }
 
-        if (roomCoordinates.containsKey(p)) {
+        if (roomIndex.getRoomCoordinates().containsKey(p)) {
             return;
         }
 
@@ -133,6 +151,7 @@ public final class MapController extends Container implements Savable, IMapContr
         IRoomController roomController = RoomControllerFactory.constructRoom(kwdFile, roomInstance, objectsController, gameSettings);
         roomController.construct();
         roomControllers.put(roomInstance, roomController);
+        roomIndex.add(roomController);
 
         // TODO: A bit of a design problem here
         /**
@@ -158,11 +177,11 @@ public final class MapController extends Container implements Savable, IMapContr
         Terrain terrain = kwdFile.getTerrain(tile.getTerrainId());
         if (terrain.getFlags().contains(Terrain.TerrainFlag.ROOM)) {
 
-            if (!roomCoordinates.containsKey(p)) {
+            if (!roomIndex.getRoomCoordinates().containsKey(p)) {
                 if (roomInstance.getRoom().equals(kwdFile.getRoomByTerrain(terrain.getTerrainId()))) {
 
                     // Add the coordinate
-                    roomCoordinates.put(p, roomInstance);
+                    roomIndex.getRoomCoordinates().put(p, roomInstance);
                     roomInstance.addCoordinate(p);
 
                     // Find north
@@ -188,6 +207,7 @@ public final class MapController extends Container implements Savable, IMapContr
 
     public void setMapData(MapData mapData) {
         this.mapData = mapData;
+        createRoomIndex();
     }
 
     public void setKwdFile(KwdFile kwdFile) {
@@ -268,6 +288,7 @@ public final class MapController extends Container implements Savable, IMapContr
                 if (!terrain.getFlags().contains(Terrain.TerrainFlag.TAGGABLE)) {
                     continue;
                 }
+                tile = getMapData().getTileForUpdate(x, y);
                 tile.setSelected(select, playerId);
                 updatableTiles.add(tile);
             }
@@ -386,7 +407,7 @@ public final class MapController extends Container implements Savable, IMapContr
         if (tile.getOwnerId() == playerId && getRoomCoordinates().containsKey(p)) {
 
             // We own it, see if sellable
-            RoomInstance instance = roomCoordinates.get(p);
+            RoomInstance instance = roomIndex.getRoomInstance(x, y);
             return instance.getRoom().getFlags().contains(Room.RoomFlag.BUILDABLE);
         }
         return false;
@@ -416,12 +437,12 @@ public final class MapController extends Container implements Savable, IMapContr
 
     @Override
     public RoomInstance getRoomInstanceByCoordinates(Point p) {
-        return roomCoordinates.get(p);
+        return roomIndex.getRoomInstance(p.x, p.y);
     }
 
     @Override
     public IRoomController getRoomControllerByCoordinates(Point p) {
-        RoomInstance roomInstance = roomCoordinates.get(p);
+        RoomInstance roomInstance = roomIndex.getRoomInstance(p.x, p.y);
         if (roomInstance != null) {
             return getRoomController(roomInstance);
         }
@@ -436,7 +457,7 @@ public final class MapController extends Container implements Savable, IMapContr
 
     @Override
     public Map<Point, RoomInstance> getRoomCoordinates() {
-        return roomCoordinates;
+        return roomIndex.getRoomCoordinates();
     }
 
     @Override
@@ -453,8 +474,9 @@ public final class MapController extends Container implements Savable, IMapContr
             roomController.destroy();
 
             roomControllers.remove(instance);
+            roomIndex.remove(roomController);
             for (Point p : instance.getCoordinates()) {
-                roomCoordinates.remove(p);
+                roomIndex.getRoomCoordinates().remove(p);
             }
 
             // TODO: A bit of a design problem here
@@ -469,7 +491,7 @@ public final class MapController extends Container implements Savable, IMapContr
     }
 
     /**
-     * Get rooms by function.<br> FIXME: Should the player have ready lists?
+     * Get rooms by function.
      *
      * @param objectType the function
      * @param playerId   the player id, can be null
@@ -477,16 +499,12 @@ public final class MapController extends Container implements Savable, IMapContr
      */
     @Override
     public List<IRoomController> getRoomsByFunction(ObjectType objectType, Short playerId) {
-        List<IRoomController> roomsList = new ArrayList<>();
-        for (Map.Entry<RoomInstance, IRoomController> entry : roomControllers.entrySet()) {
-            if (playerId != null && entry.getKey().getOwnerId() != playerId) {
-                continue;
-            }
-            if (entry.getValue().hasObjectControl(objectType)) {
-                roomsList.add(entry.getValue());
-            }
-        }
-        return roomsList;
+        return roomIndex.getRooms(objectType, playerId);
+    }
+
+    @Override
+    public Iterable<IRoomController> getClosestRoomsByFunction(ObjectType objectType, short playerId, Point p) {
+        return roomIndex.getClosestRoomsWithCapacity(objectType, playerId, p);
     }
 
     @Override
@@ -559,7 +577,7 @@ public final class MapController extends Container implements Savable, IMapContr
 
     @Override
     public int damageTile(Point point, short playerId, ICreatureController creature) {
-        MapTile tile = getMapData().getTile(point);
+        MapTile tile = getMapData().getTileForUpdate(point);
         Terrain terrain = getTerrain(tile);
 
         // Calculate the damage
@@ -642,7 +660,7 @@ public final class MapController extends Container implements Savable, IMapContr
      */
     @Override
     public void healTile(Point point, short playerId) {
-        MapTile tile = getMapData().getTile(point);
+        MapTile tile = getMapData().getTileForUpdate(point);
         Terrain terrain = getTerrain(tile);
 
         // See the amount of healing
@@ -722,12 +740,12 @@ public final class MapController extends Container implements Savable, IMapContr
         // I don't know if this model is correct or not, but like this the bigger the room the more effort it requires to claim
         int damagePerTile = Math.abs(damage / roomTiles.size());
         for (Point p : roomTiles) {
-            MapTile roomTile = getMapData().getTile(p);
+            MapTile roomTile = getMapData().getTileForUpdate(p);
             if (applyDamage(roomTile, damagePerTile)) {
 
                 // If one of the tiles runs out (everyone should run out of the same time, unless a new tile has recently being added..)
                 for (Point p2 : roomTiles) {
-                    roomTile = getMapData().getTile(p2);
+                    roomTile = getMapData().getTileForUpdate(p2);
                     roomTile.setOwnerId(playerId); // Claimed!
                     applyHealing(roomTile, tile.getMaxHealth());
 
@@ -746,6 +764,7 @@ public final class MapController extends Container implements Savable, IMapContr
                 // Notify
                 IRoomController roomController = getRoomController(room);
                 roomController.captured(playerId);
+                roomIndex.update(roomController);
                 notifyOnCapturedByEnemy(owner, roomController);
                 notifyOnCaptured(playerId, roomController);
                 break;
@@ -785,7 +804,7 @@ public final class MapController extends Container implements Savable, IMapContr
 
     @Override
     public void alterTerrain(Point pos, short terrainId, short playerId) {
-        MapTile tile = getMapData().getTile(pos.x, pos.y);
+        MapTile tile = getMapData().getTileForUpdate(pos.x, pos.y);
         if (tile == null) {
             return;
         }
@@ -813,7 +832,7 @@ public final class MapController extends Container implements Savable, IMapContr
         // Mark the tiles as being flashed
         for (Point point : points) {
             if (!getMapData().getTile(point).isFlashed(playerId)) {
-                getMapData().getTile(point).setFlashed(true, playerId);
+                getMapData().getTileForUpdate(point).setFlashed(true, playerId);
                 tilesToUpdate.add(point);
             }
         }
@@ -840,7 +859,7 @@ public final class MapController extends Container implements Savable, IMapContr
         // But technically it shouldn't matter, as it will just eventually set the flashing false and die out
         for (Point point : points) {
             if (getMapData().getTile(point).isFlashed(playerId)) {
-                getMapData().getTile(point).setFlashed(false, playerId);
+                getMapData().getTileForUpdate(point).setFlashed(false, playerId);
                 tilesToUpdate.add(point);
             }
         }
@@ -853,6 +872,24 @@ public final class MapController extends Container implements Savable, IMapContr
         }
     }
 
+    @Override
+    public void revealTiles(List<Point> points, short playerId, boolean revealed) {
+        List<MapTile> tilesToUpdate = new ArrayList<>(points.size());
+        for (Point point : points) {
+            MapTile tile = getMapData().getTile(point);
+            if (tile != null && tile.isRevealed(playerId) != revealed) {
+                tile = getMapData().getTileForUpdate(point);
+                tile.setRevealed(revealed, playerId);
+                tilesToUpdate.add(tile);
+            }
+        }
+
+        // Notify listeners
+        if (!tilesToUpdate.isEmpty()) {
+            notifyTileChange(tilesToUpdate);
+        }
+    }
+
     @Override
     public void start() {
 
@@ -881,6 +918,9 @@ public final class MapController extends Container implements Savable, IMapContr
 
         InputCapsule in = im.getCapsule(this);
         mapData = (MapData) in.readSavable("mapData", null);
+        if (mapData != null) {
+            createRoomIndex();
+        }
     }
 
     @Override
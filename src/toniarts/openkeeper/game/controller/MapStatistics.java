@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2014-2018 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.controller;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.List;
+import toniarts.openkeeper.game.listener.MapListener;
+import toniarts.openkeeper.game.listener.PlayerActionListener;
+import toniarts.openkeeper.game.map.MapData;
+import toniarts.openkeeper.game.map.MapTile;
+import toniarts.openkeeper.tools.convert.map.KwdFile;
+import toniarts.openkeeper.tools.convert.map.Room;
+import toniarts.openkeeper.tools.convert.map.Terrain;
+
+/**
+ * Per player statistics of the map tiles, the owned tiles, room slabs and the
+ * mana gain. The statistics are kept up to date from the tile changes, each
+ * tile remembers what it contributed so that a change only costs the changed
+ * tiles instead of a scan of the whole map.<br>
+ * The tile changes are delivered by the map controller, the room building and
+ * selling by the world controller.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public class MapStatistics implements MapListener, PlayerActionListener {
+
+    private static final short NO_ROOM = 0;
+
+    private final MapData mapData;
+    private final short[] roomIdsByTerrain;
+    private final int playerCount;
+    private final int roomCount;
+
+    // What each tile contributes at the moment, indexed by the tile index
+    private final short[] tileOwners;
+    private final short[] tileRooms;
+    private final int[] tileManaGains;
+
+    // The sums per player, indexed by the player ID (and room ID)
+    private final int[] ownedTiles;
+    private final int[] manaGains;
+    private final int[] roomSlabs;
+    private final int[] roomSlabsByRoom;
+
+    public MapStatistics(KwdFile kwdFile, MapData mapData) {
+        this.mapData = mapData;
+
+        // Resolve the rooms of the terrains beforehand
+        int maxTerrainId = 0;
+        for (Terrain terrain : kwdFile.getTerrainList()) {
+            maxTerrainId = Math.max(maxTerrainId, terrain.getTerrainId());
+        }
+        int maxRoomId = 0;
+        roomIdsByTerrain = new short[maxTerrainId + 1];
+        for (Terrain terrain : kwdFile.getTerrainList()) {
+            if (terrain.getFlags().contains(Terrain.TerrainFlag.ROOM)) {
+                Room room = kwdFile.getRoomByTerrain(terrain.getTerrainId());
+                if (room != null) {
+                    roomIdsByTerrain[terrain.getTerrainId()] = room.getId();
+                    maxRoomId = Math.max(maxRoomId, room.getId());
+                }
+            }
+        }
+        roomCount = maxRoomId + 1;
+
+        int maxPlayerId = 0;
+        for (Short playerId : kwdFile.getPlayers().keySet()) {
+            maxPlayerId = Math.max(maxPlayerId, playerId);
+        }
+        playerCount = maxPlayerId + 1;
+
+        int tileCount = mapData.getWidth() * mapData.getHeight();
+        tileOwners = new short[tileCount];
+        tileRooms = new short[tileCount];
+        tileManaGains = new int[tileCount];
+        ownedTiles = new int[playerCount];
+        manaGains = new int[playerCount];
+        roomSlabs = new int[playerCount];
+        roomSlabsByRoom = new int[playerCount * roomCount];
+
+        recalculate();
+    }
+
+    /**
+     * Calculates the statistics from scratch, needed only when the map data
+     * has been replaced as a whole
+     */
+    public synchronized void recalculate() {
+        Arrays.fill(tileOwners, (short) -1);
+        Arrays.fill(tileRooms, NO_ROOM);
+        Arrays.fill(tileManaGains, 0);
+        Arrays.fill(ownedTiles, 0);
+        Arrays.fill(manaGains, 0);
+        Arrays.fill(roomSlabs, 0);
+        Arrays.fill(roomSlabsByRoom, 0);
+        for (int y = 0; y < mapData.getHeight(); y++) {
+            for (int x = 0; x < mapData.getWidth(); x++) {
+                updateTile(mapData.getTile(x, y));
+            }
+        }
+    }
+
+    @Override
+    public void onTilesChange(List<MapTile> updatedTiles) {
+        updateTiles(updatedTiles);
+    }
+
+    @Override
+    public void onTileFlash(List<Point> points, boolean enabled, short keeperId) {
+
+    }
+
+    @Override
+    public void onBuild(short keeperId, List<MapTile> tiles) {
+        updateTiles(tiles);
+    }
+
+    @Override
+    public void onSold(short keeperId, List<MapTile> tiles) {
+        updateTiles(tiles);
+    }
+
+    private synchronized void updateTiles(List<MapTile> tiles) {
+        for (MapTile tile : tiles) {
+
+            // The tiles we get may be copies, always look at the actual tile
+            updateTile(mapData.getTile(tile.getX(), tile.getY()));
+        }
+    }
+
+    private void updateTile(MapTile tile) {
+        if (tile == null) {
+            return;
+        }
+
+        // Take out the old contribution
+        int index = getIndex(tile.getX(), tile.getY());
+        short oldOwner = tileOwners[index];
+        if (isPlayer(oldOwner)) {
+            ownedTiles[oldOwner]--;
+            manaGains[oldOwner] -= tileManaGains[index];
+            if (tileRooms[index] != NO_ROOM) {
+                roomSlabs[oldOwner]--;
+                roomSlabsByRoom[oldOwner * roomCount + tileRooms[index]]--;
+            }
+        }
+
+        // And put in the new
+        short owner = tile.getOwnerId();
+        short roomId = (tile.getTerrainId() >= 0 && tile.getTerrainId() < roomIdsByTerrain.length ? roomIdsByTerrain[tile.getTerrainId()] : NO_ROOM);
+        tileOwners[index] = owner;
+        tileRooms[index] = roomId;
+        tileManaGains[index] = tile.getManaGain();
+        if (isPlayer(owner)) {
+            ownedTiles[owner]++;
+            manaGains[owner] += tile.getManaGain();
+            if (roomId != NO_ROOM) {
+                roomSlabs[owner]++;
+                roomSlabsByRoom[owner * roomCount + roomId]++;
+            }
+        }
+    }
+
+    private int getIndex(int x, int y) {
+        return y * mapData.getWidth() + x;
+    }
+
+    private boolean isPlayer(short playerId) {
+        return playerId >= 0 && playerId < playerCount;
+    }
+
+    /**
+     * Get the number of tiles the player owns
+     *
+     * @param playerId the player ID
+     * @return owned tile count
+     */
+    public int getOwnedTiles(short playerId) {
+        return isPlayer(playerId) ? ownedTiles[playerId] : 0;
+    }
+
+    /**
+     * Get the mana gain from the player's tiles, per second
+     *
+     * @param playerId the player ID
+     * @return the mana gain
+     */
+    public int getManaGain(short playerId) {
+        return isPlayer(playerId) ? manaGains[playerId] : 0;
+    }
+
+    /**
+     * Get room slab count, all rooms
+     *
+     * @param playerId the player ID
+     * @return slab count
+     */
+    public int getRoomSlabs(short playerId) {
+        return isPlayer(playerId) ? roomSlabs[playerId] : 0;
+    }
+
+    /**
+     * Get room slab count, certain type of room
+     *
+     * @param playerId the player ID
+     * @param room the room
+     * @return slab count
+     */
+    public int getRoomSlabs(short playerId, Room room) {
+        if (!isPlayer(playerId) || room.getId() <= NO_ROOM || room.getId() >= roomCount) {
+            return 0;
+        }
+        return roomSlabsByRoom[playerId * roomCount + room.getId()];
+    }
+
+}
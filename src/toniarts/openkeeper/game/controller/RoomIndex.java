@@ -0,0 +1,466 @@
+/*
+ * Copyright (C) 2014-2018 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.controller;
+
+import java.awt.Point;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import toniarts.openkeeper.common.RoomInstance;
+import toniarts.openkeeper.game.controller.room.AbstractRoomController.ObjectType;
+import toniarts.openkeeper.game.controller.room.IRoomController;
+
+/**
+ * Spatial index of the rooms. The room of a tile is resolved through a grid
+ * of the tile indices, and the rooms are kept by their owner and function
+ * together with their bounds. So finding the closest room of a kind doesn't
+ * need to go through every room and every room tile.<br>
+ * The map controller keeps the index up to date as the rooms are built, sold
+ * and captured. Rooms only grow by merging, so the bounds are refreshed when
+ * the room has gained coordinates.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public class RoomIndex {
+
+    private final int width;
+    private final int height;
+    private final RoomInstance[] roomsByTile;
+    private final RoomCoordinates roomCoordinates = new RoomCoordinates();
+    private final Map<IRoomController, IndexedRoom> indexedRooms = new HashMap<>();
+    private final Map<Short, Map<ObjectType, Set<IRoomController>>> roomsByOwner = new HashMap<>();
+
+    public RoomIndex(int width, int height) {
+        this.width = width;
+        this.height = height;
+        roomsByTile = new RoomInstance[width * height];
+    }
+
+    /**
+     * Get the room instance at the given tile
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the room instance, or null if there is no room
+     */
+    public RoomInstance getRoomInstance(int x, int y) {
+        if (!isOnMap(x, y)) {
+            return null;
+        }
+        return roomsByTile[getIndex(x, y)];
+    }
+
+    /**
+     * Get the room coordinates as a map, backed by the tile grid
+     *
+     * @return the room instances by their coordinates
+     */
+    public Map<Point, RoomInstance> getRoomCoordinates() {
+        return roomCoordinates;
+    }
+
+    /**
+     * Adds a room to the function index, the room coordinates are not
+     * touched
+     *
+     * @param room the room to add
+     */
+    public void add(IRoomController room) {
+        IndexedRoom indexedRoom = new IndexedRoom(room);
+        indexedRooms.put(room, indexedRoom);
+        Map<ObjectType, Set<IRoomController>> roomsByFunction = roomsByOwner.computeIfAbsent(indexedRoom.ownerId, (ownerId) -> new EnumMap<>(ObjectType.class));
+        for (ObjectType objectType : ObjectType.values()) {
+            if (room.hasObjectControl(objectType)) {
+                roomsByFunction.computeIfAbsent(objectType, (type) -> new LinkedHashSet<>()).add(room);
+            }
+        }
+    }
+
+    /**
+     * Removes a room from the function index, the room coordinates are not
+     * touched
+     *
+     * @param room the room to remove
+     */
+    public void remove(IRoomController room) {
+        IndexedRoom indexedRoom = indexedRooms.remove(room);
+        if (indexedRoom == null) {
+            return;
+        }
+        Map<ObjectType, Set<IRoomController>> roomsByFunction = roomsByOwner.get(indexedRoom.ownerId);
+        if (roomsByFunction != null) {
+            for (Set<IRoomController> rooms : roomsByFunction.values()) {
+                rooms.remove(room);
+            }
+        }
+    }
+
+    /**
+     * Refiles the room under its current owner, call after the room has
+     * changed hands
+     *
+     * @param room the room to update
+     */
+    public void update(IRoomController room) {
+        IndexedRoom indexedRoom = indexedRooms.get(room);
+        if (indexedRoom == null || indexedRoom.ownerId != room.getRoomInstance().getOwnerId()) {
+            remove(room);
+            add(room);
+        }
+    }
+
+    /**
+     * Get the rooms of the given function
+     *
+     * @param objectType the function
+     * @param playerId the owner, null for any owner
+     * @return the rooms
+     */
+    public List<IRoomController> getRooms(ObjectType objectType, Short playerId) {
+        if (playerId != null) {
+            Set<IRoomController> rooms = getRoomSet(objectType, playerId);
+            return rooms.isEmpty() ? Collections.emptyList() : new ArrayList<>(rooms);
+        }
+
+        List<IRoomController> rooms = new ArrayList<>();
+        for (Short ownerId : roomsByOwner.keySet()) {
+            rooms.addAll(getRoomSet(objectType, ownerId));
+        }
+        return rooms;
+    }
+
+    /**
+     * Get the rooms of the given function that are not at full capacity,
+     * closest first. The rooms are resolved lazily, the exact distance and
+     * the capacity are only checked for the rooms that are actually iterated
+     * to
+     *
+     * @param objectType the function
+     * @param playerId the owner
+     * @param p the point to measure the distance from, can be null
+     * @return the rooms with free capacity, closest first
+     */
+    public Iterable<IRoomController> getClosestRoomsWithCapacity(ObjectType objectType, short playerId, Point p) {
+        Set<IRoomController> rooms = getRoomSet(objectType, playerId);
+        return () -> new ClosestRooms(rooms, p);
+    }
+
+    private Set<IRoomController> getRoomSet(ObjectType objectType, short playerId) {
+        Map<ObjectType, Set<IRoomController>> roomsByFunction = roomsByOwner.get(playerId);
+        if (roomsByFunction != null) {
+            Set<IRoomController> rooms = roomsByFunction.get(objectType);
+            if (rooms != null) {
+                return rooms;
+            }
+        }
+        return Collections.emptySet();
+    }
+
+    private boolean isOnMap(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    private int getIndex(int x, int y) {
+        return y * width + x;
+    }
+
+    /**
+     * The indexed room with its bounds
+     */
+    private static class IndexedRoom {
+
+        private final IRoomController room;
+        private final short ownerId;
+        private int coordinateCount = -1;
+        private int minX;
+        private int minY;
+        private int maxX;
+        private int maxY;
+
+        public IndexedRoom(IRoomController room) {
+            this.room = room;
+            this.ownerId = room.getRoomInstance().getOwnerId();
+        }
+
+        /**
+         * The distance to the bounds, never more than the distance to the
+         * closest room tile
+         */
+        public int getMinDistance(Point p) {
+            List<Point> coordinates = room.getRoomInstance().getCoordinates();
+            if (coordinateCount != coordinates.size()) {
+                updateBounds(coordinates);
+            }
+            if (p == null || coordinates.isEmpty()) {
+                return 0;
+            }
+            int dx = Math.max(0, Math.max(minX - p.x, p.x - maxX));
+            int dy = Math.max(0, Math.max(minY - p.y, p.y - maxY));
+            return dx + dy;
+        }
+
+        /**
+         * The distance to the closest room tile
+         */
+        public int getDistance(Point p, int minDistance) {
+            if (p == null) {
+                return 0;
+            }
+            int distance = Integer.MAX_VALUE;
+            for (Point coordinate : room.getRoomInstance().getCoordinates()) {
+                distance = Math.min(distance, Math.abs(p.x - coordinate.x) + Math.abs(p.y - coordinate.y));
+                if (distance == minDistance) {
+                    break;
+                }
+            }
+            return distance;
+        }
+
+        private void updateBounds(List<Point> coordinates) {
+            coordinateCount = coordinates.size();
+            minX = Integer.MAX_VALUE;
+            minY = Integer.MAX_VALUE;
+            maxX = Integer.MIN_VALUE;
+            maxY = Integer.MIN_VALUE;
+            for (Point coordinate : coordinates) {
+                minX = Math.min(minX, coordinate.x);
+                minY = Math.min(minY, coordinate.y);
+                maxX = Math.max(maxX, coordinate.x);
+                maxY = Math.max(maxY, coordinate.y);
+            }
+        }
+
+    }
+
+    /**
+     * Walks the rooms in the order of distance. The rooms are first queued by
+     * the distance to their bounds, and requeued with the exact distance when
+     * they come up
+     */
+    private class ClosestRooms implements Iterator<IRoomController> {
+
+        private final Point p;
+        private final PriorityQueue<Candidate> candidates;
+        private IRoomController next;
+
+        public ClosestRooms(Set<IRoomController> rooms, Point p) {
+            this.p = p;
+            candidates = new PriorityQueue<>(Math.max(1, rooms.size()));
+            int order = 0;
+            for (IRoomController room : rooms) {
+                IndexedRoom indexedRoom = indexedRooms.get(room);
+                candidates.add(new Candidate(indexedRoom, indexedRoom.getMinDistance(p), false, order++));
+            }
+            next = findNext();
+        }
+
+        private IRoomController findNext() {
+            Candidate candidate;
+            while ((candidate = candidates.poll()) != null) {
+                if (!candidate.exact) {
+                    candidates.add(new Candidate(candidate.room, candidate.room.getDistance(p, candidate.distance), true, candidate.order));
+                } else if (!candidate.room.room.isFullCapacity()) {
+                    return candidate.room.room;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public IRoomController next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            IRoomController room = next;
+            next = findNext();
+            return room;
+        }
+
+    }
+
+    private static class Candidate implements Comparable<Candidate> {
+
+        private final IndexedRoom room;
+        private final int distance;
+        private final boolean exact;
+        private final int order;
+
+        public Candidate(IndexedRoom room, int distance, boolean exact, int order) {
+            this.room = room;
+            this.distance = distance;
+            this.exact = exact;
+            this.order = order;
+        }
+
+        @Override
+        public int compareTo(Candidate o) {
+            int result = Integer.compare(distance, o.distance);
+            if (result == 0) {
+                result = Boolean.compare(o.exact, exact);
+            }
+            if (result == 0) {
+                result = Integer.compare(order, o.order);
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * The room coordinates as a map view of the tile grid
+     */
+    private class RoomCoordinates extends AbstractMap<Point, RoomInstance> {
+
+        private int size = 0;
+
+        @Override
+        public RoomInstance get(Object key) {
+            if (key instanceof Point) {
+                Point p = (Point) key;
+                return getRoomInstance(p.x, p.y);
+            }
+            return null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public RoomInstance put(Point key, RoomInstance value) {
+            if (value == null) {
+                return remove(key);
+            }
+            if (!isOnMap(key.x, key.y)) {
+                throw new IllegalArgumentException("Room coordinate " + key + " is not on the map!");
+            }
+            int index = getIndex(key.x, key.y);
+            RoomInstance previous = roomsByTile[index];
+            roomsByTile[index] = value;
+            if (previous == null) {
+                size++;
+            }
+            return previous;
+        }
+
+        @Override
+        public RoomInstance remove(Object key) {
+            if (!(key instanceof Point)) {
+                return null;
+            }
+            Point p = (Point) key;
+            if (!isOnMap(p.x, p.y)) {
+                return null;
+            }
+            return removeIndex(getIndex(p.x, p.y));
+        }
+
+        private RoomInstance removeIndex(int index) {
+            RoomInstance previous = roomsByTile[index];
+            if (previous != null) {
+                roomsByTile[index] = null;
+                size--;
+            }
+            return previous;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            for (int i = 0; i < roomsByTile.length; i++) {
+                roomsByTile[i] = null;
+            }
+            size = 0;
+        }
+
+        @Override
+        public Set<Entry<Point, RoomInstance>> entrySet() {
+            return new AbstractSet<Entry<Point, RoomInstance>>() {
+
+                @Override
+                public Iterator<Entry<Point, RoomInstance>> iterator() {
+                    return new Iterator<Entry<Point, RoomInstance>>() {
+
+                        private int index = findIndex(0);
+                        private int lastIndex = -1;
+
+                        @Override
+                        public boolean hasNext() {
+                            return index < roomsByTile.length;
+                        }
+
+                        @Override
+                        public Entry<Point, RoomInstance> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            lastIndex = index;
+                            index = findIndex(index + 1);
+                            return new AbstractMap.SimpleImmutableEntry<>(new Point(lastIndex % width, lastIndex / width), roomsByTile[lastIndex]);
+                        }
+
+                        @Override
+                        public void remove() {
+                            if (lastIndex < 0) {
+                                throw new IllegalStateException();
+                            }
+                            removeIndex(lastIndex);
+                            lastIndex = -1;
+                        }
+
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+            };
+        }
+
+        private int findIndex(int start) {
+            int index = start;
+            while (index < roomsByTile.length && roomsByTile[index] == null) {
+                index++;
+            }
+            return index;
+        }
+
+    }
+
+}
@@ -67,6 +67,7 @@ import toniarts.openkeeper.game.controller.room.AbstractRoomController;
 import toniarts.openkeeper.game.controller.room.IRoomController;
 import toniarts.openkeeper.game.data.Keeper;
 import toniarts.openkeeper.game.data.ObjectiveType;
+import toniarts.openkeeper.game.logic.HaulingSystem;
 import toniarts.openkeeper.game.logic.IEntityPositionLookup;
 import toniarts.openkeeper.game.map.MapTile;
 import toniarts.openkeeper.game.navigation.INavigationService;
@@ -104,6 +105,7 @@ public class CreatureController implements ICreatureController {
     private float taskDuration = 0.0f;
     private boolean taskStarted = false;
     private float motionless = 0;
+    private boolean reEvaluationRequested = false;
 
     private static final Logger LOGGER = Logger.getLogger(CreatureController.class.getName());
 
@@ -552,6 +554,7 @@ public class CreatureController implements ICreatureController {
             // TODO: now, instant action, substract the health
             Health enemyHealth = entityData.getComponent(attackTarget, Health.class);
             entityData.setComponent(attackTarget, new Health(enemyHealth.ownLandHealthIncrease, enemyHealth.health - creatureMeleeAttack.damage, enemyHealth.maxHealth, enemyHealth.unconscious));
+            CreatureMessage.ATTACKED.dispatch(attackTarget);
         }
     }
 
@@ -606,17 +609,17 @@ public class CreatureController implements ICreatureController {
     public float getDistanceToCreature(EntityId target) {
 
         // FIXME: now just direct distance, should be perhaps real distance that the creature needs to traverse to reach the target
-        Position targetPosition = entityData.getComponent(target, Position.class);
+        Vector3f targetPosition = getPosition(entityData, target);
         Vector3f ourPosition = getPosition();
         if (targetPosition == null || ourPosition == null) {
             return Float.MAX_VALUE;
         }
-        return ourPosition.distance(targetPosition.position);
+        return ourPosition.distance(targetPosition);
     }
 
     @Override
     public void navigateToRandomPointAroundTarget(EntityId target, int radius) {
-        Position targetPosition = entityData.getComponent(target, Position.class);
+        Vector3f targetPosition = getPosition(entityData, target);
         if (targetPosition != null) {
 
             // To keep up with the target, see if it has a target it is navigating to
@@ -625,7 +628,7 @@ public class CreatureController implements ICreatureController {
             if (targetNavigation != null) {
                 destination = targetNavigation.target;
             } else {
-                destination = WorldUtils.vectorToPoint(targetPosition.position);
+                destination = WorldUtils.vectorToPoint(targetPosition);
             }
 
             Point p = navigationService.findRandomAccessibleTile(destination, radius, this);
@@ -750,11 +753,7 @@ public class CreatureController implements ICreatureController {
     }
 
     public static Vector3f getPosition(EntityData entityData, EntityId entity) {
-        Position position = entityData.getComponent(entity, Position.class);
-        if (position != null) {
-            return position.position;
-        }
-        return null;
+        return HaulingSystem.getPosition(entityData, entity);
     }
 
     @Override
@@ -838,12 +837,18 @@ public class CreatureController implements ICreatureController {
 
         // See that we have been motionless for enough time, per state
         // TODO: now just 5 seconds, it is the default for imps
-        return motionless >= 5f;
+        return reEvaluationRequested || motionless >= 5f;
     }
 
     @Override
     public void resetReEvaluationTimer() {
         motionless = 0;
+        reEvaluationRequested = false;
+    }
+
+    @Override
+    public void requestReEvaluation() {
+        reEvaluationRequested = true;
     }
 
     @Override
@@ -1075,7 +1080,7 @@ public class CreatureController implements ICreatureController {
         if (creature != null) {
             entityData.setComponent(entityId, new HauledBy(creature.getEntityId()));
         } else {
-            entityData.removeComponent(entityId, HauledBy.class);
+            HaulingSystem.drop(entityData, entityId);
         }
     }
 
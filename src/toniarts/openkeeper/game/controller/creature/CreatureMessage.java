@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2014-2018 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.controller.creature;
+
+import com.badlogic.gdx.ai.msg.MessageManager;
+
+/**
+ * The messages (telegrams) that wake up the creature AI. The ordinal is the
+ * message code. The messages are dispatched through the {@link MessageManager}
+ * and must be dispatched on the game logic thread only.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public enum CreatureMessage {
+
+    /**
+     * A creature was attacked, the extra info is the entity ID of the
+     * creature attacked
+     */
+    ATTACKED,
+    /**
+     * New tasks are available, the extra info is the player ID of the tasks
+     */
+    TASK_AVAILABLE,
+    /**
+     * A creature has stopped navigating, the extra info is the entity ID of
+     * the creature
+     */
+    PATH_FINISHED,
+    /**
+     * A creature was slapped, the extra info is the entity ID of the creature
+     * slapped
+     */
+    SLAPPED;
+
+    /**
+     * Get the message code
+     *
+     * @return the message code
+     */
+    public int getCode() {
+        return ordinal();
+    }
+
+    /**
+     * Dispatch this message
+     *
+     * @param extraInfo the extra info
+     */
+    public void dispatch(Object extraInfo) {
+        MessageManager.getInstance().dispatchMessage(getCode(), extraInfo);
+    }
+
+    /**
+     * Get the message by its code
+     *
+     * @param code the message code
+     * @return the message, or {@code null} if not a creature message
+     */
+    public static CreatureMessage valueOf(int code) {
+        CreatureMessage[] values = values();
+        return (code >= 0 && code < values.length ? values[code] : null);
+    }
+
+}
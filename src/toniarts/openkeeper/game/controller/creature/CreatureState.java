@@ -27,7 +27,7 @@ import com.badlogic.gdx.ai.msg.Telegram;
  */
 public enum CreatureState implements State<ICreatureController> {
 
-    IDLE() {
+    IDLE(UpdateInterval.SENSE) {
 
         @Override
         public void enter(ICreatureController entity) {
@@ -83,11 +83,12 @@ public enum CreatureState implements State<ICreatureController> {
         @Override
         public void update(ICreatureController entity) {
 
-            // Should we flee or attack
+            // Should we flee or attack, sensed on every update
             if (entity.shouldFleeOrAttack()) {
                 return;
             }
 
+            // Look for something to do only when it is time, the telegrams bring the urgent matters
             if (entity.isTimeToReEvaluate()) {
                 entity.resetReEvaluationTimer();
                 if (!findStuffToDo(entity) && entity.isStopped()) {
@@ -103,10 +104,26 @@ public enum CreatureState implements State<ICreatureController> {
 
         @Override
         public boolean onMessage(ICreatureController entity, Telegram telegram) {
-            return true;
+            CreatureMessage message = CreatureMessage.valueOf(telegram.message);
+            if (message == null) {
+                return false;
+            }
+
+            switch (message) {
+                case ATTACKED:
+                case PATH_FINISHED:
+                case TASK_AVAILABLE: {
+
+                    // Don't wait for the re-evaluation timer, the telegram has woken us up for the next update
+                    entity.requestReEvaluation();
+                    return true;
+                }
+                default:
+                    return false;
+            }
         }
     },
-    WANDER() {
+    WANDER(UpdateInterval.NEVER) {
 
         @Override
         public void enter(ICreatureController entity) {
@@ -131,7 +148,7 @@ public enum CreatureState implements State<ICreatureController> {
         }
 
     },
-    DEAD() {
+    DEAD(UpdateInterval.NEVER) {
         @Override
         public void enter(ICreatureController entity) {
             entity.die();
@@ -153,7 +170,7 @@ public enum CreatureState implements State<ICreatureController> {
         public boolean onMessage(ICreatureController entity, Telegram telegram) {
             return true;
         }
-    }, SLAPPED {
+    }, SLAPPED(UpdateInterval.NEVER) {
 
         @Override
         public void enter(ICreatureController entity) {
@@ -174,7 +191,7 @@ public enum CreatureState implements State<ICreatureController> {
         public boolean onMessage(ICreatureController entity, Telegram telegram) {
             return true;
         }
-    }, WORK {
+    }, WORK(UpdateInterval.EVERY_TICK) {
 
         @Override
         public void enter(ICreatureController entity) {
@@ -222,7 +239,7 @@ public enum CreatureState implements State<ICreatureController> {
             return true;
         }
 
-    }, FIGHT {
+    }, FIGHT(UpdateInterval.EVERY_TICK) {
 
         @Override
         public void enter(ICreatureController entity) {
@@ -258,7 +275,7 @@ public enum CreatureState implements State<ICreatureController> {
             return true;
         }
 
-    }, FOLLOW {
+    }, FOLLOW(UpdateInterval.EVERY_TICK) {
 
         @Override
         public void enter(ICreatureController entity) {
@@ -303,7 +320,7 @@ public enum CreatureState implements State<ICreatureController> {
         }
 
     },
-    ENTERING_DUNGEON {
+    ENTERING_DUNGEON(UpdateInterval.EVERY_TICK) {
 
         @Override
         public void enter(ICreatureController entity) {
@@ -328,7 +345,7 @@ public enum CreatureState implements State<ICreatureController> {
         }
 
     },
-    PICKED_UP {
+    PICKED_UP(UpdateInterval.NEVER) {
 
         @Override
         public void enter(ICreatureController entity) {
@@ -350,7 +367,7 @@ public enum CreatureState implements State<ICreatureController> {
             return true;
         }
 
-    }, FLEE {
+    }, FLEE(UpdateInterval.EVERY_TICK) {
 
         @Override
         public void enter(ICreatureController entity) {
@@ -375,7 +392,7 @@ public enum CreatureState implements State<ICreatureController> {
             return true;
         }
 
-    }, UNCONSCIOUS {
+    }, UNCONSCIOUS(UpdateInterval.NEVER) {
         @Override
         public void enter(ICreatureController entity) {
             entity.stopCreature();
@@ -397,7 +414,7 @@ public enum CreatureState implements State<ICreatureController> {
             return true;
         }
 
-    }, STUNNED {
+    }, STUNNED(UpdateInterval.NEVER) {
 
         @Override
         public void enter(ICreatureController entity) {
@@ -418,7 +435,7 @@ public enum CreatureState implements State<ICreatureController> {
         public boolean onMessage(ICreatureController entity, Telegram telegram) {
             return true;
         }
-    }, IMPRISONED {
+    }, IMPRISONED(UpdateInterval.NEVER) {
 
         @Override
         public void enter(ICreatureController entity) {
@@ -439,7 +456,7 @@ public enum CreatureState implements State<ICreatureController> {
         public boolean onMessage(ICreatureController entity, Telegram telegram) {
             return true;
         }
-    }, TORTURED {
+    }, TORTURED(UpdateInterval.NEVER) {
 
         @Override
         public void enter(ICreatureController entity) {
@@ -460,7 +477,7 @@ public enum CreatureState implements State<ICreatureController> {
         public boolean onMessage(ICreatureController entity, Telegram telegram) {
             return true;
         }
-    }, SLEEPING {
+    }, SLEEPING(UpdateInterval.POLL) {
 
         @Override
         public void enter(ICreatureController entity) {
@@ -483,7 +500,7 @@ public enum CreatureState implements State<ICreatureController> {
         public boolean onMessage(ICreatureController entity, Telegram telegram) {
             return true;
         }
-    }, RECUPERATING {
+    }, RECUPERATING(UpdateInterval.POLL) {
 
         @Override
         public void enter(ICreatureController entity) {
@@ -506,7 +523,7 @@ public enum CreatureState implements State<ICreatureController> {
         public boolean onMessage(ICreatureController entity, Telegram telegram) {
             return true;
         }
-    }, DRAGGED {
+    }, DRAGGED(UpdateInterval.NEVER) {
 
     @Override
     public void enter(ICreatureController entity) {
@@ -527,7 +544,7 @@ public enum CreatureState implements State<ICreatureController> {
     public boolean onMessage(ICreatureController entity, Telegram telegram) {
         return true;
         }
-    }, FALLEN {
+    }, FALLEN(UpdateInterval.EVERY_TICK) {
 
         @Override
         public void enter(ICreatureController entity) {
@@ -550,7 +567,7 @@ public enum CreatureState implements State<ICreatureController> {
         public boolean onMessage(ICreatureController entity, Telegram telegram) {
             return true;
         }
-    }, GETTING_UP {
+    }, GETTING_UP(UpdateInterval.EVERY_TICK) {
 
         @Override
             public void enter(ICreatureController entity) {
@@ -573,7 +590,7 @@ public enum CreatureState implements State<ICreatureController> {
             public boolean onMessage(ICreatureController entity, Telegram telegram) {
         return true;
         }
-    }, MELEE_ATTACK {
+    }, MELEE_ATTACK(UpdateInterval.EVERY_TICK) {
 
         @Override
         public void enter(ICreatureController entity) {
@@ -596,5 +613,32 @@ public enum CreatureState implements State<ICreatureController> {
         public boolean onMessage(ICreatureController entity, Telegram telegram) {
             return true;
         }
+    };
+
+    private final float updateInterval;
+
+    private CreatureState(float updateInterval) {
+        this.updateInterval = updateInterval;
+    }
+
+    /**
+     * How often the creature in this state needs to be updated. The creature
+     * AI is only updated this often, or sooner if something relevant happens
+     * to the creature
+     *
+     * @return the update interval in seconds, 0 for every tick
+     */
+    public float getUpdateInterval() {
+        return updateInterval;
+    }
+
+    private static final class UpdateInterval {
+
+        private static final float EVERY_TICK = 0f;
+        private static final float SENSE = 0.5f; // Notice the surroundings
+        private static final float POLL = 1f; // Slow changing conditions, like sleep and health
+        private static final float NEVER = Float.POSITIVE_INFINITY; // Only the external events
+
     }
+
 }
@@ -116,6 +116,12 @@ public interface ICreatureController extends Comparable<ICreatureController>, IG
 
     public void resetReEvaluationTimer();
 
+    /**
+     * Makes the creature re-evaluate what to do on its next update, without
+     * waiting for the re-evaluation timer
+     */
+    public void requestReEvaluation();
+
     public Vector3f getPosition();
 
     public int getGold();
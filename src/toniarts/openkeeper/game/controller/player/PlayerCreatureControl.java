@@ -38,6 +38,7 @@ public class PlayerCreatureControl extends AbstractPlayerControl<Creature, Set<E
     private List<CreatureListener> creatureListeners;
     private Creature imp;
     private int creatureCount = 0;
+    private int revision = 0;
 
     public PlayerCreatureControl(Keeper keeper, Creature imp, Collection<Creature> creatures) {
         super(keeper, keeper.getAvailableCreatures(), creatures);
@@ -53,6 +54,7 @@ public class PlayerCreatureControl extends AbstractPlayerControl<Creature, Set<E
             put(creature, creatureSet);
         }
         creatureSet.add(entityId);
+        revision++;
 
         // Listeners
         if (!isImp(creature)) {
@@ -72,6 +74,7 @@ public class PlayerCreatureControl extends AbstractPlayerControl<Creature, Set<E
         if (creatureSet != null) {
             creatureSet.remove(entityId);
         }
+        revision++;
 
         // Listeners
         if (!isImp(creature)) {
@@ -135,6 +138,17 @@ public class PlayerCreatureControl extends AbstractPlayerControl<Creature, Set<E
         return creatureCount;
     }
 
+    /**
+     * Get the creature revision. It changes every time a creature is added
+     * or removed, so the creature counts need to be checked only when it has
+     * changed
+     *
+     * @return the creature revision
+     */
+    public int getRevision() {
+        return revision;
+    }
+
     /**
      * Get the imp count
      *
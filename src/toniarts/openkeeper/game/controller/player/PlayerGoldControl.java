@@ -17,42 +17,215 @@
 package toniarts.openkeeper.game.controller.player;
 
 import com.jme3.util.SafeArrayList;
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import toniarts.openkeeper.game.controller.room.AbstractRoomController.ObjectType;
+import toniarts.openkeeper.game.controller.room.IRoomController;
+import toniarts.openkeeper.game.controller.room.storage.RoomGoldControl;
 import toniarts.openkeeper.game.data.Keeper;
 import toniarts.openkeeper.game.listener.PlayerGoldListener;
+import toniarts.openkeeper.game.listener.RoomListener;
 
 /**
+ * The player's gold ledger. Keeps the player's gold in balance with the gold
+ * stored in the player's treasuries. Each player has an own ledger, so the
+ * players' economies don't need to wait on each other. The deposits and
+ * withdrawals are transactions on the player's ledger only.<br>
+ * The treasuries are tracked by listening to the player's rooms.
  *
  * @author ArchDemon
  */
-public class PlayerGoldControl {
+public class PlayerGoldControl implements RoomListener {
 
-    private int goldMax = 0;
+    private final AtomicInteger goldMax = new AtomicInteger();
     private final Keeper keeper;
+    private final Object ledgerLock = new Object();
+    private final List<IRoomController> treasuries = new ArrayList<>();
     private final SafeArrayList<PlayerGoldListener> listeners = new SafeArrayList<>(PlayerGoldListener.class);
 
+    private static final Comparator<IRoomController> FREE_CAPACITY_COMPARATOR = Comparator.comparingInt(PlayerGoldControl::getFreeCapacity).reversed();
+
     public PlayerGoldControl(Keeper keeper) {
         this.keeper = keeper;
     }
 
+    /**
+     * Initialize the ledger with the player's rooms, the treasuries and their
+     * capacity
+     *
+     * @param rooms the player's rooms
+     */
+    public void init(List<IRoomController> rooms) {
+        for (IRoomController room : rooms) {
+            if (room.canStoreGold()) {
+                onBuild(room);
+                addGoldMax(room.getObjectControl(ObjectType.GOLD).getMaxCapacity());
+            }
+        }
+    }
+
     public void addGold(int value) {
         if (value < 0) {
             return;
         }
 
-        keeper.setGold(Math.min(keeper.getGold() + value, goldMax));
-        keeper.setGoldMined(keeper.getGoldMined() + value); // Nope, need to get this some other way
-        updateListeners();
+        synchronized (ledgerLock) {
+            keeper.setGold(Math.min(keeper.getGold() + value, goldMax.get()));
+            keeper.setGoldMined(keeper.getGoldMined() + value); // Nope, need to get this some other way
+            updateListeners();
+        }
     }
 
     public boolean subGold(int value) {
-        if (keeper.getGold() >= value && value > 0) {
-            keeper.setGold(keeper.getGold() - value);
-            updateListeners();
-            return true;
+        synchronized (ledgerLock) {
+            if (keeper.getGold() >= value && value > 0) {
+                keeper.setGold(keeper.getGold() - value);
+                updateListeners();
+                return true;
+            }
         }
         return false;
     }
 
+    /**
+     * Deposit gold to the player's treasuries. The treasuries with the most
+     * room are filled first
+     *
+     * @param sum the gold sum
+     * @return the gold that didn't fit in
+     */
+    public int deposit(int sum) {
+        synchronized (ledgerLock) {
+            int moneyLeft = sum;
+            treasuries.sort(FREE_CAPACITY_COMPARATOR);
+            for (IRoomController treasury : treasuries) {
+                if (getFreeCapacity(treasury) <= 0) {
+                    break;
+                }
+                RoomGoldControl control = treasury.getObjectControl(ObjectType.GOLD);
+                moneyLeft = control.addItem(moneyLeft, null);
+                if (moneyLeft == 0) {
+                    break;
+                }
+            }
+            addGold(sum - moneyLeft);
+
+            return moneyLeft;
+        }
+    }
+
+    /**
+     * Deposit gold to a certain point in a treasury
+     *
+     * @param treasury the treasury
+     * @param p the point in the treasury
+     * @param sum the gold sum
+     * @return the gold that didn't fit in
+     */
+    public int deposit(IRoomController treasury, Point p, int sum) {
+        synchronized (ledgerLock) {
+            RoomGoldControl control = treasury.getObjectControl(ObjectType.GOLD);
+            int moneyLeft = control.addItem(sum, p);
+            addGold(sum - moneyLeft);
+
+            return moneyLeft;
+        }
+    }
+
+    /**
+     * Withdraw gold from the player. The gold is taken evenly from all the
+     * treasuries
+     *
+     * @param amount the amount to try to withdraw
+     * @return amount of gold that could not be withdrawn
+     */
+    public int withdraw(int amount) {
+        synchronized (ledgerLock) {
+
+            // See if the player has any gold even
+            if (keeper.getGold() == 0) {
+                return amount;
+            }
+
+            int moneyToSubstract = amount;
+            List<IRoomController> playersTreasuries = new ArrayList<>(treasuries);
+            while (moneyToSubstract > 0 && !playersTreasuries.isEmpty()) {
+                Iterator<IRoomController> iter = playersTreasuries.iterator();
+                int goldToRemove = (int) Math.ceil((float) moneyToSubstract / playersTreasuries.size());
+                while (iter.hasNext()) {
+                    IRoomController room = iter.next();
+                    RoomGoldControl control = room.getObjectControl(ObjectType.GOLD);
+                    goldToRemove = Math.min(moneyToSubstract, goldToRemove); // Rounding...
+                    moneyToSubstract -= goldToRemove - control.removeGold(goldToRemove);
+                    if (control.getCurrentCapacity() == 0) {
+                        iter.remove();
+                    }
+                    if (moneyToSubstract == 0) {
+                        break;
+                    }
+                }
+            }
+            subGold(amount - moneyToSubstract);
+
+            return moneyToSubstract;
+        }
+    }
+
+    /**
+     * Withdraw gold from the player, only if the player can afford the whole
+     * amount
+     *
+     * @param amount the amount to withdraw
+     * @return true if the gold was withdrawn
+     */
+    public boolean tryWithdraw(int amount) {
+        synchronized (ledgerLock) {
+            if (amount > keeper.getGold()) {
+                return false;
+            }
+            withdraw(amount);
+
+            return true;
+        }
+    }
+
+    private static int getFreeCapacity(IRoomController treasury) {
+        RoomGoldControl control = treasury.getObjectControl(ObjectType.GOLD);
+        return control.getMaxCapacity() - control.getCurrentCapacity();
+    }
+
+    @Override
+    public void onBuild(IRoomController room) {
+        if (room.canStoreGold()) {
+            synchronized (ledgerLock) {
+                if (!treasuries.contains(room)) {
+                    treasuries.add(room);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onCaptured(IRoomController room) {
+        onBuild(room);
+    }
+
+    @Override
+    public void onCapturedByEnemy(IRoomController room) {
+        onSold(room);
+    }
+
+    @Override
+    public void onSold(IRoomController room) {
+        synchronized (ledgerLock) {
+            treasuries.remove(room);
+        }
+    }
+
     public void addListener(PlayerGoldListener listener) {
         listeners.add(listener);
     }
@@ -68,14 +241,23 @@ public class PlayerGoldControl {
     }
 
     public void setGoldMax(int goldMax) {
-        this.goldMax = goldMax;
+        this.goldMax.set(goldMax);
+    }
+
+    /**
+     * Adjust the gold capacity of the player
+     *
+     * @param amount the amount to add, can be negative
+     */
+    public void addGoldMax(int amount) {
+        goldMax.addAndGet(amount);
     }
 
     public int getGoldMax() {
-        return goldMax;
+        return goldMax.get();
     }
 
     public boolean isFullCapacity() {
-        return keeper.getGold() >= goldMax;
+        return keeper.getGold() >= goldMax.get();
     }
 }
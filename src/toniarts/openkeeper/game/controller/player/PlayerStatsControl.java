@@ -18,7 +18,10 @@ package toniarts.openkeeper.game.controller.player;
 
 import java.util.HashMap;
 import java.util.Map;
+import toniarts.openkeeper.game.controller.MapStatistics;
+import toniarts.openkeeper.game.data.Keeper;
 import toniarts.openkeeper.tools.convert.map.Creature;
+import toniarts.openkeeper.tools.convert.map.Room;
 
 /**
  * A class to hold player's miscellaneous statistics
@@ -30,6 +33,16 @@ public class PlayerStatsControl {
     private final Map<Creature, Integer> slapsMap = new HashMap<>();
     private final Map<Creature, Integer> pickUpsMap = new HashMap<>();
     private final Map<Creature, Integer> dropsMap = new HashMap<>();
+    private final Keeper keeper;
+    private MapStatistics mapStatistics;
+
+    public PlayerStatsControl(Keeper keeper) {
+        this.keeper = keeper;
+    }
+
+    public void setMapStatistics(MapStatistics mapStatistics) {
+        this.mapStatistics = mapStatistics;
+    }
 
     public boolean hasSlapped() {
         return !slapsMap.isEmpty();
@@ -76,4 +89,32 @@ public class PlayerStatsControl {
         increaseMapCount(creature, dropsMap);
     }
 
+    /**
+     * Get the number of tiles the player owns
+     *
+     * @return owned tile count
+     */
+    public int getOwnedTiles() {
+        return mapStatistics != null ? mapStatistics.getOwnedTiles(keeper.getId()) : 0;
+    }
+
+    /**
+     * Get room slab count, all rooms
+     *
+     * @return slab count
+     */
+    public int getRoomSlabsCount() {
+        return mapStatistics != null ? mapStatistics.getRoomSlabs(keeper.getId()) : 0;
+    }
+
+    /**
+     * Get room slab count, certain type of room
+     *
+     * @param room the room
+     * @return slab count
+     */
+    public int getRoomSlabsCount(Room room) {
+        return mapStatistics != null ? mapStatistics.getRoomSlabs(keeper.getId(), room) : 0;
+    }
+
 }
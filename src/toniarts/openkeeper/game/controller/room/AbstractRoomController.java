@@ -396,6 +396,11 @@ public abstract class AbstractRoomController implements IRoomController {
         return wallFurniture;
     }
 
+    @Override
+    public Set<EntityId> getPillars() {
+        return pillars;
+    }
+
     /**
      * Get the object ID for the room pillars
      *
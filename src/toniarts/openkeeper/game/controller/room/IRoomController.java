@@ -80,6 +80,13 @@ public interface IRoomController {
      */
     public Set<EntityId> getWallFurniture();
 
+    /**
+     * Get the pillar IDs
+     *
+     * @return pillars
+     */
+    public Set<EntityId> getPillars();
+
     public boolean canStoreGold();
 
     public boolean hasObjectControl(AbstractRoomController.ObjectType objectType);
@@ -81,6 +81,16 @@ public abstract class AbstractRoomObjectControl<V> implements IRoomObjectControl
         return getCurrentCapacity() >= getMaxCapacity();
     }
 
+    @Override
+    public void restoreItem(EntityId entityId, Point p) {
+        Collection<EntityId> objects = objectsByCoordinate.get(p);
+        if (objects == null) {
+            objects = new ArrayList<>(getObjectsPerTile());
+            objectsByCoordinate.put(p, objects);
+        }
+        objects.add(entityId);
+    }
+
     /**
      * Remove an item
      *
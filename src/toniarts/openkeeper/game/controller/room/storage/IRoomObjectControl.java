@@ -38,6 +38,15 @@ public interface IRoomObjectControl<V> {
      */
     V addItem(V value, Point p);
 
+    /**
+     * Puts back an item that already is stored in this room, when restoring a
+     * saved game. The item already has its storage component
+     *
+     * @param entityId the stored item
+     * @param p the point where the item is stored
+     */
+    void restoreItem(EntityId entityId, Point p);
+
     /**
      * When the room gets destroyed, controls need to be destroyed
      */
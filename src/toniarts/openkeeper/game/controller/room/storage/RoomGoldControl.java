@@ -102,6 +102,12 @@ public abstract class RoomGoldControl extends AbstractRoomObjectControl<Integer>
         return sum;
     }
 
+    @Override
+    public void restoreItem(EntityId entityId, Point p) {
+        super.restoreItem(entityId, p);
+        storedGold += objectsController.getEntityData().getComponent(entityId, Gold.class).gold;
+    }
+
     @Override
     public int getCurrentCapacity() {
         return storedGold;
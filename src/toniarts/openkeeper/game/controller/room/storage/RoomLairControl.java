@@ -73,6 +73,12 @@ public abstract class RoomLairControl extends AbstractRoomObjectControl<EntityId
         return object;
     }
 
+    @Override
+    public void restoreItem(EntityId entityId, Point p) {
+        super.restoreItem(entityId, p);
+        lairs++;
+    }
+
     @Override
     public void destroy() {
 
@@ -54,6 +54,12 @@ public abstract class RoomPrisonerControl extends AbstractRoomObjectControl<Enti
         return creature;
     }
 
+    @Override
+    public void restoreItem(EntityId entityId, Point p) {
+
+        // Nothing to do, only the storage component marks them
+    }
+
     @Override
     public void destroy() {
 
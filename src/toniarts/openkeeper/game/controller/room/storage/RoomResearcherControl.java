@@ -59,6 +59,12 @@ public abstract class RoomResearcherControl extends AbstractRoomObjectControl<En
         return researcher;
     }
 
+    @Override
+    public void restoreItem(EntityId entityId, Point p) {
+
+        // Nothing to do, only the storage component marks them
+    }
+
     @Override
     public void destroy() {
 
@@ -87,6 +87,12 @@ public abstract class RoomSpellBookControl extends AbstractRoomObjectControl<Pla
         return null;
     }
 
+    @Override
+    public void restoreItem(EntityId entityId, Point p) {
+        super.restoreItem(entityId, p);
+        storedSpellBooks++;
+    }
+
     @Override
     public void destroy() {
 
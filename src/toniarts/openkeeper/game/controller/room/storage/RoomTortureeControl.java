@@ -59,6 +59,12 @@ public abstract class RoomTortureeControl extends AbstractRoomObjectControl<Enti
         return torturee;
     }
 
+    @Override
+    public void restoreItem(EntityId entityId, Point p) {
+
+        // Nothing to do, only the storage component marks them
+    }
+
     @Override
     public void destroy() {
 
@@ -0,0 +1,458 @@
+/*
+ * Copyright (C) 2014-2018 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.data;
+
+import com.badlogic.gdx.math.Vector2;
+import com.jme3.export.InputCapsule;
+import com.jme3.export.JmeExporter;
+import com.jme3.export.JmeImporter;
+import com.jme3.export.OutputCapsule;
+import com.jme3.export.Savable;
+import com.jme3.math.Vector3f;
+import com.simsilica.es.EntityComponent;
+import com.simsilica.es.EntityData;
+import com.simsilica.es.EntityId;
+import java.awt.Point;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A snapshot of the entities. The ES components have public fields that some
+ * systems still change in place, so capturing copies the components field by
+ * field, the vectors, points and paths included. That is cheap enough to do
+ * in the middle of the game loop. The heavy lifting, the serialization, can
+ * then be done anywhere.<br>
+ * The components are stored per type, field by field, in primitive arrays.
+ * That keeps the save compact and fast to read and write.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public class EntitySnapshot implements Savable {
+
+    private static final Map<Class<?>, Field[]> FIELDS = new ConcurrentHashMap<>();
+    private static final Logger LOGGER = Logger.getLogger(EntitySnapshot.class.getName());
+
+    private List<ComponentTable> tables;
+
+    public EntitySnapshot() {
+        // For serialization
+    }
+
+    /**
+     * Capture the entities
+     *
+     * @param entityData the entity data
+     * @param excluded entities not to capture
+     * @param types the component types to capture
+     */
+    public EntitySnapshot(EntityData entityData, Set<EntityId> excluded, List<Class<? extends EntityComponent>> types) {
+        tables = new ArrayList<>(types.size());
+        for (Class<? extends EntityComponent> type : types) {
+            Set<EntityId> entities = entityData.findEntities(null, type);
+            long[] ids = new long[entities.size()];
+            EntityComponent[] components = new EntityComponent[entities.size()];
+            int count = 0;
+            for (EntityId entityId : entities) {
+                if (excluded.contains(entityId)) {
+                    continue;
+                }
+                EntityComponent component = entityData.getComponent(entityId, type);
+                if (component != null) {
+                    ids[count] = entityId.getId();
+                    components[count] = copy(component);
+                    count++;
+                }
+            }
+            if (count > 0) {
+                tables.add(new ComponentTable(type, count, ids, components));
+            }
+        }
+    }
+
+    /**
+     * Restores the entities to the entity data, with the same entity IDs
+     *
+     * @param entityData the entity data
+     * @return the largest entity ID restored, -1 if none
+     */
+    public long restore(EntityData entityData) {
+        long maxId = -1;
+        for (ComponentTable table : tables) {
+            for (int i = 0; i < table.count; i++) {
+                entityData.setComponent(new EntityId(table.ids[i]), table.components[i]);
+                maxId = Math.max(maxId, table.ids[i]);
+            }
+        }
+        return maxId;
+    }
+
+    @Override
+    public void write(JmeExporter ex) throws IOException {
+        OutputCapsule out = ex.getCapsule(this);
+        out.writeSavableArrayList(new ArrayList<>(tables), "tables", null);
+    }
+
+    @Override
+    public void read(JmeImporter im) throws IOException {
+        InputCapsule in = im.getCapsule(this);
+        tables = in.readSavableArrayList("tables", new ArrayList<>());
+    }
+
+    /**
+     * Copies a component, so that the copy won't change with the game
+     *
+     * @param component the component to copy
+     * @return the copy
+     */
+    @SuppressWarnings("unchecked")
+    private static EntityComponent copy(EntityComponent component) {
+        try {
+            EntityComponent copy = component.getClass().getDeclaredConstructor().newInstance();
+            for (Field field : getFields(component.getClass())) {
+                Object value = field.get(component);
+                if (value instanceof Vector3f) {
+                    value = ((Vector3f) value).clone();
+                } else if (value instanceof Point) {
+                    value = new Point((Point) value);
+                } else if (value instanceof List) {
+                    List<Vector2> original = (List<Vector2>) value;
+                    List<Vector2> path = new ArrayList<>(original.size());
+                    for (Vector2 v : original) {
+                        path.add(new Vector2(v));
+                    }
+                    value = path;
+                }
+                field.set(copy, value);
+            }
+            return copy;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to copy " + component + "!", e);
+        }
+    }
+
+    private static Field[] getFields(Class<?> type) {
+        return FIELDS.computeIfAbsent(type, (t) -> {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> c = t; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers())) {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            }
+            return fields.toArray(new Field[fields.size()]);
+        });
+    }
+
+    /**
+     * All the components of a single type
+     */
+    public static class ComponentTable implements Savable {
+
+        private Class<? extends EntityComponent> type;
+        private int count;
+        private long[] ids;
+        private EntityComponent[] components;
+
+        public ComponentTable() {
+            // For serialization
+        }
+
+        private ComponentTable(Class<? extends EntityComponent> type, int count, long[] ids, EntityComponent[] components) {
+            this.type = type;
+            this.count = count;
+            this.ids = ids;
+            this.components = components;
+        }
+
+        @Override
+        public void write(JmeExporter ex) throws IOException {
+            OutputCapsule out = ex.getCapsule(this);
+            out.write(type.getName(), "type", null);
+            out.write(count, "count", 0);
+            out.write(ids, "ids", null);
+            for (Field field : getFields(type)) {
+                try {
+                    writeColumn(out, field);
+                } catch (IllegalAccessException e) {
+                    throw new IOException("Failed to write " + field + "!", e);
+                }
+            }
+        }
+
+        @Override
+        public void read(JmeImporter im) throws IOException {
+            InputCapsule in = im.getCapsule(this);
+            try {
+                type = (Class<? extends EntityComponent>) Class.forName(in.readString("type", null));
+                count = in.readInt("count", 0);
+                ids = in.readLongArray("ids", new long[0]);
+                components = new EntityComponent[count];
+                for (int i = 0; i < count; i++) {
+                    components[i] = type.getDeclaredConstructor().newInstance();
+                }
+                for (Field field : getFields(type)) {
+                    readColumn(in, field);
+                }
+            } catch (ReflectiveOperationException e) {
+                throw new IOException("Failed to read the components!", e);
+            }
+        }
+
+        private void writeColumn(OutputCapsule out, Field field) throws IOException, IllegalAccessException {
+            String name = field.getName();
+            Class<?> fieldType = field.getType();
+            if (fieldType == int.class) {
+                int[] values = new int[count];
+                for (int i = 0; i < count; i++) {
+                    values[i] = field.getInt(components[i]);
+                }
+                out.write(values, name, null);
+            } else if (fieldType == short.class) {
+                short[] values = new short[count];
+                for (int i = 0; i < count; i++) {
+                    values[i] = field.getShort(components[i]);
+                }
+                out.write(values, name, null);
+            } else if (fieldType == long.class) {
+                long[] values = new long[count];
+                for (int i = 0; i < count; i++) {
+                    values[i] = field.getLong(components[i]);
+                }
+                out.write(values, name, null);
+            } else if (fieldType == float.class) {
+                float[] values = new float[count];
+                for (int i = 0; i < count; i++) {
+                    values[i] = field.getFloat(components[i]);
+                }
+                out.write(values, name, null);
+            } else if (fieldType == double.class) {
+                double[] values = new double[count];
+                for (int i = 0; i < count; i++) {
+                    values[i] = field.getDouble(components[i]);
+                }
+                out.write(values, name, null);
+            } else if (fieldType == boolean.class) {
+                boolean[] values = new boolean[count];
+                for (int i = 0; i < count; i++) {
+                    values[i] = field.getBoolean(components[i]);
+                }
+                out.write(values, name, null);
+            } else if (fieldType == byte.class) {
+                byte[] values = new byte[count];
+                for (int i = 0; i < count; i++) {
+                    values[i] = field.getByte(components[i]);
+                }
+                out.write(values, name, null);
+            } else if (fieldType == String.class) {
+                String[] values = new String[count];
+                for (int i = 0; i < count; i++) {
+                    values[i] = (String) field.get(components[i]);
+                }
+                out.write(values, name, null);
+            } else if (fieldType.isEnum()) {
+                int[] values = new int[count];
+                for (int i = 0; i < count; i++) {
+                    Enum<?> value = (Enum<?>) field.get(components[i]);
+                    values[i] = (value != null ? value.ordinal() : -1);
+                }
+                out.write(values, name, null);
+            } else if (fieldType == Double.class) {
+                double[] values = new double[count];
+                BitSet nulls = new BitSet(count);
+                for (int i = 0; i < count; i++) {
+                    Double value = (Double) field.get(components[i]);
+                    if (value != null) {
+                        values[i] = value;
+                    } else {
+                        nulls.set(i);
+                    }
+                }
+                out.write(values, name, null);
+                out.write(nulls, name + "Nulls", null);
+            } else if (fieldType == EntityId.class) {
+                long[] values = new long[count];
+                BitSet nulls = new BitSet(count);
+                for (int i = 0; i < count; i++) {
+                    EntityId value = (EntityId) field.get(components[i]);
+                    if (value != null) {
+                        values[i] = value.getId();
+                    } else {
+                        nulls.set(i);
+                    }
+                }
+                out.write(values, name, null);
+                out.write(nulls, name + "Nulls", null);
+            } else if (fieldType == Vector3f.class) {
+                float[] values = new float[count * 3];
+                BitSet nulls = new BitSet(count);
+                for (int i = 0; i < count; i++) {
+                    Vector3f value = (Vector3f) field.get(components[i]);
+                    if (value != null) {
+                        values[i * 3] = value.x;
+                        values[i * 3 + 1] = value.y;
+                        values[i * 3 + 2] = value.z;
+                    } else {
+                        nulls.set(i);
+                    }
+                }
+                out.write(values, name, null);
+                out.write(nulls, name + "Nulls", null);
+            } else if (fieldType == Point.class) {
+                int[] values = new int[count * 2];
+                BitSet nulls = new BitSet(count);
+                for (int i = 0; i < count; i++) {
+                    Point value = (Point) field.get(components[i]);
+                    if (value != null) {
+                        values[i * 2] = value.x;
+                        values[i * 2 + 1] = value.y;
+                    } else {
+                        nulls.set(i);
+                    }
+                }
+                out.write(values, name, null);
+                out.write(nulls, name + "Nulls", null);
+            } else if (List.class.isAssignableFrom(fieldType)) {
+
+                // Paths, lists of 2D points
+                int[] sizes = new int[count];
+                List<Float> values = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    List<Vector2> value = (List<Vector2>) field.get(components[i]);
+                    sizes[i] = (value != null ? value.size() : -1);
+                    if (value != null) {
+                        for (Vector2 v : value) {
+                            values.add(v.x);
+                            values.add(v.y);
+                        }
+                    }
+                }
+                float[] coordinates = new float[values.size()];
+                for (int i = 0; i < coordinates.length; i++) {
+                    coordinates[i] = values.get(i);
+                }
+                out.write(sizes, name + "Sizes", null);
+                out.write(coordinates, name, null);
+            } else {
+                LOGGER.log(Level.WARNING, "Unsupported component field {0}, not saved!", field);
+            }
+        }
+
+        private void readColumn(InputCapsule in, Field field) throws IOException, IllegalAccessException {
+            String name = field.getName();
+            Class<?> fieldType = field.getType();
+            if (fieldType == int.class) {
+                int[] values = in.readIntArray(name, new int[count]);
+                for (int i = 0; i < count; i++) {
+                    field.setInt(components[i], values[i]);
+                }
+            } else if (fieldType == short.class) {
+                short[] values = in.readShortArray(name, new short[count]);
+                for (int i = 0; i < count; i++) {
+                    field.setShort(components[i], values[i]);
+                }
+            } else if (fieldType == long.class) {
+                long[] values = in.readLongArray(name, new long[count]);
+                for (int i = 0; i < count; i++) {
+                    field.setLong(components[i], values[i]);
+                }
+            } else if (fieldType == float.class) {
+                float[] values = in.readFloatArray(name, new float[count]);
+                for (int i = 0; i < count; i++) {
+                    field.setFloat(components[i], values[i]);
+                }
+            } else if (fieldType == double.class) {
+                double[] values = in.readDoubleArray(name, new double[count]);
+                for (int i = 0; i < count; i++) {
+                    field.setDouble(components[i], values[i]);
+                }
+            } else if (fieldType == boolean.class) {
+                boolean[] values = in.readBooleanArray(name, new boolean[count]);
+                for (int i = 0; i < count; i++) {
+                    field.setBoolean(components[i], values[i]);
+                }
+            } else if (fieldType == byte.class) {
+                byte[] values = in.readByteArray(name, new byte[count]);
+                for (int i = 0; i < count; i++) {
+                    field.setByte(components[i], values[i]);
+                }
+            } else if (fieldType == String.class) {
+                String[] values = in.readStringArray(name, new String[count]);
+                for (int i = 0; i < count; i++) {
+                    field.set(components[i], values[i]);
+                }
+            } else if (fieldType.isEnum()) {
+                Object[] constants = fieldType.getEnumConstants();
+                int[] values = in.readIntArray(name, new int[count]);
+                for (int i = 0; i < count; i++) {
+                    field.set(components[i], values[i] >= 0 ? constants[values[i]] : null);
+                }
+            } else if (fieldType == Double.class) {
+                double[] values = in.readDoubleArray(name, new double[count]);
+                BitSet nulls = in.readBitSet(name + "Nulls", new BitSet());
+                for (int i = 0; i < count; i++) {
+                    field.set(components[i], nulls.get(i) ? null : values[i]);
+                }
+            } else if (fieldType == EntityId.class) {
+                long[] values = in.readLongArray(name, new long[count]);
+                BitSet nulls = in.readBitSet(name + "Nulls", new BitSet());
+                for (int i = 0; i < count; i++) {
+                    field.set(components[i], nulls.get(i) ? null : new EntityId(values[i]));
+                }
+            } else if (fieldType == Vector3f.class) {
+                float[] values = in.readFloatArray(name, new float[count * 3]);
+                BitSet nulls = in.readBitSet(name + "Nulls", new BitSet());
+                for (int i = 0; i < count; i++) {
+                    field.set(components[i], nulls.get(i) ? null : new Vector3f(values[i * 3], values[i * 3 + 1], values[i * 3 + 2]));
+                }
+            } else if (fieldType == Point.class) {
+                int[] values = in.readIntArray(name, new int[count * 2]);
+                BitSet nulls = in.readBitSet(name + "Nulls", new BitSet());
+                for (int i = 0; i < count; i++) {
+                    field.set(components[i], nulls.get(i) ? null : new Point(values[i * 2], values[i * 2 + 1]));
+                }
+            } else if (List.class.isAssignableFrom(fieldType)) {
+                int[] sizes = in.readIntArray(name + "Sizes", new int[count]);
+                float[] coordinates = in.readFloatArray(name, new float[0]);
+                int index = 0;
+                for (int i = 0; i < count; i++) {
+                    if (sizes[i] < 0) {
+                        continue;
+                    }
+                    List<Vector2> value = new ArrayList<>(sizes[i]);
+                    for (int j = 0; j < sizes[i]; j++) {
+                        value.add(new Vector2(coordinates[index], coordinates[index + 1]));
+                        index += 2;
+                    }
+                    field.set(components[i], value);
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2014-2018 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.data;
+
+import com.simsilica.es.base.DefaultEntityData;
+import com.simsilica.es.base.EntityIdGenerator;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Entity data whose entity IDs can be moved forward. Needed when restoring
+ * entities with their original IDs, the new entities must not collide with
+ * them.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public class GameEntityData extends DefaultEntityData {
+
+    private final IdGenerator idGenerator;
+
+    public GameEntityData() {
+        this(new IdGenerator());
+    }
+
+    private GameEntityData(IdGenerator idGenerator) {
+        super(idGenerator);
+
+        this.idGenerator = idGenerator;
+    }
+
+    /**
+     * Makes sure that the entities created from now on get IDs after the
+     * given one
+     *
+     * @param entityId the largest entity ID in use
+     */
+    public void reserveEntityIds(long entityId) {
+        idGenerator.reserve(entityId);
+    }
+
+    private static class IdGenerator implements EntityIdGenerator {
+
+        private final AtomicLong nextId = new AtomicLong();
+
+        @Override
+        public long nextEntityId() {
+            return nextId.getAndIncrement();
+        }
+
+        public void reserve(long entityId) {
+            nextId.accumulateAndGet(entityId + 1, Math::max);
+        }
+
+    }
+
+}
@@ -60,4 +60,15 @@ public final class GameTimer {
     public float getTime() {
         return time;
     }
+
+    /**
+     * Sets the timer state, for restoring a saved game
+     *
+     * @param time the timer time
+     * @param active is the timer active
+     */
+    public void setState(float time, boolean active) {
+        this.time = time;
+        this.active = active;
+    }
 }
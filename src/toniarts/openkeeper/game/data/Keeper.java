@@ -71,6 +71,45 @@ public class Keeper implements Comparable<Keeper>, IIndexable, Savable {
         this.id = player.getPlayerId();
     }
 
+    /**
+     * Creates a detached copy of the keeper, a snapshot of its state
+     *
+     * @param keeper the keeper to copy
+     */
+    public Keeper(Keeper keeper) {
+        this.player = keeper.player;
+        setState(keeper);
+    }
+
+    /**
+     * Sets the keeper state from another keeper, for restoring a saved game.
+     * The player data is kept intact
+     *
+     * @param keeper the keeper to copy the state from
+     */
+    public void setState(Keeper keeper) {
+        id = keeper.id;
+        ai = keeper.ai;
+        aiType = keeper.aiType;
+        gold = keeper.gold;
+        goldMined = keeper.goldMined;
+        mana = keeper.mana;
+        manaGain = keeper.manaGain;
+        manaLoose = keeper.manaLoose;
+        maxMana = keeper.maxMana;
+        dungeonHeartLocation = (keeper.dungeonHeartLocation != null ? new Point(keeper.dungeonHeartLocation) : null);
+        setAll(availableRooms, keeper.availableRooms);
+        setAll(availableSpells, keeper.availableSpells);
+        setAll(availableCreatures, keeper.availableCreatures);
+        destroyed = keeper.destroyed;
+        setAll(allies, keeper.allies);
+    }
+
+    private static void setAll(Collection<Short> collection, Collection<Short> values) {
+        collection.clear();
+        collection.addAll(values);
+    }
+
     @Override
     public short getId() {
         return id;
@@ -0,0 +1,317 @@
+/*
+ * Copyright (C) 2014-2018 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.data;
+
+import com.jme3.export.InputCapsule;
+import com.jme3.export.JmeExporter;
+import com.jme3.export.JmeImporter;
+import com.jme3.export.OutputCapsule;
+import com.jme3.export.Savable;
+import com.jme3.export.binary.BinaryExporter;
+import com.jme3.export.binary.BinaryImporter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import toniarts.openkeeper.tools.convert.AssetsConverter;
+import toniarts.openkeeper.tools.convert.ConversionUtils;
+import toniarts.openkeeper.tools.convert.map.GameLevel.LevFlag;
+import toniarts.openkeeper.tools.convert.map.LevelInfo;
+import toniarts.openkeeper.utils.PathUtils;
+
+/**
+ * Persisted index of the maps in the DK II maps folder. The entries are read
+ * with the header only {@link LevelInfo} reader and refreshed incrementally,
+ * only the files whose modification time or size have changed are read again
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public class MapCatalog implements Savable {
+
+    public static class MapCatalogEntry implements Savable {
+
+        protected String fileName;
+        protected long lastModified;
+        protected long fileSize;
+        protected long hash;
+        protected String name;
+        protected long lvlFlags;
+        protected int width;
+        protected int height;
+        protected int playerCount;
+
+        public MapCatalogEntry() {
+        }
+
+        private MapCatalogEntry(File file, LevelInfo levelInfo, long hash) {
+            this.fileName = file.getName();
+            this.lastModified = file.lastModified();
+            this.fileSize = file.length();
+            this.hash = hash;
+            this.name = levelInfo.getName();
+            for (LevFlag flag : levelInfo.getLvlFlags()) {
+                this.lvlFlags |= flag.getFlagValue();
+            }
+            this.width = levelInfo.getWidth();
+            this.height = levelInfo.getHeight();
+            this.playerCount = levelInfo.getPlayerCount();
+        }
+
+        /**
+         * Get the KWD file name, relative to the maps folder
+         *
+         * @return the file name
+         */
+        public String getFileName() {
+            return fileName;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public long getFileSize() {
+            return fileSize;
+        }
+
+        /**
+         * CRC32 of the KWD file contents
+         *
+         * @return the file hash
+         */
+        public long getHash() {
+            return hash;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public EnumSet<LevFlag> getLvlFlags() {
+            return ConversionUtils.parseFlagValue(lvlFlags, LevFlag.class);
+        }
+
+        public boolean hasFlag(LevFlag flag) {
+            return (lvlFlags & flag.getFlagValue()) == flag.getFlagValue();
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public int getPlayerCount() {
+            return playerCount;
+        }
+
+        /**
+         * Get the asset key of the map thumbnail
+         *
+         * @return the thumbnail asset key
+         */
+        public String getThumbnailKey() {
+            return MapCatalog.getThumbnailKey(name);
+        }
+
+        private boolean isUpToDate(File file) {
+            return lastModified == file.lastModified() && fileSize == file.length();
+        }
+
+        @Override
+        public void write(JmeExporter ex) throws IOException {
+            OutputCapsule out = ex.getCapsule(this);
+            out.write(fileName, "fileName", null);
+            out.write(lastModified, "lastModified", 0);
+            out.write(fileSize, "fileSize", 0);
+            out.write(hash, "hash", 0);
+            out.write(name, "name", null);
+            out.write(lvlFlags, "lvlFlags", 0);
+            out.write(width, "width", 0);
+            out.write(height, "height", 0);
+            out.write(playerCount, "playerCount", 0);
+        }
+
+        @Override
+        public void read(JmeImporter im) throws IOException {
+            InputCapsule in = im.getCapsule(this);
+            fileName = in.readString("fileName", null);
+            lastModified = in.readLong("lastModified", 0);
+            fileSize = in.readLong("fileSize", 0);
+            hash = in.readLong("hash", 0);
+            name = in.readString("name", null);
+            lvlFlags = in.readLong("lvlFlags", 0);
+            width = in.readInt("width", 0);
+            height = in.readInt("height", 0);
+            playerCount = in.readInt("playerCount", 0);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+    private List<MapCatalogEntry> entries = new ArrayList<>();
+    private static final String MAP_CATALOG_FILENAME = "MapCatalog.okm";
+    private static final Logger logger = Logger.getLogger(MapCatalog.class.getName());
+
+    /**
+     * Serialization-only. Do not use.
+     *
+     * @see #load(java.lang.String)
+     */
+    public MapCatalog() {
+    }
+
+    /**
+     * Loads up the map catalog and refreshes it against the maps folder. The
+     * catalog is saved if anything changed
+     *
+     * @param dungeonKeeperFolder DK II main folder
+     * @return the map catalog
+     */
+    public static MapCatalog load(String dungeonKeeperFolder) {
+        MapCatalog mapCatalog;
+        File file = getFile();
+        if (file.exists()) {
+            try {
+                mapCatalog = (MapCatalog) BinaryImporter.getInstance().load(file);
+            } catch (Exception ex) {
+                logger.log(Level.WARNING, "Failed to load the map catalog, rebuilding!", ex);
+                mapCatalog = new MapCatalog();
+            }
+        } else {
+            mapCatalog = new MapCatalog();
+        }
+
+        if (mapCatalog.refresh(dungeonKeeperFolder)) {
+            mapCatalog.save();
+        }
+        return mapCatalog;
+    }
+
+    /**
+     * Refreshes the catalog, only new and modified map files are read
+     *
+     * @param dungeonKeeperFolder DK II main folder
+     * @return true if the catalog changed
+     */
+    private boolean refresh(String dungeonKeeperFolder) {
+        Map<String, MapCatalogEntry> oldEntries = new HashMap<>(entries.size());
+        for (MapCatalogEntry entry : entries) {
+            oldEntries.put(entry.getFileName(), entry);
+        }
+
+        List<MapCatalogEntry> newEntries = new ArrayList<>(entries.size());
+        boolean changed = false;
+        DirectoryStream.Filter<Path> filter = (Path entry) -> entry.getFileName().toString().toLowerCase().endsWith(".kwd") && !Files.isDirectory(entry);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(dungeonKeeperFolder + PathUtils.DKII_MAPS_FOLDER), filter)) {
+            for (Path path : stream) {
+                File file = path.toFile();
+                MapCatalogEntry entry = oldEntries.remove(file.getName());
+                if (entry == null || !entry.isUpToDate(file)) {
+                    try {
+                        entry = new MapCatalogEntry(file, LevelInfo.read(dungeonKeeperFolder, file), getHash(path));
+                    } catch (Exception ex) {
+                        logger.log(Level.WARNING, "Failed to read map " + file + "!", ex);
+                        continue;
+                    }
+                    changed = true;
+                }
+                newEntries.add(entry);
+            }
+        } catch (IOException ex) {
+            logger.log(Level.SEVERE, "Failed to list the maps!", ex);
+        }
+
+        // Removed maps
+        if (!oldEntries.isEmpty()) {
+            changed = true;
+        }
+
+        entries = newEntries;
+        return changed;
+    }
+
+    private static long getHash(Path path) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[8192];
+        try (InputStream is = Files.newInputStream(path)) {
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+    private void save() {
+        try {
+            BinaryExporter.getInstance().save(this, getFile());
+        } catch (IOException ex) {
+            logger.log(Level.SEVERE, "Failed to save the map catalog!", ex);
+        }
+    }
+
+    private static File getFile() {
+        return new File(AssetsConverter.getCurrentFolder().concat(MAP_CATALOG_FILENAME));
+    }
+
+    /**
+     * Get the thumbnail asset key for a map
+     *
+     * @param mapName the map name
+     * @return the thumbnail asset key
+     */
+    public static String getThumbnailKey(String mapName) {
+        return AssetsConverter.MAP_THUMBNAILS_FOLDER + File.separator + ConversionUtils.stripFileName(mapName) + ".png";
+    }
+
+    /**
+     * Get the catalog entries
+     *
+     * @return the map entries, in no particular order
+     */
+    public List<MapCatalogEntry> getEntries() {
+        return new ArrayList<>(entries);
+    }
+
+    @Override
+    public void write(JmeExporter ex) throws IOException {
+        OutputCapsule out = ex.getCapsule(this);
+        out.writeSavableArrayList((ArrayList) entries, "entries", null);
+    }
+
+    @Override
+    public void read(JmeImporter im) throws IOException {
+        InputCapsule in = im.getCapsule(this);
+        entries = in.readSavableArrayList("entries", new ArrayList<>());
+    }
+}
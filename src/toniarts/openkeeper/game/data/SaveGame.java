@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2014-2018 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.data;
+
+import com.jme3.export.InputCapsule;
+import com.jme3.export.JmeExporter;
+import com.jme3.export.JmeImporter;
+import com.jme3.export.OutputCapsule;
+import com.jme3.export.Savable;
+import com.jme3.export.binary.BinaryExporter;
+import com.jme3.export.binary.BinaryImporter;
+import com.simsilica.es.EntityComponent;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import toniarts.openkeeper.game.component.Attack;
+import toniarts.openkeeper.game.component.AttackTarget;
+import toniarts.openkeeper.game.component.CreatureAi;
+import toniarts.openkeeper.game.component.CreatureComponent;
+import toniarts.openkeeper.game.component.CreatureEfficiency;
+import toniarts.openkeeper.game.component.CreatureExperience;
+import toniarts.openkeeper.game.component.CreatureFall;
+import toniarts.openkeeper.game.component.CreatureImprisoned;
+import toniarts.openkeeper.game.component.CreatureMeleeAttack;
+import toniarts.openkeeper.game.component.CreatureMood;
+import toniarts.openkeeper.game.component.CreatureRecuperating;
+import toniarts.openkeeper.game.component.CreatureSlapped;
+import toniarts.openkeeper.game.component.CreatureSleep;
+import toniarts.openkeeper.game.component.CreatureTortured;
+import toniarts.openkeeper.game.component.CreatureViewState;
+import toniarts.openkeeper.game.component.Death;
+import toniarts.openkeeper.game.component.DoorComponent;
+import toniarts.openkeeper.game.component.DoorViewState;
+import toniarts.openkeeper.game.component.Fearless;
+import toniarts.openkeeper.game.component.FollowTarget;
+import toniarts.openkeeper.game.component.Gold;
+import toniarts.openkeeper.game.component.HauledBy;
+import toniarts.openkeeper.game.component.Health;
+import toniarts.openkeeper.game.component.InHand;
+import toniarts.openkeeper.game.component.Interaction;
+import toniarts.openkeeper.game.component.Mobile;
+import toniarts.openkeeper.game.component.Navigation;
+import toniarts.openkeeper.game.component.ObjectComponent;
+import toniarts.openkeeper.game.component.ObjectViewState;
+import toniarts.openkeeper.game.component.Objective;
+import toniarts.openkeeper.game.component.Owner;
+import toniarts.openkeeper.game.component.Party;
+import toniarts.openkeeper.game.component.PlayerObjective;
+import toniarts.openkeeper.game.component.PortalGem;
+import toniarts.openkeeper.game.component.Position;
+import toniarts.openkeeper.game.component.RoomStorage;
+import toniarts.openkeeper.game.component.Senses;
+import toniarts.openkeeper.game.component.Spellbook;
+import toniarts.openkeeper.game.component.TaskComponent;
+import toniarts.openkeeper.game.component.Threat;
+import toniarts.openkeeper.game.component.TrapComponent;
+import toniarts.openkeeper.game.component.TrapViewState;
+import toniarts.openkeeper.game.component.Trigger;
+import toniarts.openkeeper.game.map.MapData;
+import toniarts.openkeeper.game.task.TaskQueueState;
+import toniarts.openkeeper.game.trigger.TriggerState;
+
+/**
+ * A saved game, the state of the simulation after the game logic updatables
+ * of a tick. Created on the game logic thread as a detached snapshot, so that
+ * it can be written to disk from any thread while the game goes on. The map
+ * tiles are copied on write, so taking the snapshot doesn't copy them.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public class SaveGame implements Savable {
+
+    public static final String FILE_EXTENSION = ".sav";
+
+    /**
+     * The saved component types
+     */
+    public static final List<Class<? extends EntityComponent>> COMPONENT_TYPES = Collections.unmodifiableList(Arrays.asList(
+            Attack.class, AttackTarget.class, CreatureAi.class, CreatureComponent.class, CreatureEfficiency.class,
+            CreatureExperience.class, CreatureFall.class, CreatureImprisoned.class, CreatureMeleeAttack.class,
+            CreatureMood.class, CreatureRecuperating.class, CreatureSlapped.class, CreatureSleep.class,
+            CreatureTortured.class, CreatureViewState.class, Death.class, DoorComponent.class, DoorViewState.class,
+            Fearless.class, FollowTarget.class, Gold.class, HauledBy.class, Health.class, InHand.class,
+            Interaction.class, Mobile.class, Navigation.class, ObjectComponent.class, ObjectViewState.class,
+            Objective.class, Owner.class, Party.class, PlayerObjective.class, PortalGem.class, Position.class,
+            RoomStorage.class, Senses.class, Spellbook.class, TaskComponent.class, Threat.class,
+            TrapComponent.class, TrapViewState.class, Trigger.class));
+
+    private String levelName;
+    private double gameTime;
+    private long ticks;
+    private int[] flags;
+    private int levelScore;
+    private Float timeLimit;
+    private float[] timerTimes;
+    private boolean[] timersActive;
+    private List<Keeper> players;
+    private MapData mapData;
+    private EntitySnapshot entities;
+    private List<TriggerState> triggerStates;
+    private TaskQueueState taskQueues;
+
+    public SaveGame() {
+        // For serialization
+    }
+
+    public SaveGame(String levelName, double gameTime, long ticks, int[] flags, int levelScore, Float timeLimit,
+            List<GameTimer> timers, List<Keeper> players, MapData mapData, EntitySnapshot entities,
+            List<TriggerState> triggerStates, TaskQueueState taskQueues) {
+        this.levelName = levelName;
+        this.gameTime = gameTime;
+        this.ticks = ticks;
+        this.flags = flags.clone();
+        this.levelScore = levelScore;
+        this.timeLimit = timeLimit;
+        this.timerTimes = new float[timers.size()];
+        this.timersActive = new boolean[timers.size()];
+        for (int i = 0; i < timers.size(); i++) {
+            timerTimes[i] = timers.get(i).getTime();
+            timersActive[i] = timers.get(i).isActive();
+        }
+        this.players = new ArrayList<>(players.size());
+        for (Keeper keeper : players) {
+            this.players.add(new Keeper(keeper));
+        }
+        this.mapData = mapData.createSnapshot();
+        this.entities = entities;
+        this.triggerStates = triggerStates;
+        this.taskQueues = taskQueues;
+    }
+
+    public String getLevelName() {
+        return levelName;
+    }
+
+    public double getGameTime() {
+        return gameTime;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    public int[] getFlags() {
+        return flags;
+    }
+
+    public int getLevelScore() {
+        return levelScore;
+    }
+
+    public Float getTimeLimit() {
+        return timeLimit;
+    }
+
+    public float[] getTimerTimes() {
+        return timerTimes;
+    }
+
+    public boolean[] getTimersActive() {
+        return timersActive;
+    }
+
+    public List<Keeper> getPlayers() {
+        return players;
+    }
+
+    public MapData getMapData() {
+        return mapData;
+    }
+
+    public EntitySnapshot getEntities() {
+        return entities;
+    }
+
+    public List<TriggerState> getTriggerStates() {
+        return triggerStates;
+    }
+
+    public TaskQueueState getTaskQueues() {
+        return taskQueues;
+    }
+
+    /**
+     * Writes the saved game to a file. The file is first written aside and
+     * then moved in place, so a failed save never destroys the previous one
+     *
+     * @param file the file to write to
+     * @throws IOException may fail
+     */
+    public void save(File file) throws IOException {
+        File tempFile = new File(file.getPath() + ".tmp");
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (OutputStream out = new DeflaterOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile.toPath())), deflater, 65536)) {
+            BinaryExporter.getInstance().save(this, out);
+        } finally {
+            deflater.end();
+        }
+        try {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads a saved game from a file
+     *
+     * @param file the file to read
+     * @return the saved game
+     * @throws IOException may fail
+     */
+    public static SaveGame load(File file) throws IOException {
+        try (InputStream in = new InflaterInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())), new Inflater(), 65536)) {
+            return (SaveGame) BinaryImporter.getInstance().load(in);
+        }
+    }
+
+    @Override
+    public void write(JmeExporter ex) throws IOException {
+        OutputCapsule out = ex.getCapsule(this);
+        out.write(levelName, "levelName", null);
+        out.write(gameTime, "gameTime", 0);
+        out.write(ticks, "ticks", 0);
+        out.write(flags, "flags", null);
+        out.write(levelScore, "levelScore", 0);
+        out.write(timeLimit != null, "hasTimeLimit", false);
+        out.write(timeLimit != null ? timeLimit : 0f, "timeLimit", 0f);
+        out.write(timerTimes, "timerTimes", null);
+        out.write(timersActive, "timersActive", null);
+        out.writeSavableArrayList(new ArrayList<>(players), "players", null);
+        out.write(mapData, "mapData", null);
+        out.write(entities, "entities", null);
+        out.writeSavableArrayList(new ArrayList<>(triggerStates), "triggerStates", null);
+        out.write(taskQueues, "taskQueues", null);
+    }
+
+    @Override
+    public void read(JmeImporter im) throws IOException {
+        InputCapsule in = im.getCapsule(this);
+        levelName = in.readString("levelName", null);
+        gameTime = in.readDouble("gameTime", 0);
+        ticks = in.readLong("ticks", 0);
+        flags = in.readIntArray("flags", new int[0]);
+        levelScore = in.readInt("levelScore", 0);
+        timeLimit = (in.readBoolean("hasTimeLimit", false) ? in.readFloat("timeLimit", 0f) : null);
+        timerTimes = in.readFloatArray("timerTimes", new float[0]);
+        timersActive = in.readBooleanArray("timersActive", new boolean[0]);
+        players = in.readSavableArrayList("players", new ArrayList<>());
+        mapData = (MapData) in.readSavable("mapData", null);
+        entities = (EntitySnapshot) in.readSavable("entities", null);
+        triggerStates = in.readSavableArrayList("triggerStates", new ArrayList<>());
+        taskQueues = (TaskQueueState) in.readSavable("taskQueues", null);
+    }
+
+}
@@ -157,11 +157,15 @@ public class Settings {
         // Other Controls
         SCROLL_SPEED(Float.class, 1.0f, SettingCategory.MISCELLANEOUS, 1468),
         GAME_SPEED(Float.class, 1.0f, SettingCategory.MISCELLANEOUS, 1469),
+        // Autosave interval in seconds, 0 disables
+        AUTOSAVE_INTERVAL(Float.class, 300f, SettingCategory.MISCELLANEOUS),
         // Screen recorder
         RECORDER_QUALITY(Float.class, 0.8f, SettingCategory.MISCELLANEOUS),
         RECORDER_FPS(Integer.class, 60, SettingCategory.MISCELLANEOUS),
         // Cursor
         USE_CURSORS(Boolean.class, true, SettingCategory.MISCELLANEOUS),
+        // Sound
+        CACHE_DECODED_SOUNDS(Boolean.class, true, SettingCategory.SOUND),
         // Multiplayer settings
         PLAYER_NAME(String.class, System.getProperty("user.name"), SettingCategory.MISCELLANEOUS),
         GAME_NAME(String.class, "My OpenKeeper game", SettingCategory.MISCELLANEOUS),
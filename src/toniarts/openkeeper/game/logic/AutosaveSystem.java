@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2014-2018 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.logic;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import toniarts.openkeeper.game.data.SaveGame;
+
+/**
+ * Saves the game, periodically and on request. Should be the last of the
+ * game logic updatables so that the snapshot sees the results of all the
+ * other updatables of the tick. The queued AI work is executed after the
+ * updatables, so the work still in the queue is not in the snapshot. Only
+ * the snapshot is taken on the game logic thread, the writing is done on a
+ * background thread so the game doesn't hitch.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public class AutosaveSystem implements IGameLogicUpdatable {
+
+    private final Supplier<SaveGame> snapshotSupplier;
+    private final File autosaveFile;
+    private final float interval;
+    private final AtomicReference<File> saveRequest = new AtomicReference<>();
+    private final ExecutorService saveWriter;
+    private float timeSinceSave = 0;
+    private Future<?> pendingSave;
+
+    private static final Logger LOGGER = Logger.getLogger(AutosaveSystem.class.getName());
+
+    /**
+     * Create the autosave system
+     *
+     * @param snapshotSupplier takes the snapshot of the game, called on the
+     * game logic thread
+     * @param autosaveFile the file to autosave to
+     * @param interval the autosave interval in seconds, 0 to save only on
+     * request
+     */
+    public AutosaveSystem(Supplier<SaveGame> snapshotSupplier, File autosaveFile, float interval) {
+        this.snapshotSupplier = snapshotSupplier;
+        this.autosaveFile = autosaveFile;
+        this.interval = interval;
+
+        saveWriter = Executors.newSingleThreadExecutor((Runnable r) -> {
+            Thread thread = new Thread(r, "SaveGameWriter");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Requests a save, the game is saved on the next tick. Can be called from
+     * any thread
+     *
+     * @param file the file to save to
+     */
+    public void requestSave(File file) {
+        saveRequest.set(file);
+    }
+
+    @Override
+    public void processTick(float tpf, double gameTime) {
+        timeSinceSave += tpf;
+
+        // Don't pile up the saves if the writing can't keep up
+        if (pendingSave != null && !pendingSave.isDone()) {
+            return;
+        }
+
+        File file = saveRequest.getAndSet(null);
+        if (file == null && interval > 0 && timeSinceSave >= interval) {
+            file = autosaveFile;
+        }
+        if (file == null) {
+            return;
+        }
+
+        timeSinceSave = 0;
+        SaveGame saveGame = snapshotSupplier.get();
+        File saveFile = file;
+        pendingSave = saveWriter.submit(() -> {
+            try {
+                long start = System.nanoTime();
+                saveGame.save(saveFile);
+                LOGGER.log(Level.INFO, "Game saved to {0} in {1} ms", new Object[]{saveFile, TimeUnit.MILLISECONDS.convert(System.nanoTime() - start, TimeUnit.NANOSECONDS)});
+            } catch (IOException ex) {
+                LOGGER.log(Level.SEVERE, "Failed to save the game to " + saveFile + "!", ex);
+            }
+        });
+    }
+
+    @Override
+    public void start() {
+
+    }
+
+    @Override
+    public void stop() {
+
+        // Let the save in progress finish
+        saveWriter.shutdown();
+        try {
+            saveWriter.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
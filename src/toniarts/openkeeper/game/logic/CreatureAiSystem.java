@@ -16,6 +16,9 @@
  */
 package toniarts.openkeeper.game.logic;
 
+import com.badlogic.gdx.ai.msg.MessageManager;
+import com.badlogic.gdx.ai.msg.Telegram;
+import com.badlogic.gdx.ai.msg.Telegraph;
 import com.jme3.util.SafeArrayList;
 import com.simsilica.es.Entity;
 import com.simsilica.es.EntityData;
@@ -26,35 +29,53 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import toniarts.openkeeper.game.component.CreatureAi;
+import toniarts.openkeeper.game.component.Navigation;
 import toniarts.openkeeper.game.controller.ICreaturesController;
+import toniarts.openkeeper.game.controller.creature.CreatureMessage;
+import toniarts.openkeeper.game.controller.creature.CreatureState;
 import toniarts.openkeeper.game.controller.creature.ICreatureController;
 
 /**
  * Handles creature logic updates, the creature AI updates that is. The AI is
  * implemented elsewhere for clarity. This class just attaches the AI to the
- * entity having this component and updates it periodically.
+ * entity having this component and updates it when needed.<br>
+ * The creatures are not updated every tick. Each creature state tells how
+ * often it needs updating, and between the updates the creature sleeps. A
+ * sleeping creature is woken up by the {@link CreatureMessage} telegrams
+ * concerning it, or by its state being changed from the outside.<br>
+ * The creatures that are due are not updated right away, the updates are
+ * queued to the work scheduler to be executed under the tick's time budget.
+ * Fighting takes precedence.
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
-public class CreatureAiSystem implements IGameLogicUpdatable {
+public class CreatureAiSystem implements IGameLogicUpdatable, Telegraph {
 
     private final EntitySet creatureEntities;
+    private final EntitySet navigatingEntities;
 
-    private final SafeArrayList<ICreatureController> creatureControllers;
-    private final Map<EntityId, ICreatureController> creatureControllersByEntityId;
+    private final SafeArrayList<ScheduledCreature> creatures;
+    private final Map<EntityId, ScheduledCreature> creaturesByEntityId;
     private final ICreaturesController creaturesController;
+    private final WorkScheduler workScheduler;
+    private float tpf;
+    private double gameTime;
 
-    public CreatureAiSystem(EntityData entityData, ICreaturesController creaturesController) {
+    public CreatureAiSystem(EntityData entityData, ICreaturesController creaturesController, WorkScheduler workScheduler) {
         this.creaturesController = creaturesController;
+        this.workScheduler = workScheduler;
 
         creatureEntities = entityData.getEntities(CreatureAi.class);
-        creatureControllers = new SafeArrayList<>(ICreatureController.class);
-        creatureControllersByEntityId = new HashMap<>();
+        navigatingEntities = entityData.getEntities(CreatureAi.class, Navigation.class);
+        creatures = new SafeArrayList<>(ScheduledCreature.class);
+        creaturesByEntityId = new HashMap<>();
         processAddedEntities(creatureEntities);
     }
 
     @Override
     public void processTick(float tpf, double gameTime) {
+        this.tpf = tpf;
+        this.gameTime = gameTime;
 
         // Add new & remove old
         if (creatureEntities.applyChanges()) {
@@ -64,39 +85,171 @@ public class CreatureAiSystem implements IGameLogicUpdatable {
             processDeletedEntities(creatureEntities.getRemovedEntities());
         }
 
-        // Process ticks
-        for (ICreatureController creatureController : creatureControllers.getArray()) {
-            creatureController.processTick(tpf, gameTime);
+        // Arrivals
+        if (navigatingEntities.applyChanges()) {
+            for (Entity entity : navigatingEntities.getRemovedEntities()) {
+                CreatureMessage.PATH_FINISHED.dispatch(entity.getId());
+            }
+        }
+
+        // Queue the creatures that are due, the ones still waiting in the queue keep their place
+        // unless they have started fighting meanwhile
+        for (ScheduledCreature creature : creatures.getArray()) {
+            CreatureState state = creature.creatureController.getStateMachine().getCurrentState();
+            if (creature.queued) {
+                if (isFighting(state)) {
+                    queue(creature, WorkScheduler.Priority.HIGH);
+                }
+                continue;
+            }
+            if (!creature.awake && state == creature.state && gameTime < creature.nextUpdateTime) {
+                continue;
+            }
+
+            queue(creature, isFighting(state) ? WorkScheduler.Priority.HIGH : WorkScheduler.Priority.NORMAL);
         }
     }
 
+    /**
+     * Queues the creature update. A creature already queued is only queued
+     * again with a higher priority, the earlier queued update is then skipped
+     * as the creature has already been updated by the time it comes up
+     *
+     * @param creature the creature to queue
+     * @param priority the priority
+     */
+    private void queue(ScheduledCreature creature, WorkScheduler.Priority priority) {
+        if (creature.queued && creature.priority.compareTo(priority) <= 0) {
+            return;
+        }
+
+        creature.queued = true;
+        creature.priority = priority;
+        workScheduler.submit(priority, creature.update);
+    }
+
+    private static boolean isFighting(CreatureState state) {
+        return state == CreatureState.FIGHT || state == CreatureState.MELEE_ATTACK || state == CreatureState.FLEE;
+    }
+
+    private void update(ScheduledCreature creature) {
+        if (!creature.queued) {
+            return; // Already updated with a higher priority
+        }
+        creature.queued = false;
+        if (creature.removed) {
+            return;
+        }
+
+        float timeSinceUpdate = (creature.lastUpdateTime < 0 ? tpf : (float) (gameTime - creature.lastUpdateTime));
+        creature.creatureController.processTick(timeSinceUpdate, gameTime);
+
+        creature.state = creature.creatureController.getStateMachine().getCurrentState();
+        creature.awake = false;
+        creature.lastUpdateTime = gameTime;
+        creature.nextUpdateTime = gameTime + (creature.state != null ? creature.state.getUpdateInterval() : 0);
+    }
+
+    @Override
+    public boolean handleMessage(Telegram msg) {
+        CreatureMessage message = CreatureMessage.valueOf(msg.message);
+        if (message == null) {
+            return false;
+        }
+
+        if (msg.extraInfo instanceof EntityId) {
+            ScheduledCreature creature = creaturesByEntityId.get((EntityId) msg.extraInfo);
+            if (creature != null) {
+                wakeUp(creature, msg);
+
+                // Don't leave the attacked waiting behind the peaceful ones
+                if (message == CreatureMessage.ATTACKED) {
+                    queue(creature, WorkScheduler.Priority.HIGH);
+                }
+            }
+        } else if (message == CreatureMessage.TASK_AVAILABLE && msg.extraInfo instanceof Short) {
+
+            // Only the idle creatures care for new work
+            short playerId = (Short) msg.extraInfo;
+            for (ScheduledCreature creature : creatures.getArray()) {
+                if (creature.state == CreatureState.IDLE && creature.creatureController.getOwnerId() == playerId) {
+                    wakeUp(creature, msg);
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private static void wakeUp(ScheduledCreature creature, Telegram msg) {
+        creature.awake = true;
+        creature.creatureController.getStateMachine().handleMessage(msg);
+    }
+
     private void processAddedEntities(Set<Entity> entities) {
         for (Entity entity : entities) {
-            ICreatureController creatureController = creaturesController.createController(entity.getId());
-            int index = Collections.binarySearch(creatureControllers, creatureController);
-            creatureControllers.add(~index, creatureController);
-            creatureControllersByEntityId.put(entity.getId(), creatureController);
+            ScheduledCreature creature = new ScheduledCreature(creaturesController.createController(entity.getId()));
+            creature.update = () -> update(creature);
+            int index = Collections.binarySearch(creatures, creature);
+            creatures.add(~index, creature);
+            creaturesByEntityId.put(entity.getId(), creature);
         }
     }
 
     private void processDeletedEntities(Set<Entity> entities) {
         for (Entity entity : entities) {
-            ICreatureController creatureController = creatureControllersByEntityId.remove(entity.getId());
-            int index = Collections.binarySearch(creatureControllers, creatureController);
-            creatureControllers.remove(index);
+            ScheduledCreature creature = creaturesByEntityId.remove(entity.getId());
+            int index = Collections.binarySearch(creatures, creature);
+            creatures.remove(index);
+            creature.removed = true;
         }
     }
 
     @Override
     public void start() {
-
+        for (CreatureMessage message : CreatureMessage.values()) {
+            MessageManager.getInstance().addListener(this, message.getCode());
+        }
     }
 
     @Override
     public void stop() {
+        for (CreatureMessage message : CreatureMessage.values()) {
+            MessageManager.getInstance().removeListener(this, message.getCode());
+        }
         creatureEntities.release();
-        creatureControllers.clear();
-        creatureControllersByEntityId.clear();
+        navigatingEntities.release();
+        for (ScheduledCreature creature : creatures.getArray()) {
+            creature.removed = true;
+        }
+        creatures.clear();
+        creaturesByEntityId.clear();
+    }
+
+    /**
+     * The creature and its update schedule
+     */
+    private static class ScheduledCreature implements Comparable<ScheduledCreature> {
+
+        private final ICreatureController creatureController;
+        private CreatureState state;
+        private Runnable update;
+        private boolean awake = true;
+        private boolean queued = false;
+        private WorkScheduler.Priority priority;
+        private boolean removed = false;
+        private double lastUpdateTime = -1;
+        private double nextUpdateTime = 0;
+
+        public ScheduledCreature(ICreatureController creatureController) {
+            this.creatureController = creatureController;
+        }
+
+        @Override
+        public int compareTo(ScheduledCreature o) {
+            return creatureController.compareTo(o.creatureController);
+        }
+
     }
 
 }
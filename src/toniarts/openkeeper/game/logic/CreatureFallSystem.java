@@ -53,7 +53,7 @@ public class CreatureFallSystem implements IGameLogicUpdatable {
         // Process ticks
         for (Entity entity : fallEntities) {
             Position position = entity.get(Position.class);
-            Position newPosition = new Position(position.rotation, position.position);
+            Position newPosition = new Position(position.rotation, position.position.clone());
             newPosition.position.y = Math.max(newPosition.position.y - tpf * GRAVITY, MapLoader.FLOOR_HEIGHT);
             entity.set(newPosition);
             if (newPosition.position.y == MapLoader.FLOOR_HEIGHT) {
@@ -31,6 +31,7 @@ import toniarts.openkeeper.game.component.CreatureSlapped;
 import toniarts.openkeeper.game.component.Health;
 import toniarts.openkeeper.game.component.Owner;
 import toniarts.openkeeper.game.controller.IPlayerController;
+import toniarts.openkeeper.game.controller.creature.CreatureMessage;
 import toniarts.openkeeper.game.controller.player.PlayerStatsControl;
 import toniarts.openkeeper.tools.convert.map.Creature;
 import toniarts.openkeeper.tools.convert.map.KwdFile;
@@ -131,6 +132,9 @@ public class CreatureSlapSystem implements IGameLogicUpdatable {
         }
 
         // TODO: Apply the force
+
+        // Wake up
+        CreatureMessage.SLAPPED.dispatch(entity.getId());
     }
 
     private void processDeletedEntities(Set<Entity> entities) {
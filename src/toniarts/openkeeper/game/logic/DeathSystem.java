@@ -28,7 +28,6 @@ import java.util.Set;
 import toniarts.openkeeper.game.component.Death;
 import toniarts.openkeeper.game.component.Gold;
 import toniarts.openkeeper.game.component.Owner;
-import toniarts.openkeeper.game.component.Position;
 import toniarts.openkeeper.game.controller.IObjectsController;
 import toniarts.openkeeper.tools.convert.map.Variable;
 import toniarts.openkeeper.utils.WorldUtils;
@@ -98,9 +97,8 @@ public class DeathSystem implements IGameLogicUpdatable {
         // Drop gold
         Gold gold = entityData.getComponent(entityId, Gold.class);
         if (gold != null && gold.gold > 0) {
-            Position position = entityData.getComponent(entityId, Position.class);
             Owner owner = entityData.getComponent(entityId, Owner.class);
-            Point point = WorldUtils.vectorToPoint(position.position);
+            Point point = WorldUtils.vectorToPoint(HaulingSystem.getPosition(entityData, entityId));
             // TODO: some central place, we need to add more than one pile if it exceeds the max
             objectsController.addLooseGold(owner.ownerId, point.x, point.y, gold.gold, gold.maxGold);
             entityData.removeComponent(entityId, Gold.class);
@@ -31,9 +31,32 @@ public class GameLogicManager implements IGameLoopManager {
     private long ticks = 0;
     private double timeElapsed = 0.0;
     protected final IGameLogicUpdatable[] updatables;
+    private final WorkScheduler workScheduler;
+    private final long updateRate;
+    private boolean timeSliced = true;
     private static final Logger LOGGER = Logger.getLogger(GameLogicManager.class.getName());
 
+    /**
+     * The time left for the queued work is at least this, in nanoseconds
+     */
+    private static final long MIN_WORK_BUDGET = 1000000;
+
     public GameLogicManager(IGameLogicUpdatable... updatables) {
+        this(null, 0, updatables);
+    }
+
+    /**
+     * Creates a logic manager that also executes queued work after the
+     * updatables, in the time that is left of the tick
+     *
+     * @param workScheduler the work queue, can be {@code null}
+     * @param updateRate the fixed tick length of the game loop, in
+     * nanoseconds, the queued work is fitted in it
+     * @param updatables the updatables
+     */
+    public GameLogicManager(WorkScheduler workScheduler, long updateRate, IGameLogicUpdatable... updatables) {
+        this.workScheduler = workScheduler;
+        this.updateRate = updateRate;
         this.updatables = updatables;
     }
 
@@ -60,6 +83,17 @@ public class GameLogicManager implements IGameLoopManager {
             }
         }
 
+        // Queued work, leave some slack to the tick
+        // The budget is from the fixed tick length, a late tick doesn't buy more time for the work
+        if (workScheduler != null) {
+            if (timeSliced) {
+                long timeLeft = updateRate - updateRate / 4 - (System.nanoTime() - start);
+                workScheduler.execute(Math.max(MIN_WORK_BUDGET, timeLeft));
+            } else {
+                workScheduler.executeAll();
+            }
+        }
+
         // Logging
         long tickTime = System.nanoTime() - start;
         LOGGER.log(tickTime < delta ? Level.FINEST : Level.SEVERE, "Tick took {0} ms!", TimeUnit.MILLISECONDS.convert(tickTime, TimeUnit.NANOSECONDS));
@@ -74,6 +108,21 @@ public class GameLogicManager implements IGameLoopManager {
         for (IGameLogicUpdatable updatable : updatables) {
             updatable.stop();
         }
+        if (workScheduler != null) {
+            workScheduler.clear();
+        }
+    }
+
+    /**
+     * Sets whether the queued work is time sliced. If not, all the queued
+     * work is executed on every tick. That makes the game progress the same
+     * regardless of the machine speed, for repeatable runs, but the tick
+     * times are no longer kept in check
+     *
+     * @param timeSliced true to execute the queued work under a time budget
+     */
+    public void setTimeSliced(boolean timeSliced) {
+        this.timeSliced = timeSliced;
     }
 
     /**
@@ -85,6 +134,15 @@ public class GameLogicManager implements IGameLoopManager {
         return timeElapsed;
     }
 
+    /**
+     * Set the elapsed game time, in seconds
+     *
+     * @param gameTime the game time
+     */
+    public void setGameTime(double gameTime) {
+        this.timeElapsed = gameTime;
+    }
+
     /**
      * Get the amount of game ticks ticked over
      *
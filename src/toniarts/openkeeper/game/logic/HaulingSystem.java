@@ -16,14 +16,25 @@
  */
 package toniarts.openkeeper.game.logic;
 
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
 import com.simsilica.es.Entity;
 import com.simsilica.es.EntityData;
+import com.simsilica.es.EntityId;
 import com.simsilica.es.EntitySet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import toniarts.openkeeper.game.component.HauledBy;
 import toniarts.openkeeper.game.component.Position;
 
 /**
- * Manages hauled entities. Basically moves them as their hauler moves.
+ * Manages hauled entities. The hauled entities are not moved with their
+ * hauler, they just refer to it. The views and the position lookups resolve
+ * the actual location, and the position is written only when the entity is
+ * dropped. Here we only drop the entities whose hauler has vanished from the
+ * map.
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
@@ -31,6 +42,8 @@ public class HaulingSystem implements IGameLogicUpdatable {
 
     private final EntityData entityData;
     private final EntitySet hauledEntities;
+    private final Map<EntityId, Position> haulerPositions = new HashMap<>();
+    private final List<Entity> lostEntities = new ArrayList<>();
 
     public HaulingSystem(EntityData entityData) {
         this.entityData = entityData;
@@ -42,15 +55,86 @@ public class HaulingSystem implements IGameLogicUpdatable {
     public void processTick(float tpf, double gameTime) {
 
         // Add new & remove old
-        hauledEntities.applyChanges();
+        if (hauledEntities.applyChanges()) {
+            for (Entity entity : hauledEntities.getRemovedEntities()) {
+                haulerPositions.remove(entity.getId());
+            }
+        }
 
-        // Process ticks
+        // Remember where the haulers are, in case they vanish
         for (Entity entity : hauledEntities) {
             HauledBy hauledBy = entity.get(HauledBy.class);
-            Position position = entity.get(Position.class);
             Position haulerPosition = entityData.getComponent(hauledBy.entityId, Position.class);
-            entityData.setComponent(entity.getId(), new Position(position.rotation, haulerPosition.position.clone()));
+            if (haulerPosition != null) {
+                haulerPositions.put(entity.getId(), haulerPosition);
+            } else {
+                lostEntities.add(entity);
+            }
+        }
+
+        // Drop the ones left without a hauler where the hauler was last seen
+        for (Entity entity : lostEntities) {
+            drop(entityData, entity.getId(), entity.get(HauledBy.class), haulerPositions.remove(entity.getId()));
+        }
+        lostEntities.clear();
+    }
+
+    /**
+     * Drops the hauled entity where its hauler currently is
+     *
+     * @param entityData the entity data
+     * @param entityId the hauled entity
+     */
+    public static void drop(EntityData entityData, EntityId entityId) {
+        HauledBy hauledBy = entityData.getComponent(entityId, HauledBy.class);
+        if (hauledBy != null) {
+            drop(entityData, entityId, hauledBy, entityData.getComponent(hauledBy.entityId, Position.class));
+        }
+    }
+
+    private static void drop(EntityData entityData, EntityId entityId, HauledBy hauledBy, Position haulerPosition) {
+        Position position = entityData.getComponent(entityId, Position.class);
+        if (position != null && haulerPosition != null) {
+            entityData.setComponent(entityId, new Position(position.rotation, getHauledPosition(haulerPosition, hauledBy)));
+        }
+        entityData.removeComponent(entityId, HauledBy.class);
+    }
+
+    /**
+     * Get the world position of an entity, the hauled entities are where
+     * their hauler carries them
+     *
+     * @param entityData the entity data
+     * @param entityId the entity
+     * @return the world position, {@code null} if the entity has no position
+     */
+    public static Vector3f getPosition(EntityData entityData, EntityId entityId) {
+        Position position = entityData.getComponent(entityId, Position.class);
+        if (position == null) {
+            return null;
+        }
+        HauledBy hauledBy = entityData.getComponent(entityId, HauledBy.class);
+        if (hauledBy != null) {
+            Position haulerPosition = entityData.getComponent(hauledBy.entityId, Position.class);
+            if (haulerPosition != null) {
+                return getHauledPosition(haulerPosition, hauledBy);
+            }
+        }
+        return position.position;
+    }
+
+    /**
+     * Get the world position of a hauled entity
+     *
+     * @param haulerPosition the position of the hauler
+     * @param hauledBy the hauling component of the hauled entity
+     * @return the world position of the hauled entity
+     */
+    public static Vector3f getHauledPosition(Position haulerPosition, HauledBy hauledBy) {
+        if (hauledBy.offset == null) {
+            return haulerPosition.position.clone();
         }
+        return new Quaternion().fromAngles(0, haulerPosition.rotation, 0).mult(hauledBy.offset).addLocal(haulerPosition.position);
     }
 
     @Override
@@ -61,6 +145,7 @@ public class HaulingSystem implements IGameLogicUpdatable {
     @Override
     public void stop() {
         hauledEntities.release();
+        haulerPositions.clear();
     }
 
 }
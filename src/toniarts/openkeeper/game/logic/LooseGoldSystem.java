@@ -29,11 +29,9 @@ import java.util.Set;
 import toniarts.openkeeper.game.component.Gold;
 import toniarts.openkeeper.game.component.ObjectComponent;
 import toniarts.openkeeper.game.component.Position;
-import toniarts.openkeeper.game.controller.GameWorldController;
 import toniarts.openkeeper.game.controller.IMapController;
 import toniarts.openkeeper.game.controller.IPlayerController;
 import toniarts.openkeeper.game.controller.ObjectsController;
-import toniarts.openkeeper.game.controller.room.AbstractRoomController;
 import toniarts.openkeeper.game.controller.room.IRoomController;
 import toniarts.openkeeper.game.map.MapTile;
 import toniarts.openkeeper.tools.convert.map.Player;
@@ -94,15 +92,12 @@ public class LooseGoldSystem implements IGameLogicUpdatable {
             if (roomController != null && roomController.canStoreGold() && !roomController.isFullCapacity()) {
                 short ownerId = roomController.getRoomInstance().getOwnerId();
                 if (ownerId != Player.GOOD_PLAYER_ID && ownerId != Player.NEUTRAL_PLAYER_ID) {
-                    synchronized (GameWorldController.GOLD_LOCK) {
-                        Gold gold = entityData.getComponent(entityId, Gold.class);
-                        int goldLeft = (int) roomController.getObjectControl(AbstractRoomController.ObjectType.GOLD).addItem(gold.gold, point);
-                        playerControllers.get(ownerId).getGoldControl().addGold(gold.gold - goldLeft);
-                        if (goldLeft == 0) {
-                            entityData.removeEntity(entityId);
-                        } else {
-                            entityData.setComponent(entityId, new Gold(goldLeft, gold.maxGold));
-                        }
+                    Gold gold = entityData.getComponent(entityId, Gold.class);
+                    int goldLeft = playerControllers.get(ownerId).getGoldControl().deposit(roomController, point, gold.gold);
+                    if (goldLeft == 0) {
+                        entityData.removeEntity(entityId);
+                    } else {
+                        entityData.setComponent(entityId, new Gold(goldLeft, gold.maxGold));
                     }
                 }
             }
@@ -16,45 +16,48 @@
  */
 package toniarts.openkeeper.game.logic;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import toniarts.openkeeper.game.controller.IMapController;
 import toniarts.openkeeper.game.controller.IPlayerController;
+import toniarts.openkeeper.game.controller.MapStatistics;
 import toniarts.openkeeper.game.controller.player.PlayerCreatureControl;
 import toniarts.openkeeper.game.controller.player.PlayerManaControl;
-import toniarts.openkeeper.game.map.MapData;
-import toniarts.openkeeper.game.map.MapTile;
 import toniarts.openkeeper.tools.convert.map.Variable;
 
 /**
- * Calculates mana for all players. TODO: maybe listener based, that only reacts
- * to changes? TODO: Posession, Players, Entity based?
+ * Calculates mana for all players. The mana gain from the tiles is kept up to
+ * date by the map statistics. TODO: Posession, Players, Entity based?
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
 public class ManaCalculatorLogic implements IGameLogicUpdatable {
 
     private float tick = 0;
-    private final Map<Short, PlayerManaControl> manaControls = new HashMap<>(4);
-    private final Map<Short, PlayerCreatureControl> creatureControls = new HashMap<>(4);
-    private final Map<Short, Integer> manaGains;
-    private final Map<Short, Integer> manaLosses;
-    private final IMapController mapController;
+    private final short[] playerIds;
+    private final PlayerManaControl[] manaControls;
+    private final PlayerCreatureControl[] creatureControls;
+    private final MapStatistics mapStatistics;
     private final int manaGainBase;
     private final static int MANA_LOSE_PER_IMP = 7;  // I don't find in Creature.java
 
-    public ManaCalculatorLogic(Map<Variable.MiscVariable.MiscType, Variable.MiscVariable> gameSettings, Collection<IPlayerController> playerControllers, IMapController mapController) {
-        this.mapController = mapController;
+    public ManaCalculatorLogic(Map<Variable.MiscVariable.MiscType, Variable.MiscVariable> gameSettings, Collection<IPlayerController> playerControllers, MapStatistics mapStatistics) {
+        this.mapStatistics = mapStatistics;
+        List<IPlayerController> manaPlayers = new ArrayList<>(playerControllers.size());
         for (IPlayerController playerController : playerControllers) {
-            PlayerManaControl manaControl = playerController.getManaControl();
-            if (manaControl != null) {
-                manaControls.put(playerController.getKeeper().getId(), manaControl);
-                creatureControls.put(playerController.getKeeper().getId(), playerController.getCreatureControl());
+            if (playerController.getManaControl() != null) {
+                manaPlayers.add(playerController);
             }
         }
-        manaGains = new HashMap<>(manaControls.size());
-        manaLosses = new HashMap<>(manaControls.size());
+        playerIds = new short[manaPlayers.size()];
+        manaControls = new PlayerManaControl[manaPlayers.size()];
+        creatureControls = new PlayerCreatureControl[manaPlayers.size()];
+        for (int i = 0; i < manaPlayers.size(); i++) {
+            playerIds[i] = manaPlayers.get(i).getKeeper().getId();
+            manaControls[i] = manaPlayers.get(i).getManaControl();
+            creatureControls[i] = manaPlayers.get(i).getCreatureControl();
+        }
         manaGainBase = (int) gameSettings.get(Variable.MiscVariable.MiscType.DUNGEON_HEART_MANA_GENERATION_INCREASE_PER_SECOND).getValue();
     }
 
@@ -62,42 +65,16 @@ public class ManaCalculatorLogic implements IGameLogicUpdatable {
     public void processTick(float tpf, double gameTime) {
         tick += tpf;
         if (tick >= 1) {
-            reset();
-            calculateGainFromMapTiles();
-            calculateLooseFromCreatures();
-            updateManaControls(tpf);
+            updateManaControls();
             tick -= 1;
         }
     }
 
-    private void reset() {
-        for (Short playerId : manaControls.keySet()) {
-            manaGains.put(playerId, manaGainBase);
-            manaLosses.put(playerId, 0);
-        }
-    }
-
-    private void calculateGainFromMapTiles() {
-        MapData mapData = mapController.getMapData();
-        for (int x = 0; x < mapData.getWidth(); x++) {
-            for (int y = 0; y < mapData.getHeight(); y++) {
-                MapTile tile = mapData.getTile(x, y);
-                if (manaGains.containsKey(tile.getOwnerId())) {
-                    manaGains.put(tile.getOwnerId(), manaGains.get(tile.getOwnerId()) + tile.getManaGain());
-                }
-            }
-        }
-    }
-
-    private void calculateLooseFromCreatures() {
-        for (Short playerId : manaControls.keySet()) {
-            manaLosses.put(playerId, creatureControls.get(playerId).getImpCount() * MANA_LOSE_PER_IMP);
-        }
-    }
-
-    private void updateManaControls(float tpf) {
-        for (Map.Entry<Short, PlayerManaControl> entry : manaControls.entrySet()) {
-            entry.getValue().updateMana(manaGains.getOrDefault(entry.getKey(), 0), manaLosses.getOrDefault(entry.getKey(), 0));
+    private void updateManaControls() {
+        for (int i = 0; i < playerIds.length; i++) {
+            int manaGain = manaGainBase + mapStatistics.getManaGain(playerIds[i]);
+            int manaLoss = creatureControls[i].getImpCount() * MANA_LOSE_PER_IMP;
+            manaControls[i].updateMana(manaGain, manaLoss);
         }
     }
 
@@ -18,13 +18,13 @@ package toniarts.openkeeper.game.logic;
 
 import com.badlogic.gdx.ai.steer.SteeringAcceleration;
 import com.badlogic.gdx.math.Vector2;
-import com.jme3.util.SafeArrayList;
+import com.jme3.math.Vector3f;
 import com.simsilica.es.Entity;
 import com.simsilica.es.EntityData;
 import com.simsilica.es.EntityId;
 import com.simsilica.es.EntitySet;
 import java.awt.Point;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -34,30 +34,37 @@ import toniarts.openkeeper.game.component.Navigation;
 import toniarts.openkeeper.game.component.Position;
 import toniarts.openkeeper.game.navigation.steering.EntitySteeringBehavior;
 import toniarts.openkeeper.game.navigation.steering.EntitySteeringFactory;
-import toniarts.openkeeper.game.navigation.steering.ISteerableEntity;
 import toniarts.openkeeper.game.navigation.steering.SteerableEntity;
 import toniarts.openkeeper.game.navigation.steering.SteeringUtils;
 
 /**
- * Handles moving of the entities
+ * Handles moving of the entities.<br>
+ * The steering state is kept in dense arrays, a slot per moving entity. The
+ * slots are looked up by entity only when the entities change, the steering
+ * itself is a linear pass over the slots. The slots are recycled, so are
+ * the steerables and the steering outputs in them.
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
 public class MovementSystem implements IGameLogicUpdatable {
 
-    private final SafeArrayList<EntitySteeringBehavior> steeringBehaviors = new SafeArrayList<>(EntitySteeringBehavior.class);
-    private final Map<EntityId, ISteerableEntity> steerableEntitiesByEntityId = new HashMap<>();
-    private final Map<ISteerableEntity, EntitySteeringBehavior> steeringBehaviorsBySteerableEntity = new HashMap<>();
-    private final Map<EntitySteeringBehavior, ISteerableEntity> steerableEntitiesBySteeringBehavior = new HashMap<>();
-    private final Map<EntitySteeringBehavior, EntityId> entityIdsBySteeringBehavior = new HashMap<>();
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Map<EntityId, Integer> slotsByEntityId = new HashMap<>();
+    private EntityId[] entityIds = new EntityId[INITIAL_CAPACITY];
+    private SteerableEntity[] steerableEntities = new SteerableEntity[INITIAL_CAPACITY];
+    private EntitySteeringBehavior[] steeringBehaviors = new EntitySteeringBehavior[INITIAL_CAPACITY];
+    @SuppressWarnings("unchecked")
+    private SteeringAcceleration<Vector2>[] steeringOutputs = new SteeringAcceleration[INITIAL_CAPACITY];
 
     // For tracking the changes in navigation itself, for now it might be enough to just see that if the target has been changed
-    private final Map<EntityId, Point> targetPointsByEntityId = new HashMap<>();
+    private Point[] targetPoints = new Point[INITIAL_CAPACITY];
+    private int count = 0;
+
+    // The per tick results, written to the entities after the steering pass
+    private boolean[] moved = new boolean[INITIAL_CAPACITY];
+    private boolean[] arrived = new boolean[INITIAL_CAPACITY];
 
-    /**
-     * This is for saving in object creation
-     */
-    private final Map<EntitySteeringBehavior, SteeringAcceleration<Vector2>> steeringOutputsBySteeringBehaviors = new HashMap<>();
     private final EntitySet movableEntities;
     private final EntityData entityData;
 
@@ -84,11 +91,11 @@ public class MovementSystem implements IGameLogicUpdatable {
         }
 
         // Process ticks
-        for (EntitySteeringBehavior steeringBehavior : steeringBehaviors.getArray()) {
+        for (int i = 0; i < count; i++) {
 
             // Calculate steering acceleration
-            SteeringAcceleration<Vector2> steeringOutput = steeringOutputsBySteeringBehaviors.get(steeringBehavior);
-            steeringBehavior.calculateSteering(steeringOutput);
+            SteeringAcceleration<Vector2> steeringOutput = steeringOutputs[i];
+            steeringBehaviors[i].calculateSteering(steeringOutput);
 
             /*
              * Here you might want to add a motor control layer filtering steering accelerations.
@@ -98,7 +105,19 @@ public class MovementSystem implements IGameLogicUpdatable {
              * accelerate; and it only moves in the direction it is facing (ignoring power slides).
              */
             // Apply steering acceleration
-            applySteering(entityIdsBySteeringBehavior.get(steeringBehavior), steerableEntitiesBySteeringBehavior.get(steeringBehavior), steeringOutput, tpf);
+            applySteering(i, steeringOutput, tpf);
+        }
+
+        // Write the results
+        for (int i = 0; i < count; i++) {
+            if (moved[i]) {
+                updatePosition(entityIds[i], steerableEntities[i]);
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            if (arrived[i]) {
+                entityData.removeComponent(entityIds[i], Navigation.class);
+            }
         }
     }
 
@@ -109,10 +128,8 @@ public class MovementSystem implements IGameLogicUpdatable {
     }
 
     private void addEntity(Entity entity) {
-        Mobile mobile = entity.get(Mobile.class);
         Navigation navigation = entity.get(Navigation.class);
-        Position position = entity.get(Position.class);
-        ISteerableEntity steerableEntity = new SteerableEntity(entity.getId(), mobile.maxSpeed, 0.25f, position.position.x, position.position.z, position.rotation);
+        SteerableEntity steerableEntity = resetSteerable(null, entity);
         EntitySteeringBehavior steeringBehavior = EntitySteeringFactory.navigateToPoint(navigation.navigationPath, navigation.faceTarget, steerableEntity, navigation.target);
         if (steeringBehavior == null) {
 
@@ -120,59 +137,131 @@ public class MovementSystem implements IGameLogicUpdatable {
             entityData.removeComponent(entity.getId(), Navigation.class);
             return;
         }
-        steerableEntitiesByEntityId.put(entity.getId(), steerableEntity);
-        steeringBehaviorsBySteerableEntity.put(steerableEntity, steeringBehavior);
-        steerableEntitiesBySteeringBehavior.put(steeringBehavior, steerableEntity);
-        int index = Collections.binarySearch(steeringBehaviors, steeringBehavior);
-        steeringBehaviors.add(~index, steeringBehavior);
-        steeringOutputsBySteeringBehaviors.put(steeringBehavior, new SteeringAcceleration<>(new Vector2()));
-        entityIdsBySteeringBehavior.put(steeringBehavior, entity.getId());
-        targetPointsByEntityId.put(entity.getId(), navigation.target);
+
+        ensureCapacity(count + 1);
+        int slot = count++;
+        entityIds[slot] = entity.getId();
+        steerableEntities[slot] = steerableEntity;
+        steeringBehaviors[slot] = steeringBehavior;
+        if (steeringOutputs[slot] == null) {
+            steeringOutputs[slot] = new SteeringAcceleration<>(new Vector2());
+        }
+        targetPoints[slot] = navigation.target;
+        moved[slot] = false;
+        arrived[slot] = false;
+        slotsByEntityId.put(entity.getId(), slot);
+    }
+
+    private SteerableEntity resetSteerable(SteerableEntity steerableEntity, Entity entity) {
+        Mobile mobile = entity.get(Mobile.class);
+        Position position = entity.get(Position.class);
+        if (steerableEntity == null) {
+            return new SteerableEntity(entity.getId(), mobile.maxSpeed, 0.25f, position.position.x, position.position.z, position.rotation);
+        }
+
+        steerableEntity.reset(mobile.maxSpeed, position.position.x, position.position.z, position.rotation);
+        return steerableEntity;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= entityIds.length) {
+            return;
+        }
+
+        int newCapacity = Math.max(capacity, entityIds.length * 2);
+        entityIds = Arrays.copyOf(entityIds, newCapacity);
+        steerableEntities = Arrays.copyOf(steerableEntities, newCapacity);
+        steeringBehaviors = Arrays.copyOf(steeringBehaviors, newCapacity);
+        steeringOutputs = Arrays.copyOf(steeringOutputs, newCapacity);
+        targetPoints = Arrays.copyOf(targetPoints, newCapacity);
+        moved = Arrays.copyOf(moved, newCapacity);
+        arrived = Arrays.copyOf(arrived, newCapacity);
     }
 
     private void processDeletedEntities(Set<Entity> removedEntities) {
         for (Entity entity : removedEntities) {
-            deleteEntity(entity);
+            deleteEntity(entity.getId());
         }
     }
 
-    private void deleteEntity(Entity entity) {
-        ISteerableEntity steerableEntity = steerableEntitiesByEntityId.remove(entity.getId());
-        EntitySteeringBehavior steeringBehavior = steeringBehaviorsBySteerableEntity.remove(steerableEntity);
-        steerableEntitiesBySteeringBehavior.remove(steeringBehavior);
-        int index = Collections.binarySearch(steeringBehaviors, steeringBehavior);
-        steeringBehaviors.remove(index);
-        steeringOutputsBySteeringBehaviors.remove(steeringBehavior);
-        entityIdsBySteeringBehavior.remove(steeringBehavior);
-        targetPointsByEntityId.remove(entity.getId());
+    /**
+     * Removes the entity's slot by moving the last slot in its place. The
+     * steering output of the removed slot is kept for reuse
+     *
+     * @param entityId the entity
+     */
+    private void deleteEntity(EntityId entityId) {
+        Integer slot = slotsByEntityId.remove(entityId);
+        if (slot == null) {
+            return;
+        }
+
+        int last = --count;
+        SteeringAcceleration<Vector2> steeringOutput = steeringOutputs[slot];
+        if (slot != last) {
+            entityIds[slot] = entityIds[last];
+            steerableEntities[slot] = steerableEntities[last];
+            steeringBehaviors[slot] = steeringBehaviors[last];
+            steeringOutputs[slot] = steeringOutputs[last];
+            targetPoints[slot] = targetPoints[last];
+            slotsByEntityId.put(entityIds[slot], slot);
+        }
+        entityIds[last] = null;
+        steerableEntities[last] = null;
+        steeringBehaviors[last] = null;
+        steeringOutputs[last] = steeringOutput;
+        targetPoints[last] = null;
     }
 
     private void processChangedEntities(Set<Entity> changedEntities) {
         for (Entity entity : changedEntities) {
+            Integer slot = slotsByEntityId.get(entity.getId());
+            if (slot == null) {
+                continue;
+            }
 
             // Dirty trick to try to see if the navigation has changed
             Navigation navigation = entity.get(Navigation.class);
-            if (!navigation.target.equals(targetPointsByEntityId.get(entity.getId()))) {
-                deleteEntity(entity);
-                addEntity(entity);
+            if (!navigation.target.equals(targetPoints[slot])) {
+                renavigate(slot, entity);
                 continue;
             }
 
             // We are only prepared for the changes in Mobile
             // Not the position, the position is managed by us only
             Mobile mobile = entity.get(Mobile.class);
+            steerableEntities[slot].setMaxLinearSpeed(mobile.maxSpeed);
+        }
+    }
 
-            ISteerableEntity steerableEntity = steerableEntitiesByEntityId.get(entity.getId());
-            steerableEntity.setMaxLinearSpeed(mobile.maxSpeed);
+    /**
+     * The navigation target has changed, start steering anew from the
+     * current position. The steerable is reused
+     *
+     * @param slot the entity slot
+     * @param entity the entity
+     */
+    private void renavigate(int slot, Entity entity) {
+        Navigation navigation = entity.get(Navigation.class);
+        SteerableEntity steerableEntity = resetSteerable(steerableEntities[slot], entity);
+        EntitySteeringBehavior steeringBehavior = EntitySteeringFactory.navigateToPoint(navigation.navigationPath, navigation.faceTarget, steerableEntity, navigation.target);
+        if (steeringBehavior == null) {
+
+            // The fug, can't navigate, are we there already??
+            deleteEntity(entity.getId());
+            entityData.removeComponent(entity.getId(), Navigation.class);
+            return;
         }
+
+        steeringBehaviors[slot] = steeringBehavior;
+        targetPoints[slot] = navigation.target;
     }
 
-    private void applySteering(EntityId entityId, ISteerableEntity steerableEntity, SteeringAcceleration<Vector2> steering, float tpf) {
+    private void applySteering(int slot, SteeringAcceleration<Vector2> steering, float tpf) {
+        SteerableEntity steerableEntity = steerableEntities[slot];
 
         // We are done
-        if (steering.isZero()) {
-            entityData.removeComponent(entityId, Navigation.class);
-        }
+        arrived[slot] = steering.isZero();
 
         // Update position and linear velocity. Velocity is trimmed to maximum speed
         if (steering.linear.isZero() && steering.angular != 0) {
@@ -202,11 +291,19 @@ public class MovementSystem implements IGameLogicUpdatable {
             }
         }
 
-        // Also update the real components
+        // Only bother the entity if something has changed
+        moved[slot] = !steerableEntity.getLinearVelocity().isZero() || steerableEntity.getAngularVelocity() != 0;
+    }
+
+    private void updatePosition(EntityId entityId, SteerableEntity steerableEntity) {
+
+        // The components are immutable, others may still look at the old one
         Position oldPosition = entityData.getComponent(entityId, Position.class);
-        oldPosition.position.x = steerableEntity.getPosition().x;
-        oldPosition.position.z = steerableEntity.getPosition().y;
-        entityData.setComponent(entityId, new Position(-steerableEntity.getOrientation(), oldPosition.position));
+        if (oldPosition == null) {
+            return;
+        }
+        Vector3f position = new Vector3f(steerableEntity.getPosition().x, oldPosition.position.y, steerableEntity.getPosition().y);
+        entityData.setComponent(entityId, new Position(-steerableEntity.getOrientation(), position));
     }
 
     @Override
@@ -217,13 +314,12 @@ public class MovementSystem implements IGameLogicUpdatable {
     @Override
     public void stop() {
         movableEntities.release();
-        steeringBehaviors.clear();
-        steerableEntitiesByEntityId.clear();
-        steerableEntitiesBySteeringBehavior.clear();
-        steeringBehaviorsBySteerableEntity.clear();
-        steeringOutputsBySteeringBehaviors.clear();
-        entityIdsBySteeringBehavior.clear();
-        targetPointsByEntityId.clear();
+        slotsByEntityId.clear();
+        Arrays.fill(entityIds, null);
+        Arrays.fill(steerableEntities, null);
+        Arrays.fill(steeringBehaviors, null);
+        Arrays.fill(targetPoints, null);
+        count = 0;
     }
 
 }
@@ -29,6 +29,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import toniarts.openkeeper.game.component.DoorComponent;
+import toniarts.openkeeper.game.component.HauledBy;
 import toniarts.openkeeper.game.component.Owner;
 import toniarts.openkeeper.game.component.Position;
 import toniarts.openkeeper.game.component.Senses;
@@ -52,6 +53,7 @@ public class PositionSystem implements IGameLogicUpdatable, IEntityPositionLooku
     private final EntityData entityData;
     private final IMapController mapController;
     private final EntitySet positionedEntities;
+    private final EntitySet hauledEntities;
     private final Map<MapTile, Set<EntityId>> entitiesByMapTile = new HashMap<>();
     private final Map<MapTile, Set<EntityId>> obstaclesByMapTile = new HashMap<>();
     private final Map<EntityId, MapTile> mapTilesByEntities = new HashMap<>();
@@ -67,6 +69,7 @@ public class PositionSystem implements IGameLogicUpdatable, IEntityPositionLooku
 
         positionedEntities = entityData.getEntities(Position.class);
         processAddedEntities(positionedEntities);
+        hauledEntities = entityData.getEntities(HauledBy.class, Position.class);
     }
 
     @Override
@@ -83,6 +86,10 @@ public class PositionSystem implements IGameLogicUpdatable, IEntityPositionLooku
 
             processChangedEntities(positionedEntities.getChangedEntities());
         }
+
+        // Hauled entities don't update their positions, they are where their haulers are
+        hauledEntities.applyChanges();
+        processHauledEntities(hauledEntities);
     }
 
     private void processChangedEntities(Set<Entity> entities) {
@@ -90,40 +97,51 @@ public class PositionSystem implements IGameLogicUpdatable, IEntityPositionLooku
         // Update
         for (Entity entity : entities) {
             Point p = WorldUtils.vectorToPoint(entity.get(Position.class).position);
-            MapTile currentMapTile = mapController.getMapData().getTile(p);
+            moveEntity(entity.getId(), mapController.getMapData().getTile(p));
+        }
+    }
 
-            MapTile previousMapTile = mapTilesByEntities.get(entity.getId());
-            if (!currentMapTile.equals(previousMapTile)) {
+    private void processHauledEntities(Set<Entity> entities) {
+        for (Entity entity : entities) {
+            MapTile haulerMapTile = mapTilesByEntities.get(entity.get(HauledBy.class).entityId);
+            if (haulerMapTile != null) {
+                moveEntity(entity.getId(), haulerMapTile);
+            }
+        }
+    }
 
-                // Moved
-                mapTilesByEntities.put(entity.getId(), currentMapTile);
-                entitiesByMapTile.get(previousMapTile).remove(entity.getId());
+    private void moveEntity(EntityId entityId, MapTile currentMapTile) {
+        MapTile previousMapTile = mapTilesByEntities.get(entityId);
+        if (!currentMapTile.equals(previousMapTile)) {
 
-                // Obstacles
-                if (obstaclesByMapTile.containsKey(previousMapTile)) {
-                    obstaclesByMapTile.get(previousMapTile).remove(entity.getId());
-                }
+            // Moved
+            mapTilesByEntities.put(entityId, currentMapTile);
+            entitiesByMapTile.get(previousMapTile).remove(entityId);
 
-                addEntityToTile(currentMapTile, entity);
+            // Obstacles
+            if (obstaclesByMapTile.containsKey(previousMapTile)) {
+                obstaclesByMapTile.get(previousMapTile).remove(entityId);
             }
+
+            addEntityToTile(currentMapTile, entityId);
         }
     }
 
-    private void addEntityToTile(MapTile mapTile, Entity entity) {
+    private void addEntityToTile(MapTile mapTile, EntityId entityId) {
         Set<EntityId> entitiesInTile = entitiesByMapTile.get(mapTile);
         if (entitiesInTile == null) {
             entitiesInTile = new HashSet<>();
         }
-        entitiesInTile.add(entity.getId());
+        entitiesInTile.add(entityId);
         entitiesByMapTile.put(mapTile, entitiesInTile);
 
         // Obstacles
-        if (isObstacle(entityData, entity.getId())) {
+        if (isObstacle(entityData, entityId)) {
             Set<EntityId> obstaclesInTile = entitiesByMapTile.get(mapTile);
             if (obstaclesInTile == null) {
                 obstaclesInTile = new HashSet<>();
             }
-            obstaclesInTile.add(entity.getId());
+            obstaclesInTile.add(entityId);
             obstaclesByMapTile.put(mapTile, obstaclesInTile);
         }
     }
@@ -148,7 +166,7 @@ public class PositionSystem implements IGameLogicUpdatable, IEntityPositionLooku
             MapTile mapTile = mapController.getMapData().getTile(p);
             mapTilesByEntities.put(entity.getId(), mapTile);
 
-            addEntityToTile(mapTile, entity);
+            addEntityToTile(mapTile, entity.getId());
         }
     }
 
@@ -219,6 +237,7 @@ public class PositionSystem implements IGameLogicUpdatable, IEntityPositionLooku
     @Override
     public void stop() {
         positionedEntities.release();
+        hauledEntities.release();
         entitiesByMapTile.clear();
         mapTilesByEntities.clear();
     }
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2014-2018 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.logic;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Queues up the expensive game logic work, like the creature AI that may
+ * search for paths and tasks, and executes it under a time budget. The work
+ * that doesn't fit in the budget is carried over to the next tick, so that
+ * the tick times stay predictable no matter how much work piles up at once.
+ * <br>
+ * The work is executed in the order it was submitted, the high priority work
+ * first. Submitting the same piece of work again only after it has been
+ * executed keeps the work fair between the submitters. Not thread safe, the
+ * work is to be submitted from the game logic thread.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public class WorkScheduler {
+
+    public enum Priority {
+
+        /**
+         * Work that can't wait, like fighting
+         */
+        HIGH,
+        NORMAL
+    }
+
+    private final Queue<Runnable>[] queues;
+    private static final Logger LOGGER = Logger.getLogger(WorkScheduler.class.getName());
+
+    @SuppressWarnings("unchecked")
+    public WorkScheduler() {
+        queues = new Queue[Priority.values().length];
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * Queue work to be executed
+     *
+     * @param priority the priority of the work
+     * @param work the work
+     */
+    public void submit(Priority priority, Runnable work) {
+        queues[priority.ordinal()].add(work);
+    }
+
+    /**
+     * Executes the queued work until the budget runs out or the work is done.
+     * At least one piece of work is always executed so that the work
+     * progresses even on a busy tick
+     *
+     * @param budget the time budget, in nanoseconds
+     * @return the number of work executed
+     */
+    public int execute(long budget) {
+        long deadline = System.nanoTime() + budget;
+        int executed = 0;
+        for (Queue<Runnable> queue : queues) {
+            Runnable work;
+            while ((executed == 0 || System.nanoTime() < deadline) && (work = queue.poll()) != null) {
+                try {
+                    work.run();
+                } catch (Exception e) {
+                    LOGGER.log(Level.SEVERE, "Error in game logic work " + work + "!", e);
+                }
+                executed++;
+            }
+        }
+        return executed;
+    }
+
+    /**
+     * Executes all the work queued so far, regardless of the time it takes.
+     * Work queued during the execution is left for the next round
+     *
+     * @return the number of work executed
+     */
+    public int executeAll() {
+        int executed = 0;
+        for (Queue<Runnable> queue : queues) {
+            Runnable work;
+            int count = queue.size();
+            while (count-- > 0 && (work = queue.poll()) != null) {
+                try {
+                    work.run();
+                } catch (Exception e) {
+                    LOGGER.log(Level.SEVERE, "Error in game logic work " + work + "!", e);
+                }
+                executed++;
+            }
+        }
+        return executed;
+    }
+
+    /**
+     * Get the number of work waiting to be executed
+     *
+     * @return the queued work count
+     */
+    public int getQueuedCount() {
+        int count = 0;
+        for (Queue<Runnable> queue : queues) {
+            count += queue.size();
+        }
+        return count;
+    }
+
+    /**
+     * Drops all the queued work
+     */
+    public void clear() {
+        for (Queue<Runnable> queue : queues) {
+            queue.clear();
+        }
+    }
+
+}
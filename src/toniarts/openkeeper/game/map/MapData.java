@@ -23,12 +23,15 @@ import com.jme3.export.OutputCapsule;
 import com.jme3.export.Savable;
 import java.awt.Point;
 import java.io.IOException;
+import java.util.BitSet;
 import java.util.List;
 import toniarts.openkeeper.tools.convert.map.KwdFile;
 import toniarts.openkeeper.tools.convert.map.Tile;
 
 /**
- * This is a holder for the map data
+ * This is a holder for the map data. The tiles can be shared with snapshots
+ * of the map data, such tiles are copied on the first write. So tiles that
+ * are to be modified must be fetched with {@link #getTileForUpdate(int, int)}
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
@@ -37,6 +40,7 @@ public class MapData implements Savable {
     private int width;
     private int height;
     private MapTile[][] tiles;
+    private BitSet shared;
 
     public MapData() {
         // For serialization
@@ -54,6 +58,7 @@ public class MapData implements Savable {
                 tiles[x][y] = new MapTile(tile, kwdFile.getTerrain(tile.getTerrainId()), x, y, y * width + x);
             }
         }
+        shared = new BitSet(width * height);
     }
 
     public int getWidth() {
@@ -64,6 +69,26 @@ public class MapData implements Savable {
         return height;
     }
 
+    /**
+     * Creates a snapshot of the map data. Only the tile grid is copied, the
+     * tiles are shared until either of us writes to them
+     *
+     * @return a snapshot of the map data
+     */
+    public synchronized MapData createSnapshot() {
+        MapData snapshot = new MapData();
+        snapshot.width = width;
+        snapshot.height = height;
+        snapshot.tiles = new MapTile[width][];
+        for (int x = 0; x < width; x++) {
+            snapshot.tiles[x] = tiles[x].clone();
+        }
+        shared.set(0, width * height);
+        snapshot.shared = new BitSet(width * height);
+        snapshot.shared.set(0, width * height);
+        return snapshot;
+    }
+
     /**
      * Get the tile data at x & y
      *
@@ -92,9 +117,63 @@ public class MapData implements Savable {
         return null;
     }
 
-    public void setTiles(List<MapTile> mapTiles) {
+    /**
+     * Get the tile data at x & y for modifying it. If the tile is shared, it
+     * is copied first
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the tile data
+     */
+    public synchronized MapTile getTileForUpdate(int x, int y) {
+        MapTile tile = getTile(x, y);
+        if (tile != null && shared.get(y * width + x)) {
+            tile = new MapTile(tile);
+            tiles[x][y] = tile;
+            shared.clear(y * width + x);
+        }
+        return tile;
+    }
+
+    /**
+     * Get the tile data at point for modifying it. If the tile is shared, it
+     * is copied first
+     *
+     * @param p Point
+     * @return the tile data
+     */
+    public MapTile getTileForUpdate(Point p) {
+        if (p != null) {
+            return getTileForUpdate(p.x, p.y);
+        }
+
+        return null;
+    }
+
+    /**
+     * Marks the tiles as shared, they are not modified anymore but copied on
+     * the first write
+     *
+     * @param mapTiles the tiles that are handed out
+     */
+    public synchronized void share(List<MapTile> mapTiles) {
+        for (MapTile mapTile : mapTiles) {
+            if (tiles[mapTile.getX()][mapTile.getY()] == mapTile) {
+                shared.set(mapTile.getY() * width + mapTile.getX());
+            }
+        }
+    }
+
+    /**
+     * Replaces the tiles. The tiles may still be referenced by others, so
+     * they are copied on the first write
+     *
+     * @param mapTiles the new tiles
+     */
+    public synchronized void setTiles(List<MapTile> mapTiles) {
         for (MapTile mapTile : mapTiles) {
             tiles[mapTile.getX()][mapTile.getY()] = mapTile;
+            shared.set(mapTile.getY() * width + mapTile.getX());
         }
     }
 
@@ -112,12 +191,13 @@ public class MapData implements Savable {
         for (int row = 0; row < tiles.length; row++) {
             for (int column = 0; column < tiles[0].length; column++) {
                 tiles[row][column] = (MapTile) savables[row][column];
-                tiles[row][column].setIndex(row * tiles.length + column);
+                tiles[row][column].setIndex(column * tiles.length + row);
                 tiles[row][column].setPoint(new Point(row, column));
             }
         }
         width = tiles.length;
         height = tiles[0].length;
+        shared = new BitSet(width * height);
     }
 
 }
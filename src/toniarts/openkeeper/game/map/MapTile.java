@@ -40,6 +40,7 @@ public class MapTile implements Savable {
 
     private Map<Short, Boolean> selection = new HashMap<>();
     private Map<Short, Boolean> flashing = new HashMap<>();
+    private Map<Short, Boolean> revealing = new HashMap<>();
     private int randomTextureIndex;
     private int health;
     private int maxHealth;
@@ -78,6 +79,32 @@ public class MapTile implements Savable {
         setAttributesFromTerrain(this, terrain);
     }
 
+    /**
+     * Creates a detached copy of the tile, a snapshot of its state
+     *
+     * @param tile the tile to copy
+     */
+    public MapTile(MapTile tile) {
+        this.selection = copyShortBooleanMap(tile.selection);
+        this.flashing = copyShortBooleanMap(tile.flashing);
+        this.revealing = copyShortBooleanMap(tile.revealing);
+        this.randomTextureIndex = tile.randomTextureIndex;
+        this.health = tile.health;
+        this.maxHealth = tile.maxHealth;
+        this.gold = tile.gold;
+        this.manaGain = tile.manaGain;
+        this.destroyed = tile.destroyed;
+        this.ownerId = tile.ownerId;
+        this.terrainId = tile.terrainId;
+        this.bridgeTerrainType = tile.bridgeTerrainType;
+        this.p = new Point(tile.p);
+        this.index = tile.index;
+    }
+
+    private static Map<Short, Boolean> copyShortBooleanMap(Map<Short, Boolean> map) {
+        return (map != null ? new HashMap<>(map) : null);
+    }
+
     public static void setAttributesFromTerrain(MapTile tile, Terrain terrain) {
         tile.health = terrain.getStartingHealth();
         tile.maxHealth = terrain.getMaxHealth();
@@ -119,6 +146,27 @@ public class MapTile implements Savable {
         flashing.put(playerId, flashed);
     }
 
+    /**
+     * Is the tile permanently revealed through the fog of war, i.e. by a
+     * trigger
+     *
+     * @param playerId the player
+     * @return true if revealed
+     */
+    public boolean isRevealed(short playerId) {
+        if (revealing != null) {
+            return revealing.getOrDefault(playerId, false);
+        }
+        return false;
+    }
+
+    public void setRevealed(boolean revealed, short playerId) {
+        if (revealing == null) {
+            revealing = new HashMap<>(4);
+        }
+        revealing.put(playerId, revealed);
+    }
+
 //    @Override
 //    protected void setPlayerId(short playerId) {
 //        super.setPlayerId(playerId);
@@ -332,10 +380,12 @@ public class MapTile implements Savable {
 //        if (flashing != null) {
         writeShortBooleanMap(out, flashing, "flashing");
 //        }
+        writeShortBooleanMap(out, revealing, "revealing");
         out.write(randomTextureIndex, "randomTextureIndex", 0);
         out.write(health, "health", 0);
         out.write(maxHealth, "maxHealth", 0);
         out.write(gold, "gold", 0);
+        out.write(manaGain, "manaGain", 0);
         out.write(ownerId, "ownerId", Integer.valueOf(0).shortValue());
         out.write(terrainId, "terrainId", Integer.valueOf(0).shortValue());
         out.write(bridgeTerrainType, "bridgeTerrainType", null);
@@ -343,13 +393,16 @@ public class MapTile implements Savable {
     }
 
     private void writeShortBooleanMap(OutputCapsule out, Map<Short, Boolean> map, String name) throws IOException {
-        short[] keys = null;
-        boolean[] values = null;
+        if (map == null) {
+            return;
+        }
 
         Short[] shortArray = map.keySet().toArray(new Short[0]);
+        short[] keys = new short[shortArray.length];
         IntStream.range(0, shortArray.length).forEach(i -> keys[i] = shortArray[i]);
 
         Boolean[] booleanArray = map.values().toArray(new Boolean[0]);
+        boolean[] values = new boolean[booleanArray.length];
         IntStream.range(0, booleanArray.length).forEach(i -> values[i] = booleanArray[i]);
 
         out.write(keys, name + "Keys", null);
@@ -361,10 +414,12 @@ public class MapTile implements Savable {
         InputCapsule in = im.getCapsule(this);
         selection = readShortBooleanMap(in, "selection");
         flashing = readShortBooleanMap(in, "flashing");
+        revealing = readShortBooleanMap(in, "revealing");
         randomTextureIndex = in.readInt("randomTextureIndex", 0);
         health = in.readInt("health", 0);
         maxHealth = in.readInt("maxHealth", 0);
         gold = in.readInt("gold", 0);
+        manaGain = in.readInt("manaGain", 0);
         ownerId = in.readShort("ownerId", Integer.valueOf(0).shortValue());
         terrainId = in.readShort("terrainId", Integer.valueOf(0).shortValue());
         bridgeTerrainType = in.readEnum("bridgeTerrainType", BridgeTerrainType.class, null);
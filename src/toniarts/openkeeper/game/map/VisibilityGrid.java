@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2014-2018 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.map;
+
+import java.awt.Point;
+import java.util.BitSet;
+
+/**
+ * Visibility of the map tiles for a single player, the fog of war. Each tile
+ * keeps a count of the viewers that see it, so the viewers can be added and
+ * removed incrementally without recalculating the whole grid. Tiles can also
+ * be revealed permanently.<br>
+ * The tiles whose visibility has changed are collected until polled.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public class VisibilityGrid {
+
+    private final int width;
+    private final int height;
+    private final short[] viewers;
+    private final BitSet revealed;
+    private final BitSet changes;
+
+    public VisibilityGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.viewers = new short[width * height];
+        this.revealed = new BitSet(width * height);
+        this.changes = new BitSet(width * height);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Get the index of a tile in the grid
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the index, rows of tiles
+     */
+    public int getIndex(int x, int y) {
+        return y * width + x;
+    }
+
+    /**
+     * Adds a viewer, the tiles within the radius are seen
+     *
+     * @param center the tile the viewer is at
+     * @param radius the viewing radius, in tiles
+     */
+    public void addViewer(Point center, int radius) {
+        stamp(center, radius, 1);
+    }
+
+    /**
+     * Removes a viewer, must match a previously added viewer
+     *
+     * @param center the tile the viewer was at
+     * @param radius the viewing radius, in tiles
+     */
+    public void removeViewer(Point center, int radius) {
+        stamp(center, radius, -1);
+    }
+
+    private void stamp(Point center, int radius, int amount) {
+        int radiusSquared = radius * radius + radius; // Rounder circles than the plain square
+        int minY = Math.max(0, center.y - radius);
+        int maxY = Math.min(height - 1, center.y + radius);
+        int minX = Math.max(0, center.x - radius);
+        int maxX = Math.min(width - 1, center.x + radius);
+        for (int y = minY; y <= maxY; y++) {
+            int dy = y - center.y;
+            for (int x = minX; x <= maxX; x++) {
+                int dx = x - center.x;
+                if (dx * dx + dy * dy > radiusSquared) {
+                    continue;
+                }
+
+                int index = getIndex(x, y);
+                boolean visible = isVisible(index);
+                viewers[index] += amount;
+                if (visible != isVisible(index)) {
+                    changes.set(index);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reveals or conceals a tile. A revealed tile is visible regardless of
+     * the viewers
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @param reveal reveal or conceal
+     */
+    public void setRevealed(int x, int y, boolean reveal) {
+        int index = getIndex(x, y);
+        boolean visible = isVisible(index);
+        revealed.set(index, reveal);
+        if (visible != isVisible(index)) {
+            changes.set(index);
+        }
+    }
+
+    public boolean isVisible(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return false;
+        }
+        return isVisible(getIndex(x, y));
+    }
+
+    public boolean isVisible(Point p) {
+        return isVisible(p.x, p.y);
+    }
+
+    private boolean isVisible(int index) {
+        return viewers[index] > 0 || revealed.get(index);
+    }
+
+    /**
+     * Get and clear the changed tiles
+     *
+     * @return the indices of the tiles whose visibility has changed since
+     * the last poll, may be empty
+     * @see #getIndex(int, int)
+     */
+    public BitSet pollChanges() {
+        BitSet result = (BitSet) changes.clone();
+        changes.clear();
+        return result;
+    }
+
+}
@@ -55,6 +55,23 @@ public class SteerableEntity implements ISteerableEntity {
         this.orientation = orientation;
     }
 
+    /**
+     * Resets the steerable to a new starting state, standing still
+     *
+     * @param maxSpeed the maximum linear speed
+     * @param xPos x position
+     * @param yPos y position
+     * @param orientation the orientation
+     */
+    public void reset(float maxSpeed, float xPos, float yPos, float orientation) {
+        this.maxLinearSpeed = maxSpeed;
+        this.maxLinearAcceleration = maxLinearSpeed * 4;
+        this.position.set(xPos, yPos);
+        this.orientation = orientation;
+        this.linearVelocity.setZero();
+        this.angularVelocity = 0;
+    }
+
     @Override
     public Vector2 getPosition() {
         return position;
@@ -52,6 +52,7 @@ import toniarts.openkeeper.view.PlayerCameraState;
 import toniarts.openkeeper.view.PlayerEntityViewState;
 import toniarts.openkeeper.view.PlayerMapViewState;
 import toniarts.openkeeper.view.SystemMessageState;
+import toniarts.openkeeper.view.map.FogOfWarViewState;
 import toniarts.openkeeper.view.text.TextParser;
 import toniarts.openkeeper.view.text.TextParserService;
 
@@ -83,6 +84,7 @@ public class GameClientState extends AbstractPauseAwareState {
 
     private PlayerMapViewState playerMapViewState;
     private PlayerEntityViewState playerModelViewState;
+    private FogOfWarViewState fogOfWarState;
     private SoundState soundState;
     private TextParser textParser;
 
@@ -148,6 +150,7 @@ public class GameClientState extends AbstractPauseAwareState {
         stateManager.detach(stateManager.getState(SoundState.class));
         stateManager.detach(stateManager.getState(PlayerEntityViewState.class));
         stateManager.detach(stateManager.getState(PlayerMapViewState.class));
+        stateManager.detach(stateManager.getState(FogOfWarViewState.class));
     }
 
     /**
@@ -326,6 +329,7 @@ public class GameClientState extends AbstractPauseAwareState {
                     }
                 }
             };
+            fogOfWarState = new FogOfWarViewState(kwdFile, mapClientService, gameClientService.getEntityData(), playerId);
             soundState = new SoundState(kwdFile);
 
             app.enqueue(() -> {
@@ -364,6 +368,9 @@ public class GameClientState extends AbstractPauseAwareState {
                 playerState.setEnabled(true);
                 stateManager.attach(playerMapViewState);
                 stateManager.attach(playerModelViewState);
+                fogOfWarState.applyTo(playerMapViewState.getWorld());
+                fogOfWarState.applyTo(playerModelViewState.getRoot());
+                stateManager.attach(fogOfWarState);
                 stateManager.attach(soundState);
 
                 // Release the lock and enter to the game phase
@@ -378,6 +385,7 @@ public class GameClientState extends AbstractPauseAwareState {
         public void onTilesChange(List<MapTile> updatedTiles) {
             mapClientService.setTiles(updatedTiles);
             playerMapViewState.onTilesChange(updatedTiles);
+            fogOfWarState.onTilesChange(updatedTiles);
         }
 
         @Override
@@ -425,11 +433,13 @@ public class GameClientState extends AbstractPauseAwareState {
         @Override
         public void onBuild(short keeperId, List<MapTile> tiles) {
             playerMapViewState.onBuild(keeperId, tiles);
+            fogOfWarState.onTilesChange(tiles);
         }
 
         @Override
         public void onSold(short keeperId, List<MapTile> tiles) {
             playerMapViewState.onSold(keeperId, tiles);
+            fogOfWarState.onTilesChange(tiles);
         }
 
         @Override
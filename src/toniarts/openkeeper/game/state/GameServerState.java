@@ -33,6 +33,7 @@ import toniarts.openkeeper.game.controller.IPlayerController;
 import toniarts.openkeeper.game.controller.player.PlayerRoomControl;
 import toniarts.openkeeper.game.controller.player.PlayerSpellControl;
 import toniarts.openkeeper.game.data.Keeper;
+import toniarts.openkeeper.game.data.SaveGame;
 import toniarts.openkeeper.game.listener.MapListener;
 import toniarts.openkeeper.game.listener.PlayerActionListener;
 import toniarts.openkeeper.game.map.MapTile;
@@ -80,6 +81,20 @@ public class GameServerState extends AbstractAppState {
      * @param gameService the game service
      */
     public GameServerState(KwdFile level, List<Keeper> players, boolean campaign, GameSessionServerService gameService) {
+        this(level, players, campaign, gameService, null);
+    }
+
+    /**
+     * Single use game states
+     *
+     * @param level the level to load
+     * @param players players participating in this game
+     * @param campaign whether this is a campaign level or not
+     * @param gameService the game service
+     * @param saveGame the saved game to continue, {@code null} to start a new
+     * game
+     */
+    public GameServerState(KwdFile level, List<Keeper> players, boolean campaign, GameSessionServerService gameService, SaveGame saveGame) {
         this.level = null;
         this.kwdFile = level;
         this.levelObject = null;
@@ -106,15 +121,15 @@ public class GameServerState extends AbstractAppState {
         gameService.addGameSessionServiceListener(gameSessionListener);
 
         // Start loading game
-        loadGame(players);
+        loadGame(players, saveGame);
     }
 
     public boolean isMultiplayer() {
         return multiplayer;
     }
 
-    private void loadGame(List<Keeper> players) {
-        loader = new GameLoader(players);
+    private void loadGame(List<Keeper> players, SaveGame saveGame) {
+        loader = new GameLoader(players, saveGame);
         loader.start();
     }
 
@@ -159,11 +174,13 @@ public class GameServerState extends AbstractAppState {
     private class GameLoader extends Thread {
 
         private final List<Keeper> players;
+        private final SaveGame saveGame;
 
-        public GameLoader(List<Keeper> players) {
+        public GameLoader(List<Keeper> players, SaveGame saveGame) {
             super("GameLoader");
 
             this.players = players;
+            this.saveGame = saveGame;
         }
 
         @Override
@@ -175,6 +192,9 @@ public class GameServerState extends AbstractAppState {
             // Create the central game controller
             gameController = new GameController(kwdFile, players, gameService.getEntityData(), kwdFile.getVariables(), gameService);
             gameController.createNewGame();
+            if (saveGame != null) {
+                gameController.loadGame(saveGame);
+            }
 
             gameWorldController = gameController.getGameWorldController();
             mapController = gameWorldController.getMapController();
@@ -43,6 +43,11 @@ public interface IMainMenuScreenController extends ScreenController {
      */
     public void startSkirmish();
 
+    /**
+     * Continue the autosaved game
+     */
+    public void loadGame();
+
     //// screen id="myPetDungeon" ////
     /**
      * Select a my pet dungeon level
@@ -55,6 +55,7 @@ import toniarts.openkeeper.game.MapSelector;
 import toniarts.openkeeper.game.data.CustomMPDLevel;
 import toniarts.openkeeper.game.data.GameResult;
 import toniarts.openkeeper.game.data.HiScores;
+import toniarts.openkeeper.game.data.MapCatalog;
 import toniarts.openkeeper.game.data.Level;
 import toniarts.openkeeper.game.data.Level.LevelType;
 import toniarts.openkeeper.game.data.Settings;
@@ -400,7 +401,7 @@ public class MainMenuScreenController implements IMainMenuScreenController {
 
                 // Ask for players and map
                 refreshPlayerList(lobbyState.getLobbySession().getPlayers());
-                populateSelectedMap(state.mapSelector.getMap(lobbyState.getLobbySession().getMap()).getMap());
+                populateSelectedMap(state.mapSelector.getMap(lobbyState.getLobbySession().getMap()));
 
                 Label title = screen.findNiftyControl("multiplayerTitle", Label.class);
                 if (title != null) {
@@ -588,10 +589,10 @@ public class MainMenuScreenController implements IMainMenuScreenController {
             return;
         }
 
-        KwdFile map = state.mapSelector.getMaps().get(event.getSelectionIndices().get(0)).getMap();
+        MapSelector.GameMapContainer map = state.mapSelector.getMaps().get(event.getSelectionIndices().get(0));
         if (state.mapSelector.isMPD()) {
             // on mpd we show the briefing
-            state.selectedLevel = new CustomMPDLevel(map);
+            state.selectedLevel = new CustomMPDLevel(map.getMap());
             goToScreen("briefing");
         } else {
 
@@ -797,18 +798,18 @@ public class MainMenuScreenController implements IMainMenuScreenController {
         screen.findNiftyControl("invertMouse", CheckBox.class).setChecked((boolean) Settings.Setting.MOUSE_INVERT.getDefaultValue());
     }
 
-    private void populateSelectedMap(KwdFile map) {
+    private void populateSelectedMap(MapSelector.GameMapContainer map) {
 
         // The map title
         Label label = screen.findNiftyControl("mapNameTitle", Label.class);
-        label.setText(map == null ? "No maps found from " + PathUtils.DKII_MAPS_FOLDER : map.getGameLevel().getName());
+        label.setText(map == null ? "No maps found from " + PathUtils.DKII_MAPS_FOLDER : map.getMapName());
         NiftyUtils.resetContraints(label);
 
         if (map != null) {
 
             // Player count
             label = screen.findNiftyControl("playerCount", Label.class);
-            label.setText(": " + map.getGameLevel().getPlayerCount());
+            label.setText(": " + map.getEntry().getPlayerCount());
             NiftyUtils.resetContraints(label);
 
             // Map image
@@ -833,16 +834,17 @@ public class MainMenuScreenController implements IMainMenuScreenController {
         for (MapSelector.GameMapContainer mapContainer : state.mapSelector.getMaps()) {
 
             String name = mapContainer.getMapName();
-            KwdFile kwd = mapContainer.getMap();
-            if (kwd.getGameLevel().getLvlFlags().contains(GameLevel.LevFlag.IS_MY_PET_DUNGEON_LEVEL)) {
+            MapCatalog.MapCatalogEntry entry = mapContainer.getEntry();
+            if (entry.hasFlag(GameLevel.LevFlag.IS_MY_PET_DUNGEON_LEVEL)) {
                 // the resource tables in all the other levels are completely wrong, so we just use it for custom mpd maps
+                KwdFile kwd = mapContainer.getMap();
                 name = kwd.getGameLevel().getLevelName().isEmpty() ? kwd.getGameLevel().getName() : kwd.getGameLevel().getLevelName();
             }
             listBox.addItem(new TableRow(i, name,
-                    String.valueOf(kwd.getGameLevel().getPlayerCount()),
-                    String.format("%s x %s", kwd.getMap().getWidth(), kwd.getMap().getHeight())));
+                    String.valueOf(entry.getPlayerCount()),
+                    String.format("%s x %s", entry.getWidth(), entry.getHeight())));
 
-            if (selectMap && kwd.equals(state.mapSelector.getMap().getMap())) {
+            if (selectMap && mapContainer.equals(state.mapSelector.getMap())) {
                 listBox.selectItemByIndex(i);
             }
             i++;
@@ -860,7 +862,7 @@ public class MainMenuScreenController implements IMainMenuScreenController {
 
                 @Override
                 public void onMapChanged(String mapName) {
-                    populateSelectedMap(state.mapSelector.getMap(mapName).getMap());
+                    populateSelectedMap(state.mapSelector.getMap(mapName));
                 }
 
                 @Override
@@ -986,6 +988,11 @@ public class MainMenuScreenController implements IMainMenuScreenController {
         return chatSessionListener;
     }
 
+    @Override
+    public void loadGame() {
+        state.loadGame();
+    }
+
     @Override
     public void startSkirmish() {
 
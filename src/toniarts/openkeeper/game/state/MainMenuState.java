@@ -42,6 +42,7 @@ import toniarts.openkeeper.cinematics.CameraSweepData;
 import toniarts.openkeeper.cinematics.CameraSweepDataEntry;
 import toniarts.openkeeper.cinematics.Cinematic;
 import toniarts.openkeeper.game.MapSelector;
+import toniarts.openkeeper.game.controller.GameController;
 import toniarts.openkeeper.game.data.GameResult;
 import toniarts.openkeeper.game.data.GeneralLevel;
 import toniarts.openkeeper.game.data.Settings;
@@ -56,7 +57,6 @@ import toniarts.openkeeper.game.state.lobby.LocalLobby;
 import toniarts.openkeeper.game.state.session.LocalGameSession;
 import toniarts.openkeeper.gui.CursorFactory;
 import toniarts.openkeeper.tools.convert.AssetsConverter;
-import toniarts.openkeeper.tools.convert.ConversionUtils;
 import toniarts.openkeeper.tools.convert.map.KwdFile;
 import toniarts.openkeeper.tools.convert.map.Player;
 import toniarts.openkeeper.tools.modelviewer.SoundsLoader;
@@ -105,28 +105,53 @@ public class MainMenuState extends AbstractAppState {
      * @param app the main application
      */
     public MainMenuState(final boolean enabled, final AssetManager assetManager, final Main app) {
+        this(enabled, null, assetManager, app);
+    }
+
+    /**
+     * Creates the main menu
+     *
+     * @param enabled is the menu enabled, the 3D front end is loaded only if
+     * it is
+     * @param frontEndLevel the already loaded 3D front end level, if null, the
+     * level is loaded here
+     * @param assetManager asset manager
+     * @param app the application
+     */
+    public MainMenuState(final boolean enabled, final KwdFile frontEndLevel, final AssetManager assetManager, final Main app) {
         listener = new MainMenuInteraction(this);
         super.setEnabled(enabled);
 
         if (enabled) {
-            loadMenuScene(null, assetManager, app);
+            loadMenuScene(null, frontEndLevel, assetManager, app);
         }
 
         screen = new MainMenuScreenController(this, app.getNifty());
         app.getNifty().registerScreenController(screen);
     }
 
+    /**
+     * Loads the 3D front end level. Can be called from any thread, so that
+     * the level can be loaded ahead while other things load
+     *
+     * @return the front end level
+     */
+    public static KwdFile loadFrontEndLevel() {
+        return new KwdFile(Main.getDkIIFolder(), new File(Main.getDkIIFolder()
+                + PathUtils.DKII_MAPS_FOLDER + "FrontEnd3DLevel.kwd"));
+    }
+
     /**
      * Loads up the main menu 3D scene
      *
      * @param loadingScreen optional loading screen
+     * @param frontEndLevel the already loaded 3D front end level, may be null
      * @param assetManager asset manager
      */
-    private void loadMenuScene(final SingleBarLoadingState loadingScreen, final AssetManager assetManager, final Main app) {
+    private void loadMenuScene(final SingleBarLoadingState loadingScreen, final KwdFile frontEndLevel, final AssetManager assetManager, final Main app) {
 
         // Load the 3D Front end
-        kwdFile = new KwdFile(Main.getDkIIFolder(), new File(Main.getDkIIFolder()
-                + PathUtils.DKII_MAPS_FOLDER + "FrontEnd3DLevel.kwd"));
+        kwdFile = (frontEndLevel != null ? frontEndLevel : loadFrontEndLevel());
         if (loadingScreen != null) {
             loadingScreen.setProgress(0.25f);
         }
@@ -250,7 +275,7 @@ public class MainMenuState extends AbstractAppState {
 
                     @Override
                     public Void onLoad() {
-                        loadMenuScene(this, MainMenuState.this.assetManager, MainMenuState.this.app);
+                        loadMenuScene(this, null, MainMenuState.this.assetManager, MainMenuState.this.app);
                         return null;
                     }
 
@@ -411,6 +436,26 @@ public class MainMenuState extends AbstractAppState {
         setEnabled(false);
     }
 
+    /**
+     * Called by the GUI, continues the autosaved game
+     */
+    public void loadGame() {
+        File saveFile = GameController.getAutosaveFile();
+        if (!saveFile.exists()) {
+            LOGGER.log(Level.INFO, "No saved game in {0}!", saveFile);
+            return;
+        }
+        try {
+            LocalGameSession.LoadLocalGame(saveFile, stateManager, app);
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "Failed to load the game from " + saveFile + "!", ex);
+            return;
+        }
+
+        // Start the game
+        setEnabled(false);
+    }
+
     /**
      * Plays a movie file
      *
@@ -530,21 +575,20 @@ public class MainMenuState extends AbstractAppState {
     }
 
     /**
-     * See if the map thumbnail exist, otherwise create one TODO maybe move to
-     * KwdFile class ???
+     * See if the map thumbnail exist, otherwise create one
      *
-     * @param map
+     * @param map the map
      * @return path to map thumbnail file
      */
-    protected String getMapThumbnail(KwdFile map) {
+    protected String getMapThumbnail(MapSelector.GameMapContainer map) {
 
         // See if the map thumbnail exist, otherwise create one
-        String asset = AssetsConverter.MAP_THUMBNAILS_FOLDER + File.separator + ConversionUtils.stripFileName(map.getGameLevel().getName()) + ".png";
+        String asset = map.getEntry().getThumbnailKey();
         if (assetManager.locateAsset(new TextureKey(asset)) == null) {
 
             // Generate
             try {
-                AssetsConverter.genererateMapThumbnail(map, AssetsConverter.getAssetsFolder() + AssetsConverter.MAP_THUMBNAILS_FOLDER + File.separator);
+                AssetsConverter.genererateMapThumbnail(map.getMap(), AssetsConverter.getAssetsFolder() + AssetsConverter.MAP_THUMBNAILS_FOLDER + File.separator);
             } catch (Exception e) {
                 LOGGER.log(java.util.logging.Level.WARNING, "Failed to generate map file out of {0}!", map);
                 asset = "Textures/Unique_NoTextureName.png";
@@ -68,7 +68,7 @@ public class LobbyState extends AbstractAppState {
 
         // We as the host should set the initial map
         if (lobbyService != null) {
-            lobbyService.setMap(mapSelector.getMap().getMapName(), mapSelector.getMap().getMap().getGameLevel().getPlayerCount());
+            lobbyService.setMap(mapSelector.getMap().getMapName(), mapSelector.getMap().getEntry().getPlayerCount());
         }
     }
 
@@ -118,12 +118,12 @@ public class LobbyState extends AbstractAppState {
 
     public void setRandomMap() {
         mapSelector.random();
-        lobbyService.setMap(mapSelector.getMap().getMapName(), mapSelector.getMap().getMap().getGameLevel().getPlayerCount());
+        lobbyService.setMap(mapSelector.getMap().getMapName(), mapSelector.getMap().getEntry().getPlayerCount());
     }
 
     public void setMap(int selectedMapIndex) {
         mapSelector.selectMap(selectedMapIndex);
-        lobbyService.setMap(mapSelector.getMap().getMapName(), mapSelector.getMap().getMap().getGameLevel().getPlayerCount());
+        lobbyService.setMap(mapSelector.getMap().getMapName(), mapSelector.getMap().getEntry().getPlayerCount());
     }
 
     private void startGame(List<ClientInfo> players) {
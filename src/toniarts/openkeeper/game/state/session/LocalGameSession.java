@@ -6,16 +6,12 @@
 package toniarts.openkeeper.game.state.session;
 
 import com.jme3.app.state.AppStateManager;
-import com.jme3.export.binary.BinaryExporter;
-import com.jme3.export.binary.BinaryImporter;
 import com.jme3.math.Vector2f;
 import com.jme3.math.Vector3f;
 import com.jme3.util.SafeArrayList;
 import com.simsilica.es.EntityData;
 import com.simsilica.es.EntityId;
-import com.simsilica.es.base.DefaultEntityData;
 import java.awt.Point;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -23,11 +19,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
-import java.util.logging.Level;
 import java.util.logging.Logger;
 import toniarts.openkeeper.Main;
 import toniarts.openkeeper.game.controller.player.PlayerSpell;
+import toniarts.openkeeper.game.data.GameEntityData;
 import toniarts.openkeeper.game.data.Keeper;
+import toniarts.openkeeper.game.data.SaveGame;
 import toniarts.openkeeper.game.map.MapData;
 import toniarts.openkeeper.game.map.MapTile;
 import toniarts.openkeeper.game.state.CheatState;
@@ -52,7 +49,8 @@ public class LocalGameSession implements GameSessionServerService, GameSessionCl
     private static final Logger LOGGER = Logger.getLogger(LocalGameSession.class.getName());
 
     private boolean playerInTransition = false;
-    private final EntityData entityData = new DefaultEntityData();
+    private MapData mapData;
+    private final EntityData entityData = new GameEntityData();
     private final SafeArrayList<GameSessionListener> listeners = new SafeArrayList<>(GameSessionListener.class);
     private final SafeArrayList<GameSessionServiceListener> serverListeners = new SafeArrayList<>(GameSessionServiceListener.class);
 
@@ -82,6 +80,31 @@ public class LocalGameSession implements GameSessionServerService, GameSessionCl
      * @throws java.io.IOException Problem with the map file
      */
     public static void CreateLocalGame(String level, boolean campaign, AppStateManager stateManager, Main app) throws IOException {
+        CreateLocalGame(loadKwdFile(level), stateManager, campaign, app);
+    }
+
+    /**
+     * Creates and starts a local game session that continues a saved game
+     *
+     * @param saveFile the saved game file
+     * @param stateManager state manager instance for setting up the game
+     * @throws java.io.IOException Problem with the saved game or the map file
+     */
+    public static void LoadLocalGame(File saveFile, AppStateManager stateManager, Main app) throws IOException {
+        SaveGame saveGame = SaveGame.load(saveFile);
+
+        // The same keepers take part, their state is restored over the new game
+        List<Keeper> players = new ArrayList<>(saveGame.getPlayers().size());
+        for (Keeper keeper : saveGame.getPlayers()) {
+            if (keeper.getId() >= Player.KEEPER1_ID) {
+                players.add(new Keeper(keeper.isAi(), keeper.getId()));
+            }
+        }
+
+        CreateLocalGame(loadKwdFile(saveGame.getLevelName()), stateManager, players, false, saveGame, app);
+    }
+
+    private static KwdFile loadKwdFile(String level) throws IOException {
 
         // Try to load the file
         String mapFile = ConversionUtils.getRealFileName(Main.getDkIIFolder(), PathUtils.DKII_MAPS_FOLDER + level + ".kwd");
@@ -89,16 +112,19 @@ public class LocalGameSession implements GameSessionServerService, GameSessionCl
         if (!file.exists()) {
             throw new FileNotFoundException(mapFile);
         }
-        KwdFile kwdFile = new KwdFile(Main.getDkIIFolder(), file);
-
-        CreateLocalGame(kwdFile, stateManager, campaign, app);
+        return new KwdFile(Main.getDkIIFolder(), file);
     }
 
     private static void CreateLocalGame(KwdFile kwdFile, AppStateManager stateManager, boolean campaign, Main app) {
+        Keeper keeper = new Keeper(false, PLAYER_ID);
+        CreateLocalGame(kwdFile, stateManager, campaign ? null : Arrays.asList(keeper), campaign, null, app);
+    }
+
+    private static void CreateLocalGame(KwdFile kwdFile, AppStateManager stateManager, List<Keeper> players, boolean campaign, SaveGame saveGame, Main app) {
 
         // Player and server
         LocalGameSession gameSession = new LocalGameSession();
-        Keeper keeper = new Keeper(false, PLAYER_ID);
+        Keeper keeper = getPlayer(players);
         ClientInfo clientInfo = new ClientInfo(0, null, 0);
         clientInfo.setName(Utils.getMainTextResourceBundle().getString("58"));
         clientInfo.setKeeper(keeper);
@@ -109,10 +135,21 @@ public class LocalGameSession implements GameSessionServerService, GameSessionCl
         stateManager.attach(gameClientState);
 
         // The game server
-        GameServerState gameServerState = new GameServerState(kwdFile, campaign ? null : Arrays.asList(keeper), campaign, gameSession);
+        GameServerState gameServerState = new GameServerState(kwdFile, players, campaign, gameSession, saveGame);
         stateManager.attach(gameServerState);
     }
 
+    private static Keeper getPlayer(List<Keeper> players) {
+        if (players != null) {
+            for (Keeper keeper : players) {
+                if (keeper.getId() == PLAYER_ID) {
+                    return keeper;
+                }
+            }
+        }
+        return new Keeper(false, PLAYER_ID);
+    }
+
     @Override
     public EntityData getEntityData() {
         return entityData;
@@ -120,28 +157,16 @@ public class LocalGameSession implements GameSessionServerService, GameSessionCl
 
     @Override
     public void sendGameData(Collection<Keeper> players, MapData mapData) {
-        BinaryExporter exporter = BinaryExporter.getInstance();
-        BinaryImporter importer = BinaryImporter.getInstance();
+        this.mapData = mapData;
 
-        // Clone the data so it really is different as in normal multiplayer it is
+        // The client gets a snapshot of the server tiles, the tiles are copied on write. The players are copied, the client keeps its own state in them
         for (GameSessionListener listener : listeners.getArray()) {
-            try (ByteArrayOutputStream mapStream = new ByteArrayOutputStream()) {
-                exporter.save(mapData, mapStream);
-
-                List<Keeper> copiedPlayers = new ArrayList<>(players.size());
-                for (Keeper player : players) {
-                    try (ByteArrayOutputStream playerStream = new ByteArrayOutputStream()) {
-                        exporter.save(player, playerStream);
-                        copiedPlayers.add((Keeper) importer.load(playerStream.toByteArray()));
-                    } catch (IOException ex) {
-                        LOGGER.log(Level.SEVERE, "Failed to serialize the players!", ex);
-                    }
-                }
-
-                listener.onGameDataLoaded(copiedPlayers, (MapData) importer.load(mapStream.toByteArray()));
-            } catch (IOException ex) {
-                LOGGER.log(Level.SEVERE, "Failed to serialize the map data!", ex);
+            List<Keeper> copiedPlayers = new ArrayList<>(players.size());
+            for (Keeper player : players) {
+                copiedPlayers.add(new Keeper(player));
             }
+
+            listener.onGameDataLoaded(copiedPlayers, mapData.createSnapshot());
         }
     }
 
@@ -378,6 +403,7 @@ public class LocalGameSession implements GameSessionServerService, GameSessionCl
 
     @Override
     public void updateTiles(List<MapTile> updatedTiles) {
+        shareTiles(updatedTiles);
         for (GameSessionListener listener : listeners.getArray()) {
             listener.onTilesChange(updatedTiles);
         }
@@ -430,6 +456,7 @@ public class LocalGameSession implements GameSessionServerService, GameSessionCl
 
     @Override
     public void onBuild(short keeperId, List<MapTile> tiles) {
+        shareTiles(tiles);
         for (GameSessionListener listener : listeners.getArray()) {
             listener.onBuild(keeperId, tiles);
         }
@@ -437,11 +464,24 @@ public class LocalGameSession implements GameSessionServerService, GameSessionCl
 
     @Override
     public void onSold(short keeperId, List<MapTile> tiles) {
+        shareTiles(tiles);
         for (GameSessionListener listener : listeners.getArray()) {
             listener.onSold(keeperId, tiles);
         }
     }
 
+    /**
+     * The client gets the server tiles as such, the server must not modify
+     * them anymore
+     *
+     * @param tiles the tiles handed to the client
+     */
+    private void shareTiles(List<MapTile> tiles) {
+        if (mapData != null) {
+            mapData.share(tiles);
+        }
+    }
+
     @Override
     public void onRoomAvailabilityChanged(short playerId, short roomId, boolean available) {
         for (GameSessionListener listener : listeners.getArray()) {
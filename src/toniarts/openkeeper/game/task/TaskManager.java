@@ -34,7 +34,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import toniarts.openkeeper.game.component.CreatureComponent;
@@ -47,6 +47,7 @@ import toniarts.openkeeper.game.controller.IGameWorldController;
 import toniarts.openkeeper.game.controller.ILevelInfo;
 import toniarts.openkeeper.game.controller.IMapController;
 import toniarts.openkeeper.game.controller.IPlayerController;
+import toniarts.openkeeper.game.controller.creature.CreatureMessage;
 import toniarts.openkeeper.game.controller.creature.ICreatureController;
 import toniarts.openkeeper.game.controller.room.AbstractRoomController.ObjectType;
 import toniarts.openkeeper.game.controller.room.IRoomController;
@@ -65,6 +66,7 @@ import toniarts.openkeeper.game.task.objective.AbstractObjectiveTask;
 import toniarts.openkeeper.game.task.objective.KillPlayer;
 import toniarts.openkeeper.game.task.objective.SendToActionPoint;
 import toniarts.openkeeper.game.task.worker.CaptureEnemyCreatureTask;
+import toniarts.openkeeper.game.task.worker.CarryCreatureToLairTask;
 import toniarts.openkeeper.game.task.worker.CarryEnemyCreatureToPrison;
 import toniarts.openkeeper.game.task.worker.CarryGoldToTreasuryTask;
 import toniarts.openkeeper.game.task.worker.ClaimRoomTask;
@@ -102,6 +104,7 @@ public class TaskManager implements ITaskManager, IGameLogicUpdatable {
     private final Map<Short, Set<Task>> taskQueues;
     private final Map<Long, Task> tasksByIds = new HashMap<>();
     private final Map<EntityId, Long> tasksIdsByEntities = new HashMap<>();
+    private final Set<Short> playersWithNewTasks = ConcurrentHashMap.newKeySet();
     private final Map<Short, IPlayerController> playerControllers;
     private final Map<IRoomController, Map<Point, AbstractCapacityCriticalRoomTask>> roomTasks = new HashMap<>();
     private static final Logger LOGGER = Logger.getLogger(TaskManager.class.getName());
@@ -175,6 +178,14 @@ public class TaskManager implements ITaskManager, IGameLogicUpdatable {
             processAddedCorpseEntities(corpseEntities.getAddedEntities());
             processDeletedCorpseEntities(corpseEntities.getRemovedEntities());
         }
+
+        // Let the idle creatures know about the new tasks, the tasks may have been added from other threads
+        if (!playersWithNewTasks.isEmpty()) {
+            for (Iterator<Short> iter = playersWithNewTasks.iterator(); iter.hasNext();) {
+                CreatureMessage.TASK_AVAILABLE.dispatch(iter.next());
+                iter.remove();
+            }
+        }
     }
 
     private void processAddedTasks(Set<Entity> entities) {
@@ -230,6 +241,7 @@ public class TaskManager implements ITaskManager, IGameLogicUpdatable {
                 }
                 entry.getValue().add(task);
                 tasksByIds.put(task.getId(), task);
+                playersWithNewTasks.add(entry.getKey());
             }
         }
     }
@@ -496,6 +508,7 @@ public class TaskManager implements ITaskManager, IGameLogicUpdatable {
         if (!tasks.contains(task)) {
             tasks.add(task);
             tasksByIds.put(task.getId(), task);
+            playersWithNewTasks.add(playerId);
             LOGGER.log(Level.INFO, "Added task {0} for player {1}!", new Object[]{task, playerId});
         } else {
             LOGGER.log(Level.WARNING, "Already a task {0} for player {1}!", new Object[]{task, playerId});
@@ -531,18 +544,8 @@ public class TaskManager implements ITaskManager, IGameLogicUpdatable {
     private boolean assignClosestRoomTask(ICreatureController creature, ObjectType objectType, EntityId targetEntity, boolean assign) {
         Point currentPosition = creature.getCreatureCoordinates();
 
-        // Get all the rooms of the given type
-        List<IRoomController> rooms = mapController.getRoomsByFunction(objectType, creature.getOwnerId());
-        Map<Integer, IRoomController> distancesToRooms = new TreeMap<>();
-        for (IRoomController room : rooms) {
-            if (!room.isFullCapacity()) {
-                distancesToRooms.put(getShortestDistance(currentPosition, room.getRoomInstance().getCoordinates().toArray(new Point[room.getRoomInstance().getCoordinates().size()])), room
-                );
-            }
-        }
-
-        // See that are they really accessible starting from the least distance one
-        for (IRoomController room : distancesToRooms.values()) {
+        // See that are the rooms with space really accessible starting from the least distance one
+        for (IRoomController room : mapController.getClosestRoomsByFunction(objectType, creature.getOwnerId(), currentPosition)) {
 
             // FIXME: if we are to have more capacity than one per tile, we need to refactor
             // The whole rooms are always accessible, take a random point from the room like DK II seems to do
@@ -587,18 +590,6 @@ public class TaskManager implements ITaskManager, IGameLogicUpdatable {
         return false;
     }
 
-    private static Integer getShortestDistance(Point currentPosition, Point... coordinates) {
-        int distance = Integer.MAX_VALUE;
-        for (Point p : coordinates) {
-            // TODO: do we need to do this diagonally?
-            distance = Math.min(distance, calculateDistance(currentPosition, p));
-            if (distance == 0) {
-                break;
-            }
-        }
-        return distance;
-    }
-
     private static int calculateDistance(Point currentPosition, Point p) {
         if (currentPosition == null || p == null) {
             return Short.MAX_VALUE; // With the points added, int max value would overflow
@@ -705,4 +696,91 @@ public class TaskManager implements ITaskManager, IGameLogicUpdatable {
         return task;
     }
 
+    /**
+     * Get the queued tasks, for saving. Must be called from the game logic
+     * thread or when the game is not running
+     *
+     * @return the task queues
+     */
+    public TaskQueueState getState() {
+        return new TaskQueueState(taskQueues);
+    }
+
+    /**
+     * Restores the task queues from a save and moves the creatures working
+     * on them over to the new tasks. The entities must already be restored.
+     * The creatures doing other than the queued tasks are released to find
+     * new work
+     *
+     * @param state the saved task queues
+     */
+    public void setState(TaskQueueState state) {
+
+        // Take in the restored entities, the ones from the new game have gone
+        taskEntities.applyChanges();
+        unconsciousEntities.applyChanges();
+        corpseEntities.applyChanges();
+        tasksIdsByEntities.clear();
+
+        // Create the saved tasks
+        for (Set<Task> tasks : taskQueues.values()) {
+            tasks.clear();
+        }
+        tasksByIds.clear();
+        roomTasks.clear();
+        Map<Long, Task> restoredTasks = new HashMap<>(state.size());
+        for (int i = 0; i < state.size(); i++) {
+            short playerId = state.getPlayerId(i);
+            Set<Task> tasks = taskQueues.get(playerId);
+            Task task = (tasks != null ? createTask(state, i) : null);
+            if (task == null) {
+                LOGGER.log(Level.WARNING, "Could not restore task {0} for player {1}!", new Object[]{state.getTaskType(i), playerId});
+                continue;
+            }
+            tasks.add(task);
+            tasksByIds.put(task.getId(), task);
+            restoredTasks.put(state.getTaskId(i), task);
+            playersWithNewTasks.add(playerId);
+        }
+
+        // Assign the creatures, the task IDs have changed
+        for (Entity entity : taskEntities) {
+            TaskComponent taskComponent = entity.get(TaskComponent.class);
+            Task task = restoredTasks.get(taskComponent.taskId);
+            if (task != null) {
+                task.assign(creaturesController.createController(entity.getId()), false);
+                entityData.setComponent(entity.getId(), new TaskComponent(task.getId(), taskComponent.targetEntity, taskComponent.targetLocation, taskComponent.taskType));
+            } else {
+                entityData.removeComponent(entity.getId(), TaskComponent.class);
+            }
+        }
+    }
+
+    private Task createTask(TaskQueueState state, int index) {
+        short playerId = state.getPlayerId(index);
+        int x = state.getX(index);
+        int y = state.getY(index);
+        EntityId target = state.getTarget(index);
+        switch (state.getTaskType(index)) {
+            case DIG_TILE:
+                return new DigTileTask(navigationService, mapController, x, y, playerId);
+            case CLAIM_WALL:
+                return new ClaimWallTileTask(navigationService, mapController, x, y, playerId);
+            case CLAIM_TILE:
+                return new ClaimTileTask(navigationService, mapController, x, y, playerId);
+            case REPAIR_WALL:
+                return new RepairWallTileTask(navigationService, mapController, x, y, playerId);
+            case CLAIM_ROOM:
+                return new ClaimRoomTask(navigationService, mapController, x, y, playerId);
+            case RESCUE_CREATURE:
+                return (target != null ? new RescueCreatureTask(this, navigationService, mapController, creaturesController.createController(target), playerId) : null);
+            case CAPTURE_ENEMY_CREATURE:
+                return (target != null ? new CaptureEnemyCreatureTask(navigationService, mapController, creaturesController.createController(target), playerId, this) : null);
+            case CARRY_CREATURE_TO_LAIR:
+                return (target != null ? new CarryCreatureToLairTask(navigationService, mapController, creaturesController.createController(target), playerId) : null);
+            default:
+                return null;
+        }
+    }
+
 }
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2014-2018 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.task;
+
+import com.jme3.export.InputCapsule;
+import com.jme3.export.JmeExporter;
+import com.jme3.export.JmeImporter;
+import com.jme3.export.OutputCapsule;
+import com.jme3.export.Savable;
+import com.simsilica.es.EntityId;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The queued tasks of the players. The tasks themselves hold references to
+ * the live game, so only what is needed to create them again is stored.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public class TaskQueueState implements Savable {
+
+    private static final long NO_TARGET = -1;
+
+    private short[] playerIds;
+    private long[] taskIds;
+    private String[] taskTypes;
+    private int[] xs;
+    private int[] ys;
+    private long[] targets;
+
+    public TaskQueueState() {
+        // For serialization
+    }
+
+    public TaskQueueState(Map<Short, Set<Task>> taskQueues) {
+        int size = 0;
+        for (Set<Task> tasks : taskQueues.values()) {
+            size += tasks.size();
+        }
+        playerIds = new short[size];
+        taskIds = new long[size];
+        taskTypes = new String[size];
+        xs = new int[size];
+        ys = new int[size];
+        targets = new long[size];
+        int i = 0;
+        for (Map.Entry<Short, Set<Task>> entry : taskQueues.entrySet()) {
+            for (Task task : entry.getValue()) {
+                playerIds[i] = entry.getKey();
+                taskIds[i] = task.getId();
+                taskTypes[i] = task.getTaskType().name();
+                xs[i] = task.getTaskLocation().x;
+                ys[i] = task.getTaskLocation().y;
+                targets[i] = (task.getTaskTarget() != null ? task.getTaskTarget().getId() : NO_TARGET);
+                i++;
+            }
+        }
+    }
+
+    public int size() {
+        return taskIds.length;
+    }
+
+    public short getPlayerId(int index) {
+        return playerIds[index];
+    }
+
+    public long getTaskId(int index) {
+        return taskIds[index];
+    }
+
+    public TaskType getTaskType(int index) {
+        return TaskType.valueOf(taskTypes[index]);
+    }
+
+    public int getX(int index) {
+        return xs[index];
+    }
+
+    public int getY(int index) {
+        return ys[index];
+    }
+
+    public EntityId getTarget(int index) {
+        return (targets[index] != NO_TARGET ? new EntityId(targets[index]) : null);
+    }
+
+    @Override
+    public void write(JmeExporter ex) throws IOException {
+        OutputCapsule out = ex.getCapsule(this);
+        out.write(playerIds, "playerIds", null);
+        out.write(taskIds, "taskIds", null);
+        out.write(taskTypes, "taskTypes", null);
+        out.write(xs, "xs", null);
+        out.write(ys, "ys", null);
+        out.write(targets, "targets", null);
+    }
+
+    @Override
+    public void read(JmeImporter im) throws IOException {
+        InputCapsule in = im.getCapsule(this);
+        playerIds = in.readShortArray("playerIds", new short[0]);
+        taskIds = in.readLongArray("taskIds", new long[0]);
+        taskTypes = in.readStringArray("taskTypes", new String[0]);
+        xs = in.readIntArray("xs", new int[0]);
+        ys = in.readIntArray("ys", new int[0]);
+        targets = in.readLongArray("targets", new long[0]);
+    }
+
+}
@@ -16,6 +16,8 @@
  */
 package toniarts.openkeeper.game.trigger;
 
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
 import java.util.logging.Logger;
 import toniarts.openkeeper.game.controller.ICreaturesController;
 import toniarts.openkeeper.game.controller.IGameController;
@@ -54,4 +56,29 @@ public abstract class AbstractThingTriggerControl<T> extends PlayerTriggerContro
     protected void setThing(T thingInstance) {
         instanceControl = thingInstance;
     }
+
+    /**
+     * Compiles a condition on the thing instance. The condition is never
+     * active while there is no instance
+     *
+     * @param condition the condition on the instance
+     * @return the compiled condition
+     */
+    protected TriggerCondition compileThingCondition(Predicate<T> condition) {
+        return () -> instanceControl != null && condition.test(instanceControl);
+    }
+
+    /**
+     * Compiles a comparison of a thing instance property to the trigger value.
+     * The condition is never active while there is no instance
+     *
+     * @param trigger the trigger
+     * @param property the instance property to compare
+     * @return the compiled condition
+     */
+    protected TriggerCondition compileThingComparison(TriggerGenericData trigger, ToDoubleFunction<T> property) {
+        int value = trigger.getUserData("value", int.class);
+        TriggerCondition comparison = compileComparison(trigger, () -> property.applyAsDouble(instanceControl), () -> value);
+        return () -> instanceControl != null && comparison.isActive();
+    }
 }
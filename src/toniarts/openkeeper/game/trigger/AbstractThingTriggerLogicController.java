@@ -19,6 +19,7 @@ package toniarts.openkeeper.game.trigger;
 import com.jme3.util.SafeArrayList;
 import com.simsilica.es.Entity;
 import com.simsilica.es.EntitySet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import toniarts.openkeeper.game.component.Trigger;
@@ -85,6 +86,15 @@ public abstract class AbstractThingTriggerLogicController<T> implements IGameLog
         }
     }
 
+    /**
+     * Get the trigger controls, for saving their state
+     *
+     * @return the trigger controls
+     */
+    public List<? extends TriggerControl> getTriggerControls() {
+        return triggerControls;
+    }
+
     @Override
     public void start() {
 
@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2014-2018 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.trigger;
+
+/**
+ * A compiled trigger condition. The operands are read from the trigger data
+ * once when compiling, not on every evaluation
+ *
+ * @see TriggerControl#compile(toniarts.openkeeper.game.trigger.TriggerGenericData)
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+@FunctionalInterface
+public interface TriggerCondition {
+
+    /**
+     * A condition that is never active
+     */
+    TriggerCondition NEVER = () -> false;
+
+    /**
+     * Evaluates the condition
+     *
+     * @return true if the trigger is active
+     */
+    boolean isActive();
+
+}
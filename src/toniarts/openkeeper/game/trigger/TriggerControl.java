@@ -18,6 +18,7 @@ package toniarts.openkeeper.game.trigger;
 
 import java.awt.Point;
 import java.util.EnumSet;
+import java.util.function.DoubleSupplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import toniarts.openkeeper.game.control.Control;
@@ -50,6 +51,7 @@ public class TriggerControl extends Control {
 
     protected TriggerGenericData trigger;
     protected TriggerGenericData root;
+    private int triggerId;
 
     protected ILevelInfo levelInfo;
     protected IGameTimer gameTimer;
@@ -79,6 +81,30 @@ public class TriggerControl extends Control {
             throw new IllegalArgumentException("trigger can not be null");
         }
         trigger = root;
+        this.triggerId = triggerId;
+    }
+
+    public int getTriggerId() {
+        return triggerId;
+    }
+
+    /**
+     * Get the progress of this trigger control, for saving
+     *
+     * @return the trigger state
+     */
+    public TriggerState getState() {
+        return new TriggerState(triggerId, root, trigger);
+    }
+
+    /**
+     * Restores the progress of this trigger control. The control must not
+     * have been updated yet
+     *
+     * @param state the saved trigger state
+     */
+    public void setState(TriggerState state) {
+        trigger = state.apply(root);
     }
 
     @Override
@@ -94,7 +120,7 @@ public class TriggerControl extends Control {
 
             } else if (value instanceof TriggerGenericData) {
 
-                if (next == null && isActive((TriggerGenericData) value)) {
+                if (next == null && getCondition((TriggerGenericData) value).isActive()) {
                     trigger.setLastTrigger((TriggerGenericData) value);
                     next = (TriggerGenericData) value;
                 }
@@ -123,66 +149,105 @@ public class TriggerControl extends Control {
         }
     }
 
-    protected boolean isActive(TriggerGenericData trigger) {
-        boolean result = false;
-
-        int value;
-        int target;
+    private TriggerCondition getCondition(TriggerGenericData trigger) {
+        TriggerCondition condition = trigger.getCondition();
+        if (condition == null) {
+            condition = compile(trigger);
+            trigger.setCondition(condition);
+        }
+        return condition;
+    }
 
+    /**
+     * Compiles the trigger condition. The operands are resolved here, once,
+     * the flag conditions are evaluated only when the flags change. The
+     * subclasses compile their own target types and pass the rest here
+     *
+     * @param trigger the trigger
+     * @return the compiled condition
+     */
+    protected TriggerCondition compile(TriggerGenericData trigger) {
         TriggerGeneric.TargetType targetType = trigger.getType();
         switch (targetType) {
-            case FLAG:
-                short targetId = (Short) trigger.getUserData("targetId");
-                if (targetId == LEVEL_SCORE_FLAG_ID) {
-
-                    // A special value, level score
-                    target = levelInfo.getLevelScore();
-                } else {
-                    target = levelInfo.getFlag(targetId);
-                }
-                if ((Short) trigger.getUserData("flag") == 1) {
-                    value = (Integer) trigger.getUserData("value");
-                } else {
-                    value = levelInfo.getFlag((Short) trigger.getUserData("flagId"));
+            case FLAG: {
+                if (!isComparable(trigger)) {
+                    return TriggerCondition.NEVER;
                 }
-                break;
-
-            case TIMER:
-                targetId = (short) trigger.getUserData("targetId");
+                TriggerGeneric.ComparisonType comparisonType = trigger.getComparison();
+                short targetId = trigger.getUserData("targetId", short.class);
+                boolean isValue = trigger.getUserData("flag", short.class) == 1;
+                int value = (isValue ? trigger.getUserData("value", int.class) : 0);
+                short flagId = (isValue ? 0 : trigger.getUserData("flagId", short.class));
+                return new TriggerCondition() {
+
+                    private int revision = -1;
+                    private boolean result;
+
+                    @Override
+                    public boolean isActive() {
+                        if (revision != levelInfo.getFlagRevision()) {
+                            revision = levelInfo.getFlagRevision();
+                            int target = (targetId == LEVEL_SCORE_FLAG_ID ? levelInfo.getLevelScore() : levelInfo.getFlag(targetId));
+                            result = compare(target, comparisonType, isValue ? value : levelInfo.getFlag(flagId));
+                        }
+                        return result;
+                    }
+                };
+            }
+            case TIMER: {
+                short targetId = trigger.getUserData("targetId", short.class);
+                boolean isValue = trigger.getUserData("flag", short.class) == 1;
+                int value = (isValue ? trigger.getUserData("value", int.class) : 0);
+                short timerId = (isValue ? 0 : trigger.getUserData("timerId", short.class));
+                DoubleSupplier target;
                 if (targetId == TIME_LIMIT_TIMER_ID) {
-                    target = (levelInfo.getTimeLimit() != null ? levelInfo.getTimeLimit().intValue() : 0);
-                } else {
-                    target = (int) levelInfo.getTimer(targetId).getTime();
-                }
-
-                if ((Short) trigger.getUserData("flag") == 1) {
-                    value = (Integer) trigger.getUserData("value");
+                    target = () -> (levelInfo.getTimeLimit() != null ? levelInfo.getTimeLimit().intValue() : 0);
                 } else {
-                    value = (int) Math.floor(levelInfo.getTimer((Short) trigger.getUserData("timerId")).getTime());
+                    target = () -> (int) levelInfo.getTimer(targetId).getTime();
                 }
-                break;
-
-            case LEVEL_TIME:
-                target = (int) Math.floor(gameTimer.getGameTime());
-                value = (Integer) trigger.getUserData("value");
-                break;
+                return compileComparison(trigger, target, isValue ? () -> value : () -> Math.floor(levelInfo.getTimer(timerId).getTime()));
+            }
+            case LEVEL_TIME: {
+                int value = trigger.getUserData("value", int.class);
+                return compileComparison(trigger, () -> Math.floor(gameTimer.getGameTime()), () -> value);
+            }
             case LEVEL_CREATURES:
-                return false;
             case LEVEL_PAY_DAY:
-                return false;
             case LEVEL_PLAYED:
-                return false;
+                return TriggerCondition.NEVER;
             default:
                 LOGGER.log(Level.WARNING, "Target Type not supported{0}!", targetType);
-                return false;
+                return TriggerCondition.NEVER;
         }
+    }
 
-        TriggerGeneric.ComparisonType comparisonType = trigger.getComparison();
-        if (comparisonType != null && comparisonType != TriggerGeneric.ComparisonType.NONE) {
-            result = compare(target, comparisonType, value);
+    /**
+     * Compiles a comparison between the target and the value, as set in the
+     * trigger
+     *
+     * @param trigger the trigger
+     * @param target the target, the left hand side
+     * @param value the value, the right hand side
+     * @return the compiled condition, never active if the trigger has no
+     * comparison
+     */
+    protected TriggerCondition compileComparison(TriggerGenericData trigger, DoubleSupplier target, DoubleSupplier value) {
+        if (!isComparable(trigger)) {
+            return TriggerCondition.NEVER;
         }
+        TriggerGeneric.ComparisonType comparisonType = trigger.getComparison();
+        return () -> compare((float) target.getAsDouble(), comparisonType, (float) value.getAsDouble());
+    }
 
-        return result;
+    /**
+     * See if the trigger compares values at all
+     *
+     * @param trigger the trigger
+     * @return true if the trigger has a comparison
+     */
+    protected static boolean isComparable(TriggerGenericData trigger) {
+        TriggerGeneric.ComparisonType comparisonType = trigger.getComparison();
+        return comparisonType != null && comparisonType != TriggerGeneric.ComparisonType.NONE;
     }
 
     protected void doAction(TriggerActionData trigger) {
@@ -31,6 +31,7 @@ public class TriggerGenericData extends TriggerData {
     private TriggerGeneric.TargetType target;
     private short repeatTimes; // Repeat x times, 255 = always
     private TriggerGenericData lastTrigger = null;
+    private TriggerCondition condition;
     private final SafeArrayList<TriggerData> children = new SafeArrayList<>(TriggerData.class);
     private static final Logger LOGGER = Logger.getLogger(TriggerGenericData.class.getName());
 
@@ -63,6 +64,23 @@ public class TriggerGenericData extends TriggerData {
         this.target = target;
     }
 
+    /**
+     * Get the compiled condition of this trigger
+     *
+     * @return the condition, null if not compiled yet
+     */
+    public TriggerCondition getCondition() {
+        return condition;
+    }
+
+    public void setCondition(TriggerCondition condition) {
+        this.condition = condition;
+    }
+
+    public short getRepeatTimes() {
+        return repeatTimes;
+    }
+
     protected void setRepeatTimes(short repeatTimes) {
         this.repeatTimes = repeatTimes;
     }
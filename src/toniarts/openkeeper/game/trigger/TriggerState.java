@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2014-2018 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.game.trigger;
+
+import com.jme3.export.InputCapsule;
+import com.jme3.export.JmeExporter;
+import com.jme3.export.JmeImporter;
+import com.jme3.export.OutputCapsule;
+import com.jme3.export.Savable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The progress of a trigger control. The trigger trees are loaded from the
+ * level, so we only store what has changed in them: the node we are at, the
+ * repeat counters, the last fired child of each node and the children that
+ * are still left. The nodes are identified by their trigger IDs, they are
+ * unique within a level.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public class TriggerState implements Savable {
+
+    private static final int NONE = -1;
+    private static final Logger LOGGER = Logger.getLogger(TriggerState.class.getName());
+
+    private int triggerId;
+    private int currentId;
+    private int[] nodeIds;
+    private int[] repeatTimes;
+    private int[] lastTriggerIds;
+    private int[] childCounts;
+    private int[] childIds;
+
+    public TriggerState() {
+        // For serialization
+    }
+
+    public TriggerState(int triggerId, TriggerGenericData root, TriggerGenericData current) {
+        this.triggerId = triggerId;
+        this.currentId = current.getId();
+
+        List<TriggerGenericData> nodes = new ArrayList<>();
+        collectNodes(root, nodes);
+        nodeIds = new int[nodes.size()];
+        repeatTimes = new int[nodes.size()];
+        lastTriggerIds = new int[nodes.size()];
+        childCounts = new int[nodes.size()];
+        int childIdCount = 0;
+        for (TriggerGenericData node : nodes) {
+            childIdCount += node.getQuantity();
+        }
+        childIds = new int[childIdCount];
+        int childIndex = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            TriggerGenericData node = nodes.get(i);
+            nodeIds[i] = node.getId();
+            repeatTimes[i] = node.getRepeatTimes();
+            int lastTriggerIndex = node.getLastTriggerIndex();
+            lastTriggerIds[i] = (lastTriggerIndex >= 0 ? node.getChild(lastTriggerIndex).getId() : NONE);
+            childCounts[i] = node.getQuantity();
+            for (int j = 0; j < node.getQuantity(); j++) {
+                childIds[childIndex++] = node.getChild(j).getId();
+            }
+        }
+    }
+
+    public int getTriggerId() {
+        return triggerId;
+    }
+
+    /**
+     * Applies the state to a freshly loaded trigger tree
+     *
+     * @param root the root of the trigger tree
+     * @return the trigger node where the control is at
+     */
+    public TriggerGenericData apply(TriggerGenericData root) {
+        Map<Integer, TriggerData> triggers = new HashMap<>();
+        collectTriggers(root, triggers);
+
+        int childIndex = 0;
+        for (int i = 0; i < nodeIds.length; i++) {
+            TriggerData trigger = triggers.get(nodeIds[i]);
+            if (!(trigger instanceof TriggerGenericData)) {
+                LOGGER.log(Level.WARNING, "Trigger {0} not found from trigger tree {1}!", new Object[]{nodeIds[i], triggerId});
+                childIndex += childCounts[i];
+                continue;
+            }
+            TriggerGenericData node = (TriggerGenericData) trigger;
+            node.setRepeatTimes((short) repeatTimes[i]);
+
+            // Detach the children that were already consumed
+            Set<Integer> children = new HashSet<>(childCounts[i]);
+            for (int j = 0; j < childCounts[i]; j++) {
+                children.add(childIds[childIndex++]);
+            }
+            for (int j = node.getQuantity() - 1; j >= 0; j--) {
+                if (!children.contains(node.getChild(j).getId())) {
+                    node.detachChildAt(j);
+                }
+            }
+
+            TriggerData lastTrigger = (lastTriggerIds[i] != NONE ? triggers.get(lastTriggerIds[i]) : null);
+            node.setLastTrigger(lastTrigger instanceof TriggerGenericData ? (TriggerGenericData) lastTrigger : null);
+        }
+
+        TriggerData current = triggers.get(currentId);
+        if (current instanceof TriggerGenericData && (current == root || current.hasAncestor(root))) {
+            return (TriggerGenericData) current;
+        }
+        return root;
+    }
+
+    private static void collectNodes(TriggerGenericData node, List<TriggerGenericData> nodes) {
+        nodes.add(node);
+        for (TriggerData child : node.getChildren().getArray()) {
+            if (child instanceof TriggerGenericData) {
+                collectNodes((TriggerGenericData) child, nodes);
+            }
+        }
+    }
+
+    private static void collectTriggers(TriggerGenericData node, Map<Integer, TriggerData> triggers) {
+        triggers.put(node.getId(), node);
+        for (TriggerData child : node.getChildren().getArray()) {
+            if (child instanceof TriggerGenericData) {
+                collectTriggers((TriggerGenericData) child, triggers);
+            } else {
+                triggers.put(child.getId(), child);
+            }
+        }
+    }
+
+    @Override
+    public void write(JmeExporter ex) throws IOException {
+        OutputCapsule out = ex.getCapsule(this);
+        out.write(triggerId, "triggerId", 0);
+        out.write(currentId, "currentId", 0);
+        out.write(nodeIds, "nodeIds", null);
+        out.write(repeatTimes, "repeatTimes", null);
+        out.write(lastTriggerIds, "lastTriggerIds", null);
+        out.write(childCounts, "childCounts", null);
+        out.write(childIds, "childIds", null);
+    }
+
+    @Override
+    public void read(JmeImporter im) throws IOException {
+        InputCapsule in = im.getCapsule(this);
+        triggerId = in.readInt("triggerId", 0);
+        currentId = in.readInt("currentId", 0);
+        nodeIds = in.readIntArray("nodeIds", new int[0]);
+        repeatTimes = in.readIntArray("repeatTimes", new int[0]);
+        lastTriggerIds = in.readIntArray("lastTriggerIds", new int[0]);
+        childCounts = in.readIntArray("childCounts", new int[0]);
+        childIds = in.readIntArray("childIds", new int[0]);
+    }
+
+}
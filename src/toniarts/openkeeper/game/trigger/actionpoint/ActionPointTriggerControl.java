@@ -16,6 +16,7 @@
  */
 package toniarts.openkeeper.game.trigger.actionpoint;
 
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import toniarts.openkeeper.game.controller.ICreaturesController;
@@ -23,11 +24,11 @@ import toniarts.openkeeper.game.controller.IGameController;
 import toniarts.openkeeper.game.controller.IGameTimer;
 import toniarts.openkeeper.game.controller.ILevelInfo;
 import toniarts.openkeeper.game.controller.IMapController;
-import toniarts.openkeeper.game.controller.creature.ICreatureController;
 import toniarts.openkeeper.game.data.ActionPoint;
 import toniarts.openkeeper.game.logic.IEntityPositionLookup;
 import toniarts.openkeeper.game.map.MapData;
 import toniarts.openkeeper.game.map.MapTile;
+import toniarts.openkeeper.game.trigger.TriggerCondition;
 import toniarts.openkeeper.game.trigger.TriggerControl;
 import toniarts.openkeeper.game.trigger.TriggerGenericData;
 import toniarts.openkeeper.tools.convert.map.TriggerGeneric;
@@ -56,31 +57,14 @@ public class ActionPointTriggerControl extends TriggerControl {
     }
 
     @Override
-    protected boolean isActive(TriggerGenericData trigger) {
-        boolean result = false;
-
-        int target = 0;
-        int value = 0;
-
+    protected TriggerCondition compile(TriggerGenericData trigger) {
         TriggerGeneric.TargetType targetType = trigger.getType();
         switch (targetType) {
-            case AP_CONGREGATE_IN:
-                short playerId = trigger.getUserData("playerId", short.class);
-                short targetId = trigger.getUserData("targetId", short.class);
-                value = trigger.getUserData("value", int.class);
+            case AP_CONGREGATE_IN: {
                 short type = trigger.getUserData("targetType", short.class);
                 switch (type) {
                     case 0:
                     case 3: // Creature
-                        for (int x = (int) ap.getStart().x; x <= (int) ap.getEnd().x; x++) {
-                            for (int y = (int) ap.getStart().y; y <= (int) ap.getEnd().y; y++) {
-                                for (ICreatureController creature : entityPositionLookup.getEntityTypesInLocation(x, y, ICreatureController.class)) {
-                                    if ((playerId == 0 || creature.getOwnerId() == playerId) && (targetId == 0 || creature.getCreature().getCreatureId() == targetId)) {
-                                        target++;
-                                    }
-                                }
-                            }
-                        }
                         break;
                     case 6: // Object
                         break;
@@ -88,13 +72,13 @@ public class ActionPointTriggerControl extends TriggerControl {
                         LOGGER.log(Level.WARNING, "AP_CONGREGATE_IN unknown targetType {0}", type);
                         break;
                 }
-                return false;
 
-            case AP_POSESSED_CREATURE_ENTERS:
-                playerId = trigger.getUserData("playerId", short.class);
-                targetId = trigger.getUserData("targetId", short.class);
-                value = trigger.getUserData("value", int.class);
-                type = trigger.getUserData("targetType", short.class);
+                // TODO: compare the count of the creatures in the action point
+                return TriggerCondition.NEVER;
+            }
+
+            case AP_POSESSED_CREATURE_ENTERS: {
+                short type = trigger.getUserData("targetType", short.class);
                 switch (type) {
                     //case 0:
                     case 3: // Creature
@@ -105,92 +89,69 @@ public class ActionPointTriggerControl extends TriggerControl {
                         LOGGER.warning("AP_POSESSED_CREATURE_ENTERS unknown targetType");
                         break;
                 }
-                return false;
-
-            case AP_CLAIM_PART_OF:
-                playerId = trigger.getUserData("playerId", short.class);
-                value = trigger.getUserData("value", int.class);
-
-                MapData map = mapController.getMapData();
-                for (int x = (int) ap.getStart().x; x <= (int) ap.getEnd().x; x++) {
-                    for (int y = (int) ap.getStart().y; y <= (int) ap.getEnd().y; y++) {
-                        if (playerId == map.getTile(x, y).getOwnerId()) {
-                            target++;
-                        }
-                    }
-                }
-                break;
+                return TriggerCondition.NEVER;
+            }
 
-            case AP_CLAIM_ALL_OF:
-                playerId = trigger.getUserData("playerId", short.class);
-                // value = trigger.getUserData("value", int.class); // Unusefull ?
-                map = mapController.getMapData();
-                for (int x = (int) ap.getStart().x; x <= (int) ap.getEnd().x; x++) {
-                    for (int y = (int) ap.getStart().y; y <= (int) ap.getEnd().y; y++) {
-                        if (playerId != map.getTile(x, y).getOwnerId()) {
-                            return false;
-                        }
-                    }
-                }
-                return true;
-
-            case AP_SLAB_TYPES:
-                playerId = trigger.getUserData("playerId", short.class);
-                targetId = trigger.getUserData("terrainId", short.class);
-                value = trigger.getUserData("value", int.class);
+            case AP_CLAIM_PART_OF: {
+                short playerId = trigger.getUserData("playerId", short.class);
+                int value = trigger.getUserData("value", int.class);
+                return compileComparison(trigger, () -> countTiles(tile -> playerId == tile.getOwnerId()), () -> value);
+            }
 
-                map = mapController.getMapData();
-                for (int x = (int) ap.getStart().x; x <= (int) ap.getEnd().x; x++) {
-                    for (int y = (int) ap.getStart().y; y <= (int) ap.getEnd().y; y++) {
-                        MapTile tile = map.getTile(x, y);
+            case AP_CLAIM_ALL_OF: {
+                short playerId = trigger.getUserData("playerId", short.class);
+                // value = trigger.getUserData("value", int.class); // Unusefull ?
+                return () -> allTiles(tile -> playerId == tile.getOwnerId());
+            }
 
-                        if (playerId != 0 && playerId != tile.getOwnerId() || targetId != tile.getTerrainId()) {
-                            continue;
-                        }
+            case AP_SLAB_TYPES: {
+                short playerId = trigger.getUserData("playerId", short.class);
+                short terrainId = trigger.getUserData("terrainId", short.class);
+                int value = trigger.getUserData("value", int.class);
+                return compileComparison(trigger, () -> countTiles(tile -> (playerId == 0 || playerId == tile.getOwnerId()) && terrainId == tile.getTerrainId()), () -> value);
+            }
 
-                        target++;
-                    }
-                }
-                break;
-
-            case AP_TAG_PART_OF:
-                playerId = trigger.getUserData("playerId", short.class);
-                value = trigger.getUserData("value", int.class);
-
-                map = mapController.getMapData();
-                for (int x = (int) ap.getStart().x; x <= (int) ap.getEnd().x; x++) {
-                    for (int y = (int) ap.getStart().y; y <= (int) ap.getEnd().y; y++) {
-                        // TODO check who tagged tile
-                        if (map.getTile(x, y).isSelected(playerId)) {
-                            target++;
-                        }
-                    }
-                }
-                break;
+            case AP_TAG_PART_OF: {
+                short playerId = trigger.getUserData("playerId", short.class);
+                int value = trigger.getUserData("value", int.class);
+                // TODO check who tagged tile
+                return compileComparison(trigger, () -> countTiles(tile -> tile.isSelected(playerId)), () -> value);
+            }
 
-            case AP_TAG_ALL_OF:
-                playerId = trigger.getUserData("playerId", short.class);
+            case AP_TAG_ALL_OF: {
+                short playerId = trigger.getUserData("playerId", short.class);
                 // value = trigger.getUserData("value", int.class); // Unusefull ?
-                map = mapController.getMapData();
-                for (int x = (int) ap.getStart().x; x <= (int) ap.getEnd().x; x++) {
-                    for (int y = (int) ap.getStart().y; y <= (int) ap.getEnd().y; y++) {
-                        // TODO check who tagged tile
-                        if (!map.getTile(x, y).isSelected(playerId)) {
-                            return false;
-                        }
-                    }
-                }
-                return true;
+                // TODO check who tagged tile
+                return () -> allTiles(tile -> tile.isSelected(playerId));
+            }
 
             default:
-                return super.isActive(trigger);
+                return super.compile(trigger);
         }
+    }
 
-        TriggerGeneric.ComparisonType comparisonType = trigger.getComparison();
-        if (comparisonType != null && comparisonType != TriggerGeneric.ComparisonType.NONE) {
-            result = compare(target, comparisonType, value);
+    private int countTiles(Predicate<MapTile> condition) {
+        MapData map = mapController.getMapData();
+        int count = 0;
+        for (int x = (int) ap.getStart().x; x <= (int) ap.getEnd().x; x++) {
+            for (int y = (int) ap.getStart().y; y <= (int) ap.getEnd().y; y++) {
+                if (condition.test(map.getTile(x, y))) {
+                    count++;
+                }
+            }
         }
+        return count;
+    }
 
-        return result;
+    private boolean allTiles(Predicate<MapTile> condition) {
+        MapData map = mapController.getMapData();
+        for (int x = (int) ap.getStart().x; x <= (int) ap.getEnd().x; x++) {
+            for (int y = (int) ap.getStart().y; y <= (int) ap.getEnd().y; y++) {
+                if (!condition.test(map.getTile(x, y))) {
+                    return false;
+                }
+            }
+        }
+        return true;
     }
 }
@@ -17,6 +17,7 @@
 package toniarts.openkeeper.game.trigger.actionpoint;
 
 import com.jme3.util.SafeArrayList;
+import java.util.List;
 import toniarts.openkeeper.game.controller.ICreaturesController;
 import toniarts.openkeeper.game.controller.IGameController;
 import toniarts.openkeeper.game.controller.IGameTimer;
@@ -25,6 +26,7 @@ import toniarts.openkeeper.game.controller.IMapController;
 import toniarts.openkeeper.game.data.ActionPoint;
 import toniarts.openkeeper.game.logic.IEntityPositionLookup;
 import toniarts.openkeeper.game.logic.IGameLogicUpdatable;
+import toniarts.openkeeper.game.trigger.TriggerControl;
 
 /**
  *
@@ -45,6 +47,15 @@ public class ActionPointTriggerLogicController implements IGameLogicUpdatable {
         }
     }
 
+    /**
+     * Get the trigger controls, for saving their state
+     *
+     * @return the trigger controls
+     */
+    public List<? extends TriggerControl> getTriggerControls() {
+        return triggers;
+    }
+
     @Override
     public void start() {
 
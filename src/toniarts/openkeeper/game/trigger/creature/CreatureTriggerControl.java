@@ -27,6 +27,7 @@ import toniarts.openkeeper.game.data.ObjectiveType;
 import toniarts.openkeeper.game.state.session.PlayerService;
 import toniarts.openkeeper.game.trigger.AbstractThingTriggerControl;
 import toniarts.openkeeper.game.trigger.TriggerActionData;
+import toniarts.openkeeper.game.trigger.TriggerCondition;
 import toniarts.openkeeper.game.trigger.TriggerGenericData;
 import toniarts.openkeeper.tools.convert.ConversionUtils;
 import toniarts.openkeeper.tools.convert.map.Thing;
@@ -48,104 +49,47 @@ public class CreatureTriggerControl extends AbstractThingTriggerControl<ICreatur
     }
 
     @Override
-    protected boolean isActive(TriggerGenericData trigger) {
-        boolean result = false;
-
-        float target = 0;
-
+    protected TriggerCondition compile(TriggerGenericData trigger) {
         TriggerGeneric.TargetType targetType = trigger.getType();
         switch (targetType) {
             case CREATURE_CREATED:
-                return instanceControl != null;
+                return () -> instanceControl != null;
             case CREATURE_KILLED:
-                if (instanceControl != null) {
-                    return instanceControl.isDead();
-                }
-                return false;
+                return compileThingCondition(ICreatureController::isDead);
             case CREATURE_SLAPPED:
-                if (instanceControl != null) {
-                    return instanceControl.isSlapped();
-                }
-                return false;
+                return compileThingCondition(ICreatureController::isSlapped);
             case CREATURE_ATTACKED:
-                if (instanceControl != null) {
-                    return instanceControl.isAttacked();
-                }
-                return false;
+                return compileThingCondition(ICreatureController::isAttacked);
             case CREATURE_IMPRISONED:
-                if (instanceControl != null) {
-                    return instanceControl.isImprisoned();
-                }
-                return false;
+                return compileThingCondition(ICreatureController::isImprisoned);
             case CREATURE_TORTURED:
-                if (instanceControl != null) {
-                    return instanceControl.isTortured();
-                }
-                return false;
+                return compileThingCondition(ICreatureController::isTortured);
+            case CREATURE_STUNNED:
+                return compileThingCondition(ICreatureController::isStunned);
+            case CREATURE_DYING:
+                return compileThingCondition(ICreatureController::isUnconscious);
+            case CREATURE_HEALTH:
+                return compileThingComparison(trigger, creature -> ((float) creature.getHealth() / creature.getMaxHealth()) * 100); // Percentage
+            case CREATURE_GOLD_HELD:
+                return compileThingComparison(trigger, ICreatureController::getGold);
+            case CREATURE_EXPERIENCE_LEVEL:
+                return compileThingComparison(trigger, ICreatureController::getLevel);
+            case CREATURE_PICKS_UP_PORTAL_GEM:
+                return compileThingCondition(ICreatureController::isPortalGemInPosession);
+            case CREATURE_PICKED_UP:
+                return compileThingCondition(ICreatureController::isPickedUp);
             case CREATURE_CONVERTED:
-                return false;
             case CREATURE_CLAIMED:
-                return false;
             case CREATURE_ANGRY:
-                return false;
             case CREATURE_AFRAID:
-                return false;
             case CREATURE_STEALS:
-                return false;
             case CREATURE_LEAVES:
-                return false;
-            case CREATURE_STUNNED:
-                if (instanceControl != null) {
-                    return instanceControl.isStunned();
-                }
-                return false;
-            case CREATURE_DYING:
-                if (instanceControl != null) {
-                    return instanceControl.isUnconscious();
-                }
-                return false;
-            case CREATURE_HEALTH:
-                if (instanceControl != null) {
-                    target = ((float) instanceControl.getHealth() / instanceControl.getMaxHealth()) * 100; // Percentage
-                    break;
-                }
-                return false;
-            case CREATURE_GOLD_HELD:
-                if (instanceControl != null) {
-                    target = instanceControl.getGold();
-                    break;
-                }
-                return false;
-            case CREATURE_EXPERIENCE_LEVEL:
-                if (instanceControl != null) {
-                    target = instanceControl.getLevel();
-                    break;
-                }
-                return false;
             case CREATURE_HUNGER_SATED:
-                return false;
-            case CREATURE_PICKS_UP_PORTAL_GEM:
-                if (instanceControl != null) {
-                    return instanceControl.isPortalGemInPosession();
-                }
-                return false;
             case CREATURE_SACKED:
-                return false;
-            case CREATURE_PICKED_UP:
-                if (instanceControl != null) {
-                    return instanceControl.isPickedUp();
-                }
-                return false;
+                return TriggerCondition.NEVER;
             default:
-                return super.isActive(trigger);
+                return super.compile(trigger);
         }
-
-        TriggerGeneric.ComparisonType comparisonType = trigger.getComparison();
-        if (comparisonType != null && comparisonType != TriggerGeneric.ComparisonType.NONE) {
-            result = compare(target, comparisonType, (int) trigger.getUserData("value"));
-        }
-
-        return result;
     }
 
     @Override
@@ -25,6 +25,7 @@ import toniarts.openkeeper.game.controller.IMapController;
 import toniarts.openkeeper.game.controller.door.IDoorController;
 import toniarts.openkeeper.game.state.session.PlayerService;
 import toniarts.openkeeper.game.trigger.AbstractThingTriggerControl;
+import toniarts.openkeeper.game.trigger.TriggerCondition;
 import toniarts.openkeeper.game.trigger.TriggerGenericData;
 import toniarts.openkeeper.tools.convert.map.TriggerGeneric;
 
@@ -44,13 +45,13 @@ public class DoorTriggerControl extends AbstractThingTriggerControl<IDoorControl
     }
 
     @Override
-    protected boolean isActive(TriggerGenericData trigger) {
+    protected TriggerCondition compile(TriggerGenericData trigger) {
         TriggerGeneric.TargetType targetType = trigger.getType();
         switch (targetType) {
             case DOOR_DESTROYED:
-                return instanceControl.isDestroyed();
+                return compileThingCondition(IDoorController::isDestroyed);
             default:
-                return super.isActive(trigger);
+                return super.compile(trigger);
         }
     }
 }
@@ -25,6 +25,7 @@ import toniarts.openkeeper.game.controller.IMapController;
 import toniarts.openkeeper.game.controller.object.IObjectController;
 import toniarts.openkeeper.game.state.session.PlayerService;
 import toniarts.openkeeper.game.trigger.AbstractThingTriggerControl;
+import toniarts.openkeeper.game.trigger.TriggerCondition;
 import toniarts.openkeeper.game.trigger.TriggerGenericData;
 import toniarts.openkeeper.tools.convert.map.TriggerGeneric;
 
@@ -44,24 +45,13 @@ public class ObjectTriggerControl extends AbstractThingTriggerControl<IObjectCon
     }
 
     @Override
-    protected boolean isActive(TriggerGenericData trigger) {
-        boolean result = false;
-
-        float target = 0;
-
+    protected TriggerCondition compile(TriggerGenericData trigger) {
         TriggerGeneric.TargetType targetType = trigger.getType();
         switch (targetType) {
             case OBJECT_CLAIMED:
-                return false;
+                return TriggerCondition.NEVER;
             default:
-                return super.isActive(trigger);
+                return super.compile(trigger);
         }
-
-//        TriggerGeneric.ComparisonType comparisonType = trigger.getComparison();
-//        if (comparisonType != null && comparisonType != TriggerGeneric.ComparisonType.NONE) {
-//            result = compare(target, comparisonType, (int) trigger.getUserData("value"));
-//        }
-//
-//        return result;
     }
 }
@@ -16,6 +16,7 @@
  */
 package toniarts.openkeeper.game.trigger.party;
 
+import java.util.function.Predicate;
 import java.util.logging.Logger;
 import toniarts.openkeeper.game.controller.ICreaturesController;
 import toniarts.openkeeper.game.controller.IGameController;
@@ -24,6 +25,7 @@ import toniarts.openkeeper.game.controller.ILevelInfo;
 import toniarts.openkeeper.game.controller.IMapController;
 import toniarts.openkeeper.game.controller.creature.ICreatureController;
 import toniarts.openkeeper.game.controller.creature.IPartyController;
+import toniarts.openkeeper.game.trigger.TriggerCondition;
 import toniarts.openkeeper.game.trigger.TriggerControl;
 import toniarts.openkeeper.game.trigger.TriggerGenericData;
 import toniarts.openkeeper.tools.convert.map.TriggerGeneric;
@@ -46,56 +48,44 @@ public class PartyTriggerControl extends TriggerControl {
     }
 
     @Override
-    protected boolean isActive(TriggerGenericData trigger) {
-        boolean result = false;
-
-        float target = 0;
-        int value = 0;
-
+    protected TriggerCondition compile(TriggerGenericData trigger) {
         TriggerGeneric.TargetType targetType = trigger.getType();
         switch (targetType) {
             case PARTY_CREATED:
-                return partyController.isCreated();
-
+                return partyController::isCreated;
             case PARTY_MEMBERS_KILLED:
-                short unknown = (short) trigger.getUserData("unknown");
-                value = (int) trigger.getUserData("value");
-                if (partyController.isCreated()) {
-                    for (ICreatureController creature : partyController.getActualMembers()) {
-                        if (creature.isDead()) {
-                            target++;
-                        }
-                    }
-                    break;
-                }
-                return false;
-
-            case PARTY_MEMBERS_CAPTURED:
-                value = (int) trigger.getUserData("value");
-                break;
-
+                return compilePartyComparison(trigger, ICreatureController::isDead);
+            case PARTY_MEMBERS_CAPTURED: {
+                int value = trigger.getUserData("value", int.class);
+                return compileComparison(trigger, () -> 0, () -> value);
+            }
             case PARTY_MEMBERS_INCAPACITATED:
-                unknown = (short) trigger.getUserData("unknown");
-                value = (int) trigger.getUserData("value");
-                if (partyController.isCreated()) {
-                    for (ICreatureController creature : partyController.getActualMembers()) {
-                        if (creature.isIncapacitated()) {
-                            target++;
-                        }
-                    }
-                    break;
-                }
-                return false;
-
+                return compilePartyComparison(trigger, ICreatureController::isIncapacitated);
             default:
-                return super.isActive(trigger);
-        }
-
-        TriggerGeneric.ComparisonType comparisonType = trigger.getComparison();
-        if (comparisonType != null && comparisonType != TriggerGeneric.ComparisonType.NONE) {
-            result = compare(target, comparisonType, value);
+                return super.compile(trigger);
         }
+    }
 
-        return result;
+    /**
+     * Compiles a comparison of the party member count matching the condition
+     * to the trigger value. The condition is never active while the party has
+     * not been created
+     *
+     * @param trigger the trigger
+     * @param condition the condition the members are counted by
+     * @return the compiled condition
+     */
+    private TriggerCondition compilePartyComparison(TriggerGenericData trigger, Predicate<ICreatureController> condition) {
+        int value = trigger.getUserData("value", int.class);
+        TriggerCondition comparison = compileComparison(trigger, () -> {
+            int target = 0;
+            for (ICreatureController creature : partyController.getActualMembers()) {
+                if (condition.test(creature)) {
+                    target++;
+                }
+            }
+            return target;
+        }, () -> value);
+        return () -> partyController.isCreated() && comparison.isActive();
     }
 }
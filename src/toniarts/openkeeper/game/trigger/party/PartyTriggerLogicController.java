@@ -17,6 +17,7 @@
 package toniarts.openkeeper.game.trigger.party;
 
 import com.jme3.util.SafeArrayList;
+import java.util.List;
 import toniarts.openkeeper.game.controller.ICreaturesController;
 import toniarts.openkeeper.game.controller.IGameController;
 import toniarts.openkeeper.game.controller.IGameTimer;
@@ -24,6 +25,7 @@ import toniarts.openkeeper.game.controller.ILevelInfo;
 import toniarts.openkeeper.game.controller.IMapController;
 import toniarts.openkeeper.game.controller.creature.IPartyController;
 import toniarts.openkeeper.game.logic.IGameLogicUpdatable;
+import toniarts.openkeeper.game.trigger.TriggerControl;
 
 /**
  *
@@ -44,6 +46,15 @@ public class PartyTriggerLogicController implements IGameLogicUpdatable {
         // TODO: get notified on new parties (a.k.a. parties re-spawned)
     }
 
+    /**
+     * Get the trigger controls, for saving their state
+     *
+     * @return the trigger controls
+     */
+    public List<? extends TriggerControl> getTriggerControls() {
+        return partyControllers;
+    }
+
     @Override
     public void start() {
 
@@ -17,6 +17,8 @@
 package toniarts.openkeeper.game.trigger.player;
 
 import java.util.Set;
+import java.util.function.DoubleSupplier;
+import java.util.function.ToIntFunction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import toniarts.openkeeper.game.controller.ICreaturesController;
@@ -24,6 +26,8 @@ import toniarts.openkeeper.game.controller.IGameController;
 import toniarts.openkeeper.game.controller.IGameTimer;
 import toniarts.openkeeper.game.controller.ILevelInfo;
 import toniarts.openkeeper.game.controller.IMapController;
+import toniarts.openkeeper.game.controller.player.PlayerCreatureControl;
+import toniarts.openkeeper.game.controller.player.PlayerRoomControl;
 import toniarts.openkeeper.game.controller.player.PlayerStatsControl;
 import toniarts.openkeeper.game.controller.room.ICreatureEntrance;
 import toniarts.openkeeper.game.controller.room.IRoomController;
@@ -31,9 +35,12 @@ import toniarts.openkeeper.game.data.ActionPoint;
 import toniarts.openkeeper.game.data.Keeper;
 import toniarts.openkeeper.game.state.session.PlayerService;
 import toniarts.openkeeper.game.trigger.TriggerActionData;
+import toniarts.openkeeper.game.trigger.TriggerCondition;
 import toniarts.openkeeper.game.trigger.TriggerControl;
 import toniarts.openkeeper.game.trigger.TriggerGenericData;
 import toniarts.openkeeper.tools.convert.ConversionUtils;
+import toniarts.openkeeper.tools.convert.map.Creature;
+import toniarts.openkeeper.tools.convert.map.Room;
 import toniarts.openkeeper.tools.convert.map.TriggerAction;
 import toniarts.openkeeper.tools.convert.map.TriggerGeneric;
 import toniarts.openkeeper.utils.WorldUtils;
@@ -69,187 +76,157 @@ public class PlayerTriggerControl extends TriggerControl {
     }
 
     @Override
-    protected boolean isActive(TriggerGenericData trigger) {
-        boolean result = false;
-
-        int target = 0;
-        int value = 0;
-
+    protected TriggerCondition compile(TriggerGenericData trigger) {
         TriggerGeneric.TargetType targetType = trigger.getType();
         switch (targetType) {
-            case PLAYER_CREATURES:
-                short creatureId = trigger.getUserData("creatureId", short.class);
+            case PLAYER_CREATURES: {
+                if (!isComparable(trigger)) {
+                    return TriggerCondition.NEVER;
+                }
+                TriggerGeneric.ComparisonType comparisonType = trigger.getComparison();
+                Creature creature = getCreature(trigger.getUserData("creatureId", short.class));
                 boolean isValue = trigger.getUserData("flag", short.class) == 1;
-
-                target = getCreaturesCount(playerId, creatureId);
-
-                if (isValue) {
-                    value = trigger.getUserData("value", int.class);
-                } else {
-                    short otherPlayerId = trigger.getUserData("playerId", short.class);
-                    value = getCreaturesCount(otherPlayerId, creatureId);
+                int value = (isValue ? trigger.getUserData("value", int.class) : 0);
+                PlayerCreatureControl creatureControl = getPlayerController(playerId).getCreatureControl();
+                PlayerCreatureControl otherCreatureControl = (isValue ? null : getPlayerController(trigger.getUserData("playerId", short.class)).getCreatureControl());
+
+                // The counts change only when creatures come and go
+                return new TriggerCondition() {
+
+                    private int revision = -1;
+                    private int otherRevision = -1;
+                    private boolean result;
+
+                    @Override
+                    public boolean isActive() {
+                        if (revision != creatureControl.getRevision() || (otherCreatureControl != null && otherRevision != otherCreatureControl.getRevision())) {
+                            revision = creatureControl.getRevision();
+                            otherRevision = (otherCreatureControl != null ? otherCreatureControl.getRevision() : -1);
+                            result = compare(getCreaturesCount(creatureControl, creature), comparisonType,
+                                    otherCreatureControl != null ? getCreaturesCount(otherCreatureControl, creature) : value);
+                        }
+                        return result;
+                    }
+                };
+            }
+
+            case PLAYER_ROOM_SLABS: {
+                Room room = getRoom(trigger.getUserData("roomId", short.class));
+                PlayerStatsControl statsControl = getPlayerController(playerId).getStatsControl();
+                if (trigger.getUserData("flag", short.class) == 1) {
+                    int value = trigger.getUserData("value", int.class);
+                    return compileComparison(trigger, () -> getRoomSlabsCount(statsControl, room), () -> value);
+                }
+                PlayerStatsControl otherStatsControl = getPlayerController(trigger.getUserData("playerId", short.class)).getStatsControl();
+                return compileComparison(trigger, () -> getRoomSlabsCount(statsControl, room), () -> getRoomSlabsCount(otherStatsControl, room));
+            }
+
+            case PLAYER_ROOMS: {
+                Room room = getRoom(trigger.getUserData("roomId", short.class));
+                PlayerRoomControl roomControl = getPlayerController(playerId).getRoomControl();
+                if (trigger.getUserData("flag", short.class) == 1) {
+                    int value = trigger.getUserData("value", int.class);
+                    return compileComparison(trigger, () -> getRoomCount(roomControl, room), () -> value);
+                }
+                PlayerRoomControl otherRoomControl = getPlayerController(trigger.getUserData("playerId", short.class)).getRoomControl();
+                return compileComparison(trigger, () -> getRoomCount(roomControl, room), () -> getRoomCount(otherRoomControl, room));
+            }
+
+            case PLAYER_GOLD: {
+                Keeper keeper = getPlayer();
+                return compileComparison(trigger, keeper::getGold, compileOtherPlayerValue(trigger, Keeper::getGold));
+            }
+
+            case PLAYER_GOLD_MINED: {
+                Keeper keeper = getPlayer();
+                return compileComparison(trigger, keeper::getGoldMined, compileOtherPlayerValue(trigger, Keeper::getGoldMined));
+            }
+
+            case PLAYER_MANA: {
+                Keeper keeper = getPlayer();
+                return compileComparison(trigger, keeper::getMana, compileOtherPlayerValue(trigger, Keeper::getMana));
+            }
+
+            case PLAYER_CREATURE_PICKED_UP: {
+                PlayerStatsControl statsControl = getPlayerController(playerId).getStatsControl();
+                Creature creature = getCreature(trigger.getUserData("creatureId", short.class));
+                if (creature == null) {
+                    // Any creature
+                    return statsControl::hasPickedUp;
                 }
-                break;
 
-            case PLAYER_HAPPY_CREATURES:
-                return false;
-            case PLAYER_ANGRY_CREATURES:
-                return false;
-            case PLAYER_CREATURES_KILLED:
-                return false;
-            case PLAYER_KILLS_CREATURES:
-                return false;
+                // Certain creature
+                return () -> statsControl.hasPickedUp(creature);
+            }
 
-            case PLAYER_ROOM_SLABS:
-                short roomId = trigger.getUserData("roomId", short.class);
-                isValue = trigger.getUserData("flag", short.class) == 1;
+            case PLAYER_CREATURE_DROPPED: {
+                PlayerStatsControl statsControl = getPlayerController(playerId).getStatsControl();
+                Creature creature = getCreature(trigger.getUserData("creatureId", short.class));
+                if (creature == null) {
+                    // Any creature
+                    return statsControl::hasDropped;
+                }
 
-                target = getRoomSlabsCount(playerId, roomId);
+                // Certain creature
+                return () -> statsControl.hasDropped(creature);
+            }
 
-                if (isValue) {
-                    value = trigger.getUserData("value", int.class);
-                } else {
-                    short otherPlayerId = trigger.getUserData("playerId", short.class);
-                    value = getRoomSlabsCount(otherPlayerId, roomId);
+            case PLAYER_CREATURE_SLAPPED: {
+                PlayerStatsControl statsControl = getPlayerController(playerId).getStatsControl();
+                Creature creature = getCreature(trigger.getUserData("creatureId", short.class));
+                if (creature == null) {
+                    // Any creature
+                    return statsControl::hasSlapped;
                 }
-                break;
-
-            case PLAYER_ROOMS:
-                roomId = trigger.getUserData("roomId", short.class);
-                isValue = trigger.getUserData("flag", short.class) == 1;
 
-                target = getRoomCount(playerId, roomId);
+                // Certain creature
+                return () -> statsControl.hasSlapped(creature);
+            }
 
-                if (isValue) {
-                    value = trigger.getUserData("value", int.class);
-                } else {
-                    short otherPlayerId = trigger.getUserData("playerId", short.class);
-                    value = getRoomCount(otherPlayerId, roomId);
-                }
-                break;
+            case GUI_TRANSITION_ENDS:
+                return () -> !playerService.isInTransition();
+//                return playerState.isTransitionEnd();
 
+            case PLAYER_HAPPY_CREATURES:
+            case PLAYER_ANGRY_CREATURES:
+            case PLAYER_CREATURES_KILLED:
+            case PLAYER_KILLS_CREATURES:
             case PLAYER_ROOM_SIZE:
-                return false;
             case PLAYER_DOORS:
-                return false;
             case PLAYER_TRAPS:
-                return false;
             case PLAYER_KEEPER_SPELL:
-                return false;
-
-            case PLAYER_GOLD:
-                isValue = trigger.getUserData("flag", short.class) == 1;
-
-                target = getPlayer().getGold();
-
-                if (isValue) {
-                    value = trigger.getUserData("value", int.class);
-                } else {
-                    short otherPlayerId = trigger.getUserData("playerId", short.class);
-                    value = getPlayer(otherPlayerId).getGold();
-                }
-                break;
-
-            case PLAYER_GOLD_MINED:
-                isValue = trigger.getUserData("flag", short.class) == 1;
-
-                target = getPlayer().getGoldMined();
-
-                if (isValue) {
-                    value = trigger.getUserData("value", int.class);
-                } else {
-                    short otherPlayerId = trigger.getUserData("playerId", short.class);
-                    value = getPlayer(otherPlayerId).getGoldMined();
-                }
-                break;
-
-            case PLAYER_MANA:
-                isValue = trigger.getUserData("flag", short.class) == 1;
-
-                target = getPlayer().getMana();
-
-                if (isValue) {
-                    value = trigger.getUserData("value", int.class);
-                } else {
-                    short otherPlayerId = trigger.getUserData("playerId", short.class);
-                    value = getPlayer(otherPlayerId).getMana();
-                }
-                break;
-
             case PLAYER_DESTROYS:
-                return false;
             case PLAYER_CREATURES_AT_LEVEL:
-                return false;
             case PLAYER_KILLED:
-                return false;
             case PLAYER_DUNGEON_BREACHED:
-                return false;
             case PLAYER_ENEMY_BREACHED:
-                return false;
-
-            case PLAYER_CREATURE_PICKED_UP:
-                PlayerStatsControl psc = getPlayerController(playerId).getStatsControl();
-                creatureId = trigger.getUserData("creatureId", short.class);
-
-                if (creatureId == 0) {
-                    // Any creature
-                    return psc.hasPickedUp();
-                } else {
-                    // Certain creature
-                    return psc.hasPickedUp(levelInfo.getLevelData().getCreature(creatureId));
-                }
-
-            case PLAYER_CREATURE_DROPPED:
-                psc = getPlayerController(playerId).getStatsControl();
-                creatureId = trigger.getUserData("creatureId", short.class);
-
-                if (creatureId == 0) {
-                    // Any creature
-                    return psc.hasDropped();
-                } else {
-                    // Certain creature
-                    return psc.hasDropped(levelInfo.getLevelData().getCreature(creatureId));
-                }
-
-            case PLAYER_CREATURE_SLAPPED:
-                psc = getPlayerController(playerId).getStatsControl();
-                creatureId = trigger.getUserData("creatureId", short.class);
-
-                if (creatureId == 0) {
-                    // Any creature
-                    return psc.hasSlapped();
-                } else {
-                    // Certain creature
-                    return psc.hasSlapped(levelInfo.getLevelData().getCreature(creatureId));
-                }
-
             case PLAYER_CREATURE_SACKED:
-                return false;
             case PLAYER_ROOM_FURNITURE:
-                return false;
             case PLAYER_SLAPS:
-                return false;
             case PLAYER_CREATURES_GROUPED:
-                return false;
             case PLAYER_CREATURES_DYING:
-                return false;
-
-            case GUI_TRANSITION_ENDS:
-                return !playerService.isInTransition();
-//                return playerState.isTransitionEnd();
-
             case GUI_BUTTON_PRESSED:
-                return false;
+                return TriggerCondition.NEVER;
             default:
-                return super.isActive(trigger);
+                return super.compile(trigger);
         }
+    }
 
-        TriggerGeneric.ComparisonType comparisonType = trigger.getComparison();
-        if (comparisonType != null && comparisonType != TriggerGeneric.ComparisonType.NONE) {
-            result = compare(target, comparisonType, value);
+    /**
+     * Compiles the right hand side of a player comparison, either a value or
+     * the same property of another player
+     *
+     * @param trigger the trigger
+     * @param property the player property to compare
+     * @return the value supplier
+     */
+    private DoubleSupplier compileOtherPlayerValue(TriggerGenericData trigger, ToIntFunction<Keeper> property) {
+        if (trigger.getUserData("flag", short.class) == 1) {
+            int value = trigger.getUserData("value", int.class);
+            return () -> value;
         }
-
-        return result;
+        Keeper otherKeeper = getPlayer(trigger.getUserData("playerId", short.class));
+        return () -> property.applyAsInt(otherKeeper);
     }
 
     @Override
@@ -331,12 +308,9 @@ public class PlayerTriggerControl extends TriggerControl {
                 break;
 
             case REVEAL_ACTION_POINT: // AP part
-//                if (playerId == playerState.getPlayerId()) {
-//                    // TODO this
-//                    // remove fog of war from tiles in action point
-//                    // or
-//                    // add fog of war to tiles in action point
-//                }
+                ap = levelInfo.getActionPoint(trigger.getUserData("actionPointId", short.class));
+                available = trigger.getUserData("available", short.class) == 0; // 0 = Reveal, !0 = Conceal
+                mapController.revealTiles(ap.getPoints(), playerId, available);
                 break;
 
             case ZOOM_TO_ACTION_POINT: // AP part
@@ -416,27 +390,35 @@ public class PlayerTriggerControl extends TriggerControl {
         return super.getPlayer(playerId);
     }
 
-    private int getCreaturesCount(short playerId, short creatureId) {
-        if (creatureId == 0) {
-            return getPlayerController(playerId).getCreatureControl().getTypeCount();
+    private Creature getCreature(short creatureId) {
+        return (creatureId == 0 ? null : levelInfo.getLevelData().getCreature(creatureId));
+    }
+
+    private Room getRoom(short roomId) {
+        return (roomId == 0 ? null : levelInfo.getLevelData().getRoomById(roomId));
+    }
+
+    private static int getCreaturesCount(PlayerCreatureControl creatureControl, Creature creature) {
+        if (creature == null) {
+            return creatureControl.getTypeCount();
         } else {
-            return getPlayerController(playerId).getCreatureControl().getTypeCount(levelInfo.getLevelData().getCreature(creatureId));
+            return creatureControl.getTypeCount(creature);
         }
     }
 
-    private int getRoomSlabsCount(short playerId, short roomId) {
-        if (roomId == 0) {
-            return getPlayerController(playerId).getRoomControl().getRoomSlabsCount();
+    private static int getRoomSlabsCount(PlayerStatsControl statsControl, Room room) {
+        if (room == null) {
+            return statsControl.getRoomSlabsCount();
         } else {
-            return getPlayerController(playerId).getRoomControl().getRoomSlabsCount(levelInfo.getLevelData().getRoomById(roomId));
+            return statsControl.getRoomSlabsCount(room);
         }
     }
 
-    private int getRoomCount(short playerId, short roomId) {
-        if (roomId == 0) {
-            return getPlayerController(playerId).getRoomControl().getTypeCount();
+    private static int getRoomCount(PlayerRoomControl roomControl, Room room) {
+        if (room == null) {
+            return roomControl.getTypeCount();
         } else {
-            return getPlayerController(playerId).getRoomControl().getTypeCount(levelInfo.getLevelData().getRoomById(roomId));
+            return roomControl.getTypeCount(room);
         }
     }
 
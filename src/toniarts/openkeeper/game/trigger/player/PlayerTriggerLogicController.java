@@ -17,6 +17,7 @@
 package toniarts.openkeeper.game.trigger.player;
 
 import com.jme3.util.SafeArrayList;
+import java.util.List;
 import java.util.Map;
 import toniarts.openkeeper.game.controller.ICreaturesController;
 import toniarts.openkeeper.game.controller.IGameController;
@@ -26,6 +27,7 @@ import toniarts.openkeeper.game.controller.IMapController;
 import toniarts.openkeeper.game.data.Keeper;
 import toniarts.openkeeper.game.logic.IGameLogicUpdatable;
 import toniarts.openkeeper.game.state.session.PlayerService;
+import toniarts.openkeeper.game.trigger.TriggerControl;
 import toniarts.openkeeper.tools.convert.map.Player;
 
 /**
@@ -50,6 +52,15 @@ public class PlayerTriggerLogicController implements IGameLogicUpdatable {
         // TODO: get notified on new parties (a.k.a. parties re-spawned)
     }
 
+    /**
+     * Get the trigger controls, for saving their state
+     *
+     * @return the trigger controls
+     */
+    public List<? extends TriggerControl> getTriggerControls() {
+        return playerTriggerControls;
+    }
+
     @Override
     public void start() {
 
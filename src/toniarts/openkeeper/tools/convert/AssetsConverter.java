@@ -28,7 +28,6 @@ import com.jme3.system.AppSettings;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileOutputStream;
-import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
@@ -45,6 +44,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -55,6 +58,7 @@ import toniarts.openkeeper.cinematics.CameraSweepData;
 import toniarts.openkeeper.cinematics.CameraSweepDataEntry;
 import toniarts.openkeeper.cinematics.CameraSweepDataLoader;
 import toniarts.openkeeper.game.data.HiScores;
+import toniarts.openkeeper.game.data.MapCatalog;
 import toniarts.openkeeper.tools.convert.bf4.Bf4File;
 import toniarts.openkeeper.tools.convert.hiscores.HiScoresEntry;
 import toniarts.openkeeper.tools.convert.hiscores.HiScoresFile;
@@ -93,7 +97,7 @@ public abstract class AssetsConverter {
     public enum ConvertProcess {
 
         TEXTURES(5),
-        MODELS(6),
+        MODELS(7),
         MOUSE_CURSORS(4),
         MUSIC_AND_SOUNDS(4),
         INTERFACE_TEXTS(3),
@@ -264,40 +268,70 @@ public abstract class AssetsConverter {
         int i = 0;
         int total = etFile.getFileCount() + frontEnd.getWadFileEntries().size() + engineTextures.getWadFileEntries().size();
 
-        for (String textureFile : etFile) {
-            updateStatus(i, total, ConvertProcess.TEXTURES);
-            i++;
-
-            //All are PNG files, and MipMap levels are present, we need only the
-            //highest quality one, so don't bother extracting the other mipmap levels
-            Matcher matcher = pattern.matcher(textureFile);
-            boolean found = matcher.find();
-            if (found && Integer.parseInt(matcher.group("mipmaplevel")) == 0) {
-
-                //Highest resolution, extract and rename
-                File f = etFile.extractFileData(textureFile, destination, OVERWRITE_DATA);
-                File newFile = new File(f.toString().replaceFirst("MM" + matcher.group("mipmaplevel"), ""));
-                if (OVERWRITE_DATA && newFile.exists()) {
-                    newFile.delete();
-                } else if (!OVERWRITE_DATA && newFile.exists()) {
-
-                    // Delete the extracted file
-                    LOGGER.log(Level.INFO, "File {0} already exists, skipping!", newFile);
-                    f.delete();
-                    continue;
-                }
-                f.renameTo(newFile);
-            } else if (!found) {
-
-                // No mipmap levels, just extract
-                etFile.extractFileData(textureFile, destination, OVERWRITE_DATA);
+        // The engine textures are decoded in parallel, each texture is independent
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), (Runnable r) -> {
+            Thread thread = new Thread(r, "TextureConverter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> tasks = new ArrayList<>(etFile.getFileCount());
+            for (String textureFile : etFile) {
+                tasks.add(executor.submit(() -> convertEngineTexture(etFile, textureFile, pattern, destination)));
+            }
+            for (Future<?> task : tasks) {
+                updateStatus(i, total, ConvertProcess.TEXTURES);
+                i++;
+                task.get();
             }
+        } catch (InterruptedException | ExecutionException ex) {
+            String msg = "Failed to convert the engine textures to " + destination + "!";
+            LOGGER.log(Level.SEVERE, msg, ex);
+            throw new RuntimeException(msg, ex);
+        } finally {
+            executor.shutdownNow();
         }
 
         extractTextureContainer(i, total, frontEnd, destination);
         extractTextureContainer(i, total, engineTextures, destination);
     }
 
+    /**
+     * Extracts a single engine texture
+     *
+     * @param etFile the engine textures file
+     * @param textureFile the texture entry
+     * @param pattern the mipmap level pattern
+     * @param destination Destination folder
+     */
+    private static void convertEngineTexture(EngineTexturesFile etFile, String textureFile, Pattern pattern, String destination) {
+
+        //All are PNG files, and MipMap levels are present, we need only the
+        //highest quality one, so don't bother extracting the other mipmap levels
+        Matcher matcher = pattern.matcher(textureFile);
+        boolean found = matcher.find();
+        if (found && Integer.parseInt(matcher.group("mipmaplevel")) == 0) {
+
+            //Highest resolution, extract and rename
+            File f = etFile.extractFileData(textureFile, destination, OVERWRITE_DATA);
+            File newFile = new File(f.toString().replaceFirst("MM" + matcher.group("mipmaplevel"), ""));
+            if (OVERWRITE_DATA && newFile.exists()) {
+                newFile.delete();
+            } else if (!OVERWRITE_DATA && newFile.exists()) {
+
+                // Delete the extracted file
+                LOGGER.log(Level.INFO, "File {0} already exists, skipping!", newFile);
+                f.delete();
+                return;
+            }
+            f.renameTo(newFile);
+        } else if (!found) {
+
+            // No mipmap levels, just extract
+            etFile.extractFileData(textureFile, destination, OVERWRITE_DATA);
+        }
+    }
+
     /**
      * Extract and copy DK II models
      *
@@ -859,30 +893,20 @@ public abstract class AssetsConverter {
         destFolder.mkdirs();
         try {
 
-            // Get the skirmish/mp maps
-            File f = new File(dungeonKeeperFolder + PathUtils.DKII_MAPS_FOLDER);
-            File[] files = f.listFiles(new FilenameFilter() {
-                @Override
-                public boolean accept(File dir, String name) {
-                    return name.toLowerCase().endsWith(".kwd");
-                }
-            });
-
-            // Read them
-            List<KwdFile> maps = new ArrayList<>(files.length);
-            for (File file : files) {
-                KwdFile kwd = new KwdFile(dungeonKeeperFolder, file, false);
-                if (kwd.getGameLevel().getLvlFlags().contains(LevFlag.IS_SKIRMISH_LEVEL)
-                        || kwd.getGameLevel().getLvlFlags().contains(LevFlag.IS_MULTIPLAYER_LEVEL)) {
-                    maps.add(kwd);
+            // Get the skirmish/mp maps from the map catalog
+            List<MapCatalog.MapCatalogEntry> maps = new ArrayList<>();
+            for (MapCatalog.MapCatalogEntry entry : MapCatalog.load(dungeonKeeperFolder).getEntries()) {
+                if (entry.hasFlag(LevFlag.IS_SKIRMISH_LEVEL) || entry.hasFlag(LevFlag.IS_MULTIPLAYER_LEVEL)) {
+                    maps.add(entry);
                 }
             }
 
-            // Go through the map files
+            // Go through the map files, only these need to be read
             int i = 0;
             int total = maps.size();
-            for (KwdFile kwd : maps) {
+            for (MapCatalog.MapCatalogEntry entry : maps) {
                 updateStatus(i, total, ConvertProcess.MAP_THUMBNAILS);
+                KwdFile kwd = new KwdFile(dungeonKeeperFolder, new File(dungeonKeeperFolder + PathUtils.DKII_MAPS_FOLDER + entry.getFileName()), false);
                 genererateMapThumbnail(kwd, destination);
                 i++;
             }
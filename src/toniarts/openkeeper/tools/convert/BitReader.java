@@ -217,6 +217,46 @@ public class BitReader {
         return res;
     }
 
+    /**
+     * Peeks the next n bits without advancing the reader. Unlike
+     * {@link #checkNBit(int)}, honors the byte order of the underlying buffer
+     * and never touches its position
+     *
+     * @param n number of bits to peek, 1-32
+     * @return the bits, MSB first
+     */
+    public int peekNBit(int n) {
+        if (n > 32) {
+            throw new IllegalArgumentException("Can not peek more then 32 bit");
+        }
+
+        int available = 32 - deficit;
+        if (n <= available) {
+            return curInt >>> (32 - n);
+        }
+
+        int ret = (available == 0 ? 0 : curInt >>> deficit);
+        n -= available;
+        return (ret << n) | (peekInt() >>> (32 - n));
+    }
+
+    private int peekInt() {
+        int position = bb.position();
+        int res = 0;
+        for (int i = 0; i < 4; i++) {
+            res <<= 8;
+            if (position + i < bb.limit()) {
+                res |= bb.get(position + i) & 0xff;
+            }
+        }
+
+        if (bb.order() == ByteOrder.BIG_ENDIAN) {
+            return res;
+        } else {
+            return Integer.reverseBytes(res);
+        }
+    }
+
     private int nextIgnore16() {
         return bb.remaining() > 1 ? bb.getShort() & 0xffff : (bb.hasRemaining() ? ((bb.get() & 0xff) << 8) : 0);
     }
@@ -23,6 +23,9 @@ import com.jme3.asset.AssetLoader;
 import com.jme3.asset.MaterialKey;
 import com.jme3.asset.ModelKey;
 import com.jme3.asset.TextureKey;
+import com.jme3.bounding.BoundingBox;
+import com.jme3.material.MatParam;
+import com.jme3.material.MatParamOverride;
 import com.jme3.material.Material;
 import com.jme3.material.RenderState;
 import com.jme3.material.plugin.export.material.J3MExporter;
@@ -37,7 +40,9 @@ import com.jme3.scene.Node;
 import com.jme3.scene.VertexBuffer;
 import com.jme3.scene.VertexBuffer.Type;
 import com.jme3.scene.control.LodControl;
+import com.jme3.shader.VarType;
 import com.jme3.texture.Texture;
+import com.jme3.texture.Texture2D;
 import com.jme3.util.BufferUtils;
 import java.io.BufferedOutputStream;
 import java.io.File;
@@ -46,6 +51,7 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -101,6 +107,11 @@ public class KmfModelLoader implements AssetLoader {
      */
     public static final String MATERIAL_ALTERNATIVE_TEXTURES_COUNT = "AlternativeTextureCount";
     public static final String FRAME_FACTOR_FUNCTION = "FrameFactorFunction";
+    /**
+     * Lighting material with the support for the baked pose animations
+     */
+    public static final String MATERIAL_DEFINITION = "MatDefs/LightingMorph.j3md";
+    private static final String LEGACY_MATERIAL_DEFINITION = "Common/MatDefs/Light/Lighting.j3md";
     private static final Logger logger = Logger.getLogger(KmfModelLoader.class.getName());
     /* Already saved materials are stored here */
     private static final Map<toniarts.openkeeper.tools.convert.kmf.Material, String> materialCache = new HashMap<>();
@@ -308,6 +319,7 @@ public class KmfModelLoader implements AssetLoader {
         }
 
         int index = 0;
+        boolean baked = false;
         for (AnimSprite animSprite : anim.getSprites()) {
 
             // Animation
@@ -496,16 +508,36 @@ public class KmfModelLoader implements AssetLoader {
 
             //Set the buffers
             mesh.setBuffer(Type.Position, 3, BufferUtils.createFloatBuffer(vertices));
-            mesh.setBuffer(Type.BindPosePosition, 3, BufferUtils.createFloatBuffer(vertices));
             mesh.setBuffer(lodLevels[0]);
             mesh.setLodLevels(lodLevels);
             mesh.setBuffer(Type.TexCoord, 2, BufferUtils.createFloatBuffer(texCoord));
             mesh.setBuffer(Type.Normal, 3, BufferUtils.createFloatBuffer(normals));
-            mesh.setBuffer(Type.BindPoseNormal, 3, BufferUtils.createFloatBuffer(normals));
-            mesh.setStreamed();
+
+            // Bake the animation to a texture, the mesh itself stays static then and the instances can share it
+            Texture2D morphMap = poseTrack.bake(mesh.getFloatBuffer(Type.Position));
+            if (morphMap != null) {
+                mesh.setBuffer(Type.TexCoord3, 1, createMorphMapCoordinates(vertices.length));
+                baked = true;
+            } else {
+
+                // Too big, morph on the CPU
+                logger.log(Level.WARNING, "Failed to bake the animation of {0}, mesh {1} has too many vertices or frames!", new Object[]{anim.getName(), index});
+                mesh.setBuffer(Type.BindPosePosition, 3, BufferUtils.createFloatBuffer(vertices));
+                mesh.setBuffer(Type.BindPoseNormal, 3, BufferUtils.createFloatBuffer(normals));
+                mesh.setStreamed();
+            }
 
             // Create geometry
             Geometry geom = createGeometry(index, anim.getName(), mesh, materials, animSprite.getMaterialIndex());
+            if (morphMap != null) {
+                geom.addMatParamOverride(new MatParamOverride(VarType.Texture2D, PoseTrack.MORPH_MAP, morphMap));
+                geom.addMatParamOverride(new MatParamOverride(VarType.Float, PoseTrack.MORPH_FRAME_COUNT, (float) anim.getFrames()));
+
+                // The bounds must cover all the frames
+                BoundingBox bound = new BoundingBox();
+                bound.computeFromPoints(morphMap.getImage().getData(0).asFloatBuffer());
+                geom.setModelBound(bound);
+            }
 
             //Attach the geometry to the node
             node.attachChild(geom);
@@ -519,10 +551,31 @@ public class KmfModelLoader implements AssetLoader {
         control.addAnim(animation);
         node.addControl(control);
 
+        // The current frame is shared by all the baked meshes
+        if (baked) {
+            node.addMatParamOverride(new MatParamOverride(VarType.Float, PoseTrack.MORPH_FRAME, 0f));
+        }
+
         //Attach the node to the root
         root.attachChild(node);
     }
 
+    /**
+     * Creates the texture coordinates to the morph map, the U coordinate
+     * points to the center of the vertex column
+     *
+     * @param vertexCount number of vertices in the mesh
+     * @return the morph map coordinate for each vertex
+     */
+    private static FloatBuffer createMorphMapCoordinates(int vertexCount) {
+        FloatBuffer coordinates = BufferUtils.createFloatBuffer(vertexCount);
+        for (int i = 0; i < vertexCount; i++) {
+            coordinates.put((i + 0.5f) / vertexCount);
+        }
+        coordinates.flip();
+        return coordinates;
+    }
+
     private VertexBuffer[] createIndices(final Map<Integer, List<Triangle>> trianglesMap) {
 
         // Triangles are not in order, sometimes they are very random, many missing etc.
@@ -694,13 +747,16 @@ public class KmfModelLoader implements AssetLoader {
                             materialLocation = AssetsConverter.getAssetsFolder().concat(AssetsConverter.MATERIALS_FOLDER.concat(File.separator).concat(file.getName()));
                         }
                         material = assetInfo.getManager().loadMaterial(materialKey);
+                        if (LEGACY_MATERIAL_DEFINITION.equals(material.getMaterialDef().getAssetName())) {
+                            material = upgradeMaterial(material, assetInfo);
+                        }
                     }
                 }
             }
 
             // Create the material
             if (material == null) {
-                material = new Material(assetInfo.getManager(), "Common/MatDefs/Light/Lighting.j3md");
+                material = new Material(assetInfo.getManager(), MATERIAL_DEFINITION);
             }
 
             //Load up the texture and create the material
@@ -778,6 +834,25 @@ public class KmfModelLoader implements AssetLoader {
         return materials;
     }
 
+    /**
+     * Moves the parameters of a material made with the plain lighting
+     * definition to our own material definition
+     *
+     * @param material the old material
+     * @param assetInfo the asset info
+     * @return the new material
+     */
+    private static Material upgradeMaterial(Material material, AssetInfo assetInfo) {
+        Material result = new Material(assetInfo.getManager(), MATERIAL_DEFINITION);
+        for (MatParam param : material.getParams()) {
+            if (result.getMaterialDef().getMaterialParam(param.getName()) != null) {
+                result.setParam(param.getName(), param.getVarType(), param.getValue());
+            }
+        }
+        result.getAdditionalRenderState().set(material.getAdditionalRenderState());
+        return result;
+    }
+
     /**
      * Loads a JME texture of the texture name
      *
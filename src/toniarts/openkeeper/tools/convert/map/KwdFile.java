@@ -165,6 +165,27 @@ public final class KwdFile {
         }
     }
 
+    /**
+     * Constructs a level in memory, from the map and its terrain only. Meant
+     * for generated levels, the rest of the catalogs are left empty
+     *
+     * @param basePath path to DK II main path (or where ever is the "root")
+     * @param map the map
+     * @param terrains the terrain types used on the map
+     */
+    KwdFile(String basePath, GameMap map, Collection<Terrain> terrains) {
+        this.basePath = PathUtils.fixFilePath(basePath);
+        this.map = map;
+        terrainTiles = new HashMap<>(terrains.size());
+        for (Terrain terrain : terrains) {
+            terrainTiles.put(terrain.getTerrainId(), terrain);
+        }
+        players = new HashMap<>();
+        rooms = new HashMap<>();
+        roomsByTerrainId = new HashMap<>();
+        loaded = true;
+    }
+
     private void readFileContents(File file) throws IOException {
         try (RandomAccessFile data = new RandomAccessFile(file, "r")) {
             while (data.getFilePointer() < data.length()) {
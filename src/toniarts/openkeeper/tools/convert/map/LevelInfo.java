@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2014-2018 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.tools.convert.map;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.EnumSet;
+import toniarts.openkeeper.tools.convert.ConversionUtils;
+import toniarts.openkeeper.tools.convert.map.GameLevel.LevFlag;
+import toniarts.openkeeper.utils.PathUtils;
+
+/**
+ * Lightweight level information read straight from the KWD headers. Unlike
+ * {@link KwdFile}, this only seeks over the level info block and reads the
+ * map header, the texts, paths and map data are never parsed. Meant for
+ * listing maps.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class LevelInfo {
+
+    // Offsets inside the level info data, see KwdFile#readMapInfo
+    private static final int LEVEL_NAME_LENGTH = 64;
+    private static final int LEVEL_FLAGS_OFFSET = 25484;
+    private static final int LEVEL_TERRAIN_PATH_END_OFFSET = 25603;
+    private static final int LEVEL_HERO_DATA_SIZE = 2 + 12 + 64; // Rewards, speeches & hero name
+    private static final int LEVEL_CHECK = 222;
+    private static final int PATH_LENGTH = 64;
+
+    private final String name;
+    private final EnumSet<LevFlag> lvlFlags;
+    private final short playerCount;
+    private final int width;
+    private final int height;
+
+    private LevelInfo(String name, EnumSet<LevFlag> lvlFlags, short playerCount, int width, int height) {
+        this.name = name;
+        this.lvlFlags = lvlFlags;
+        this.playerCount = playerCount;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Reads the level info from the given KWD file
+     *
+     * @param basePath path to DK II main path (or where ever is the "root")
+     * @param file the KWD file to read
+     * @return the level info
+     * @throws IOException may fail reading or the file is corrupted
+     */
+    public static LevelInfo read(String basePath, File file) throws IOException {
+        String mapPath = null;
+        String name;
+        EnumSet<LevFlag> flags;
+        short playerCount = 0;
+        try (RandomAccessFile data = new RandomAccessFile(file, "r")) {
+            MapDataTypeEnum id = ConversionUtils.parseEnum(ConversionUtils.readUnsignedInteger(data), MapDataTypeEnum.class);
+            if (id != MapDataTypeEnum.LEVEL) {
+                throw new IOException("File " + file + " is not a level file!");
+            }
+            int headerEndOffset = readHeaderStart(data);
+            long offset = data.getFilePointer();
+            int itemCount = ConversionUtils.readUnsignedShort(data);
+            data.seek(offset + headerEndOffset);
+            ConversionUtils.readUnsignedInteger(data); // Check two
+            int dataSize = ConversionUtils.readUnsignedInteger(data);
+            long dataStart = data.getFilePointer();
+
+            // Name & flags
+            name = ConversionUtils.readStringUtf16(data, LEVEL_NAME_LENGTH).trim();
+            if (!name.isEmpty() && name.toLowerCase().endsWith(".kwd")) {
+                name = name.substring(0, name.length() - 4);
+            }
+            data.seek(dataStart + LEVEL_FLAGS_OFFSET);
+            flags = ConversionUtils.parseFlagValue(ConversionUtils.readUnsignedShort(data), LevFlag.class);
+
+            // Player count, not present in very old files
+            data.seek(dataStart + LEVEL_TERRAIN_PATH_END_OFFSET);
+            if (dataSize > LEVEL_TERRAIN_PATH_END_OFFSET) {
+                data.skipBytes(1); // One shot horny level
+                playerCount = (short) data.readUnsignedByte();
+                data.skipBytes(LEVEL_HERO_DATA_SIZE);
+            }
+            if (ConversionUtils.readUnsignedInteger(data) != LEVEL_CHECK) {
+                throw new IOException("Level file " + file + " is corrupted!");
+            }
+            ConversionUtils.readUnsignedInteger(data); // Content size
+
+            // Find the map path
+            for (int i = 0; i < itemCount; i++) {
+                MapDataTypeEnum pathId = ConversionUtils.parseEnum(ConversionUtils.readUnsignedInteger(data), MapDataTypeEnum.class);
+                if (pathId != MapDataTypeEnum.MAP) {
+                    data.skipBytes(4 + PATH_LENGTH);
+                    continue;
+                }
+                data.skipBytes(4);
+                mapPath = ConversionUtils.convertFileSeparators(ConversionUtils.readString(data, PATH_LENGTH).trim());
+                if (!".".equals(mapPath.substring(mapPath.length() - 4, mapPath.length() - 3))) {
+                    mapPath = mapPath.concat(".kwd");
+                }
+                break;
+            }
+        }
+        if (mapPath == null) {
+            throw new IOException("Level file " + file + " has no map!");
+        }
+
+        // The map dimensions are in the map file header
+        try (RandomAccessFile data = new RandomAccessFile(ConversionUtils.getRealFileName(PathUtils.fixFilePath(basePath), mapPath), "r")) {
+            ConversionUtils.readUnsignedInteger(data); // Id
+            readHeaderStart(data);
+            int width = ConversionUtils.readUnsignedInteger(data);
+            int height = ConversionUtils.readUnsignedInteger(data);
+
+            return new LevelInfo(name, flags, playerCount, width, height);
+        }
+    }
+
+    /**
+     * Reads the common KWD header start, leaves the file pointer at the start
+     * of the type specific header data
+     *
+     * @param data the data file, positioned after the header id
+     * @return the size of the type specific header data
+     * @throws IOException may fail reading
+     */
+    private static int readHeaderStart(RandomAccessFile data) throws IOException {
+        int size = ConversionUtils.readUnsignedInteger(data);
+        data.skipBytes(size); // The size itself
+        ConversionUtils.readUnsignedInteger(data); // Check one
+
+        return ConversionUtils.readUnsignedInteger(data);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public EnumSet<LevFlag> getLvlFlags() {
+        return lvlFlags;
+    }
+
+    public short getPlayerCount() {
+        return playerCount;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
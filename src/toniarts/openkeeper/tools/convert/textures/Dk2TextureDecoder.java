@@ -16,9 +16,6 @@
  */
 package toniarts.openkeeper.tools.convert.textures;
 
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.IntBuffer;
 import java.util.Arrays;
 
 /**
@@ -145,7 +142,7 @@ public abstract class Dk2TextureDecoder {
         bs_alpha = 0;
     }
 
-    protected void decompress_func1(IntBuffer in, IntBuffer out) {
+    protected void decompress_func1(int[] in, int inOffset, int[] out, int outOffset) {
         long rx;
         int sa;
         int b, a, c, d, i, p, s;
@@ -154,23 +151,23 @@ public abstract class Dk2TextureDecoder {
         double rxf, rxg, rxs;
         double xf, xg;
 
-        if ((in.get(in.position() + 1) | in.get(in.position() + 2) | in.get(in.position() + 3) | in.get(in.position() + 4) | in.get(in.position() + 6) | in.get(in.position() + 7)) == 0) {
-            a = in.get();
-            out.put(out.position() + 0, a);
-            out.put(out.position() + 9, a);
-            out.put(out.position() + 18, a);
-            out.put(out.position() + 27, a);
-            out.put(out.position() + 36, a);
-            out.put(out.position() + 45, a);
-            out.put(out.position() + 54, a);
-            out.put(out.position() + 63, a);
+        if ((in[inOffset + 1] | in[inOffset + 2] | in[inOffset + 3] | in[inOffset + 4] | in[inOffset + 6] | in[inOffset + 7]) == 0) {
+            a = in[inOffset];
+            out[outOffset + 0] = a;
+            out[outOffset + 9] = a;
+            out[outOffset + 18] = a;
+            out[outOffset + 27] = a;
+            out[outOffset + 36] = a;
+            out[outOffset + 45] = a;
+            out[outOffset + 54] = a;
+            out[outOffset + 63] = a;
             return;
         }
 
-        b = in.get(in.position() + 5) - in.get(in.position() + 3);
-        c = in.get(in.position() + 1) - in.get(in.position() + 7);
-        i = in.get(in.position() + 3) + in.get(in.position() + 5);
-        a = in.get(in.position() + 7) + in.get(in.position() + 1);
+        b = in[inOffset + 5] - in[inOffset + 3];
+        c = in[inOffset + 1] - in[inOffset + 7];
+        i = in[inOffset + 3] + in[inOffset + 5];
+        a = in[inOffset + 7] + in[inOffset + 1];
         xf = b;
         xg = c;
         p = i + a;
@@ -187,9 +184,9 @@ public abstract class Dk2TextureDecoder {
         rx *= norm_7af038;
         d = (int) (rx >> 32);
 
-        b = in.get(in.position() + 6);
+        b = in[inOffset + 6];
         d += d;
-        a = in.get(in.position() + 2);
+        a = in[inOffset + 2];
 
         c = ra;
         i = rb;
@@ -199,8 +196,8 @@ public abstract class Dk2TextureDecoder {
         sc = c & 0xFFFFFFFFL;
         sd = d & 0xFFFFFFFFL;
         si = i & 0xFFFFFFFFL;
-        c = in.get(in.position() + 0);
-        d = in.get(in.position() + 4);
+        c = in[inOffset + 0];
+        d = in[inOffset + 4];
         s = b + a;
         a -= b;
         b = d + c;
@@ -212,17 +209,17 @@ public abstract class Dk2TextureDecoder {
         d = (int) (rx >> 32);
 
         d += d;
-        out.put(out.position() + 18, (int) ((c - d) + sc));
-        out.put(out.position() + 45, (int) ((c - d) - sc));
-        out.put(out.position() + 27, (b - (s + d)) + ra);
-        out.put(out.position() + 36, (b - (s + d)) - ra);
-        out.put(out.position() + 0, (int) ((s + d) + b + si));
-        out.put(out.position() + 9, (int) (sd + d + c));
-        out.put(out.position() + 54, (int) (d + c - sd));
-        out.put(out.position() + 63, (int) ((s + d) + b - si));
+        out[outOffset + 18] = (int) ((c - d) + sc);
+        out[outOffset + 45] = (int) ((c - d) - sc);
+        out[outOffset + 27] = (b - (s + d)) + ra;
+        out[outOffset + 36] = (b - (s + d)) - ra;
+        out[outOffset + 0] = (int) ((s + d) + b + si);
+        out[outOffset + 9] = (int) (sd + d + c);
+        out[outOffset + 54] = (int) (d + c - sd);
+        out[outOffset + 63] = (int) ((s + d) + b - si);
     }
 
-    protected void decompress_func2(IntBuffer in, IntBuffer out) {
+    protected void decompress_func2(int[] in, int inOffset, int[] out, int outOffset) {
         long rx;
         int sa;
         int b, a, c, d, i, p, s;
@@ -231,10 +228,10 @@ public abstract class Dk2TextureDecoder {
         double rxf, rxg, rxs;
         double xf, xg;
 
-        b = in.get(in.position() + 5) - in.get(in.position() + 3);
-        c = in.get(in.position() + 1) - in.get(in.position() + 7);
-        i = in.get(in.position() + 3) + in.get(in.position() + 5);
-        a = in.get(in.position() + 7) + in.get(in.position() + 1);
+        b = in[inOffset + 5] - in[inOffset + 3];
+        c = in[inOffset + 1] - in[inOffset + 7];
+        i = in[inOffset + 3] + in[inOffset + 5];
+        a = in[inOffset + 7] + in[inOffset + 1];
         xf = b;
         xg = c;
         p = i + a;
@@ -251,9 +248,9 @@ public abstract class Dk2TextureDecoder {
         rx *= norm_7af038;
         d = (int) (rx >> 32);
 
-        b = in.get(in.position() + 6);
+        b = in[inOffset + 6];
         d += d;
-        a = in.get(in.position() + 2);
+        a = in[inOffset + 2];
 
         c = ra;
         i = rb;
@@ -263,8 +260,8 @@ public abstract class Dk2TextureDecoder {
         sc = c & 0xFFFFFFFFL;
         sd = d & 0xFFFFFFFFL;
         si = i & 0xFFFFFFFFL;
-        c = in.get(in.position() + 0);
-        d = in.get(in.position() + 4);
+        c = in[inOffset + 0];
+        d = in[inOffset + 4];
         s = b + a;
         a -= b;
         b = d + c;
@@ -285,22 +282,22 @@ public abstract class Dk2TextureDecoder {
         s = c + p;
         c -= p;
         p = ra;
-        out.put(out.position() + 2, s);
+        out[outOffset + 2] = s;
         s = (int) sd;
-        out.put(out.position() + 5, c);
+        out[outOffset + 5] = c;
         c = b + p;
         b -= p;
         p = (int) si;
-        out.put(out.position() + 3, c);
-        out.put(out.position() + 4, b);
+        out[outOffset + 3] = c;
+        out[outOffset + 4] = b;
         b = s + a;
         a -= s;
         c = d + p;
         d -= p;
-        out.put(out.position() + 0, c);
-        out.put(out.position() + 1, b);
-        out.put(out.position() + 6, a);
-        out.put(out.position() + 7, d);
+        out[outOffset + 0] = c;
+        out[outOffset + 1] = b;
+        out[outOffset + 6] = a;
+        out[outOffset + 7] = d;
     }
 
     protected long bs_read(int pos, int bits) {
@@ -435,21 +432,56 @@ public abstract class Dk2TextureDecoder {
         return n;
     }
 
-    protected abstract void decompress_block(ByteBuffer out, int stride, boolean alphaFlag);
+    /**
+     * Runs the inverse transform for the coefficients prepared to
+     * decompress2_chunk, the result is written to decompress4_chunk
+     *
+     * @param channelOffset the channel offset in decompress4_chunk
+     */
+    protected void decompress_chunk(int channelOffset) {
+        for (int i = 0; i < 8; i++) {
+            decompress_func1(decompress2_chunk, i * 8, decompress3_chunk, i);
+        }
+        for (int i = 0; i < 8; i++) {
+            decompress_func2(decompress3_chunk, i * 9, decompress4_chunk, i * 64 + channelOffset);
+        }
+    }
 
-    public byte[] dd_texture(long[] buf, int stride, int width, int height, boolean alphaFlag) {
+    /**
+     * Decompresses a single 8x8 block
+     *
+     * @param out the output pixels, ARGB
+     * @param offset offset of the block's top left pixel in the output
+     * @param width the image width, the row stride
+     * @param blockWidth pixels to write per row, at most 8
+     * @param blockHeight rows to write, at most 8
+     * @param alphaFlag whether the texture has alpha
+     */
+    protected abstract void decompress_block(int[] out, int offset, int width, int blockWidth, int blockHeight, boolean alphaFlag);
+
+    /**
+     * Decompresses a texture. The blocks share the bit stream and the
+     * channel predictors, so a single texture is always decoded serially.
+     * Decoder instances hold the decoding state, so use one instance per
+     * thread
+     *
+     * @param buf the compressed texture data read as uint32 items
+     * @param width texture width
+     * @param height texture height
+     * @param alphaFlag whether the texture has alpha
+     * @return the pixels as ARGB, row by row from the top
+     */
+    public int[] dd_texture(long[] buf, int width, int height, boolean alphaFlag) {
         int x, y;
-        ByteBuffer out = ByteBuffer.allocate(width * height * 4);
-        out.order(ByteOrder.LITTLE_ENDIAN);
+        int[] out = new int[width * height];
 
         initialize_dd(buf);
 
         for (y = 0; y < height; y += 8) {
             for (x = 0; x < width; x += 8) {
-                out.position(y * stride + x * 4);
-                decompress_block(out, stride, alphaFlag);
+                decompress_block(out, y * width + x, width, Math.min(8, width - x), Math.min(8, height - y), alphaFlag);
             }
         }
-        return out.array();
+        return out;
     }
 }
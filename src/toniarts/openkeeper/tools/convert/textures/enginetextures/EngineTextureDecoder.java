@@ -16,8 +16,6 @@
  */
 package toniarts.openkeeper.tools.convert.textures.enginetextures;
 
-import java.nio.ByteBuffer;
-import java.nio.IntBuffer;
 import toniarts.openkeeper.tools.convert.textures.Dk2TextureDecoder;
 
 /**
@@ -62,8 +60,7 @@ public class EngineTextureDecoder extends Dk2TextureDecoder {
     private static final double double_7af048 = 6.75539944108852e15;
 
     @Override
-    protected void decompress_block(ByteBuffer out, int stride, boolean alphaFlag) {
-        IntBuffer inp;
+    protected void decompress_block(int[] out, int offset, int width, int blockWidth, int blockHeight, boolean alphaFlag) {
         double d;
         long xr, xg, xb;
         int ir, ig, ib;
@@ -74,14 +71,14 @@ public class EngineTextureDecoder extends Dk2TextureDecoder {
 
         decompress(alphaFlag);
 
-        inp = IntBuffer.wrap(decompress4_chunk);
-        for (j = 0; j < 8; j++) {
-            for (i = 0; i < 8; i++) {
+        int inp = 0;
+        for (j = 0; j < blockHeight; j++) {
+            for (i = 0; i < blockWidth; i++) {
                 int value;
-                r = inp.get(inp.position() + i + 0);
-                g = inp.get(inp.position() + i + 18);
-                b = inp.get(inp.position() + i + 9);
-                a = inp.get(inp.position() + i + 27);
+                r = decompress4_chunk[inp + i + 0];
+                g = decompress4_chunk[inp + i + 18];
+                b = decompress4_chunk[inp + i + 9];
+                a = decompress4_chunk[inp + i + 27];
                 d = float_7af014 * (g - float_7af004) + float_7af008 * (r - float_7af000) + double_7af048;
                 xr = (long) (d + (d > 0 ? 0.5f : -0.5f)) & 0xFFFFFFFFL;
                 ir = (int) xr;
@@ -92,18 +89,18 @@ public class EngineTextureDecoder extends Dk2TextureDecoder {
                 xb = (long) (d + (d > 0 ? 0.5f : -0.5f)) & 0xFFFFFFFFL;
                 ib = (int) xb;
 
-                value = clamp(ir >> 16, 0, 255);
-                value |= clamp(ig >> 16, 0, 255) << 16;
+                value = clamp(ir >> 16, 0, 255) << 16;
+                value |= clamp(ig >> 16, 0, 255);
                 value |= clamp(ib >> 16, 0, 255) << 8;
                 if (alphaFlag) {
                     value |= clamp(a >> 16, 0, 255) << 24;
                 } else {
                     value |= 0xff000000;
                 }
-                out.putInt(out.position() + i * 4, value);
+                out[offset + i] = value;
             }
-            out.position(Math.min(out.limit(), out.position() + stride));
-            inp.position(inp.position() + 64);
+            offset += width;
+            inp += 64;
         }
     }
 
@@ -142,14 +139,8 @@ public class EngineTextureDecoder extends Dk2TextureDecoder {
             }
             bs_index = bs_pos;
         } else {
-            int i;
             bs_index = prepare_decompress((int) bs_red, bs_pos);
-            for (i = 0; i < 8; i++) {
-                decompress_func1(IntBuffer.wrap(decompress2_chunk, i * 8, decompress2_chunk.length - i * 8), IntBuffer.wrap(decompress3_chunk, i, decompress3_chunk.length - i));
-            }
-            for (i = 0; i < 8; i++) {
-                decompress_func2(IntBuffer.wrap(decompress3_chunk, i * 9, decompress3_chunk.length - i * 9), IntBuffer.wrap(decompress4_chunk, i * 64, decompress4_chunk.length - i * 64));
-            }
+            decompress_chunk(0);
         }
 
         bs_pos = (int) bs_index;
@@ -183,14 +174,8 @@ public class EngineTextureDecoder extends Dk2TextureDecoder {
             }
             bs_index = bs_pos;
         } else {
-            int i;
             bs_index = prepare_decompress((int) bs_green, bs_pos);
-            for (i = 0; i < 8; i++) {
-                decompress_func1(IntBuffer.wrap(decompress2_chunk, i * 8, decompress2_chunk.length - i * 8), IntBuffer.wrap(decompress3_chunk, i, decompress3_chunk.length - i));
-            }
-            for (i = 0; i < 8; i++) {
-                decompress_func2(IntBuffer.wrap(decompress3_chunk, i * 9, decompress3_chunk.length - i * 9), IntBuffer.wrap(decompress4_chunk, i * 64 + 9, decompress4_chunk.length - (i * 64 + 9)));
-            }
+            decompress_chunk(9);
         }
 
         bs_pos = (int) bs_index;
@@ -224,14 +209,8 @@ public class EngineTextureDecoder extends Dk2TextureDecoder {
             }
             bs_index = bs_pos;
         } else {
-            int i;
             bs_index = prepare_decompress((int) bs_blue, bs_pos);
-            for (i = 0; i < 8; i++) {
-                decompress_func1(IntBuffer.wrap(decompress2_chunk, i * 8, decompress2_chunk.length - i * 8), IntBuffer.wrap(decompress3_chunk, i, decompress3_chunk.length - i));
-            }
-            for (i = 0; i < 8; i++) {
-                decompress_func2(IntBuffer.wrap(decompress3_chunk, i * 9, decompress3_chunk.length - i * 9), IntBuffer.wrap(decompress4_chunk, i * 64 + 18, decompress4_chunk.length - (i * 64 + 18)));
-            }
+            decompress_chunk(18);
         }
 
         bs_pos = (int) bs_index;
@@ -268,14 +247,8 @@ public class EngineTextureDecoder extends Dk2TextureDecoder {
             }
             bs_index = bs_pos;
         } else {
-            int i;
             bs_index = prepare_decompress((int) bs_alpha, bs_pos);
-            for (i = 0; i < 8; i++) {
-                decompress_func1(IntBuffer.wrap(decompress2_chunk, i * 8, decompress2_chunk.length - i * 8), IntBuffer.wrap(decompress3_chunk, i, decompress3_chunk.length - i));
-            }
-            for (i = 0; i < 8; i++) {
-                decompress_func2(IntBuffer.wrap(decompress3_chunk, i * 9, decompress3_chunk.length - i * 9), IntBuffer.wrap(decompress4_chunk, i * 64 + 27, decompress4_chunk.length - (i * 64 + 27)));
-            }
+            decompress_chunk(27);
         }
     }
 }
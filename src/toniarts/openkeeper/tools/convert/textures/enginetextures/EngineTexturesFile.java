@@ -16,6 +16,9 @@
  */
 package toniarts.openkeeper.tools.convert.textures.enginetextures;
 
+import com.jme3.texture.Image;
+import com.jme3.texture.image.ColorSpace;
+import com.jme3.util.BufferUtils;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.image.BufferedImage;
@@ -25,6 +28,9 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -48,7 +54,7 @@ public class EngineTexturesFile implements Iterable<String> {
     private static final boolean DECOMPRESSION_ENABLED = true;
     private static final int CHESS_BOARD_GRID_SIZE = 8;
     private final File file;
-    private EngineTextureDecoder decoder;
+    private static final ThreadLocal<EngineTextureDecoder> DECODER = ThreadLocal.withInitial(EngineTextureDecoder::new);
     private final HashMap<String, EngineTextureEntry> engineTextureEntries;
 
     public EngineTexturesFile(File file) {
@@ -210,16 +216,8 @@ public class EngineTexturesFile implements Iterable<String> {
             BufferedImage image;
             if (DECOMPRESSION_ENABLED) {
 
-                //Seek to the file we want and read it
-                rawTextures.seek(engineTextureEntry.getDataStartLocation());
-                int count = (engineTextureEntry.getSize()) / 4;
-                long[] buf = new long[count];
-                for (int i = 0; i < count; i++) {
-                    buf[i] = ConversionUtils.readUnsignedIntegerAsLong(rawTextures);
-                }
-
                 // Use the monstrous decompression routine
-                image = decompressTexture(buf, engineTextureEntry);
+                image = decompressTexture(readTextureData(engineTextureEntry, rawTextures), engineTextureEntry);
             } else {
 
                 //Use our chess board texture
@@ -236,6 +234,62 @@ public class EngineTexturesFile implements Iterable<String> {
         return result;
     }
 
+    /**
+     * Decompresses a single texture straight to a JME image, without the
+     * PNG round trip. The image is in RGBA8 format and not flipped, same as
+     * loading the extracted PNG with the default texture key
+     *
+     * @param textureEntry the texture to decompress
+     * @return the image
+     */
+    public Image getImage(String textureEntry) {
+        EngineTextureEntry engineTextureEntry = engineTextureEntries.get(textureEntry);
+        if (engineTextureEntry == null) {
+            throw new RuntimeException("File " + textureEntry + " not found from the texture archive!");
+        }
+
+        int[] pixels;
+        try (RandomAccessFile rawTextures = new RandomAccessFile(file, "r")) {
+            pixels = DECODER.get().dd_texture(readTextureData(engineTextureEntry, rawTextures), engineTextureEntry.getResX(), engineTextureEntry.getResY(), engineTextureEntry.isAlphaFlag());
+        } catch (IOException e) {
+
+            //Fug
+            throw new RuntimeException("Failed to open the file " + file + "!", e);
+        }
+
+        // RGBA byte by byte, the direct buffers are in the native byte order
+        ByteBuffer data = BufferUtils.createByteBuffer(pixels.length * 4).order(ByteOrder.BIG_ENDIAN);
+        for (int pixel : pixels) {
+            data.putInt((pixel << 8) | (pixel >>> 24));
+        }
+        data.flip();
+
+        return new Image(Image.Format.RGBA8, engineTextureEntry.getResX(), engineTextureEntry.getResY(), data, ColorSpace.sRGB);
+    }
+
+    /**
+     * Reads the compressed texture data
+     *
+     * @param engineTextureEntry the texture entry
+     * @param rawTextures the opened EngineTextures file
+     * @return the compressed texture data as uint32 items
+     * @throws IOException may fail
+     */
+    private long[] readTextureData(EngineTextureEntry engineTextureEntry, RandomAccessFile rawTextures) throws IOException {
+
+        //Seek to the file we want and read it in one go
+        byte[] bytes = new byte[engineTextureEntry.getSize() / 4 * 4];
+        rawTextures.seek(engineTextureEntry.getDataStartLocation());
+        rawTextures.readFully(bytes);
+
+        IntBuffer data = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        long[] buf = new long[data.remaining()];
+        for (int i = 0; i < buf.length; i++) {
+            buf[i] = data.get(i) & 0xFFFFFFFFL;
+        }
+        return buf;
+    }
+
     /**
      * Creates a chess board texture for the given entry
      *
@@ -279,24 +333,10 @@ public class EngineTexturesFile implements Iterable<String> {
     private BufferedImage decompressTexture(long[] buf, EngineTextureEntry engineTextureEntry) {
         BufferedImage img = new BufferedImage(engineTextureEntry.getResX(), engineTextureEntry.getResY(), BufferedImage.TYPE_INT_ARGB);
 
-        // Decompress the texture
-        if (decoder == null) {
-            decoder = new EngineTextureDecoder();
-        }
-        byte[] pixels = decoder.dd_texture(buf, engineTextureEntry.getResX() * (32 / 8)/*(bpp / 8 = bytes per pixel)*/, engineTextureEntry.getResX(), engineTextureEntry.getResY(), engineTextureEntry.isAlphaFlag());
-
-        // Draw the image, pixel by pixel
-        for (int x = 0; x < engineTextureEntry.getResX(); x++) {
-            for (int y = 0; y < engineTextureEntry.getResY(); y++) {
-                int base = engineTextureEntry.getResX() * y * 4 + x * 4;
-                int r = ConversionUtils.toUnsignedByte(pixels[base]);
-                int g = ConversionUtils.toUnsignedByte(pixels[base + 1]);
-                int b = ConversionUtils.toUnsignedByte(pixels[base + 2]);
-                int a = ConversionUtils.toUnsignedByte(pixels[base + 3]);
-                int col = (a << 24) | (r << 16) | (g << 8) | b;
-                img.setRGB(x, y, col);
-            }
-        }
+        // Decompress the texture, the decoder holds state so each thread has its own
+        int[] pixels = DECODER.get().dd_texture(buf, engineTextureEntry.getResX(), engineTextureEntry.getResY(), engineTextureEntry.isAlphaFlag());
+        img.setRGB(0, 0, engineTextureEntry.getResX(), engineTextureEntry.getResY(), pixels, 0, engineTextureEntry.getResX());
+
         return img;
     }
 
@@ -16,8 +16,6 @@
  */
 package toniarts.openkeeper.tools.convert.textures.loadingscreens;
 
-import java.nio.ByteBuffer;
-import java.nio.IntBuffer;
 import toniarts.openkeeper.tools.convert.textures.Dk2TextureDecoder;
 
 /**
@@ -29,80 +27,54 @@ import toniarts.openkeeper.tools.convert.textures.Dk2TextureDecoder;
 public class LoadingScreenTextureDecoder extends Dk2TextureDecoder {
 
     @Override
-    protected void decompress_block(ByteBuffer out, int stride, boolean alphaFlag) {
-        IntBuffer inp;
+    protected void decompress_block(int[] out, int offset, int width, int blockWidth, int blockHeight, boolean alphaFlag) {
         int i;
         int bs_pos = (int) bs_index;
         long red = bs_read(bs_pos, 8);
         bs_index = prepare_decompress((int) red, bs_pos + 8);
-        for (i = 0; i < 8; i++) {
-            decompress_func1(IntBuffer.wrap(decompress2_chunk, i * 8, decompress2_chunk.length - i * 8), IntBuffer.wrap(decompress3_chunk, i, decompress3_chunk.length - i));
-        }
-        for (i = 0; i < 8; i++) {
-            decompress_func2(IntBuffer.wrap(decompress3_chunk, i * 9, decompress3_chunk.length - i * 9), IntBuffer.wrap(decompress4_chunk, i * 64, decompress4_chunk.length - (i * 64)));
-        }
+        decompress_chunk(0);
         bs_pos = (int) bs_index;
 
         long green = bs_read(bs_pos, 8);
         bs_index = prepare_decompress((int) green, bs_pos + 8);
-        for (i = 0; i < 8; i++) {
-            decompress_func1(IntBuffer.wrap(decompress2_chunk, i * 8, decompress2_chunk.length - i * 8), IntBuffer.wrap(decompress3_chunk, i, decompress3_chunk.length - i));
-        }
-        for (i = 0; i < 8; i++) {
-            decompress_func2(IntBuffer.wrap(decompress3_chunk, i * 9, decompress3_chunk.length - i * 9), IntBuffer.wrap(decompress4_chunk, i * 64 + 9, decompress4_chunk.length - (i * 64 + 9)));
-        }
+        decompress_chunk(9);
         bs_pos = (int) bs_index;
 
         long blue = bs_read(bs_pos, 8);
         bs_index = prepare_decompress((int) blue, bs_pos + 8);
-        for (i = 0; i < 8; i++) {
-            decompress_func1(IntBuffer.wrap(decompress2_chunk, i * 8, decompress2_chunk.length - i * 8), IntBuffer.wrap(decompress3_chunk, i, decompress3_chunk.length - i));
-        }
-        for (i = 0; i < 8; i++) {
-            decompress_func2(IntBuffer.wrap(decompress3_chunk, i * 9, decompress3_chunk.length - i * 9),
-                    IntBuffer.wrap(decompress4_chunk, i * 64 + 18, decompress4_chunk.length - (i * 64 + 18)));
-        }
+        decompress_chunk(18);
         bs_pos = (int) bs_index;
 
         if (alphaFlag) {
             long alpha = bs_read(bs_pos, 8);
             bs_index = prepare_decompress((int) alpha, bs_pos + 8);
-            for (i = 0; i < 8; i++) {
-                decompress_func1(IntBuffer.wrap(decompress2_chunk, i * 8, decompress2_chunk.length - i * 8), IntBuffer.wrap(decompress3_chunk, i, decompress3_chunk.length - i));
-            }
-            for (i = 0; i < 8; i++) {
-                decompress_func2(IntBuffer.wrap(decompress3_chunk, i * 9, decompress3_chunk.length - i * 9),
-                        IntBuffer.wrap(decompress4_chunk, i * 64 + 27, decompress4_chunk.length - (i * 64 + 27)));
-            }
+            decompress_chunk(27);
             bs_pos = (int) bs_index;
         }
 
         /* another check for a flag at 668dc7, set in the master routine */
         /* dword_7af600 = dest */
 
-        inp = IntBuffer.wrap(decompress4_chunk);
+        int inp = 0;
         if (alphaFlag) {
 //            dkabort(); /* 669427 */
         } else {
-            for (int j = 0; j < 8; j++) {
-                for (i = 0; i < 8; i++) {
+            for (int j = 0; j < blockHeight; j++) {
+                for (i = 0; i < blockWidth; i++) {
                     int value;
                     /* some weird jumps that don't seem necessary */
-                    int r = inp.get(inp.position() + i + 0);
-                    int g = inp.get(inp.position() + i + 18);
-                    int b = inp.get(inp.position() + i + 9);
+                    int r = decompress4_chunk[inp + i + 0];
+                    int g = decompress4_chunk[inp + i + 18];
+                    int b = decompress4_chunk[inp + i + 9];
 
-                    value = clamp(r >> 16, 0, 255);
-                    value |= clamp(g >> 16, 0, 255) << 16;
+                    value = clamp(r >> 16, 0, 255) << 16;
+                    value |= clamp(g >> 16, 0, 255);
                     value |= clamp(b >> 16, 0, 255) << 8;
                     value |= 0xff000000;
-                    int pos = out.position() + i * 4;
-                    if (pos <= out.limit() - 4) { // Some go overboard...
-                        out.putInt(pos, value);
-                    }
+                    out[offset + i] = value;
                 }
-                out.position(Math.min(out.limit(), out.position() + stride));
-                inp.position(inp.position() + 64);
+                offset += width;
+                inp += 64;
             }
         }
     }
@@ -16,6 +16,7 @@
  */
 package toniarts.openkeeper.utils;
 
+import com.jme3.animation.AnimControl;
 import com.jme3.asset.AssetInfo;
 import com.jme3.asset.AssetKey;
 import com.jme3.asset.AssetManager;
@@ -25,6 +26,7 @@ import com.jme3.asset.TextureKey;
 import com.jme3.asset.cache.AssetCache;
 import com.jme3.asset.cache.SimpleAssetCache;
 import com.jme3.asset.cache.WeakRefAssetCache;
+import com.jme3.material.MatParam;
 import com.jme3.material.Material;
 import com.jme3.material.RenderState;
 import com.jme3.material.RenderState.BlendMode;
@@ -45,9 +47,11 @@ import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.imageio.ImageIO;
@@ -73,11 +77,15 @@ public class AssetUtils {
     private final static Object ASSET_LOCK = new Object();
     private final static AssetCache ASSET_CACHE = new SimpleAssetCache();
     private final static AssetCache WEAK_ASSET_CACHE = new WeakRefAssetCache();
+    private final static AssetCache INSTANCED_ASSET_CACHE = new SimpleAssetCache();
+    private final static Map<Geometry, Material> INSTANCED_MATERIALS = Collections.synchronizedMap(new WeakHashMap<>());
+    private static volatile Material instancedBlueprintMaterial;
     private final static Map<String, Boolean> TEXTURE_MAP_CACHE = new HashMap<>();
     private static final Logger LOGGER = Logger.getLogger(AssetUtils.class.getName());
 
     // Custom model data keys
     public final static String USER_DATA_KEY_REMOVABLE = "Removable";
+    public final static String USER_DATA_KEY_INSTANCED = "Instanced";
 
     private AssetUtils() {
         // Nope
@@ -125,6 +133,89 @@ public class AssetUtils {
         return result;
     }
 
+    /**
+     * Loads a model for hardware instancing. Static models are cloned so that
+     * all the instances share the meshes and the materials, and the materials
+     * are set up for instancing. Attached to an {@link com.jme3.scene.instancing.InstancedNode}, every
+     * geometry of the model is then drawn with a single draw call for all the
+     * instances. Models that can't be instanced (animated ones) are loaded
+     * normally.<br>
+     * The instanced models are tagged with {@link #USER_DATA_KEY_INSTANCED}.
+     *
+     * @param assetManager the asset manager to use
+     * @param modelName the model name, the model name is checked and fixed
+     * @return a cloned instance from the cache
+     * @see #isInstanced(com.jme3.scene.Spatial)
+     */
+    public static Spatial loadInstancedModel(final AssetManager assetManager, String modelName) {
+        String filename = AssetsConverter.MODELS_FOLDER + File.separator + modelName + ".j3o";
+        ModelKey assetKey = new ModelKey(ConversionUtils.getCanonicalAssetKey(filename));
+
+        // The prototype has materials of its own, shared by all the instances
+        Spatial prototype = INSTANCED_ASSET_CACHE.getFromCache(assetKey);
+        if (prototype == null) {
+            prototype = loadModel(assetManager, modelName);
+            prototype.setUserData(USER_DATA_KEY_INSTANCED, setupInstancing(prototype));
+            INSTANCED_ASSET_CACHE.addToCache(assetKey, prototype);
+        }
+
+        if (isInstanced(prototype)) {
+            return prototype.clone(false);
+        }
+        return loadModel(assetManager, modelName);
+    }
+
+    /**
+     * Is the model loaded for instancing
+     *
+     * @param spatial the model
+     * @return true if the model is instanced
+     * @see #loadInstancedModel(com.jme3.asset.AssetManager, java.lang.String)
+     */
+    public static boolean isInstanced(Spatial spatial) {
+        return Boolean.TRUE.equals(spatial.getUserData(USER_DATA_KEY_INSTANCED));
+    }
+
+    /**
+     * Turns on the instancing on all the materials of the model, if possible
+     *
+     * @param model the model
+     * @return true if the model can be instanced
+     */
+    private static boolean setupInstancing(Spatial model) {
+        List<Material> materials = new ArrayList<>();
+        boolean[] instanceable = {true};
+        model.depthFirstTraversal(new SceneGraphVisitor() {
+            @Override
+            public void visit(Spatial spatial) {
+
+                // Each instance needs its own animation state
+                if (spatial.getControl(AnimControl.class) != null) {
+                    instanceable[0] = false;
+                }
+                if (spatial instanceof Geometry) {
+                    Material material = ((Geometry) spatial).getMaterial();
+                    if (material.getMaterialDef().getMaterialParam("UseInstancing") == null) {
+                        instanceable[0] = false;
+                    }
+                    materials.add(material);
+                }
+            }
+        });
+
+        if (instanceable[0]) {
+            for (Material material : materials) {
+                material.setBoolean("UseInstancing", true);
+            }
+        }
+        return instanceable[0];
+    }
+
+    private static boolean isInstanced(Material material) {
+        MatParam param = material.getParam("UseInstancing");
+        return param != null && Boolean.TRUE.equals(param.getValue());
+    }
+
     /**
      * Only for ModelViewer
      *
@@ -507,7 +598,8 @@ public class AssetUtils {
 
     /**
      * Sets model highlight with selected color. Technically sets the material's
-     * ambient color to one of your choosings
+     * ambient color to one of your choosings. Instanced geometries get a
+     * material copy of their own for the duration of the highlight
      *
      * @param spatial the spatial which to highlight
      * @param highlightColor the highlight color
@@ -529,7 +621,22 @@ public class AssetUtils {
                 }
 
                 try {
-                    Material material = ((Geometry) spatial).getMaterial();
+                    Geometry geometry = (Geometry) spatial;
+                    Material material = geometry.getMaterial();
+
+                    // The instanced materials are shared, don't highlight all the instances
+                    if (!enabled) {
+                        Material sharedMaterial = INSTANCED_MATERIALS.remove(geometry);
+                        if (sharedMaterial != null) {
+                            geometry.setMaterial(sharedMaterial);
+                            return;
+                        }
+                    } else if (isInstanced(material) && !INSTANCED_MATERIALS.containsKey(geometry)) {
+                        INSTANCED_MATERIALS.put(geometry, material);
+                        material = material.clone();
+                        geometry.setMaterial(material);
+                    }
+
                     if (material.getMaterialDef().getMaterialParam("Ambient") != null) {
                         material.setColor("Ambient", highlightColor);
                     } else {
@@ -577,7 +684,8 @@ public class AssetUtils {
     }
 
     /**
-     * Creates a blueprint material for the wanted spatial
+     * Creates a blueprint material for the wanted spatial. Instanced
+     * geometries share a single blueprint material
      *
      * @param assetManager the asset manager
      * @param spatial the spatial which to change to blueprint
@@ -596,11 +704,14 @@ public class AssetUtils {
                 }
 
                 try {
-                    Material mat = new Material(assetManager,
-                            "Common/MatDefs/Misc/Unshaded.j3md");
-                    mat.setColor("Color", new ColorRGBA(0, 0, 0.8f, 0.4f));
-                    mat.getAdditionalRenderState().setBlendMode(BlendMode.Alpha);
-                    spatial.setMaterial(mat);
+                    Geometry geometry = (Geometry) spatial;
+                    Material sharedMaterial = INSTANCED_MATERIALS.remove(geometry);
+                    if (sharedMaterial != null || isInstanced(geometry.getMaterial())) {
+                        geometry.setMaterial(getInstancedBlueprintMaterial(assetManager));
+                        return;
+                    }
+
+                    spatial.setMaterial(createBlueprintMaterial(assetManager));
                 } catch (Exception e) {
                     LOGGER.log(Level.WARNING, "Failed to set material color!", e);
                 }
@@ -608,6 +719,23 @@ public class AssetUtils {
         });
     }
 
+    private static Material createBlueprintMaterial(AssetManager assetManager) {
+        Material mat = new Material(assetManager,
+                "Common/MatDefs/Misc/Unshaded.j3md");
+        mat.setColor("Color", new ColorRGBA(0, 0, 0.8f, 0.4f));
+        mat.getAdditionalRenderState().setBlendMode(BlendMode.Alpha);
+        return mat;
+    }
+
+    private static Material getInstancedBlueprintMaterial(AssetManager assetManager) {
+        if (instancedBlueprintMaterial == null) {
+            Material mat = createBlueprintMaterial(assetManager);
+            mat.setBoolean("UseInstancing", true);
+            instancedBlueprintMaterial = mat;
+        }
+        return instancedBlueprintMaterial;
+    }
+
     /**
      * Generate procedural mesh TODO: procedural mesh
      *
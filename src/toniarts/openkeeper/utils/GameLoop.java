@@ -107,6 +107,25 @@ public class GameLoop {
         return idleSleepTime;
     }
 
+    /**
+     * Get the manager this loop ticks, for ticking it by hand without the
+     * loop thread
+     *
+     * @return the game loop manager
+     */
+    public IGameLoopManager getGameLoopManager() {
+        return gameLoopManager;
+    }
+
+    /**
+     * Get the tick interval
+     *
+     * @return the update rate, in nanoseconds
+     */
+    public long getUpdateRate() {
+        return updateRate;
+    }
+
     public void pause() {
         pauseFlag.set(true);
     }
@@ -137,6 +137,15 @@ public class Utils {
         return BLOOD_TYPES[RANDOM.nextInt(BLOOD_TYPES.length)];
     }
 
+    /**
+     * Seeds the random used by the game logic, for repeatable runs
+     *
+     * @param seed the random seed
+     */
+    public static void setRandomSeed(long seed) {
+        RANDOM.setSeed(seed);
+    }
+
     /**
      * Get a random item from a list
      *
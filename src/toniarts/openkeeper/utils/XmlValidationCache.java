@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2014-2018 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Remembers the XML files that have passed the validation, by the hash of
+ * their contents. The files change only with a new build, so the validation
+ * needs to run only once per build.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public class XmlValidationCache {
+
+    private final File cacheFile;
+    private final Properties validatedHashes = new Properties();
+    private boolean changed = false;
+
+    private static final Logger LOGGER = Logger.getLogger(XmlValidationCache.class.getName());
+
+    public XmlValidationCache(File cacheFile) {
+        this.cacheFile = cacheFile;
+        if (cacheFile.exists()) {
+            try (InputStream in = Files.newInputStream(cacheFile.toPath())) {
+                validatedHashes.load(in);
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, "Failed to read the XML validation cache " + cacheFile + "!", ex);
+            }
+        }
+    }
+
+    /**
+     * Has the file, with exactly this content, already been validated
+     *
+     * @param name the file name
+     * @param content the file content
+     * @return true if the validation can be skipped
+     */
+    public synchronized boolean isValidated(String name, byte[] content) {
+        String hash = getHash(content);
+        return hash != null && hash.equals(validatedHashes.getProperty(name));
+    }
+
+    /**
+     * Marks the file content as validated
+     *
+     * @param name the file name
+     * @param content the file content
+     */
+    public synchronized void setValidated(String name, byte[] content) {
+        String hash = getHash(content);
+        if (hash != null && !hash.equals(validatedHashes.setProperty(name, hash))) {
+            changed = true;
+        }
+    }
+
+    /**
+     * Writes the cache to disk, if it has changed
+     */
+    public synchronized void save() {
+        if (!changed) {
+            return;
+        }
+        try {
+            File folder = cacheFile.getParentFile();
+            if (folder != null) {
+                folder.mkdirs();
+            }
+            try (OutputStream out = Files.newOutputStream(cacheFile.toPath())) {
+                validatedHashes.store(out, "Validated XML files");
+            }
+            changed = false;
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Failed to write the XML validation cache " + cacheFile + "!", ex);
+        }
+    }
+
+    private static String getHash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            LOGGER.log(Level.WARNING, "Can't hash the XML files!", ex);
+            return null;
+        }
+    }
+
+}
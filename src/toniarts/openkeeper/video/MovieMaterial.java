@@ -73,17 +73,27 @@ public class MovieMaterial {
 
             aspectRatio = frame.getWidth() / (float) frame.getHeight();
 
+            TgqFrame skippedFrame = null;
             synchronized (MovieMaterial.this) {
                 if (!running) {
-                    return;
-                }
-                if (letterbox) {
-                    aspectValues.set(Math.max(1, 1 / aspectRatio), Math.max(1, aspectRatio));
+                    skippedFrame = frame;
                 } else {
-                    aspectValues.set(1, 1);
+                    if (letterbox) {
+                        aspectValues.set(Math.max(1, 1 / aspectRatio), Math.max(1, aspectRatio));
+                    } else {
+                        aspectValues.set(1, 1);
+                    }
+                    validRange.set(validWidth, validHeight);
+
+                    // The previous frame never made it to the screen
+                    if (latestFrame != jmeFrame) {
+                        skippedFrame = latestFrame;
+                    }
+                    latestFrame = frame;
                 }
-                validRange.set(validWidth, validHeight);
-                latestFrame = frame;
+            }
+            if (skippedFrame != null) {
+                onFrameReleased(skippedFrame);
             }
 
         } catch (Exception ex) {
@@ -91,6 +101,16 @@ public class MovieMaterial {
         }
     }
 
+    /**
+     * Called when a frame given to
+     * {@link #videoFrameUpdated(toniarts.openkeeper.video.tgq.TgqFrame)} is no
+     * longer used by the material and its buffers can be reused
+     *
+     * @param frame the released frame
+     */
+    protected void onFrameReleased(TgqFrame frame) {
+    }
+
     private void updateTexture(Texture2D tex, ByteBuffer buf, int stride) {
         if (buf == null) {
             tex.setImage(emptyImage);
@@ -153,6 +173,7 @@ public class MovieMaterial {
     }
 
     public void update(float tpf) {
+        TgqFrame releasedFrame = null;
         synchronized (MovieMaterial.this) {
             if (latestFrame != null && latestFrame != jmeFrame) {
                 if (!aspectValues.equals(material.getParam("AspectValues").getValue())) {
@@ -173,10 +194,15 @@ public class MovieMaterial {
                 updateTexture(textureCb, latestFrame.getBufferForPlane(TgqFrame.YCBCR_PLANE_CB),
                         latestFrame.getLinesize(TgqFrame.YCBCR_PLANE_CB));
 
+                // The textures no longer point to the old frame, and it has been uploaded already on the previous render
+                releasedFrame = jmeFrame;
                 jmeFrame = latestFrame;
             }
 
         }
+        if (releasedFrame != null) {
+            onFrameReleased(releasedFrame);
+        }
 
     }
 
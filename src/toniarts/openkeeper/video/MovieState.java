@@ -73,7 +73,14 @@ public abstract class MovieState extends AbstractAppState {
         int width = Main.getUserSettings().getAppSettings().getWidth();
         int height = Main.getUserSettings().getAppSettings().getHeight();
         boolean squareScreen = ((0f + width) / height) < 1.6f;
-        movieMaterial = new MovieMaterial(app, !squareScreen);
+        movieMaterial = new MovieMaterial(app, !squareScreen) {
+            @Override
+            protected void onFrameReleased(TgqFrame frame) {
+                if (player != null) {
+                    player.releaseVideoFrame(frame);
+                }
+            }
+        };
         movieMaterial.setLetterboxColor(ColorRGBA.Black);
         movieScreen = new Geometry("MovieScreen", new Quad(width, height));
         movieScreen.setMaterial(movieMaterial.getMaterial());
@@ -18,8 +18,11 @@ package toniarts.openkeeper.video;
 
 import java.io.File;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.sound.sampled.AudioFormat;
@@ -36,9 +39,9 @@ import toniarts.openkeeper.video.tgq.TgqFrame;
  * "Mediaplayer" for TGQ files<br>
  * Kinda like an interface between the actual canvas and the decoder<br>
  * Not rewindable etc.<br>
- * Very simplistic, the buffer is just filled up once. If the decoder is too
- * slow, the playback will start to stutter. But with a modern computer, it
- * really shouldn't be that slow. Video is synced to audio.<br>
+ * The decoder fills bounded audio and video buffers and blocks when they are
+ * full. The video frames are recycled from a fixed size pool. Video is synced
+ * to the audio clock, frames that are late are dropped.<br>
  * Example is taken from JCodec project
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
@@ -48,19 +51,27 @@ public abstract class TgqPlayer {
     private final File file;
     private static final int FPS = 25; // The specs say 15 FPS, but with this they are totally in sync, dunno why
     private static final int FRAME_INTERVAL = (int) Math.floor(1000 / FPS); // In milliseconds
+    private static final long FRAME_INTERVAL_MICROS = TimeUnit.MILLISECONDS.toMicros(FRAME_INTERVAL);
     private static final float FRAME_BUFFER_SIZE = 3; // In seconds, there is no fancy counter etc.
     private static final int MAX_FRAME_COUNT_IN_BUFFER = (int) (FPS * FRAME_BUFFER_SIZE);
-    private final Queue<EAAudioFrame> audioFrames = new ConcurrentLinkedQueue<>();
-    private final Queue<TgqFrame> videoFrames = new ConcurrentLinkedQueue<>();
-    private volatile EAAudioHeader audioHeader;
+    private static final int VIDEO_FRAME_POOL_SIZE = FPS; // One second of decoded video frames
+    private static final long FRAME_WAIT_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(500);
+    private final Queue<EAAudioFrame> audioFrames = new ArrayDeque<>(MAX_FRAME_COUNT_IN_BUFFER);
+    private final Queue<TgqFrame> videoFrames = new ArrayDeque<>(VIDEO_FRAME_POOL_SIZE);
+    private final Queue<TgqFrame> freeVideoFrames = new ArrayDeque<>(VIDEO_FRAME_POOL_SIZE);
+    private int videoFrameCount;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition framesAvailable = lock.newCondition();
+    private final Condition spaceAvailable = lock.newCondition();
+    private final Condition playbackReady = lock.newCondition();
+    private EAAudioHeader audioHeader;
     private Thread decoderThread;
     private Thread videoPlaybackThread;
     private Thread audioPlaybackThread;
-    private long clock;
-    private volatile boolean bufferingComplete;
-    private SourceDataLine line;
-    private final Object bufferedEvent = new Object();
-    private final Object audioHeaderEvent = new Object();
+    private boolean bufferingComplete;
+    private boolean decodingComplete;
+    private boolean audioComplete;
+    private volatile SourceDataLine line;
     private boolean stopped = true;
     private static final Logger logger = Logger.getLogger(TgqPlayer.class.getName());
 
@@ -74,12 +85,20 @@ public abstract class TgqPlayer {
     public void play() {
 
         // Init the variables
-        stopped = false;
-        bufferingComplete = false;
-        clock = 0;
-        line = null;
-        audioFrames.clear();
-        videoFrames.clear();
+        lock.lock();
+        try {
+            stopped = false;
+            bufferingComplete = false;
+            decodingComplete = false;
+            audioComplete = false;
+            audioHeader = null;
+            line = null;
+            audioFrames.clear();
+            freeVideoFrames.addAll(videoFrames);
+            videoFrames.clear();
+        } finally {
+            lock.unlock();
+        }
 
         // Create and start the decoder thread
         TgqDecoder decoder = new TgqDecoder(file);
@@ -114,9 +133,13 @@ public abstract class TgqPlayer {
                 videoPlaybackThread.interrupt();
             }
 
-            // Kill the audio player as well
+            // Kill the audio player as well, flushing the line releases a blocking write
             if (audioPlaybackThread != null && audioPlaybackThread.isAlive()) {
                 audioPlaybackThread.interrupt();
+                SourceDataLine audioLine = line;
+                if (audioLine != null) {
+                    audioLine.flush();
+                }
             }
         } finally {
 
@@ -136,12 +159,57 @@ public abstract class TgqPlayer {
 
     /**
      * The movie has advanced to next frame, it really should be shown to the
-     * user ASAP
+     * user ASAP. The frame is owned by the receiver until it is handed back
+     * with {@link #releaseVideoFrame(toniarts.openkeeper.video.tgq.TgqFrame)}
      *
      * @param frame the current frame
      */
     protected abstract void onNewVideoFrame(TgqFrame frame);
 
+    /**
+     * Return a frame given by
+     * {@link #onNewVideoFrame(toniarts.openkeeper.video.tgq.TgqFrame)} back to
+     * the pool, once its buffers are no longer used
+     *
+     * @param frame the frame to recycle
+     */
+    public void releaseVideoFrame(TgqFrame frame) {
+        lock.lock();
+        try {
+            recycleVideoFrame(frame);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recycleVideoFrame(TgqFrame frame) {
+        freeVideoFrames.add(frame);
+        spaceAvailable.signalAll();
+    }
+
+    /**
+     * Waits until the decoder has buffered enough or finished
+     *
+     * @throws InterruptedException
+     */
+    private void awaitBuffering() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (!bufferingComplete) {
+                playbackReady.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void setBufferingComplete() {
+        if (!bufferingComplete) {
+            bufferingComplete = true;
+            playbackReady.signalAll();
+        }
+    }
+
     /**
      * This thread handles the audio playback, critical to the process since the
      * video is synced to the audio
@@ -157,68 +225,28 @@ public abstract class TgqPlayer {
             try {
 
                 // Wait for the audio header to init audio
-                if (audioHeader == null) {
-                    synchronized (audioHeaderEvent) {
-                        if (audioHeader == null) {
-                            try {
-                                audioHeaderEvent.wait();
-                            } catch (InterruptedException ex) {
-                                logger.log(Level.WARNING, "Audio header waiting interrupted!", ex);
-                                return;
-                            }
-                        }
-                    }
+                EAAudioHeader header = awaitAudioHeader();
+                if (header == null) {
+                    logger.log(Level.WARNING, "No audio in movie {0}!", file);
+                    return;
                 }
-                initAudio(audioHeader);
+                initAudio(header);
 
                 // Wait for the start
-                if (!bufferingComplete) {
-                    synchronized (bufferedEvent) {
-                        if (!bufferingComplete) {
-                            try {
-                                bufferedEvent.wait();
-                            } catch (InterruptedException ex) {
-                                logger.log(Level.WARNING, "Playing start delay interrupted!", ex);
-                                return;
-                            }
-                        }
-                    }
-                }
+                awaitBuffering();
 
-                // Play audio
-                EAAudioFrame audioFrame = null;
+                // Play audio, the line blocks us until it has room
                 while (!Thread.currentThread().isInterrupted()) {
+                    EAAudioFrame audioFrame = takeAudioFrame();
                     if (audioFrame == null) {
-                        audioFrame = audioFrames.poll();
-                        if (audioFrame == null) {
-                            if (!decoderThread.isAlive()) {
-
-                                // No more audio data
-                                return;
-                            }
-
-                            // We need to wait
-                            logger.log(Level.WARNING, "Decoder still alive but frame queue is empty! Buffer too small?");
-                            try {
-                                Thread.sleep(50);
-                            } catch (InterruptedException ex) {
-                                return;
-                            }
-                            continue;
-                        }
+
+                        // No more audio data
+                        return;
                     }
 
                     // Feed the stream
                     ByteBuffer buf = audioFrame.getPcm();
-                    int written = line.write(buf.array(), buf.arrayOffset() + buf.position(), Math.min(line.available(), buf.remaining()));
-                    buf.position(buf.position() + written);
-                    if (buf.remaining() == 0) {
-                        audioFrame = null;
-                    } else {
-
-                        // Sleep a bit to not take all CPU
-                        Thread.sleep(10);
-                    }
+                    line.write(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
                 }
 
             } catch (InterruptedException e) {
@@ -228,27 +256,78 @@ public abstract class TgqPlayer {
             } finally {
 
                 // Let the audio die nicely
-                if (line != null) {
+                SourceDataLine audioLine = line;
+                if (audioLine != null) {
                     try {
 
                         // If not interrupted, wait until the audio is played completely
                         if (!Thread.currentThread().isInterrupted()) {
-                            line.drain();
+                            audioLine.drain();
                         }
-                        line.stop();
-                        line.flush();
-                        line.close();
-                        line = null;
+                        audioLine.stop();
+                        audioLine.flush();
+                        audioLine.close();
                     } catch (Exception e) {
                         logger.log(Level.WARNING, "Failed to release the audio!", e);
                     }
                 }
 
+                // Release the video player, it is synced to us
+                lock.lock();
+                try {
+                    line = null;
+                    audioComplete = true;
+                    playbackReady.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+
                 // Make sure we call stop at the end
                 stop();
             }
         }
 
+        private EAAudioHeader awaitAudioHeader() throws InterruptedException {
+            lock.lockInterruptibly();
+            try {
+                while (audioHeader == null && !decodingComplete) {
+                    playbackReady.await();
+                }
+                return audioHeader;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Takes the next audio frame, waits for the decoder if needed
+         *
+         * @return the next audio frame, or {@code null} if there are no more
+         * frames
+         * @throws InterruptedException
+         */
+        private EAAudioFrame takeAudioFrame() throws InterruptedException {
+            lock.lockInterruptibly();
+            try {
+                if (audioFrames.isEmpty() && !decodingComplete) {
+                    logger.log(Level.WARNING, "Decoder still alive but frame queue is empty! Buffer too small?");
+                }
+                while (audioFrames.isEmpty()) {
+                    if (decodingComplete) {
+                        return null;
+                    }
+
+                    // We need to wait
+                    framesAvailable.await();
+                }
+                EAAudioFrame audioFrame = audioFrames.poll();
+                spaceAvailable.signalAll();
+                return audioFrame;
+            } finally {
+                lock.unlock();
+            }
+        }
+
         /**
          * Initialize the audio
          *
@@ -260,13 +339,23 @@ public abstract class TgqPlayer {
             if (!AudioSystem.isLineSupported(info)) {
                 throw new RuntimeException("Line matching " + info + " not supported.");
             }
+            SourceDataLine audioLine;
             try {
-                line = (SourceDataLine) AudioSystem.getLine(info);
-                line.open(format, 1024 * 4 * format.getFrameSize());
-                line.start();
+                audioLine = (SourceDataLine) AudioSystem.getLine(info);
+                audioLine.open(format, 1024 * 4 * format.getFrameSize());
+                audioLine.start();
             } catch (LineUnavailableException ex) {
                 throw new RuntimeException(ex);
             }
+
+            // Release the video player
+            lock.lock();
+            try {
+                line = audioLine;
+                playbackReady.signalAll();
+            } finally {
+                lock.unlock();
+            }
         }
     }
 
@@ -275,75 +364,111 @@ public abstract class TgqPlayer {
      */
     private class VideoPlayer implements Runnable {
 
+        private int lastFrameIndex = -1;
+        private int lateFrameIndex = -1;
+
         public VideoPlayer() {
         }
 
         @Override
         public void run() {
+            try {
 
-            // Wait for the start
-            if (!bufferingComplete) {
-                synchronized (bufferedEvent) {
-                    if (!bufferingComplete) {
-                        try {
-                            bufferedEvent.wait();
-                        } catch (InterruptedException ex) {
-                            logger.log(Level.WARNING, "Playing start delay interrupted!", ex);
-                            return;
-                        }
+                // Wait for the start
+                awaitBuffering();
+                if (!awaitAudio()) {
+                    return;
+                }
+
+                // Advance the video frames
+                while (!Thread.interrupted()) {
+                    SourceDataLine audioLine = line;
+                    if (audioLine == null) {
+                        return;
+                    }
+                    long clock = audioLine.getMicrosecondPosition();
+                    int frameIndex = (int) (clock / FRAME_INTERVAL_MICROS);
+                    if (lastFrameIndex < frameIndex && !presentFrame(frameIndex)) {
+
+                        // Decoder is dead already and no frames
+                        return;
+                    }
+
+                    // Sleep until the next frame is due, or the decoder gives us something
+                    long wait = (frameIndex + 1) * FRAME_INTERVAL_MICROS - clock;
+                    lock.lockInterruptibly();
+                    try {
+                        framesAvailable.awaitNanos(TimeUnit.MICROSECONDS.toNanos(Math.max(wait, 1)));
+                    } finally {
+                        lock.unlock();
                     }
                 }
+            } catch (InterruptedException ex) {
+                // Stopped
             }
+        }
 
-            // Advance the video frames
-            long lastAudio = 0;
-            int lastFrameIndex = -1;
-            while (!Thread.interrupted()) {
-                if (line != null) {
-                    long newAudio = line.getMicrosecondPosition();
-                    clock += newAudio - lastAudio;
-                    lastAudio = newAudio;
-
-                    int frameIndex = (int) Math.floor(clock / 1000f / FRAME_INTERVAL);
-                    if (lastFrameIndex < frameIndex) {
-
-                        // New frame
-                        TgqFrame videoFrame = videoFrames.poll();
-                        while (videoFrame == null || videoFrame.getFrameIndex() < frameIndex) {
-                            videoFrame = videoFrames.poll();
-                            if (decoderThread.isAlive() && videoFrame == null) {
-                                logger.log(Level.WARNING, "Video decoding is late!");
-                                try {
-                                    Thread.sleep(50);
-                                } catch (InterruptedException ex) {
-                                    return;
-                                }
-                            } else if (!decoderThread.isAlive()) {
-
-                                // Decoder is dead already and no frames
-                                return;
-                            }
-                        }
-                        onNewVideoFrame(videoFrame);
-                        int late = frameIndex - (lastFrameIndex == -1 ? 0 : lastFrameIndex);
-                        if (late > 1) {
+        /**
+         * Waits until the audio line is up, or the audio has failed
+         *
+         * @return true if there is audio to sync to
+         * @throws InterruptedException
+         */
+        private boolean awaitAudio() throws InterruptedException {
+            lock.lockInterruptibly();
+            try {
+                while (line == null && !audioComplete) {
+                    playbackReady.await();
+                }
+                return line != null;
+            } finally {
+                lock.unlock();
+            }
+        }
 
-                            logger.log(Level.WARNING, "Video is late {0} frames!", late);
+        /**
+         * Presents the newest frame due by the clock, frames older than that
+         * are dropped
+         *
+         * @param frameIndex the frame index by the clock
+         * @return false if there is nothing more to present
+         * @throws InterruptedException
+         */
+        private boolean presentFrame(int frameIndex) throws InterruptedException {
+            TgqFrame videoFrame = null;
+            int dropped = 0;
+            lock.lockInterruptibly();
+            try {
+                while (!videoFrames.isEmpty() && videoFrames.peek().getFrameIndex() <= frameIndex) {
+                    if (videoFrame != null) {
+                        recycleVideoFrame(videoFrame);
+                        dropped++;
+                    }
+                    videoFrame = videoFrames.poll();
+                }
+                if (videoFrame == null) {
+                    if (videoFrames.isEmpty()) {
+                        if (decodingComplete) {
+                            return false;
                         }
-                        lastFrameIndex = frameIndex;
-                    } else {
-
-                        // No frame change, sleep just a tiny bit not to take all the CPU
-                        try {
-                            Thread.sleep(2, 0);
-                        } catch (InterruptedException ex) {
-                            return;
+                        if (lateFrameIndex != frameIndex) {
+                            lateFrameIndex = frameIndex;
+                            logger.log(Level.WARNING, "Video decoding is late!");
                         }
                     }
-                } else {
-                    break;
+                    return true;
                 }
+                spaceAvailable.signalAll();
+            } finally {
+                lock.unlock();
             }
+
+            onNewVideoFrame(videoFrame);
+            if (dropped > 0) {
+                logger.log(Level.WARNING, "Video is late {0} frames!", dropped);
+            }
+            lastFrameIndex = frameIndex;
+            return true;
         }
     }
 
@@ -362,36 +487,48 @@ public abstract class TgqPlayer {
         public void run() {
             try {
                 try (TgqFile tgqFile = new TgqFile(file) {
+                    @Override
+                    protected TgqFrame obtainVideoFrame() throws InterruptedException {
+                        return takeFreeVideoFrame();
+                    }
+
                     @Override
                     protected void addVideoFrame(TgqFrame frame) {
-                        videoFrames.add(frame);
+                        lock.lock();
+                        try {
+                            videoFrames.add(frame);
+                            framesAvailable.signalAll();
+                        } finally {
+                            lock.unlock();
+                        }
                     }
 
                     @Override
                     protected void addAudioFrame(EAAudioFrame frame) {
-                        audioFrames.add(frame);
+                        lock.lock();
+                        try {
+                            audioFrames.add(frame);
+                            framesAvailable.signalAll();
+                        } finally {
+                            lock.unlock();
+                        }
                     }
 
                     @Override
                     protected void onAudioHeader(EAAudioHeader audioHeader) {
-                        TgqPlayer.this.audioHeader = audioHeader;
-                        synchronized (audioHeaderEvent) {
-                            audioHeaderEvent.notifyAll();
+                        lock.lock();
+                        try {
+                            TgqPlayer.this.audioHeader = audioHeader;
+                            playbackReady.signalAll();
+                        } finally {
+                            lock.unlock();
                         }
                     }
                 }) {
                     while (!Thread.interrupted() && tgqFile.readFrame()) {
 
                         // Read the frames, but not too fast
-                        if (audioFrames.size() >= MAX_FRAME_COUNT_IN_BUFFER) {
-                            if (!bufferingComplete) {
-                                bufferingComplete = true;
-                                synchronized (bufferedEvent) {
-                                    bufferedEvent.notifyAll();
-                                }
-                            }
-                            Thread.sleep(FRAME_INTERVAL);
-                        }
+                        awaitAudioSpace();
                     }
                 } catch (InterruptedException ex) {
                     // No biggie
@@ -402,12 +539,63 @@ public abstract class TgqPlayer {
             } finally {
 
                 // If someone is still waiting
-                if (!bufferingComplete) {
-                    bufferingComplete = true;
-                    synchronized (bufferedEvent) {
-                        bufferedEvent.notifyAll();
+                lock.lock();
+                try {
+                    decodingComplete = true;
+                    setBufferingComplete();
+                    framesAvailable.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        private void awaitAudioSpace() throws InterruptedException {
+            lock.lockInterruptibly();
+            try {
+                while (audioFrames.size() >= MAX_FRAME_COUNT_IN_BUFFER) {
+                    setBufferingComplete();
+                    spaceAvailable.await();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Gets a free frame from the pool, blocks while all the frames are in
+         * use
+         *
+         * @return a frame to decode to
+         * @throws InterruptedException
+         */
+        private TgqFrame takeFreeVideoFrame() throws InterruptedException {
+            lock.lockInterruptibly();
+            try {
+                while (freeVideoFrames.isEmpty()) {
+                    if (videoFrameCount < VIDEO_FRAME_POOL_SIZE) {
+                        videoFrameCount++;
+                        return new TgqFrame();
+                    }
+
+                    // The video buffer is full, start playing
+                    setBufferingComplete();
+                    if (spaceAvailable.awaitNanos(FRAME_WAIT_TIMEOUT) <= 0 && freeVideoFrames.isEmpty()) {
+
+                        // The audio is stalled waiting for us or the frames are not released, don't lock up
+                        if (audioFrames.isEmpty() && !videoFrames.isEmpty()) {
+                            logger.log(Level.WARNING, "Video buffer full while audio is starving! Dropping a frame.");
+                            return videoFrames.poll();
+                        } else if (videoFrames.isEmpty()) {
+                            logger.log(Level.WARNING, "Video frames are not released! Allocating a new frame.");
+                            videoFrameCount++;
+                            return new TgqFrame();
+                        }
                     }
                 }
+                return freeVideoFrames.poll();
+            } finally {
+                lock.unlock();
             }
         }
     }
@@ -20,6 +20,7 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.imageio.ImageIO;
@@ -45,6 +46,7 @@ public abstract class TgqFile implements AutoCloseable {
     private int numberOfAudioStreamChunks;
     private int audioFrameIndex = 0;
     private int videoFrameIndex = 0;
+    private byte[] videoData = new byte[0];
     private final static String TQG_TAG = "pIQT";
     private final static String SCHl_TAG = "SCHl";
     private final static String SHEN_TAG = "SHEN";
@@ -109,7 +111,16 @@ public abstract class TgqFile implements AutoCloseable {
         file.close();
     }
 
-    public boolean readFrame() throws IOException {
+    /**
+     * Reads the next frame (chunk) from the file
+     *
+     * @return false if EOF was reached
+     * @throws IOException failure reading the file
+     * @throws InterruptedException interrupted while waiting for a free video
+     * frame
+     * @see #obtainVideoFrame()
+     */
+    public boolean readFrame() throws IOException, InterruptedException {
         boolean gotFrame = false;
 
         if (file.getFilePointer() == file.length()) {
@@ -165,10 +176,14 @@ public abstract class TgqFile implements AutoCloseable {
             }
             case TQG_TAG: {
 
-                // Video frame
-                byte[] data = new byte[frameSize - 8];
-                file.read(data);
-                TgqFrame frame = new TgqFrame(data, videoFrameIndex);
+                // Video frame, the data buffer is reused, the frame is decoded right away
+                int dataSize = frameSize - 8;
+                if (videoData.length < dataSize) {
+                    videoData = new byte[dataSize];
+                }
+                file.readFully(videoData, 0, dataSize);
+                TgqFrame frame = obtainVideoFrame();
+                frame.decode(ByteBuffer.wrap(videoData, 0, dataSize), videoFrameIndex);
                 addVideoFrame(frame);
 
                 // See if we have the data
@@ -203,6 +218,18 @@ public abstract class TgqFile implements AutoCloseable {
      */
     protected abstract void onAudioHeader(final EAAudioHeader audioHeader);
 
+    /**
+     * Get a frame object to decode the next video frame to. By default a new
+     * frame is created each time, override to recycle the frames. May block
+     * until a frame is available
+     *
+     * @return a frame to decode to
+     * @throws InterruptedException interrupted while waiting for a free frame
+     */
+    protected TgqFrame obtainVideoFrame() throws InterruptedException {
+        return new TgqFrame();
+    }
+
     /**
      * A video frame has been decoded
      *
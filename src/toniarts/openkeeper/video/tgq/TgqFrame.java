@@ -17,10 +17,9 @@
 package toniarts.openkeeper.video.tgq;
 
 import java.awt.image.BufferedImage;
-import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.nio.IntBuffer;
+import java.util.Arrays;
 import java.util.logging.Logger;
 import toniarts.openkeeper.tools.convert.BitReader;
 import toniarts.openkeeper.tools.convert.ConversionUtils;
@@ -38,9 +37,9 @@ import toniarts.openkeeper.tools.convert.ConversionUtils;
  */
 public class TgqFrame implements Comparable<TgqFrame> {
 
-    private final int width;
-    private final int height;
-    private final int frameIndex;
+    private int width;
+    private int height;
+    private int frameIndex;
     private final int[] dequantizationTable = new int[64];
     private final static short scanTable[] = { // zigzagDirect
         0, 1, 8, 16, 9, 2, 3, 10,
@@ -135,13 +134,19 @@ public class TgqFrame implements Comparable<TgqFrame> {
         {84, 83, 0, 0}, {219, 216, 0, 0}, {221, 217, 0, 0}, {86, 85, 0, 0}, {88, 87, 0, 0}, {222, 220, 0, 0},
         {90, 89, 0, 0}, {92, 91, 0, 0}, {225, 223, 0, 0}, {94, 93, 0, 0}, {96, 95, 0, 0}
     };
+    private static final int LOOKUP_BITS = 10;
+    private static final int[] dcLuminanceLookup = createLookupTable(dcLuminanceVlc);
+    private static final int[] dcCrominanceLookup = createLookupTable(dcCrominanceVlc);
+    private static final int[] dctCoeffLookup = createLookupTable(dctCoeff);
     private final int[] lastDc = {0, 0, 0};
-    private final int[] linesize;
-    private final int codedWidth;
-    private final int codedHeight;
-    private final ByteBuffer luma;
-    private final ByteBuffer cb;
-    private final ByteBuffer cr;
+    private final int[][] block = new int[6][64];
+    private final int[] idctTemp = new int[64];
+    private final int[] linesize = new int[3];
+    private int codedWidth;
+    private int codedHeight;
+    private ByteBuffer luma;
+    private ByteBuffer cb;
+    private ByteBuffer cr;
     public final static int YCBCR_PLANE_LUMA = 0;
     public final static int YCBCR_PLANE_CB = 1;
     public final static int YCBCR_PLANE_CR = 2;
@@ -155,24 +160,47 @@ public class TgqFrame implements Comparable<TgqFrame> {
 
     private static final Logger logger = Logger.getLogger(TgqFrame.class.getName());
 
+    /**
+     * Creates an empty frame, to be filled with {@link #decode(java.nio.ByteBuffer, int)}
+     */
+    public TgqFrame() {
+    }
+
     public TgqFrame(byte[] data, int frameIndex) {
+        decode(ByteBuffer.wrap(data), frameIndex);
+    }
+
+    /**
+     * Decodes a frame to this frame object. The plane buffers are reused if
+     * the frame dimensions stay the same, so that the frames can be pooled
+     *
+     * @param buf the frame data, from position to limit
+     * @param frameIndex the frame index
+     */
+    public final void decode(ByteBuffer buf, int frameIndex) {
         this.frameIndex = frameIndex;
 
         // Read width & height from the header
-        ByteBuffer buf = ByteBuffer.wrap(data);
         buf.order(ByteOrder.LITTLE_ENDIAN);
         width = buf.getShort();
         height = buf.getShort();
 
         // Create the result data buffers
-        codedWidth = (width + 15) & ~0xf;
-        codedHeight = (height + 15) & ~0xf;
-        linesize = new int[]{codedWidth, codedWidth / 2, codedWidth / 2};
-        luma = ByteBuffer.allocateDirect(linesize[YCBCR_PLANE_LUMA] * codedHeight);
-        cb = ByteBuffer.allocateDirect(linesize[YCBCR_PLANE_CB] * codedHeight / 2);
-        cr = ByteBuffer.allocateDirect(linesize[YCBCR_PLANE_CR] * codedHeight / 2);
+        int newCodedWidth = (width + 15) & ~0xf;
+        int newCodedHeight = (height + 15) & ~0xf;
+        if (luma == null || newCodedWidth != codedWidth || newCodedHeight != codedHeight) {
+            codedWidth = newCodedWidth;
+            codedHeight = newCodedHeight;
+            linesize[YCBCR_PLANE_LUMA] = codedWidth;
+            linesize[YCBCR_PLANE_CB] = codedWidth / 2;
+            linesize[YCBCR_PLANE_CR] = codedWidth / 2;
+            luma = ByteBuffer.allocateDirect(linesize[YCBCR_PLANE_LUMA] * codedHeight);
+            cb = ByteBuffer.allocateDirect(linesize[YCBCR_PLANE_CB] * codedHeight / 2);
+            cr = ByteBuffer.allocateDirect(linesize[YCBCR_PLANE_CR] * codedHeight / 2);
+        }
 
         // Decode
+        Arrays.fill(lastDc, 0);
         decodeFrame(buf);
     }
 
@@ -185,9 +213,10 @@ public class TgqFrame implements Comparable<TgqFrame> {
         BitReader bitReader = new BitReader(buf);
 
         // Decode the macroblocks
-        for (int y = 0; y < (height + 15) / 16; y++) {
-            for (int x = 0; x < (width + 15) / 16; x++) {
-                idctPut(decodeBlock(bitReader), x, y);
+        for (int y = 0; y < codedHeight / 16; y++) {
+            for (int x = 0; x < codedWidth / 16; x++) {
+                decodeBlock(bitReader);
+                idctPut(x, y);
             }
         }
     }
@@ -202,12 +231,11 @@ public class TgqFrame implements Comparable<TgqFrame> {
         }
     }
 
-    private int[][] decodeBlock(BitReader bitReader) {
-        int[][] block = new int[6][64];
+    private void decodeBlock(BitReader bitReader) {
         for (int n = 0; n < 6; n++) {
+            Arrays.fill(block[n], 0);
             mpeg1DecodeBlock(bitReader, block[n], n);
         }
-        return block;
     }
 
     /**
@@ -230,7 +258,7 @@ public class TgqFrame implements Comparable<TgqFrame> {
         block[0] = dc * dequantizationTable[0];
 
         // Quantify and encode AC coefficients
-        short[] vlc = decodeVlc(bitReader, TEX_VLC_BITS, dctCoeff);
+        short[] vlc = dctCoeff[decodeVlc(bitReader, TEX_VLC_BITS, dctCoeff, dctCoeffLookup)];
         int i = 0;
         int j;
         while (vlc[2] != EOB) {
@@ -268,7 +296,7 @@ public class TgqFrame implements Comparable<TgqFrame> {
             }
 
             block[j] = level;
-            vlc = decodeVlc(bitReader, TEX_VLC_BITS, dctCoeff);
+            vlc = dctCoeff[decodeVlc(bitReader, TEX_VLC_BITS, dctCoeff, dctCoeffLookup)];
         }
     }
 
@@ -276,9 +304,9 @@ public class TgqFrame implements Comparable<TgqFrame> {
         int code;
 
         if (component == 0) {
-            code = decodeVlc(bitReader, DC_VLC_BITS, dcLuminanceVlc)[2];
+            code = dcLuminanceVlc[decodeVlc(bitReader, DC_VLC_BITS, dcLuminanceVlc, dcLuminanceLookup)][2];
         } else {
-            code = decodeVlc(bitReader, DC_VLC_BITS, dcCrominanceVlc)[2];
+            code = dcCrominanceVlc[decodeVlc(bitReader, DC_VLC_BITS, dcCrominanceVlc, dcCrominanceLookup)][2];
         }
         if (code < 0) {
             logger.severe("Invalid DC code!");
@@ -310,107 +338,177 @@ public class TgqFrame implements Comparable<TgqFrame> {
         return (bits.readNBit(size) << shift) >> shift;
     }
 
-    private short[] decodeVlc(BitReader bitReader, int maxLength, short tab[][]) {
-        int idx1 = 0, idx = 0;
-        int readLength = -1;
-        int mask = (1 << maxLength + 1);
-
-        // FIXME: should fix the check bit instead of forking...
-        int bits = bitReader.fork().readNBit(maxLength + 1); // Make sure that enough bits are available
+    /**
+     * Creates a lookup table for the VLC tree. The table is indexed with the
+     * next {@link #LOOKUP_BITS} bits of the stream. Codes that fit are stored
+     * as (tree index << 8 | code length), longer codes as -(tree index + 1) of
+     * the node where the walk should continue
+     *
+     * @param tab the VLC tree
+     * @return the lookup table
+     */
+    private static int[] createLookupTable(short tab[][]) {
+        int[] table = new int[1 << LOOKUP_BITS];
+        for (int bits = 0; bits < table.length; bits++) {
+            int idx = 0;
+            int length = 0;
+            while (true) {
+                if (tab[idx][0] == -1 && tab[idx][1] == -1) {
+                    table[bits] = (idx << 8) | length;
+                    break;
+                }
+                if (length == LOOKUP_BITS) {
+                    table[bits] = -(idx + 1);
+                    break;
+                }
+                int next = tab[idx][(bits >>> (LOOKUP_BITS - 1 - length)) & 1];
+                if (next == -1) {
+                    table[bits] = (idx << 8) | length;
+                    break;
+                }
+                idx = next;
+                length++;
+            }
+        }
+        return table;
+    }
 
-        while (idx != -1) {	// NIL ????
-            mask >>>= 1;    // next bit
-            idx1 = idx;     // notice
-            idx = ((bits & mask) != 0) ? tab[idx][1] : tab[idx][0]; // get next index
-            readLength++;	// count the length
+    /**
+     * Decodes a VLC code
+     *
+     * @param bitReader the data
+     * @param maxLength maximum code length
+     * @param tab the VLC tree
+     * @param lookup the lookup table for the tree
+     * @return index of the code in the VLC tree
+     */
+    private static int decodeVlc(BitReader bitReader, int maxLength, short tab[][], int[] lookup) {
+        int code = lookup[bitReader.peekNBit(LOOKUP_BITS)];
+        if (code >= 0) {
+            bitReader.skip(code & 0xFF);
+            return code >>> 8;
         }
 
-        // Advance the reader by the real length
-        bitReader.skip(readLength);
-        return (tab[idx1]);
+        // Long code, walk the rest of the tree
+        bitReader.skip(LOOKUP_BITS);
+        int idx = -code - 1;
+        int idx1 = idx;
+        int readLength = 0;
+        int bits = bitReader.peekNBit(maxLength + 1 - LOOKUP_BITS);
+        int mask = 1 << (maxLength + 1 - LOOKUP_BITS);
+        while (idx != -1) {
+            mask >>>= 1;
+            idx1 = idx;
+            idx = ((bits & mask) != 0) ? tab[idx][1] : tab[idx][0];
+            readLength++;
+        }
+        bitReader.skip(readLength - 1);
+        return idx1;
     }
 
     /**
-     * Applies IDCT algorithm to block and puts it to the result arrays
+     * Applies IDCT algorithm to the decoded macroblock and puts it to the
+     * result planes
      *
-     * @param block the block
+     * @param mbX macroblock x
+     * @param mbY macroblock y
      */
-    private void idctPut(int[][] block, int mbX, int mbY) {
-
-        // Set the buffer positions
-        luma.position((mbY * 16 * linesize[YCBCR_PLANE_LUMA]) + mbX * 16);
-        cb.position((mbY * 8 * linesize[YCBCR_PLANE_CB]) + mbX * 8);
-        cr.position((mbY * 8 * linesize[YCBCR_PLANE_CR]) + mbX * 8);
-
-        int yPosition = luma.position();
-        eaIdctPut(luma, linesize[YCBCR_PLANE_LUMA], block[0]);
-        eaIdctPut((ByteBuffer) luma.position(yPosition + 8), linesize[YCBCR_PLANE_LUMA], block[1]);
-        eaIdctPut((ByteBuffer) luma.position(yPosition + 8 * linesize[YCBCR_PLANE_LUMA]), linesize[YCBCR_PLANE_LUMA], block[2]);
-        eaIdctPut((ByteBuffer) luma.position(yPosition + 8 * linesize[YCBCR_PLANE_LUMA] + 8), linesize[YCBCR_PLANE_LUMA], block[3]);
-        eaIdctPut(cb, linesize[YCBCR_PLANE_CB], block[4]);
-        eaIdctPut(cr, linesize[YCBCR_PLANE_CR], block[5]);
+    private void idctPut(int mbX, int mbY) {
+        int lumaLinesize = linesize[YCBCR_PLANE_LUMA];
+        int yPosition = (mbY * 16 * lumaLinesize) + mbX * 16;
+        eaIdctPut(luma, yPosition, lumaLinesize, block[0], idctTemp);
+        eaIdctPut(luma, yPosition + 8, lumaLinesize, block[1], idctTemp);
+        eaIdctPut(luma, yPosition + 8 * lumaLinesize, lumaLinesize, block[2], idctTemp);
+        eaIdctPut(luma, yPosition + 8 * lumaLinesize + 8, lumaLinesize, block[3], idctTemp);
+        eaIdctPut(cb, (mbY * 8 * linesize[YCBCR_PLANE_CB]) + mbX * 8, linesize[YCBCR_PLANE_CB], block[4], idctTemp);
+        eaIdctPut(cr, (mbY * 8 * linesize[YCBCR_PLANE_CR]) + mbX * 8, linesize[YCBCR_PLANE_CR], block[5], idctTemp);
     }
 
-    private static void eaIdctPut(ByteBuffer dest, int linesize, int[] block) {
-        int[] temp = new int[64];
+    private static void eaIdctPut(ByteBuffer dest, int position, int linesize, int[] block, int[] temp) {
         block[0] += 4;
         for (int i = 0; i < 8; i++) {
-            eaIdctCol((IntBuffer) IntBuffer.wrap(temp).position(i), (IntBuffer) IntBuffer.wrap(block).position(i));
+            eaIdctCol(temp, block, i);
         }
-        int dPosition = dest.position();
         for (int i = 0; i < 8; i++) {
-            idctTransform((ByteBuffer) dest.position(dPosition + i * linesize), 0, 1, 2, 3, 4, 5, 6, 7, 0, 1, 2, 3, 4, 5, 6, 7, true, (IntBuffer) IntBuffer.wrap(temp).position(8 * i));
+            idctRow(dest, position + i * linesize, temp, 8 * i);
         }
     }
 
-    private static void eaIdctCol(IntBuffer dest, IntBuffer src) {
-        if ((src.get(src.position() + 8) | src.get(src.position() + 16) | src.get(src.position() + 24) | src.get(src.position() + 32) | src.get(src.position() + 40) | src.get(src.position() + 48) | src.get(src.position() + 56)) == 0) {
-            dest.put(dest.position() + 0, src.get(src.position() + 0));
-            dest.put(dest.position() + 8, src.get(src.position() + 0));
-            dest.put(dest.position() + 16, src.get(src.position() + 0));
-            dest.put(dest.position() + 24, src.get(src.position() + 0));
-            dest.put(dest.position() + 32, src.get(src.position() + 0));
-            dest.put(dest.position() + 40, src.get(src.position() + 0));
-            dest.put(dest.position() + 48, src.get(src.position() + 0));
-            dest.put(dest.position() + 56, src.get(src.position() + 0));
-        } else {
-            idctTransform(dest, 0, 8, 16, 24, 32, 40, 48, 56, 0, 8, 16, 24, 32, 40, 48, 56, false, src);
+    private static void eaIdctCol(int[] dest, int[] src, int offset) {
+        if ((src[offset + 8] | src[offset + 16] | src[offset + 24] | src[offset + 32] | src[offset + 40] | src[offset + 48] | src[offset + 56]) == 0) {
+            int value = src[offset];
+            dest[offset] = value;
+            dest[offset + 8] = value;
+            dest[offset + 16] = value;
+            dest[offset + 24] = value;
+            dest[offset + 32] = value;
+            dest[offset + 40] = value;
+            dest[offset + 48] = value;
+            dest[offset + 56] = value;
+            return;
         }
+
+        int s0 = src[offset];
+        int s1 = src[offset + 8];
+        int s2 = src[offset + 16];
+        int s3 = src[offset + 24];
+        int s4 = src[offset + 32];
+        int s5 = src[offset + 40];
+        int s6 = src[offset + 48];
+        int s7 = src[offset + 56];
+        int a1 = s1 + s7;
+        int a7 = s1 - s7;
+        int a5 = s5 + s3;
+        int a3 = s5 - s3;
+        int a2 = s2 + s6;
+        int a6 = (ASQRT * (s2 - s6)) >> 8;
+        int a0 = s0 + s4;
+        int a4 = s0 - s4;
+        int b0 = (((A4 - A5) * a7 - A5 * a3) >> 9) + a1 + a5;
+        int b1 = (((A4 - A5) * a7 - A5 * a3) >> 9) + ((ASQRT * (a1 - a5)) >> 8);
+        int b2 = (((A2 + A5) * a3 + A5 * a7) >> 9) + ((ASQRT * (a1 - a5)) >> 8);
+        int b3 = ((A2 + A5) * a3 + A5 * a7) >> 9;
+
+        dest[offset] = a0 + a2 + a6 + b0;
+        dest[offset + 8] = a4 + a6 + b1;
+        dest[offset + 16] = a4 - a6 + b2;
+        dest[offset + 24] = a0 - a2 - a6 + b3;
+        dest[offset + 32] = a0 - a2 - a6 - b3;
+        dest[offset + 40] = a4 - a6 - b2;
+        dest[offset + 48] = a4 + a6 - b1;
+        dest[offset + 56] = a0 + a2 + a6 - b0;
     }
 
-    private static void idctTransform(Buffer dest, int s0, int s1, int s2, int s3, int s4, int s5, int s6, int s7, int d0, int d1, int d2, int d3, int d4, int d5, int d6, int d7, boolean clip, IntBuffer src) {
-        int a1 = src.get(src.position() + s1) + src.get(src.position() + s7);
-        int a7 = src.get(src.position() + s1) - src.get(src.position() + s7);
-        int a5 = src.get(src.position() + s5) + src.get(src.position() + s3);
-        int a3 = src.get(src.position() + s5) - src.get(src.position() + s3);
-        int a2 = src.get(src.position() + s2) + src.get(src.position() + s6);
-        int a6 = (ASQRT * (src.get(src.position() + s2) - src.get(src.position() + s6))) >> 8;
-        int a0 = src.get(src.position() + s0) + src.get(src.position() + s4);
-        int a4 = src.get(src.position() + s0) - src.get(src.position() + s4);
+    private static void idctRow(ByteBuffer dest, int position, int[] src, int offset) {
+        int s0 = src[offset];
+        int s1 = src[offset + 1];
+        int s2 = src[offset + 2];
+        int s3 = src[offset + 3];
+        int s4 = src[offset + 4];
+        int s5 = src[offset + 5];
+        int s6 = src[offset + 6];
+        int s7 = src[offset + 7];
+        int a1 = s1 + s7;
+        int a7 = s1 - s7;
+        int a5 = s5 + s3;
+        int a3 = s5 - s3;
+        int a2 = s2 + s6;
+        int a6 = (ASQRT * (s2 - s6)) >> 8;
+        int a0 = s0 + s4;
+        int a4 = s0 - s4;
         int b0 = (((A4 - A5) * a7 - A5 * a3) >> 9) + a1 + a5;
         int b1 = (((A4 - A5) * a7 - A5 * a3) >> 9) + ((ASQRT * (a1 - a5)) >> 8);
         int b2 = (((A2 + A5) * a3 + A5 * a7) >> 9) + ((ASQRT * (a1 - a5)) >> 8);
         int b3 = ((A2 + A5) * a3 + A5 * a7) >> 9;
 
-        if (clip) {
-            ((ByteBuffer) dest).put(dest.position() + d0, clip(a0 + a2 + a6 + b0));
-            ((ByteBuffer) dest).put(dest.position() + d1, clip(a4 + a6 + b1));
-            ((ByteBuffer) dest).put(dest.position() + d2, clip(a4 - a6 + b2));
-            ((ByteBuffer) dest).put(dest.position() + d3, clip(a0 - a2 - a6 + b3));
-            ((ByteBuffer) dest).put(dest.position() + d4, clip(a0 - a2 - a6 - b3));
-            ((ByteBuffer) dest).put(dest.position() + d5, clip(a4 - a6 - b2));
-            ((ByteBuffer) dest).put(dest.position() + d6, clip(a4 + a6 - b1));
-            ((ByteBuffer) dest).put(dest.position() + d7, clip(a0 + a2 + a6 - b0));
-        } else {
-            ((IntBuffer) dest).put(dest.position() + d0, (a0 + a2 + a6 + b0));
-            ((IntBuffer) dest).put(dest.position() + d1, (a4 + a6 + b1));
-            ((IntBuffer) dest).put(dest.position() + d2, (a4 - a6 + b2));
-            ((IntBuffer) dest).put(dest.position() + d3, (a0 - a2 - a6 + b3));
-            ((IntBuffer) dest).put(dest.position() + d4, (a0 - a2 - a6 - b3));
-            ((IntBuffer) dest).put(dest.position() + d5, (a4 - a6 - b2));
-            ((IntBuffer) dest).put(dest.position() + d6, (a4 + a6 - b1));
-            ((IntBuffer) dest).put(dest.position() + d7, (a0 + a2 + a6 - b0));
-        }
+        dest.put(position, clip(a0 + a2 + a6 + b0));
+        dest.put(position + 1, clip(a4 + a6 + b1));
+        dest.put(position + 2, clip(a4 - a6 + b2));
+        dest.put(position + 3, clip(a0 - a2 - a6 + b3));
+        dest.put(position + 4, clip(a0 - a2 - a6 - b3));
+        dest.put(position + 5, clip(a4 - a6 - b2));
+        dest.put(position + 6, clip(a4 + a6 - b1));
+        dest.put(position + 7, clip(a0 + a2 + a6 - b0));
     }
 
     private static byte clip(int val) {
@@ -426,25 +524,30 @@ public class TgqFrame implements Comparable<TgqFrame> {
      */
     public BufferedImage getImage() {
         BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] row = new int[width];
         for (int y = 0; y < height; y++) {
             for (int x = 0; x < width; x++) {
 
                 // Get the YUV pixels, croma channels are just done with nearest neighbour, not exactly the greatest method
-                int yPix = this.luma.get(y * width + x) & 0xFF;
-                int uPix = this.cb.get((int) Math.floor(y / 2) * (width / 2) + (int) Math.floor(x / 2)) & 0xFF;
-                int vPix = this.cr.get((int) Math.floor(y / 2) * (width / 2) + (int) Math.floor(x / 2)) & 0xFF;
+                int yPix = this.luma.get(y * linesize[YCBCR_PLANE_LUMA] + x) & 0xFF;
+                int uPix = this.cb.get((y / 2) * linesize[YCBCR_PLANE_CB] + (x / 2)) & 0xFF;
+                int vPix = this.cr.get((y / 2) * linesize[YCBCR_PLANE_CR] + (x / 2)) & 0xFF;
 
                 // And converted to RGB by http://en.wikipedia.org/wiki/YCbCr#JPEG_conversion
-                int r = (int) (yPix + 1.402 * (vPix - 128));
-                int g = (int) (yPix - 0.34414 * (uPix - 128) - 0.71414 * (vPix - 128));
-                int b = (int) (yPix + 1.772 * (uPix - 128));
-                int color = (r << 16) | (g << 8) | b;
-                image.setRGB(x, y, color);
+                int r = clamp((int) (yPix + 1.402 * (vPix - 128)));
+                int g = clamp((int) (yPix - 0.34414 * (uPix - 128) - 0.71414 * (vPix - 128)));
+                int b = clamp((int) (yPix + 1.772 * (uPix - 128)));
+                row[x] = (r << 16) | (g << 8) | b;
             }
+            image.setRGB(0, y, width, 1, row, 0, width);
         }
         return image;
     }
 
+    private static int clamp(int value) {
+        return (value < 0 ? 0 : (value > 255 ? 255 : value));
+    }
+
     public int getLinesize(int plane) {
         if (plane < 0 || plane > 2) {
             throw new IndexOutOfBoundsException("Plane must be 0-2! I recommend using the on this class plane constants!");
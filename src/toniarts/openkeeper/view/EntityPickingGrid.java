@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2014-2018 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.view;
+
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.collision.CollisionResults;
+import com.jme3.math.Ray;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Spatial;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import toniarts.openkeeper.world.MapLoader;
+
+/**
+ * Indexes the entity models by the map tile they stand on, for picking. A
+ * pick walks only the tiles the ray crosses between the floor and the ceiling
+ * and tests the models indexed on them and their neighbouring tiles, first
+ * against the bounds and only then against the triangles. Not thread safe,
+ * used on the render thread only.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public class EntityPickingGrid {
+
+    /**
+     * The height range where the entities may be, the ray is walked only
+     * within it
+     */
+    private static final float MIN_HEIGHT = MapLoader.UNDERFLOOR_HEIGHT - MapLoader.TILE_HEIGHT;
+    private static final float MAX_HEIGHT = MapLoader.TOP_HEIGHT + MapLoader.TILE_HEIGHT;
+
+    private final int width;
+    private final int height;
+    private final List<Spatial>[] tiles;
+    private final Map<Spatial, Integer> spatialTiles = new HashMap<>();
+    private final int[] visited;
+    private int pickStamp = 0;
+    private final CollisionResults spatialResults = new CollisionResults();
+
+    @SuppressWarnings("unchecked")
+    public EntityPickingGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        tiles = new List[width * height];
+        visited = new int[width * height];
+    }
+
+    /**
+     * Adds or moves the model in the index
+     *
+     * @param spatial the model
+     * @param position the model position
+     */
+    public void update(Spatial spatial, Vector3f position) {
+        int x = getTileCoordinate(position.x);
+        int y = getTileCoordinate(position.z);
+        int index = (isOnMap(x, y) ? getIndex(x, y) : -1);
+        Integer oldIndex = spatialTiles.get(spatial);
+        if (oldIndex != null && oldIndex == index) {
+            return;
+        }
+
+        removeFromTile(spatial, oldIndex);
+        if (index < 0) {
+            spatialTiles.remove(spatial);
+            return;
+        }
+        spatialTiles.put(spatial, index);
+        if (tiles[index] == null) {
+            tiles[index] = new ArrayList<>(2);
+        }
+        tiles[index].add(spatial);
+    }
+
+    /**
+     * Removes the model from the index
+     *
+     * @param spatial the model
+     */
+    public void remove(Spatial spatial) {
+        removeFromTile(spatial, spatialTiles.remove(spatial));
+    }
+
+    private void removeFromTile(Spatial spatial, Integer index) {
+        if (index != null && index >= 0 && tiles[index] != null) {
+            tiles[index].remove(spatial);
+        }
+    }
+
+    /**
+     * Picks the closest visible model hit by the ray
+     *
+     * @param ray the ray, with a normalized direction
+     * @return the closest model hit, or {@code null} if none
+     */
+    public Spatial pick(Ray ray) {
+
+        // Clip the ray to the height range the entities live in
+        Vector3f origin = ray.getOrigin();
+        Vector3f direction = ray.getDirection();
+        float tStart = 0;
+        float tEnd = Float.POSITIVE_INFINITY;
+        if (direction.y != 0) {
+            float t1 = (MAX_HEIGHT - origin.y) / direction.y;
+            float t2 = (MIN_HEIGHT - origin.y) / direction.y;
+            tStart = Math.max(tStart, Math.min(t1, t2));
+            tEnd = Math.min(tEnd, Math.max(t1, t2));
+        } else if (origin.y < MIN_HEIGHT || origin.y > MAX_HEIGHT) {
+            return null;
+        }
+        if (tEnd < tStart) {
+            return null;
+        }
+
+        // Walk the tiles the ray crosses (Amanatides & Woo)
+        pickStamp++;
+        float gridX = origin.x / MapLoader.TILE_WIDTH + 0.5f + direction.x / MapLoader.TILE_WIDTH * tStart;
+        float gridY = origin.z / MapLoader.TILE_WIDTH + 0.5f + direction.z / MapLoader.TILE_WIDTH * tStart;
+        int x = (int) Math.floor(gridX);
+        int y = (int) Math.floor(gridY);
+        int stepX = (direction.x > 0 ? 1 : -1);
+        int stepY = (direction.z > 0 ? 1 : -1);
+        float tDeltaX = (direction.x != 0 ? Math.abs(MapLoader.TILE_WIDTH / direction.x) : Float.POSITIVE_INFINITY);
+        float tDeltaY = (direction.z != 0 ? Math.abs(MapLoader.TILE_WIDTH / direction.z) : Float.POSITIVE_INFINITY);
+        float tMaxX = tStart + (direction.x != 0 ? (stepX > 0 ? x + 1 - gridX : gridX - x) * tDeltaX : Float.POSITIVE_INFINITY);
+        float tMaxY = tStart + (direction.z != 0 ? (stepY > 0 ? y + 1 - gridY : gridY - y) * tDeltaY : Float.POSITIVE_INFINITY);
+
+        Spatial closest = null;
+        float closestDistance = Float.POSITIVE_INFINITY;
+        while (true) {
+
+            // The models may reach over to the neighbouring tiles
+            for (int nx = x - 1; nx <= x + 1; nx++) {
+                for (int ny = y - 1; ny <= y + 1; ny++) {
+                    if (!isOnMap(nx, ny)) {
+                        continue;
+                    }
+                    int index = getIndex(nx, ny);
+                    if (visited[index] == pickStamp || tiles[index] == null) {
+                        continue;
+                    }
+                    visited[index] = pickStamp;
+                    for (Spatial spatial : tiles[index]) {
+                        float distance = collide(spatial, ray);
+                        if (distance < closestDistance) {
+                            closestDistance = distance;
+                            closest = spatial;
+                        }
+                    }
+                }
+            }
+
+            // Nothing can be hit beyond the closest hit or the clipped ray
+            float tNext = Math.min(tMaxX, tMaxY);
+            if (tNext > tEnd || tNext > closestDistance) {
+                break;
+            }
+            if (tMaxX < tMaxY) {
+                x += stepX;
+                tMaxX += tDeltaX;
+            } else {
+                y += stepY;
+                tMaxY += tDeltaY;
+            }
+            if ((x < -1 && stepX < 0) || (x > width && stepX > 0) || (y < -1 && stepY < 0) || (y > height && stepY > 0)) {
+                break;
+            }
+        }
+
+        return closest;
+    }
+
+    private float collide(Spatial spatial, Ray ray) {
+        if (spatial.getCullHint() == Spatial.CullHint.Always) {
+            return Float.POSITIVE_INFINITY;
+        }
+
+        // Cheap bounds rejection before the triangles
+        BoundingVolume bound = spatial.getWorldBound();
+        if (bound == null || !bound.intersects(ray)) {
+            return Float.POSITIVE_INFINITY;
+        }
+
+        spatialResults.clear();
+        spatial.collideWith(ray, spatialResults);
+        if (spatialResults.size() == 0) {
+            return Float.POSITIVE_INFINITY;
+        }
+        return spatialResults.getClosestCollision().getDistance();
+    }
+
+    private static int getTileCoordinate(float coordinate) {
+        return (int) Math.floor(coordinate / MapLoader.TILE_WIDTH + 0.5f);
+    }
+
+    private boolean isOnMap(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    private int getIndex(int x, int y) {
+        return y * width + x;
+    }
+
+}
@@ -20,12 +20,18 @@ import com.jme3.app.Application;
 import com.jme3.app.state.AbstractAppState;
 import com.jme3.app.state.AppStateManager;
 import com.jme3.asset.AssetManager;
+import com.jme3.material.MatParamOverride;
+import com.jme3.math.Ray;
+import com.jme3.math.Vector3f;
 import com.jme3.scene.Node;
 import com.jme3.scene.Spatial;
+import com.jme3.scene.instancing.InstancedNode;
+import com.jme3.shader.VarType;
 import com.simsilica.es.Entity;
 import com.simsilica.es.EntityContainer;
 import com.simsilica.es.EntityData;
 import com.simsilica.es.EntityId;
+import com.simsilica.es.EntitySet;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Level;
@@ -33,6 +39,7 @@ import java.util.logging.Logger;
 import toniarts.openkeeper.Main;
 import toniarts.openkeeper.game.component.CreatureViewState;
 import toniarts.openkeeper.game.component.DoorViewState;
+import toniarts.openkeeper.game.component.HauledBy;
 import toniarts.openkeeper.game.component.ObjectViewState;
 import toniarts.openkeeper.game.component.Position;
 import toniarts.openkeeper.game.component.TrapViewState;
@@ -40,6 +47,7 @@ import toniarts.openkeeper.tools.convert.map.Creature;
 import toniarts.openkeeper.tools.convert.map.Door;
 import toniarts.openkeeper.tools.convert.map.KwdFile;
 import toniarts.openkeeper.tools.convert.map.Trap;
+import toniarts.openkeeper.utils.AssetUtils;
 import toniarts.openkeeper.view.control.CreatureFlowerControl;
 import toniarts.openkeeper.view.control.CreatureViewControl;
 import toniarts.openkeeper.view.control.DoorFlowerControl;
@@ -77,10 +85,15 @@ public class PlayerEntityViewState extends AbstractAppState {
     private final Node nodeObjects;
     private final Node nodeDoors;
     private final Node nodeTraps;
+    private final InstancedNode nodeInstancedObjects;
+    private final InstancedNode nodeInstancedTraps;
+    private boolean instancesChanged = false;
     private final ObjectModelContainer objectModelContainer;
     private final CreatureModelContainer creatureModelContainer;
     private final DoorModelContainer doorModelContainer;
     private final TrapModelContainer trapModelContainer;
+    private final EntitySet hauledEntities;
+    private final Vector3f hauledPosition = new Vector3f();
 
     private final ILoader<ObjectViewState> objectLoader;
     private final ILoader<CreatureViewState> creatureLoader;
@@ -89,6 +102,7 @@ public class PlayerEntityViewState extends AbstractAppState {
 
     private final Map<EntityId, IUnitFlowerControl> flowerControls = new HashMap<>();
     private final Map<EntityId, IEntityViewControl> entityViewControls = new HashMap<>();
+    private final EntityPickingGrid pickingGrid;
 
     private static final Logger LOGGER = Logger.getLogger(PlayerEntityViewState.class.getName());
 
@@ -116,11 +130,22 @@ public class PlayerEntityViewState extends AbstractAppState {
         root.attachChild(nodeDoors);
         root.attachChild(nodeTraps);
 
+        // Creatures are not seen at all in the fog of war
+        nodeCreatures.addMatParamOverride(new MatParamOverride(VarType.Boolean, "FogOfWarHide", true));
+
+        // Identical static models are drawn with hardware instancing
+        nodeInstancedObjects = new InstancedNode("Instanced objects");
+        nodeInstancedTraps = new InstancedNode("Instanced traps");
+        nodeObjects.attachChild(nodeInstancedObjects);
+        nodeTraps.attachChild(nodeInstancedTraps);
+        pickingGrid = new EntityPickingGrid(kwdFile.getMap().getWidth(), kwdFile.getMap().getHeight());
+
         // Create the model "listener"
         objectModelContainer = new ObjectModelContainer(entityData);
         creatureModelContainer = new CreatureModelContainer(entityData);
         doorModelContainer = new DoorModelContainer(entityData);
         trapModelContainer = new TrapModelContainer(entityData);
+        hauledEntities = entityData.getEntities(HauledBy.class);
     }
 
     @Override
@@ -147,6 +172,19 @@ public class PlayerEntityViewState extends AbstractAppState {
         creatureModelContainer.update();
         doorModelContainer.update();
         trapModelContainer.update();
+
+        // The hauled entities are carried along by their haulers
+        hauledEntities.applyChanges();
+        for (Entity entity : hauledEntities) {
+            updateHauledModelPosition(entity);
+        }
+
+        // Batch up the new instances
+        if (instancesChanged) {
+            instancesChanged = false;
+            nodeInstancedObjects.instance();
+            nodeInstancedTraps.instance();
+        }
     }
 
     @Override
@@ -158,6 +196,7 @@ public class PlayerEntityViewState extends AbstractAppState {
         creatureModelContainer.stop();
         doorModelContainer.stop();
         trapModelContainer.stop();
+        hauledEntities.release();
 
         for (IEntityViewControl entityViewControl : entityViewControls.values()) {
             entityViewControl.cleanup();
@@ -178,6 +217,18 @@ public class PlayerEntityViewState extends AbstractAppState {
         return root;
     }
 
+    /**
+     * Picks the closest interactive entity the ray hits
+     *
+     * @param ray the ray, with a normalized direction
+     * @return the entity view control of the entity hit, or {@code null} if
+     * nothing was hit
+     */
+    public IEntityViewControl pickEntity(Ray ray) {
+        Spatial spatial = pickingGrid.pick(ray);
+        return (spatial != null ? spatial.getControl(IEntityViewControl.class) : null);
+    }
+
     private Spatial createObjectModel(Entity e) {
 
         // We can only draw the few basic types, maybe we can do it like this
@@ -195,15 +246,13 @@ public class PlayerEntityViewState extends AbstractAppState {
                 EntityViewControl control = new ObjectViewControl(e.getId(), entityData, kwdFile.getObject(objectViewState.objectId), objectViewState.state, assetManager, textParser);
                 result.addControl(control);
 
-                result.setCullHint(objectViewState.visible ? Spatial.CullHint.Inherit : Spatial.CullHint.Always);
-
                 entityViewControls.put(e.getId(), control);
             }
         }
         if (result == null) {
             result = new Node("Wat"); // FIXME: Yeah...
         }
-        nodeObjects.attachChild(result);
+        setObjectVisible(result, objectViewState == null || objectViewState.visible);
         return result;
     }
 
@@ -295,10 +344,40 @@ public class PlayerEntityViewState extends AbstractAppState {
         if (result == null) {
             result = new Node("Wat"); // FIXME: Yeah...
         }
-        nodeTraps.attachChild(result);
+        attachModel(result, nodeTraps, nodeInstancedTraps);
         return result;
     }
 
+    /**
+     * Attaches the model to the instanced node if it has been loaded for
+     * instancing
+     *
+     * @param model the model
+     * @param node the normal parent node
+     * @param instancedNode the instanced parent node
+     */
+    private void attachModel(Spatial model, Node node, InstancedNode instancedNode) {
+        if (AssetUtils.isInstanced(model)) {
+            if (model.getParent() != instancedNode) {
+                instancedNode.attachChild(model);
+                instancesChanged = true;
+            }
+        } else if (model.getParent() != node) {
+            node.attachChild(model);
+        }
+    }
+
+    private void setObjectVisible(Spatial object, boolean visible) {
+        object.setCullHint(visible ? Spatial.CullHint.Inherit : Spatial.CullHint.Always);
+
+        // The instances are drawn regardless of the cull hint, so take the hidden ones out of the batch
+        if (visible) {
+            attachModel(object, nodeObjects, nodeInstancedObjects);
+        } else if (object.getParent() != nodeObjects) {
+            nodeObjects.attachChild(object);
+        }
+    }
+
     private void updateCreatureModelAnimation(Spatial object, Entity e) {
         CreatureViewState viewState = e.get(CreatureViewState.class);
         object.getControl(IEntityViewControl.class).setTargetState(viewState.state);
@@ -313,10 +392,38 @@ public class PlayerEntityViewState extends AbstractAppState {
         Position position = e.get(Position.class);
         object.setLocalTranslation(position.position);
         object.setLocalRotation(object.getLocalRotation().fromAngles(0, position.rotation, 0));
+
+        // Only the interactive entities are pickable
+        if (object.getControl(IEntityViewControl.class) != null) {
+            pickingGrid.update(object, position.position);
+        }
+    }
+
+    private void updateHauledModelPosition(Entity e) {
+        HauledBy hauledBy = e.get(HauledBy.class);
+        Spatial hauler = creatureModelContainer.getObject(hauledBy.entityId);
+        Spatial object = creatureModelContainer.getObject(e.getId());
+        if (object == null) {
+            object = objectModelContainer.getObject(e.getId());
+        }
+        if (hauler == null || object == null) {
+            return;
+        }
+
+        if (hauledBy.offset != null) {
+            hauler.getLocalRotation().mult(hauledBy.offset, hauledPosition).addLocal(hauler.getLocalTranslation());
+        } else {
+            hauledPosition.set(hauler.getLocalTranslation());
+        }
+        object.setLocalTranslation(hauledPosition);
+        if (object.getControl(IEntityViewControl.class) != null) {
+            pickingGrid.update(object, hauledPosition);
+        }
     }
 
     private void removeModel(Spatial spatial, Entity e) {
         spatial.removeFromParent();
+        pickingGrid.remove(spatial);
 
         IEntityViewControl entityViewControl = entityViewControls.remove(e.getId());
         if (entityViewControl != null) {
@@ -359,7 +466,7 @@ public class PlayerEntityViewState extends AbstractAppState {
             LOGGER.log(Level.FINEST, "ObjectModelContainer.updateObject({0})", e);
             updateModelPosition(object, e);
             ObjectViewState objectViewState = e.get(ObjectViewState.class);
-            object.setCullHint(objectViewState.visible ? Spatial.CullHint.Inherit : Spatial.CullHint.Always);
+            setObjectVisible(object, objectViewState.visible);
         }
 
         @Override
@@ -19,7 +19,6 @@ package toniarts.openkeeper.view;
 import com.jme3.app.Application;
 import com.jme3.app.state.AppStateManager;
 import com.jme3.asset.AssetManager;
-import com.jme3.collision.CollisionResults;
 import com.jme3.input.InputManager;
 import com.jme3.input.KeyInput;
 import com.jme3.input.MouseInput;
@@ -33,7 +32,6 @@ import com.jme3.input.event.TouchEvent;
 import com.jme3.math.Ray;
 import com.jme3.math.Vector2f;
 import com.jme3.math.Vector3f;
-import com.jme3.scene.Node;
 import com.jme3.scene.control.AbstractControl;
 import com.simsilica.es.EntityData;
 import de.lessvoid.nifty.controls.Label;
@@ -421,9 +419,6 @@ public abstract class PlayerInteractionState extends AbstractPauseAwareState {
 
     private void updateInteractiveObjectOnCursor() {
 
-        // See if we hit a creature/object
-        CollisionResults results = new CollisionResults();
-
         // Convert screen click to 3D position
         Vector3f click3d = app.getCamera().getWorldCoordinates(
                 new Vector2f(mousePosition.x, mousePosition.y), 0f);
@@ -431,24 +426,10 @@ public abstract class PlayerInteractionState extends AbstractPauseAwareState {
                 new Vector2f(mousePosition.x, mousePosition.y), 1f).subtractLocal(click3d);
 
         // Aim the ray from the mouse spot forwards
-        Ray ray = new Ray(click3d, dir);
-
-        // Collect intersections between ray and all nodes in results list
-        stateManager.getState(PlayerEntityViewState.class).getRoot().collideWith(ray, results);
-
-        // See the results so we see what is going on
-        Node object;
-        for (int i = 0; i < results.size(); i++) {
+        Ray ray = new Ray(click3d, dir.normalizeLocal());
 
-            // TODO: Now just creature control, but all interaction objects
-            object = results.getCollision(i).getGeometry().getParent().getParent();
-            IEntityViewControl control = object.getControl(IEntityViewControl.class);
-            if (control != null) {
-                setInteractiveControl(control);
-                return;
-            }
-        }
-        setInteractiveControl(null);
+        // See if we hit a creature/object, only the entities on the tiles the ray crosses are tested
+        setInteractiveControl(stateManager.getState(PlayerEntityViewState.class).pickEntity(ray));
     }
 
     private void setInteractiveControl(IEntityViewControl interactiveControl) {
@@ -126,6 +126,9 @@ public abstract class PlayerMapViewState extends AbstractAppState implements Map
         // Tile flash state
         this.stateManager.detach(flashTileControl);
 
+        // Stop the map updates
+        mapLoader.cleanup();
+
         // Effects
         this.stateManager.detach(effectManager);
 
@@ -153,6 +156,9 @@ public abstract class PlayerMapViewState extends AbstractAppState implements Map
             return;
         }
 
+        // Swap in the rebuilt terrain and start rebuilding the changed tiles
+        mapLoader.update();
+
         // Maybe like an additional update or something so that we know the tick
 //        lastUpdate += tpf;
 //        if (lastUpdate > TICK) {
@@ -170,6 +176,15 @@ public abstract class PlayerMapViewState extends AbstractAppState implements Map
         return assetManager;
     }
 
+    /**
+     * Gets the map root node
+     *
+     * @return the world node
+     */
+    public Node getWorld() {
+        return worldNode;
+    }
+
     /**
      * If you want to monitor the map loading progress, use this method
      *
@@ -185,10 +200,8 @@ public abstract class PlayerMapViewState extends AbstractAppState implements Map
             points[i] = new Point(mapTile.getX(), mapTile.getY());
         }
 
-        // FIXME: See in what thread we are, perhaps even do everything ready, just the attaching in render thread
-        app.enqueue(() -> {
-            mapLoader.updateTiles(points);
-        });
+        // The map loader gathers these and rebuilds them on the next update
+        mapLoader.updateTiles(points);
     }
 
     @Override
@@ -198,11 +211,7 @@ public abstract class PlayerMapViewState extends AbstractAppState implements Map
         for (int i = 0; i < tiles.size(); i++) {
             updatableTiles[i] = tiles.get(i).getLocation();
         }
-
-        // FIXME: See in what thread we are, perhaps even do everything ready, just the attaching in render thread
-        app.enqueue(() -> {
-            mapLoader.updateTiles(updatableTiles);
-        });
+        mapLoader.updateTiles(updatableTiles);
     }
 
     @Override
@@ -325,6 +325,7 @@ public abstract class UnitFlowerControl<T> extends BillboardControl implements I
             material.getAdditionalRenderState().setDepthTest(false);
             spatial.setQueueBucket(Bucket.Translucent);
             spatial.setUserData(AssetUtils.USER_DATA_KEY_REMOVABLE, false);
+            spatial.setBatchHint(Spatial.BatchHint.Never); // The unit might be instanced
 
             generateTexture();
         }
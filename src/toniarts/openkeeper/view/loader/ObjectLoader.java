@@ -42,7 +42,7 @@ public class ObjectLoader implements ILoader<ObjectViewState> {
     @Override
     public Spatial load(AssetManager assetManager, ObjectViewState object) {
         try {
-            Node nodeObject = (Node) AssetUtils.loadModel(assetManager, kwdFile.getObject(object.objectId).getMeshResource().getName());
+            Node nodeObject = (Node) AssetUtils.loadInstancedModel(assetManager, kwdFile.getObject(object.objectId).getMeshResource().getName());
             return nodeObject;
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Failed to load object " + object + "!", e);
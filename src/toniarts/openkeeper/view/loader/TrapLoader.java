@@ -42,7 +42,7 @@ public class TrapLoader implements ILoader<TrapViewState> {
     @Override
     public Spatial load(AssetManager assetManager, TrapViewState trap) {
         try {
-            Node nodeObject = (Node) AssetUtils.loadModel(assetManager, kwdFile.getTrapById(trap.trapId).getMeshResource().getName());
+            Node nodeObject = (Node) AssetUtils.loadInstancedModel(assetManager, kwdFile.getTrapById(trap.trapId).getMeshResource().getName());
             return nodeObject;
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Failed to load trap " + trap + "!", e);
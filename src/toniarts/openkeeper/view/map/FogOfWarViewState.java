@@ -0,0 +1,297 @@
+/*
+ * Copyright (C) 2014-2018 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.view.map;
+
+import com.jme3.app.Application;
+import com.jme3.app.state.AbstractAppState;
+import com.jme3.app.state.AppStateManager;
+import com.jme3.material.MatParamOverride;
+import com.jme3.math.Vector4f;
+import com.jme3.renderer.Renderer;
+import com.jme3.scene.Spatial;
+import com.jme3.shader.VarType;
+import com.jme3.texture.Image;
+import com.jme3.texture.Texture;
+import com.jme3.texture.Texture2D;
+import com.jme3.texture.image.ColorSpace;
+import com.jme3.util.BufferUtils;
+import com.simsilica.es.Entity;
+import com.simsilica.es.EntityContainer;
+import com.simsilica.es.EntityData;
+import com.simsilica.es.filter.FieldFilter;
+import java.awt.Point;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import toniarts.openkeeper.game.component.CreatureComponent;
+import toniarts.openkeeper.game.component.Owner;
+import toniarts.openkeeper.game.component.Position;
+import toniarts.openkeeper.game.map.IMapInformation;
+import toniarts.openkeeper.game.map.MapData;
+import toniarts.openkeeper.game.map.MapTile;
+import toniarts.openkeeper.game.map.VisibilityGrid;
+import toniarts.openkeeper.tools.convert.map.Creature;
+import toniarts.openkeeper.tools.convert.map.KwdFile;
+import toniarts.openkeeper.utils.WorldUtils;
+import toniarts.openkeeper.world.MapLoader;
+
+/**
+ * Keeps the player's fog of war. The visibility is gathered incrementally
+ * from the player's creatures, owned tiles and revealed tiles, and uploaded
+ * as a texture with a texel per tile. Only the area that has changed is
+ * uploaded once the texture is on the GPU. The materials under the spatials given
+ * to {@link #applyTo(com.jme3.scene.Spatial)} sample the texture to darken
+ * the unseen areas, and to hide the models there if they have the
+ * FogOfWarHide parameter set.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public class FogOfWarViewState extends AbstractAppState {
+
+    private static final int OWNED_TILE_VIEW_RADIUS = 1;
+    private static final byte VISIBLE = (byte) 0xFF;
+    private static final byte HIDDEN = 0;
+
+    private final KwdFile kwdFile;
+    private final IMapInformation mapInformation;
+    private final short playerId;
+    private final VisibilityGrid visibilityGrid;
+    private final BitSet ownedTiles;
+    private final ViewerContainer viewerContainer;
+    private final Queue<Point> changedTiles = new ConcurrentLinkedQueue<>();
+    private final ByteBuffer fogOfWarData;
+    private final ByteBuffer changedAreaData;
+    private final Texture2D fogOfWarMap;
+    private Renderer renderer;
+    private final List<MatParamOverride> overrides = new ArrayList<>(2);
+    private final List<Spatial> spatials = new ArrayList<>(2);
+
+    public FogOfWarViewState(KwdFile kwdFile, IMapInformation mapInformation, EntityData entityData, short playerId) {
+        this.kwdFile = kwdFile;
+        this.mapInformation = mapInformation;
+        this.playerId = playerId;
+
+        MapData mapData = mapInformation.getMapData();
+        visibilityGrid = new VisibilityGrid(mapData.getWidth(), mapData.getHeight());
+        ownedTiles = new BitSet(mapData.getWidth() * mapData.getHeight());
+        viewerContainer = new ViewerContainer(entityData);
+
+        // The fog of war texture, a texel per tile
+        fogOfWarData = BufferUtils.createByteBuffer(mapData.getWidth() * mapData.getHeight());
+        changedAreaData = BufferUtils.createByteBuffer(mapData.getWidth() * mapData.getHeight());
+        fogOfWarMap = new Texture2D(new Image(Image.Format.Luminance8, mapData.getWidth(), mapData.getHeight(), fogOfWarData, ColorSpace.Linear));
+        fogOfWarMap.setMagFilter(Texture.MagFilter.Bilinear);
+        fogOfWarMap.setMinFilter(Texture.MinFilter.BilinearNoMipMaps);
+        fogOfWarMap.setWrap(Texture.WrapMode.EdgeClamp);
+
+        // The tile centers are at the tile coordinates, so the map starts half a tile off
+        float offset = -MapLoader.TILE_WIDTH / 2;
+        overrides.add(new MatParamOverride(VarType.Texture2D, "FogOfWarMap", fogOfWarMap));
+        overrides.add(new MatParamOverride(VarType.Vector4, "FogOfWarArea", new Vector4f(offset, offset,
+                1f / (mapData.getWidth() * MapLoader.TILE_WIDTH), 1f / (mapData.getHeight() * MapLoader.TILE_WIDTH))));
+    }
+
+    @Override
+    public void initialize(final AppStateManager stateManager, final Application app) {
+        super.initialize(stateManager, app);
+        renderer = app.getRenderer();
+
+        // The starting visibility
+        MapData mapData = mapInformation.getMapData();
+        for (int y = 0; y < mapData.getHeight(); y++) {
+            for (int x = 0; x < mapData.getWidth(); x++) {
+                updateTile(mapData.getTile(x, y));
+            }
+        }
+        viewerContainer.start();
+        uploadChanges();
+    }
+
+    @Override
+    public void update(float tpf) {
+        viewerContainer.update();
+
+        Point p;
+        while ((p = changedTiles.poll()) != null) {
+            updateTile(mapInformation.getMapData().getTile(p));
+        }
+
+        uploadChanges();
+    }
+
+    @Override
+    public void cleanup() {
+        viewerContainer.stop();
+        for (Spatial spatial : spatials) {
+            for (MatParamOverride override : overrides) {
+                spatial.removeMatParamOverride(override);
+            }
+        }
+        spatials.clear();
+
+        super.cleanup();
+    }
+
+    /**
+     * Sets the materials under the given spatial to be affected by the fog
+     * of war
+     *
+     * @param spatial the spatial
+     */
+    public void applyTo(Spatial spatial) {
+        for (MatParamOverride override : overrides) {
+            spatial.addMatParamOverride(override);
+        }
+        spatials.add(spatial);
+    }
+
+    /**
+     * Is the tile currently seen by the player
+     *
+     * @param p the tile coordinates
+     * @return true if visible
+     */
+    public boolean isVisible(Point p) {
+        return visibilityGrid.isVisible(p);
+    }
+
+    /**
+     * Notifies of changed tiles, the ownership and revealing may change. Can
+     * be called from any thread, the changes are applied on the next update
+     *
+     * @param tiles the changed tiles
+     */
+    public void onTilesChange(List<MapTile> tiles) {
+        for (MapTile tile : tiles) {
+            changedTiles.add(tile.getLocation());
+        }
+    }
+
+    private void updateTile(MapTile tile) {
+        if (tile == null) {
+            return;
+        }
+
+        // Our own tiles see just around them
+        int index = visibilityGrid.getIndex(tile.getX(), tile.getY());
+        boolean owned = tile.getOwnerId() == playerId;
+        if (owned != ownedTiles.get(index)) {
+            ownedTiles.set(index, owned);
+            if (owned) {
+                visibilityGrid.addViewer(tile.getLocation(), OWNED_TILE_VIEW_RADIUS);
+            } else {
+                visibilityGrid.removeViewer(tile.getLocation(), OWNED_TILE_VIEW_RADIUS);
+            }
+        }
+
+        visibilityGrid.setRevealed(tile.getX(), tile.getY(), tile.isRevealed(playerId));
+    }
+
+    private void uploadChanges() {
+        BitSet changes = visibilityGrid.pollChanges();
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        int width = visibilityGrid.getWidth();
+        int minX = width;
+        int maxX = -1;
+        for (int i = changes.nextSetBit(0); i >= 0; i = changes.nextSetBit(i + 1)) {
+            int x = i % width;
+            int y = i / width;
+            fogOfWarData.put(i, visibilityGrid.isVisible(x, y) ? VISIBLE : HIDDEN);
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+        }
+
+        // The whole image is uploaded until the texture is on the GPU
+        Image image = fogOfWarMap.getImage();
+        if (image.getId() == -1 || image.isUpdateNeeded()) {
+            image.setUpdateNeeded();
+            return;
+        }
+
+        // Upload just the area that contains the changes
+        int minY = changes.nextSetBit(0) / width;
+        int maxY = (changes.length() - 1) / width;
+        changedAreaData.clear();
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                changedAreaData.put(fogOfWarData.get(y * width + x));
+            }
+        }
+        changedAreaData.flip();
+        renderer.modifyTexture(fogOfWarMap, new Image(Image.Format.Luminance8, maxX - minX + 1, maxY - minY + 1, changedAreaData, ColorSpace.Linear), minX, minY);
+    }
+
+    /**
+     * A creature seeing around it
+     */
+    private static class Viewer {
+
+        private Point location;
+        private final int radius;
+
+        public Viewer(Point location, int radius) {
+            this.location = location;
+            this.radius = radius;
+        }
+
+    }
+
+    /**
+     * Contains the player's creatures, their vision
+     */
+    private class ViewerContainer extends EntityContainer<Viewer> {
+
+        public ViewerContainer(EntityData ed) {
+            super(ed, new FieldFilter(Owner.class, "ownerId", playerId), Position.class, Owner.class, CreatureComponent.class);
+        }
+
+        @Override
+        protected Viewer addObject(Entity e) {
+            Creature creature = kwdFile.getCreature(e.get(CreatureComponent.class).creatureId);
+            int radius = Math.max(1, Math.round(creature.getAttributes().getPerceptionRange()));
+            Viewer viewer = new Viewer(WorldUtils.vectorToPoint(e.get(Position.class).position), radius);
+            visibilityGrid.addViewer(viewer.location, viewer.radius);
+            return viewer;
+        }
+
+        @Override
+        protected void updateObject(Viewer object, Entity e) {
+            Point location = WorldUtils.vectorToPoint(e.get(Position.class).position);
+            if (location.equals(object.location)) {
+                return;
+            }
+
+            // Moved to another tile
+            visibilityGrid.removeViewer(object.location, object.radius);
+            object.location = location;
+            visibilityGrid.addViewer(object.location, object.radius);
+        }
+
+        @Override
+        protected void removeObject(Viewer object, Entity e) {
+            visibilityGrid.removeViewer(object.location, object.radius);
+        }
+
+    }
+
+}
@@ -23,24 +23,28 @@ import com.jme3.asset.TextureKey;
 import com.jme3.material.Material;
 import com.jme3.math.ColorRGBA;
 import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Transform;
 import com.jme3.math.Vector3f;
 import com.jme3.renderer.queue.RenderQueue;
-import com.jme3.scene.BatchNode;
-import com.jme3.scene.Geometry;
 import com.jme3.scene.Node;
-import com.jme3.scene.SceneGraphVisitor;
 import com.jme3.scene.Spatial;
 import com.jme3.texture.Texture;
 import java.awt.Color;
 import java.awt.Point;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import toniarts.openkeeper.common.EntityInstance;
@@ -57,6 +61,7 @@ import toniarts.openkeeper.tools.convert.map.Terrain;
 import toniarts.openkeeper.tools.convert.map.Thing;
 import toniarts.openkeeper.utils.AssetUtils;
 import toniarts.openkeeper.utils.WorldUtils;
+import toniarts.openkeeper.view.map.TerrainMesher.Piece;
 import toniarts.openkeeper.view.map.WallSection.WallDirection;
 import toniarts.openkeeper.view.map.construction.RoomConstructor;
 import toniarts.openkeeper.view.map.construction.SingleQuadConstructor;
@@ -86,10 +91,18 @@ public abstract class MapViewController implements ILoader<KwdFile> {
     private final static int FLOOR_INDEX = 0;
     private final static int WALL_INDEX = 1;
     private final static int TOP_INDEX = 2;
+    private final static int TORCH_INDEX = 3;
+    private final static int LAYER_COUNT = 3;
+    private final static String[] LAYER_NAMES = {"floor", "wall", "ceiling"};
+    private final static RenderQueue.ShadowMode[] LAYER_SHADOW_MODES = {
+        RenderQueue.ShadowMode.Receive, // Floors don't cast
+        RenderQueue.ShadowMode.CastAndReceive, // Walls cast and receive shadows
+        RenderQueue.ShadowMode.Off // No lights above ceilings
+    };
     private final static String MAP_NODE = "Map";
     private final static String TERRAIN_NODE = "Terrain";
     private final static String ROOM_NODE = "Rooms";
-    private List<Node> pages;
+    private List<TerrainPage> pages;
     private final KwdFile kwdFile;
     private Node map;
     //private final MapData mapData;
@@ -107,6 +120,13 @@ public abstract class MapViewController implements ILoader<KwdFile> {
     private final Map<RoomInstance, Spatial> roomNodes = new HashMap<>(); // Room instances by node
     private final Map<RoomInstance, RoomConstructor> roomActuals = new HashMap<>(); // Rooms by room constructor
     private final Map<Point, EntityInstance<Terrain>> terrainBatchCoordinates = new HashMap<>(); // A quick glimpse whether terrain batch at specific coordinates is already "found"
+    private final Set<Point> dirtyTiles = new HashSet<>(); // Tiles waiting for update, coalesced between frames
+    private final List<PageBuild> pageBuilds = new ArrayList<>(); // Pages being built
+    private final ExecutorService pageBuilder;
+    private final Map<String, List<Piece>> templates = new HashMap<>(); // Tile model pieces by the model name
+    private final Map<String, List<Material>> sharedMaterials = new HashMap<>(); // Distinct terrain materials by asset name
+    private final Map<String, Material> randomTextureMaterials = new HashMap<>(); // Random texture materials by asset name
+    private final Map<Material, Map<String, Material>> materialVariants = new HashMap<>(); // Flashed, tagged & decayed materials
     private static final Logger LOGGER = Logger.getLogger(MapViewController.class.getName());
 
     public MapViewController(AssetManager assetManager, KwdFile kwdFile, IMapInformation mapClientService, short playerId) {
@@ -114,6 +134,13 @@ public abstract class MapViewController implements ILoader<KwdFile> {
         this.assetManager = assetManager;
         this.mapClientService = mapClientService;
         this.playerId = playerId;
+
+        // The page meshing is done on a single worker, the pages are built one by one
+        pageBuilder = Executors.newSingleThreadExecutor((Runnable r) -> {
+            Thread thread = new Thread(r, "TerrainPageBuilder");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     @Override
@@ -140,7 +167,8 @@ public abstract class MapViewController implements ILoader<KwdFile> {
             for (int x = 0; x < getMapData().getWidth(); x++) {
 
                 try {
-                    handleTile(getMapData().getTile(x, y), terrain);
+                    MapTile tile = getMapData().getTile(x, y);
+                    handleTile(tile, getPage(tile.getLocation()));
                 } catch (Exception e) {
                     LOGGER.log(Level.SEVERE, "Failed to handle tile at " + x + ", " + y + "!", e);
                 }
@@ -150,11 +178,12 @@ public abstract class MapViewController implements ILoader<KwdFile> {
             }
         }
 
-        // Batch the terrain pages
-        for (Node page : pages) {
-            ((BatchNode) page.getChild(FLOOR_INDEX)).batch();
-            ((BatchNode) page.getChild(WALL_INDEX)).batch();
-            ((BatchNode) page.getChild(TOP_INDEX)).batch();
+        // Mesh the terrain pages
+        for (TerrainPage page : pages) {
+            for (int i = 0; i < LAYER_COUNT; i++) {
+                page.setLayer(i, TerrainMesher.build(LAYER_NAMES[i], page.tiles[i]));
+            }
+            page.attachTorches(null);
         }
         map.attachChild(terrain);
 
@@ -180,11 +209,76 @@ public abstract class MapViewController implements ILoader<KwdFile> {
     }
 
     /**
-     * Update the selected tiles (and neighbouring tiles if needed)
+     * Update the selected tiles (and neighbouring tiles if needed). The tiles
+     * are only marked for update here, the actual update is done in
+     * {@link #update()}, so this is safe to call from any thread
      *
      * @param points tile coordinates to update
      */
     public void updateTiles(Point... points) {
+        synchronized (dirtyTiles) {
+            dirtyTiles.addAll(Arrays.asList(points));
+        }
+    }
+
+    /**
+     * Updates the map view, call this from the render thread on every frame.
+     * Swaps in the rebuilt terrain pages and starts rebuilding the pages
+     * touched by the tiles changed since. All the pages of one rebuild are
+     * swapped in at the same frame so that no seams are visible, tile changes
+     * arriving meanwhile are gathered to the next rebuild
+     */
+    public void update() {
+        if (!pageBuilds.isEmpty()) {
+            for (PageBuild pageBuild : pageBuilds) {
+                if (!pageBuild.isDone()) {
+                    return;
+                }
+            }
+            for (PageBuild pageBuild : pageBuilds) {
+                pageBuild.swap();
+            }
+            pageBuilds.clear();
+        }
+
+        Point[] points;
+        synchronized (dirtyTiles) {
+            if (dirtyTiles.isEmpty()) {
+                return;
+            }
+            points = dirtyTiles.toArray(new Point[dirtyTiles.size()]);
+            dirtyTiles.clear();
+        }
+        rebuildTiles(points);
+    }
+
+    /**
+     * Is the map view still catching up with the tile changes
+     *
+     * @return true if there are tiles to rebuild or rebuilt pages not yet
+     * swapped in
+     */
+    public boolean isUpdating() {
+        synchronized (dirtyTiles) {
+            return !pageBuilds.isEmpty() || !dirtyTiles.isEmpty();
+        }
+    }
+
+    /**
+     * Stops the terrain page rebuilding, call when the map view is no longer
+     * needed
+     */
+    public void cleanup() {
+        pageBuilder.shutdownNow();
+    }
+
+    /**
+     * Reconstructs the selected tiles (and neighbouring tiles if needed) to
+     * copies of their terrain pages and hands the pages over to be meshed
+     *
+     * @param points tile coordinates to update
+     */
+    private void rebuildTiles(Point... points) {
         Set<Point> pointsToUpdate = new HashSet<>();
 
         // FIXME: This is really quite heavy and unneeded, just a quick "fix"
@@ -213,108 +307,112 @@ public abstract class MapViewController implements ILoader<KwdFile> {
             }
         }
 
-        // Reconstruct all tiles in the area
-        Set<BatchNode> nodesNeedBatching = new HashSet<>();
-        Node terrainNode = (Node) map.getChild(TERRAIN_NODE);
+        // Sort the tiles by the pages
+        Map<TerrainPage, List<Point>> pagePoints = new HashMap<>();
         for (Point point : pointsToUpdate) {
-            MapTile tile = getMapData().getTile(point);
-
-            // Reconstruct and mark for patching
-            // The tile node needs to created anew, somehow the BatchNode just doesn't get it if I remove children from subnode
-            Node pageNode = getPageNode(point, terrainNode);
-            Node tileNode = getTileNode(point, (Node) pageNode.getChild(FLOOR_INDEX));
-            if (!tileNode.getChildren().isEmpty()) {
-                tileNode.removeFromParent();
-                ((BatchNode) pageNode.getChild(FLOOR_INDEX)).attachChildAt(new Node(tileNode.getName()), getTileNodeIndex(point));
-                nodesNeedBatching.add((BatchNode) pageNode.getChild(FLOOR_INDEX));
-            }
-            tileNode = getTileNode(point, (Node) pageNode.getChild(WALL_INDEX));
-            if (!tileNode.getChildren().isEmpty()) {
-                tileNode.removeFromParent();
-                ((BatchNode) pageNode.getChild(WALL_INDEX)).attachChildAt(new Node(tileNode.getName()), getTileNodeIndex(point));
-                nodesNeedBatching.add((BatchNode) pageNode.getChild(WALL_INDEX));
-            }
-            tileNode = getTileNode(point, (Node) pageNode.getChild(TOP_INDEX));
-            if (!tileNode.getChildren().isEmpty()) {
-                tileNode.removeFromParent();
-                ((BatchNode) pageNode.getChild(TOP_INDEX)).attachChildAt(new Node(tileNode.getName()), getTileNodeIndex(point));
-                nodesNeedBatching.add((BatchNode) pageNode.getChild(TOP_INDEX));
+            pagePoints.computeIfAbsent(getPage(point), k -> new ArrayList<>()).add(point);
+        }
+
+        // Reconstruct the tiles to copies of the pages, the live pages stay intact until the swap
+        for (Map.Entry<TerrainPage, List<Point>> entry : pagePoints.entrySet()) {
+            TerrainPage page = entry.getKey();
+            List<Point> pointsOnPage = entry.getValue();
+            TerrainPage pageCopy = new TerrainPage(page, pointsOnPage);
+            for (Point point : pointsOnPage) {
+                handleTile(getMapData().getTile(point), pageCopy);
             }
 
-            // Reconstruct
-            handleTile(tile, (Node) map.getChild(TERRAIN_NODE));
+            // Mesh only the layers that actually changed
+            List<Future<Node>> layers = new ArrayList<>(LAYER_COUNT);
+            for (int i = 0; i < LAYER_COUNT; i++) {
+                if (isPageLayerChanged(page, pageCopy, i, pointsOnPage)) {
+                    final String name = LAYER_NAMES[i];
+                    final List<Piece>[] tiles = pageCopy.tiles[i];
+                    layers.add(pageBuilder.submit(() -> TerrainMesher.build(name, tiles)));
+                } else {
+                    layers.add(null);
+                }
+            }
+            pageBuilds.add(new PageBuild(page, pageCopy, layers));
         }
+    }
 
-        // Batch
-        for (BatchNode batchNode : nodesNeedBatching) {
-            batchNode.batch();
+    private static boolean isPageLayerChanged(TerrainPage page, TerrainPage pageCopy, int layer, List<Point> points) {
+        for (Point point : points) {
+            int index = getTileIndex(point);
+            if (page.tiles[layer][index] != null || pageCopy.tiles[layer][index] != null) {
+                return true;
+            }
         }
+        return false;
     }
 
     /**
-     * Sets the right material to tile (selected / decayed...)
+     * Gets the right material for a tile piece (selected / decayed...). The
+     * materials are shared, so the variants are cached
      *
-     * @param node
+     * @param tile the tile
+     * @param piece the tile piece
+     * @param material the current material of the piece
+     * @return the material to use
      */
-    private void setTileMaterialToGeometries(final MapTile tile, final Node node) {
+    private Material getTileMaterial(final MapTile tile, final Piece piece, final Material material) {
 
-        // Change the material on geometries
+        // See if we need a variant at all
         Terrain terrain = getTerrain(tile);
-        if (!tile.isFlashed(playerId) && !tile.isSelected(playerId)
-                && !terrain.getFlags().contains(Terrain.TerrainFlag.DECAY)) {
-            return;
+        boolean decay = terrain.getFlags().contains(Terrain.TerrainFlag.DECAY) && terrain.getTextureFrames() > 1
+                && piece.hasAlternativeTextures();
+        boolean flashed = tile.isFlashed(playerId);
+        boolean selected = tile.isSelected(playerId);
+        if (!flashed && !selected && !decay) {
+            return material;
         }
 
-        node.depthFirstTraversal(new SceneGraphVisitor() {
-            @Override
-            public void visit(Spatial spatial) {
-                if (!(spatial instanceof Geometry)) {
-                    return;
-                }
+        // Decay
+        String diffuseTexture = null;
+        if (decay) {
 
-                Material material = ((Geometry) spatial).getMaterial();
-
-                // Decay
-                if (terrain.getFlags().contains(Terrain.TerrainFlag.DECAY) && terrain.getTextureFrames() > 1) {
-
-                    Integer texCount = spatial.getUserData(KmfModelLoader.MATERIAL_ALTERNATIVE_TEXTURES_COUNT);
-                    if (texCount != null) {
-
-                        // FIXME: This doesn't sit well with the material thinking (meaning we produce the actual material files)
-                        // Now we have a random starting texture...
-                        int textureIndex = terrain.getTextureFrames() - (int) Math.ceil(tile.getHealthPercent() / (100f / terrain.getTextureFrames()));
-                        String diffuseTexture = ((Texture) material.getParam("DiffuseMap").getValue()).getKey().getName().replaceFirst("_DECAY\\d", ""); // Unharmed texture
-                        if (textureIndex > 0) {
-
-                            // The first one doesn't have a number
-                            if (textureIndex == 1) {
-                                diffuseTexture = diffuseTexture.replaceFirst(".png", "_DECAY.png");
-                            } else {
-                                diffuseTexture = diffuseTexture.replaceFirst(".png", "_DECAY" + textureIndex + ".png");
-                            }
-                        }
-                        try {
-                            Texture texture = assetManager.loadTexture(new TextureKey(ConversionUtils.getCanonicalAssetKey(diffuseTexture), false));
-                            material.setTexture("DiffuseMap", texture);
-
-                            AssetUtils.assignMapsToMaterial(assetManager, material);
-                        } catch (Exception e) {
-                            LOGGER.log(Level.WARNING, "Error applying decay texture: {0} to {1} terrain! ({2})", new Object[]{diffuseTexture, terrain.getName(), e.getMessage()});
-                        }
-                    }
-                }
-                if (tile.isFlashed(playerId)) {
-                    material.setColor("Ambient", COLOR_FLASH);
-                    material.setBoolean("UseMaterialColors", true);
-                }
-                if (tile.isSelected(playerId)) {
-                    material.setColor("Ambient", COLOR_TAG);
-                    material.setBoolean("UseMaterialColors", true);
-                }
+            // FIXME: This doesn't sit well with the material thinking (meaning we produce the actual material files)
+            // Now we have a random starting texture...
+            int textureIndex = terrain.getTextureFrames() - (int) Math.ceil(tile.getHealthPercent() / (100f / terrain.getTextureFrames()));
+            diffuseTexture = ((Texture) material.getParam("DiffuseMap").getValue()).getKey().getName().replaceFirst("_DECAY\\d", ""); // Unharmed texture
+            if (textureIndex > 0) {
 
+                // The first one doesn't have a number
+                if (textureIndex == 1) {
+                    diffuseTexture = diffuseTexture.replaceFirst(".png", "_DECAY.png");
+                } else {
+                    diffuseTexture = diffuseTexture.replaceFirst(".png", "_DECAY" + textureIndex + ".png");
+                }
             }
+        }
 
-        });
+        Map<String, Material> variants = materialVariants.computeIfAbsent(material, k -> new HashMap<>());
+        String variantKey = diffuseTexture + "_" + flashed + "_" + selected;
+        Material variant = variants.get(variantKey);
+        if (variant == null) {
+            variant = material.clone();
+            if (diffuseTexture != null) {
+                try {
+                    Texture texture = assetManager.loadTexture(new TextureKey(ConversionUtils.getCanonicalAssetKey(diffuseTexture), false));
+                    variant.setTexture("DiffuseMap", texture);
+
+                    AssetUtils.assignMapsToMaterial(assetManager, variant);
+                } catch (Exception e) {
+                    LOGGER.log(Level.WARNING, "Error applying decay texture: {0} to {1} terrain! ({2})", new Object[]{diffuseTexture, terrain.getName(), e.getMessage()});
+                }
+            }
+            if (flashed) {
+                variant.setColor("Ambient", COLOR_FLASH);
+                variant.setBoolean("UseMaterialColors", true);
+            }
+            if (selected) {
+                variant.setColor("Ambient", COLOR_TAG);
+                variant.setBoolean("UseMaterialColors", true);
+            }
+            variants.put(variantKey, variant);
+        }
+        return variant;
     }
 
     /**
@@ -329,42 +427,29 @@ public abstract class MapViewController implements ILoader<KwdFile> {
             for (int x = 0; x < (int) Math.ceil(getMapData().getWidth() / (float) PAGE_SQUARE_SIZE); x++) {
                 Node page = new Node(x + "_" + y);
 
-                // Create batch nodes for ceiling, floor and walls
-                BatchNode floor = new BatchNode("floor");
-                floor.setShadowMode(RenderQueue.ShadowMode.Receive); // Floors don't cast
-                generateTileNodes(floor, x, y);
-                page.attachChild(floor);
-                BatchNode wall = new BatchNode("wall");
-                wall.setShadowMode(RenderQueue.ShadowMode.CastAndReceive); // Walls cast and receive shadows
-                generateTileNodes(wall, x, y);
-                page.attachChild(wall);
-                BatchNode ceiling = new BatchNode("ceiling");
-                ceiling.setShadowMode(RenderQueue.ShadowMode.Off); // No lights above ceilings
-                generateTileNodes(ceiling, x, y);
-                page.attachChild(ceiling);
-
-                pages.add(page);
+                // Create nodes for floor, walls and ceiling, and the torches
+                for (int i = 0; i < LAYER_COUNT; i++) {
+                    Node layer = new Node(LAYER_NAMES[i]);
+                    layer.setShadowMode(LAYER_SHADOW_MODES[i]);
+                    page.attachChild(layer);
+                }
+                page.attachChild(new Node("torches"));
+
+                pages.add(new TerrainPage(pages.size(), page));
                 root.attachChild(page);
             }
         }
     }
 
     /**
-     * Create tile nodes inside a page
+     * Get the wall pieces facing the given direction, already turned to the
+     * direction
      *
-     * @param pageBatch the page
-     * @param pageX page x
-     * @param pageY page y
+     * @param tile the solid tile
+     * @param direction the wall direction
+     * @return the wall pieces, or {@code null} if there is no wall
      */
-    private void generateTileNodes(BatchNode pageBatch, int pageX, int pageY) {
-        for (int y = 0; y < PAGE_SQUARE_SIZE; y++) {
-            for (int x = 0; x < PAGE_SQUARE_SIZE; x++) {
-                pageBatch.attachChild(new Node((x + pageX * PAGE_SQUARE_SIZE) + "_" + (y + pageY * PAGE_SQUARE_SIZE)));
-            }
-        }
-    }
-
-    private Spatial getWallSpatial(MapTile tile, WallDirection direction) {
+    private List<Piece> getWallPieces(MapTile tile, WallDirection direction) {
         Terrain terrain = getTerrain(tile);
         String modelName = terrain.getSideResource().getName();
         Point p = tile.getLocation();
@@ -385,7 +470,7 @@ public abstract class MapViewController implements ILoader<KwdFile> {
         }
         // Check for out of bounds
         if (neigbourTile == null) {
-            return loadModel(modelName);
+            return getTemplate(modelName, direction);
         }
 
         if (getTerrain(neigbourTile).getFlags().contains(Terrain.TerrainFlag.SOLID)) {
@@ -393,89 +478,138 @@ public abstract class MapViewController implements ILoader<KwdFile> {
         }
 
         if (!(terrain.getFlags().contains(Terrain.TerrainFlag.ALLOW_ROOM_WALLS))) {
-            return loadModel(modelName);
+            return getTemplate(modelName, direction);
         } else if (hasRoomWalls(neigbourTile)) {
             return getRoomWall(neigbourTile, direction);
         }
 
-        return loadModel(modelName);
+        return getTemplate(modelName, direction);
     }
 
-    private Spatial getRoomWall(MapTile tile, WallDirection direction) {
+    private List<Piece> getRoomWall(MapTile tile, WallDirection direction) {
         Point p = tile.getLocation();
         Room room = kwdFile.getRoomByTerrain(tile.getTerrainId());
         RoomInstance roomInstance = handleRoom(p, room, null);
         RoomConstructor rc = roomActuals.get(roomInstance);
-        return rc.getWallSpatial(p, direction);
+        Spatial spatial = rc.getWallSpatial(p, direction);
+        if (spatial == null) {
+            return null;
+        }
+        spatial.rotate(0, direction.getAngle(), 0);
+        return getPieces(spatial);
     }
 
     /**
-     * Sets random material (from the list) to all the geometries that have been
-     * tagged for this in this spatial
+     * Gets a random material (from the list) for a piece that has been tagged
+     * for this
      *
-     * @param spatial the spatial
+     * @param material the current material
      * @param tile the tile
+     * @return the random texture material
      */
-    private void setRandomTexture(final Spatial spatial, final MapTile tile) {
-
-        // Check the data on geometry, basically we could allow the players to play with different skins
-        spatial.depthFirstTraversal(new SceneGraphVisitor() {
-            @Override
-            public void visit(Spatial spatial) {
-                Integer texCount = spatial.getUserData(KmfModelLoader.MATERIAL_ALTERNATIVE_TEXTURES_COUNT);
-                if (texCount != null) {
-
-                    // The principle is bit wrong, the random texture is tied to the tile, and not material etc.
-                    // But it is probably just the tops of few tiles, so...
-                    int tex = tile.getRandomTextureIndex();
-                    if (tex != 0) { // 0 is the default anyway
-                        Geometry g = (Geometry) spatial;
-                        Material m = g.getMaterial();
-                        String asset = m.getAssetName();
-
-                        // Load new material
-                        AssetInfo newMaterialInfo = assetManager.locateAsset(new AssetKey<>(asset.substring(0,
-                                asset.lastIndexOf(KmfModelLoader.MATERIAL_ALTERNATIVE_TEXTURE_SUFFIX_SEPARATOR) + 1).concat(tex + ".j3m")));
-                        if (newMaterialInfo != null) {
-                            try {
-                                Material newMaterial = assetManager.loadMaterial(newMaterialInfo.getKey().getName());
-                                AssetUtils.assignMapsToMaterial(assetManager, newMaterial);
-                                g.setMaterial(newMaterial);
-                            } catch (Exception e) {
-
-                                // FIXME: Rock top fails, we may have a problem in the material naming
-                                LOGGER.log(Level.WARNING, "Failed to load a random texture to terrain id " + tile.getTerrainId() + ", texture index " + tex + "!", e);
-                            }
-                        }
-                    }
+    private Material getRandomTextureMaterial(final Material material, final MapTile tile) {
+
+        // The principle is bit wrong, the random texture is tied to the tile, and not material etc.
+        // But it is probably just the tops of few tiles, so...
+        int tex = tile.getRandomTextureIndex();
+        if (tex == 0) { // 0 is the default anyway
+            return material;
+        }
+
+        String asset = material.getAssetName();
+        String materialName = asset.substring(0,
+                asset.lastIndexOf(KmfModelLoader.MATERIAL_ALTERNATIVE_TEXTURE_SUFFIX_SEPARATOR) + 1).concat(tex + ".j3m");
+        Material newMaterial = randomTextureMaterials.get(materialName);
+        if (newMaterial == null) {
+            newMaterial = material;
+
+            // Load new material
+            AssetInfo newMaterialInfo = assetManager.locateAsset(new AssetKey<>(materialName));
+            if (newMaterialInfo != null) {
+                try {
+                    newMaterial = assetManager.loadMaterial(newMaterialInfo.getKey().getName());
+                    AssetUtils.assignMapsToMaterial(assetManager, newMaterial);
+                    newMaterial = getSharedMaterial(newMaterial);
+                } catch (Exception e) {
+
+                    // FIXME: Rock top fails, we may have a problem in the material naming
+                    LOGGER.log(Level.WARNING, "Failed to load a random texture to terrain id " + tile.getTerrainId() + ", texture index " + tex + "!", e);
                 }
             }
-        });
+            randomTextureMaterials.put(materialName, newMaterial);
+        }
+        return newMaterial;
     }
 
-    private Spatial loadModel(final String model) {
-        Spatial spatial = AssetUtils.loadModel(assetManager, model);
+    /**
+     * Get the pieces of a tile model. The model is loaded only once
+     *
+     * @param model the model name
+     * @return the model pieces
+     */
+    private List<Piece> getTemplate(final String model) {
+        List<Piece> template = templates.get(model);
+        if (template == null) {
+            template = getPieces(AssetUtils.loadModel(assetManager, model));
+            templates.put(model, template);
+        }
+        return template;
+    }
 
-        return spatial;
+    private List<Piece> getTemplate(final String model, WallDirection direction) {
+        Transform transform = new Transform(new Quaternion().fromAngles(0, direction.getAngle(), 0));
+        List<Piece> template = getTemplate(model);
+        List<Piece> pieces = new ArrayList<>(template.size());
+        for (Piece piece : template) {
+            pieces.add(piece.place(transform, piece.getMaterial()));
+        }
+        return pieces;
+    }
+
+    /**
+     * Splits the spatial to pieces, with shared materials so that the pieces
+     * can be meshed together
+     *
+     * @param spatial the spatial
+     * @return the pieces
+     */
+    private List<Piece> getPieces(final Spatial spatial) {
+        List<Piece> pieces = TerrainMesher.getPieces(spatial);
+        Transform transform = new Transform();
+        for (int i = 0; i < pieces.size(); i++) {
+            Piece piece = pieces.get(i);
+            pieces.set(i, piece.place(transform, getSharedMaterial(piece.getMaterial())));
+        }
+        return pieces;
+    }
+
+    private Material getSharedMaterial(final Material material) {
+        List<Material> materials = sharedMaterials.computeIfAbsent(String.valueOf(material.getAssetName()), k -> new ArrayList<>());
+        for (Material sharedMaterial : materials) {
+            if (sharedMaterial.contentEquals(material)) {
+                return sharedMaterial;
+            }
+        }
+        materials.add(material);
+        return material;
     }
 
     /**
      * Handle single tile from the map, represented by the X & Y coordinates
      *
      * @param tile tile to handle
-     * @param root the root node
+     * @param page the page the tile is on
      */
-    private void handleTile(MapTile tile, Node root) {
+    private void handleTile(MapTile tile, TerrainPage page) {
 
         // Get the terrain
         Terrain terrain = getTerrain(tile);
         Point p = tile.getLocation();
-        Node pageNode = getPageNode(p, root);
 
         // Torch (see https://github.com/tonihele/OpenKeeper/issues/128)
         if (!terrain.getFlags().contains(Terrain.TerrainFlag.SOLID)
                 && (tile.getX() % 2 == 0 || tile.getY() % 2 == 0)) {
-            handleTorch(tile, pageNode);
+            handleTorch(tile, page);
         }
 
         // Room
@@ -492,13 +626,13 @@ public abstract class MapViewController implements ILoader<KwdFile> {
             }
         }
 
-        handleTop(tile, terrain, pageNode);
+        handleTop(tile, terrain, page);
         if (terrain.getFlags().contains(Terrain.TerrainFlag.SOLID)) {
-            handleSide(tile, pageNode);
+            handleSide(tile, page);
         }
     }
 
-    private void handleTorch(MapTile tile, Node pageNode) {
+    private void handleTorch(MapTile tile, TerrainPage page) {
 
         // The rooms actually contain the torch model resource, but it is always the same,
         // and sometimes even null and there is still a torch. So I don't think they are used
@@ -540,12 +674,17 @@ public abstract class MapViewController implements ILoader<KwdFile> {
                     name = torch.getName();
                 }
             }
-            Spatial spatial = AssetUtils.loadModel(assetManager, name);
-            spatial.addControl(new TorchControl(kwdFile, assetManager, angleY));
-            spatial.rotate(0, angleY, 0);
-            spatial.setLocalTranslation(WorldUtils.pointToVector3f(tile.getLocation()).addLocal(position));
-
-            ((Node) getTileNode(tile.getLocation(), (Node) pageNode.getChild(WALL_INDEX))).attachChild(spatial);
+            // The torch model goes to the walls, only the flame and the light are kept live
+            Node torch = new Node(name);
+            torch.addControl(new TorchControl(kwdFile, assetManager, angleY));
+            torch.rotate(0, angleY, 0);
+            torch.setLocalTranslation(WorldUtils.pointToVector3f(tile.getLocation()).addLocal(position));
+            page.torches[getTileIndex(tile.getLocation())] = torch;
+
+            List<Piece> tilePieces = page.getPieces(WALL_INDEX, tile.getLocation());
+            for (Piece piece : getTemplate(name)) {
+                tilePieces.add(piece.place(torch.getLocalTransform(), piece.getMaterial()));
+            }
         }
     }
 
@@ -589,13 +728,13 @@ public abstract class MapViewController implements ILoader<KwdFile> {
      *
      * @param tile this tile
      * @param terrain DO NOT REMOVE. Need for construct water bed
-     * @param pageNode page node
+     * @param page the page
      */
-    private void handleTop(MapTile tile, Terrain terrain, Node pageNode) {
+    private void handleTop(MapTile tile, Terrain terrain, TerrainPage page) {
 
         ArtResource model = terrain.getCompleteResource();
         Point p = tile.getLocation();
-        Spatial spatial;
+        List<Piece> pieces;
         // For water construction type (lava & water), there are 8 pieces (0-7 suffix) in complete resource
         // And in the top resource there is the actual lava/water
         if (terrain.getFlags().contains(Terrain.TerrainFlag.CONSTRUCTION_TYPE_WATER)) {
@@ -611,83 +750,69 @@ public abstract class MapViewController implements ILoader<KwdFile> {
                 }
             }
 
-            spatial = new WaterConstructor(kwdFile).construct(getMapData(), p.x, p.y, terrain, assetManager, model.getName());
+            pieces = getPieces(new WaterConstructor(kwdFile).construct(getMapData(), p.x, p.y, terrain, assetManager, model.getName()));
 
         } else if (terrain.getFlags().contains(Terrain.TerrainFlag.CONSTRUCTION_TYPE_QUAD)) {
             // If this resource is type quad, parse it together. With fixed Hero Lair
             String modelName = (model == null && terrain.getTerrainId() == 35) ? "hero_outpost_floor" : model.getName();
-            spatial = new SingleQuadConstructor(kwdFile).construct(getMapData(), p.x, p.y, terrain, assetManager, modelName);
+            pieces = getPieces(new SingleQuadConstructor(kwdFile).construct(getMapData(), p.x, p.y, terrain, assetManager, modelName));
 
         } else {
 
             if (terrain.getFlags().contains(Terrain.TerrainFlag.SOLID)) {
                 model = terrain.getTopResource();
             }
-            spatial = loadModel(model.getName());
-        }
-
-        if (terrain.getFlags().contains(Terrain.TerrainFlag.RANDOM_TEXTURE)) {
-            setRandomTexture(spatial, tile);
+            pieces = getTemplate(model.getName());
         }
 
-        Node topTileNode;
+        List<Piece> tilePieces;
         if (terrain.getFlags().contains(Terrain.TerrainFlag.SOLID)) {
-            topTileNode = getTileNode(p, (Node) pageNode.getChild(TOP_INDEX));
+            tilePieces = page.getPieces(TOP_INDEX, p);
         } else {
-            topTileNode = getTileNode(p, (Node) pageNode.getChild(FLOOR_INDEX));
+            tilePieces = page.getPieces(FLOOR_INDEX, p);
         }
 
-        topTileNode.attachChild(spatial);
-        setTileMaterialToGeometries(tile, topTileNode);
-        AssetUtils.translateToTile(topTileNode, p);
-
-//        tile.setTopNode(topTileNode);
+        Transform transform = new Transform(WorldUtils.pointToVector3f(p));
+        boolean randomTexture = terrain.getFlags().contains(Terrain.TerrainFlag.RANDOM_TEXTURE);
+        for (Piece piece : pieces) {
+            Material material = piece.getMaterial();
+            if (randomTexture && piece.hasAlternativeTextures()) {
+                material = getRandomTextureMaterial(material, tile);
+            }
+            tilePieces.add(piece.place(transform, getTileMaterial(tile, piece, material)));
+        }
     }
 
-    private void handleSide(MapTile tile, Node pageNode) {
+    private void handleSide(MapTile tile, TerrainPage page) {
         Point p = tile.getLocation();
-        Node sideTileNode = getTileNode(p, (Node) pageNode.getChild(WALL_INDEX));
+        List<Piece> tilePieces = page.getPieces(WALL_INDEX, p);
+        Transform transform = new Transform(WorldUtils.pointToVector3f(p));
 
         for (WallDirection direction : WallDirection.values()) {
-            Spatial wall = getWallSpatial(tile, direction);
+            List<Piece> wall = getWallPieces(tile, direction);
             if (wall != null) {
-                wall.rotate(0, direction.getAngle(), 0);
-                sideTileNode.attachChild(wall);
+                for (Piece piece : wall) {
+                    tilePieces.add(piece.place(transform, getTileMaterial(tile, piece, piece.getMaterial())));
+                }
             }
         }
-
-        setTileMaterialToGeometries(tile, sideTileNode);
-        AssetUtils.translateToTile(sideTileNode, p);
-
-//        tile.setSideNode(sideTileNode);
     }
 
     public void flashTile(boolean enabled, List<Point> points) {
         for (Point p : points) {
-            getMapData().getTile(p.x, p.y).setFlashed(enabled, playerId);
+            getMapData().getTileForUpdate(p.x, p.y).setFlashed(enabled, playerId);
         }
 
         updateTiles(points.toArray(new Point[points.size()]));
     }
 
     /**
-     * Get the terrain tile node
-     *
-     * @param p the tile coordinates
-     * @param page the page node
-     * @return tile node
-     */
-    private Node getTileNode(Point p, Node page) {
-        return (Node) page.getChild(getTileNodeIndex(p));
-    }
-
-    /**
-     * Get index for the tile node, where it should be
+     * Get index for the tile, where it should be
      *
      * @param p the tile coordinates
      * @return the index inside the page
      */
-    private int getTileNodeIndex(Point p) {
+    private static int getTileIndex(Point p) {
         int tileX = p.x - ((int) Math.floor(p.x / (float) PAGE_SQUARE_SIZE)) * PAGE_SQUARE_SIZE;
         int tileY = p.y - ((int) Math.floor(p.y / (float) PAGE_SQUARE_SIZE)) * PAGE_SQUARE_SIZE;
         return tileY * PAGE_SQUARE_SIZE + tileX;
@@ -697,10 +822,9 @@ public abstract class MapViewController implements ILoader<KwdFile> {
      * Get the terrain "page" we are on
      *
      * @param p the tile coordinates
-     * @param root the root node
-     * @return page node
+     * @return the page
      */
-    protected Node getPageNode(Point p, Node root) {
+    private TerrainPage getPage(Point p) {
         int pageX = (int) Math.floor(p.x / (float) PAGE_SQUARE_SIZE);
         int pageY = (int) Math.floor(p.y / (float) PAGE_SQUARE_SIZE);
 
@@ -710,7 +834,7 @@ public abstract class MapViewController implements ILoader<KwdFile> {
             int pagesPerRow = (int) Math.ceil(getMapData().getWidth() / (float) PAGE_SQUARE_SIZE);
             index += pagesPerRow * pageY;
         }
-        return (Node) root.getChild(index);
+        return pages.get(index);
     }
 
     /**
@@ -1096,4 +1220,128 @@ public abstract class MapViewController implements ILoader<KwdFile> {
      */
     protected abstract void updateProgress(final float progress);
 
+    /**
+     * A terrain page, the tile pieces of each layer and the torches
+     */
+    private static class TerrainPage {
+
+        private final int index;
+        private final Node node;
+        private final List<Piece>[][] tiles;
+        private final Node[] torches;
+
+        @SuppressWarnings("unchecked")
+        public TerrainPage(int index, Node node) {
+            this.index = index;
+            this.node = node;
+            this.tiles = new List[LAYER_COUNT][PAGE_SQUARE_SIZE * PAGE_SQUARE_SIZE];
+            this.torches = new Node[PAGE_SQUARE_SIZE * PAGE_SQUARE_SIZE];
+        }
+
+        /**
+         * Copies the page, the given tiles are left empty. The copy shares the
+         * page node and the pieces of the other tiles
+         *
+         * @param page the page to copy
+         * @param emptyTiles the tiles to leave empty
+         */
+        @SuppressWarnings("unchecked")
+        public TerrainPage(TerrainPage page, Collection<Point> emptyTiles) {
+            this.index = page.index;
+            this.node = page.node;
+            this.tiles = new List[LAYER_COUNT][];
+            for (int i = 0; i < LAYER_COUNT; i++) {
+                tiles[i] = page.tiles[i].clone();
+            }
+            this.torches = page.torches.clone();
+            for (Point p : emptyTiles) {
+                int tileIndex = getTileIndex(p);
+                for (int i = 0; i < LAYER_COUNT; i++) {
+                    tiles[i][tileIndex] = null;
+                }
+                torches[tileIndex] = null;
+            }
+        }
+
+        public List<Piece> getPieces(int layer, Point p) {
+            int tileIndex = getTileIndex(p);
+            List<Piece> pieces = tiles[layer][tileIndex];
+            if (pieces == null) {
+                pieces = new ArrayList<>();
+                tiles[layer][tileIndex] = pieces;
+            }
+            return pieces;
+        }
+
+        public void setLayer(int layer, Node layerNode) {
+            layerNode.setShadowMode(LAYER_SHADOW_MODES[layer]);
+            node.detachChildAt(layer);
+            node.attachChildAt(layerNode, layer);
+        }
+
+        /**
+         * Attaches the torches of this page to the scene
+         *
+         * @param oldPage the previous version of this page, its torches that
+         * are not present anymore are detached. Can be {@code null}
+         */
+        public void attachTorches(TerrainPage oldPage) {
+            Node torchNode = (Node) node.getChild(TORCH_INDEX);
+            for (int i = 0; i < torches.length; i++) {
+                if (oldPage != null && oldPage.torches[i] != null && oldPage.torches[i] != torches[i]) {
+                    torchNode.detachChild(oldPage.torches[i]);
+                }
+                if (torches[i] != null && torches[i].getParent() == null) {
+                    torchNode.attachChild(torches[i]);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * A page being built on the background
+     */
+    private class PageBuild {
+
+        private final TerrainPage page;
+        private final TerrainPage pageCopy;
+        private final List<Future<Node>> layers;
+
+        public PageBuild(TerrainPage page, TerrainPage pageCopy, List<Future<Node>> layers) {
+            this.page = page;
+            this.pageCopy = pageCopy;
+            this.layers = layers;
+        }
+
+        public boolean isDone() {
+            for (Future<Node> layer : layers) {
+                if (layer != null && !layer.isDone()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Replaces the live page with the rebuilt one
+         */
+        public void swap() {
+            for (int i = 0; i < layers.size(); i++) {
+                Future<Node> layer = layers.get(i);
+                if (layer == null) {
+                    continue;
+                }
+                try {
+                    pageCopy.setLayer(i, layer.get());
+                } catch (InterruptedException | ExecutionException ex) {
+                    LOGGER.log(Level.SEVERE, "Failed to mesh the terrain page " + page.node.getName() + "!", ex);
+                }
+            }
+            pageCopy.attachTorches(page);
+            pages.set(pageCopy.index, pageCopy);
+        }
+
+    }
+
 }
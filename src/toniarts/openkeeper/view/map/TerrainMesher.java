@@ -0,0 +1,266 @@
+/*
+ * Copyright (C) 2014-2018 OpenKeeper
+ *
+ * OpenKeeper is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenKeeper is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OpenKeeper.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package toniarts.openkeeper.view.map;
+
+import com.jme3.material.Material;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Transform;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Node;
+import com.jme3.scene.SceneGraphVisitor;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.VertexBuffer.Type;
+import com.jme3.scene.mesh.IndexBuffer;
+import com.jme3.util.BufferUtils;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import toniarts.openkeeper.tools.convert.KmfModelLoader;
+
+/**
+ * Builds the terrain page meshes straight from the tile model geometries. The
+ * tiles are described as lists of pieces, a mesh with its material and
+ * transformation. The pieces are written pre-transformed to one mesh per
+ * material, so no scene graph is needed for the individual tiles.<br>
+ * The building only reads the piece meshes, so it can be done outside the
+ * render thread.
+ *
+ * @author Toni Helenius <helenius.toni@gmail.com>
+ */
+public final class TerrainMesher {
+
+    /**
+     * The buffers that are merged, others are dropped. Expects triangle
+     * meshes
+     */
+    private static final EnumSet<Type> MERGED_BUFFERS = EnumSet.of(Type.Position, Type.Normal,
+            Type.Tangent, Type.Binormal, Type.Color, Type.TexCoord, Type.TexCoord2, Type.TexCoord3,
+            Type.TexCoord4, Type.TexCoord5, Type.TexCoord6, Type.TexCoord7, Type.TexCoord8);
+
+    private TerrainMesher() {
+        // Nope
+    }
+
+    /**
+     * A single geometry of a tile
+     */
+    public static final class Piece {
+
+        private final Mesh mesh;
+        private final Material material;
+        private final Transform transform;
+        private final boolean alternativeTextures;
+
+        private Piece(Mesh mesh, Material material, Transform transform, boolean alternativeTextures) {
+            this.mesh = mesh;
+            this.material = material;
+            this.transform = transform;
+            this.alternativeTextures = alternativeTextures;
+        }
+
+        public Material getMaterial() {
+            return material;
+        }
+
+        /**
+         * Does the piece have alternative textures to choose from
+         *
+         * @return true if alternative textures are present
+         */
+        public boolean hasAlternativeTextures() {
+            return alternativeTextures;
+        }
+
+        /**
+         * Creates a copy of this piece, placed by the given transformation
+         * and drawn with the given material
+         *
+         * @param parent the transformation to apply on top of the current
+         * one
+         * @param material the material to use
+         * @return new piece
+         */
+        public Piece place(Transform parent, Material material) {
+            return new Piece(mesh, material, transform.clone().combineWithParent(parent), alternativeTextures);
+        }
+    }
+
+    /**
+     * Splits a spatial into pieces. The pieces are relative to the given
+     * spatial, including its own transformation. Already batched geometries
+     * are taken as batched
+     *
+     * @param spatial the spatial
+     * @return list of pieces
+     */
+    public static List<Piece> getPieces(final Spatial spatial) {
+        if (spatial == null) {
+            return Collections.emptyList();
+        }
+
+        List<Piece> pieces = new ArrayList<>();
+        spatial.depthFirstTraversal(new SceneGraphVisitor() {
+            @Override
+            public void visit(Spatial s) {
+                if (!(s instanceof Geometry) || ((Geometry) s).isGrouped()) {
+                    return;
+                }
+
+                Geometry geometry = (Geometry) s;
+                pieces.add(new Piece(geometry.getMesh(), geometry.getMaterial(), getTransform(geometry, spatial),
+                        geometry.getUserData(KmfModelLoader.MATERIAL_ALTERNATIVE_TEXTURES_COUNT) != null));
+            }
+        });
+        return pieces;
+    }
+
+    private static Transform getTransform(Spatial spatial, Spatial root) {
+        Transform transform = spatial.getLocalTransform().clone();
+        while (spatial != root && spatial.getParent() != null) {
+            spatial = spatial.getParent();
+            transform.combineWithParent(spatial.getLocalTransform());
+        }
+        return transform;
+    }
+
+    /**
+     * Builds a page layer from the tile pieces. The layer has a single
+     * geometry per material
+     *
+     * @param name name of the layer node
+     * @param tiles the tiles, tile pieces, null entries are allowed
+     * @return the layer node
+     */
+    public static Node build(String name, List<Piece>[] tiles) {
+        Map<Material, List<Piece>> batches = new IdentityHashMap<>();
+        for (List<Piece> tile : tiles) {
+            if (tile == null) {
+                continue;
+            }
+            for (Piece piece : tile) {
+                batches.computeIfAbsent(piece.material, k -> new ArrayList<>()).add(piece);
+            }
+        }
+
+        Node node = new Node(name);
+        int i = 0;
+        for (Map.Entry<Material, List<Piece>> entry : batches.entrySet()) {
+            Geometry geometry = new Geometry(name + "-batch" + i++, merge(entry.getValue()));
+            geometry.setMaterial(entry.getKey());
+            node.attachChild(geometry);
+        }
+        return node;
+    }
+
+    private static Mesh merge(List<Piece> pieces) {
+        int vertexCount = 0;
+        int indexCount = 0;
+        Map<Type, Integer> components = new EnumMap<>(Type.class);
+        for (Piece piece : pieces) {
+            vertexCount += piece.mesh.getVertexCount();
+            indexCount += piece.mesh.getIndexBuffer().size();
+            for (VertexBuffer vb : piece.mesh.getBufferList()) {
+                if (MERGED_BUFFERS.contains(vb.getBufferType()) && vb.getFormat() == VertexBuffer.Format.Float) {
+                    components.putIfAbsent(vb.getBufferType(), vb.getNumComponents());
+                }
+            }
+        }
+
+        // Fresh buffers, the pieces are written there already transformed
+        Map<Type, FloatBuffer> buffers = new EnumMap<>(Type.class);
+        for (Map.Entry<Type, Integer> entry : components.entrySet()) {
+            buffers.put(entry.getKey(), BufferUtils.createFloatBuffer(vertexCount * entry.getValue()));
+        }
+        IndexBuffer indices = IndexBuffer.createIndexBuffer(vertexCount, indexCount);
+
+        Vector3f vector = new Vector3f();
+        int vertexOffset = 0;
+        int indexOffset = 0;
+        for (Piece piece : pieces) {
+            Quaternion rotation = piece.transform.getRotation();
+            int pieceVertexCount = piece.mesh.getVertexCount();
+            for (Map.Entry<Type, FloatBuffer> entry : buffers.entrySet()) {
+                VertexBuffer vb = piece.mesh.getBuffer(entry.getKey());
+                if (vb == null || vb.getFormat() != VertexBuffer.Format.Float) {
+                    continue; // Left as zeroes
+                }
+
+                FloatBuffer in = (FloatBuffer) vb.getData();
+                FloatBuffer out = entry.getValue();
+                int inComponents = vb.getNumComponents();
+                int outComponents = components.get(entry.getKey());
+                int copyComponents = Math.min(inComponents, outComponents);
+                for (int v = 0; v < pieceVertexCount; v++) {
+                    int inIndex = v * inComponents;
+                    int outIndex = (vertexOffset + v) * outComponents;
+                    switch (entry.getKey()) {
+                        case Position:
+                            vector.set(in.get(inIndex), in.get(inIndex + 1), in.get(inIndex + 2));
+                            piece.transform.transformVector(vector, vector);
+                            putVector(out, outIndex, vector);
+                            break;
+                        case Normal:
+                        case Tangent:
+                        case Binormal:
+                            vector.set(in.get(inIndex), in.get(inIndex + 1), in.get(inIndex + 2));
+                            rotation.multLocal(vector).normalizeLocal();
+                            putVector(out, outIndex, vector);
+                            if (copyComponents > 3) {
+                                out.put(outIndex + 3, in.get(inIndex + 3)); // Tangent handedness
+                            }
+                            break;
+                        default:
+                            for (int c = 0; c < copyComponents; c++) {
+                                out.put(outIndex + c, in.get(inIndex + c));
+                            }
+                    }
+                }
+            }
+
+            IndexBuffer pieceIndices = piece.mesh.getIndexBuffer();
+            for (int n = 0; n < pieceIndices.size(); n++) {
+                indices.put(indexOffset + n, pieceIndices.get(n) + vertexOffset);
+            }
+            vertexOffset += pieceVertexCount;
+            indexOffset += pieceIndices.size();
+        }
+
+        Mesh mesh = new Mesh();
+        for (Map.Entry<Type, FloatBuffer> entry : buffers.entrySet()) {
+            mesh.setBuffer(entry.getKey(), components.get(entry.getKey()), entry.getValue());
+        }
+        mesh.setBuffer(Type.Index, 3, indices.getFormat(), indices.getBuffer());
+        mesh.updateCounts();
+        mesh.updateBound();
+        return mesh;
+    }
+
+    private static void putVector(FloatBuffer buffer, int index, Vector3f vector) {
+        buffer.put(index, vector.x);
+        buffer.put(index + 1, vector.y);
+        buffer.put(index + 2, vector.z);
+    }
+
+}
@@ -20,17 +20,32 @@ import com.jme3.app.Application;
 import com.jme3.app.state.AbstractAppState;
 import com.jme3.app.state.AppStateManager;
 import com.jme3.asset.AssetManager;
+import com.jme3.effect.ParticleEmitter;
+import com.jme3.light.PointLight;
+import com.jme3.material.Material;
 import com.jme3.math.Vector3f;
 import com.jme3.scene.Node;
+import com.jme3.scene.Spatial;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
+import toniarts.openkeeper.tools.convert.map.ArtResource;
+import toniarts.openkeeper.tools.convert.map.Effect;
+import toniarts.openkeeper.tools.convert.map.EffectElement;
 import toniarts.openkeeper.tools.convert.map.KwdFile;
+import toniarts.openkeeper.utils.AssetUtils;
 import toniarts.openkeeper.world.WorldState;
 
 /**
  * An app state to manage ALL the effects in the world. Mainly their lifetime.
+ * Also pools the particle emitters, shares the particle materials and keeps
+ * the effect lights in a budget, the biggest lights win.
  *
  * @author ArchDemon
  * @author Toni Helenius <helenius.toni@gmail.com>
@@ -39,10 +54,15 @@ import toniarts.openkeeper.world.WorldState;
 public class EffectManagerState extends AbstractAppState {
 
     public static int ROOM_CLAIM_ID = 2;
+    private static final int MAX_EFFECT_LIGHTS = 8;
+    private static final int MAX_POOLED_EMITTERS = 16;
 
     private final KwdFile kwdFile;
     private final AssetManager assetManager;
     private final List<VisualEffect> activeEffects = new ArrayList<>();
+    private final Map<Long, Deque<ParticleEmitter>> emitterPool = new HashMap<>();
+    private final Map<String, Material> particleMaterials = new HashMap<>();
+    private final Map<PointLight, Spatial> activeLights = new IdentityHashMap<>(MAX_EFFECT_LIGHTS);
     private AppStateManager stateManager;
     private static final Logger logger = Logger.getLogger(EffectManagerState.class.getName());
 
@@ -115,6 +135,94 @@ public class EffectManagerState extends AbstractAppState {
         activeEffects.add(visualEffect);
     }
 
+    /**
+     * Get a previously released emitter for the effect element
+     *
+     * @param effect the effect the element belongs to
+     * @param element the effect element
+     * @return emitter ready to be emitted, or {@code null} if none is pooled
+     */
+    public ParticleEmitter acquireEmitter(Effect effect, EffectElement element) {
+        Deque<ParticleEmitter> emitters = emitterPool.get(getEmitterKey(effect, element));
+        if (emitters == null || emitters.isEmpty()) {
+            return null;
+        }
+
+        ParticleEmitter emitter = emitters.pop();
+        emitter.killAllParticles();
+        emitter.setLocalTranslation(Vector3f.ZERO);
+        return emitter;
+    }
+
+    /**
+     * Returns a dead emitter to the pool
+     *
+     * @param effect the effect the element belongs to
+     * @param element the effect element
+     * @param emitter the emitter, should be already detached
+     */
+    public void releaseEmitter(Effect effect, EffectElement element, ParticleEmitter emitter) {
+        Deque<ParticleEmitter> emitters = emitterPool.computeIfAbsent(getEmitterKey(effect, element), k -> new ArrayDeque<>());
+        if (emitters.size() < MAX_POOLED_EMITTERS) {
+            emitters.push(emitter);
+        }
+    }
+
+    private static long getEmitterKey(Effect effect, EffectElement element) {
+        return ((long) effect.getEffectId() << 32) | element.getEffectElementId();
+    }
+
+    /**
+     * Get a particle material, the materials are shared between all the
+     * particles using the same resource
+     *
+     * @param resource the art resource
+     * @return the material
+     */
+    public Material getParticleMaterial(ArtResource resource) {
+        return particleMaterials.computeIfAbsent(resource.getName(), k -> AssetUtils.createParticleMaterial(resource, assetManager));
+    }
+
+    /**
+     * Adds an effect light, if the light budget allows. When the budget is
+     * full, the smallest light is dropped to give way, if it is smaller than
+     * the new one
+     *
+     * @param owner the spatial to attach the light to
+     * @param light the light
+     * @return true if the light was added
+     */
+    public boolean addLight(Spatial owner, PointLight light) {
+        if (activeLights.size() >= MAX_EFFECT_LIGHTS) {
+            PointLight smallest = null;
+            for (PointLight activeLight : activeLights.keySet()) {
+                if (smallest == null || activeLight.getRadius() < smallest.getRadius()) {
+                    smallest = activeLight;
+                }
+            }
+            if (smallest.getRadius() >= light.getRadius()) {
+                return false;
+            }
+            removeLight(smallest);
+        }
+
+        owner.addLight(light);
+        activeLights.put(light, owner);
+        return true;
+    }
+
+    /**
+     * Removes an effect light, freeing its place in the light budget
+     *
+     * @param light the light
+     */
+    public void removeLight(PointLight light) {
+        Spatial owner = activeLights.remove(light);
+        if (owner != null) {
+            owner.removeLight(light);
+        }
+    }
+
     public WorldState getWorldState() {
         return stateManager.getState(WorldState.class);
     }
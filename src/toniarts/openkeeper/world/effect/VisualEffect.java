@@ -54,8 +54,9 @@ import toniarts.openkeeper.world.TileData;
  * <ul>
  * <li>We probably need our own particle emitter, the stock wont probably do..
  * Just pass the Effect & EffectElement to our custom one and boom</li>
- * <li>Maybe cache the emitters?</li>
  * </ul>
+ * The particle emitters are pooled and the lights budgeted by the
+ * {@link EffectManagerState}.
  *
  * @author Toni Helenius <helenius.toni@gmail.com>
  */
@@ -125,7 +126,7 @@ public class VisualEffect {
                     EffectGeometry g = new EffectGeometry("effect");
                     g.setFrames(Math.max(1, resource.getData("frames")));
 
-                    Material material = AssetUtils.createParticleMaterial(resource, assetManager);
+                    Material material = effectManagerState.getParticleMaterial(resource);
                     g.setMaterial(material);
 
                     ((Node) model).attachChild(g);
@@ -190,8 +191,8 @@ public class VisualEffect {
 
         // Light
         light = getLight(effect.getLight());
-        if (light != null) {
-            model.addLight(light);
+        if (light != null && !effectManagerState.addLight(model, light)) {
+            light = null;
         }
 
         // Elements/effects
@@ -219,7 +220,10 @@ public class VisualEffect {
 
     private void addEffectElement(Integer id, Vector3f location) {
         EffectElement effectElement = kwdFile.getEffectElement(id);
-        Spatial emitter = loadElement(effectElement);
+        Spatial emitter = effectManagerState.acquireEmitter(effect, effectElement);
+        if (emitter == null) {
+            emitter = loadElement(effectElement);
+        }
         if (emitter != null) {
             if (location != null) {
                 emitter.setLocalTranslation(location);
@@ -258,7 +262,7 @@ public class VisualEffect {
                         ParticleMesh.Type.Triangle,
                         effect.getElementsPerTurn());
                 emitter.setParticlesPerSec(0);
-                Material material = AssetUtils.createParticleMaterial(resource, assetManager);
+                Material material = effectManagerState.getParticleMaterial(resource);
                 emitter.setMaterial(material);
                 emitter.setImagesX(Math.max(1, resource.getData("frames")));
                 emitter.setImagesY(1);
@@ -411,9 +415,10 @@ public class VisualEffect {
             if (entry.getValue() instanceof ParticleEmitter) {
                 if (((ParticleEmitter)entry.getValue()).getNumVisibleParticles() == 0) {
 
-                    // Kill
+                    // Kill, the emitter can be reused
                     entry.getValue().removeFromParent();
                     iter.remove();
+                    effectManagerState.releaseEmitter(effect, entry.getKey(), (ParticleEmitter) entry.getValue());
 
                     // Attach on death element
                     if (entry.getKey().getDeathElementId() != 0) {
@@ -446,10 +451,13 @@ public class VisualEffect {
             // If infitine, just restart
             if (infinite) {
                 if (light != null) {
-                    effectNode.removeLight(light);
+                    effectManagerState.removeLight(light);
                 }
                 load();
             } else {
+                if (light != null) {
+                    effectManagerState.removeLight(light);
+                }
                 effectNode.removeFromParent();
                 return false;
             }
@@ -458,6 +466,13 @@ public class VisualEffect {
     }
 
     public void removeEffect() {
+        if (light != null) {
+            effectManagerState.removeLight(light);
+            light = null;
+        }
+        for (VisualEffect visualEffect : effects) {
+            visualEffect.removeEffect();
+        }
         effects.clear();
         effectElements.clear();
         infinite = false;